@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * Defines which pages share a single resources dictionary (fonts, images
+ * etc.).
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ * @see com.helger.pdflayout4.pdfbox.PDSharedResources
+ */
+public enum EPLResourceSharing implements IHasID <String>
+{
+  /** Each page has its own resources dictionary. */
+  NONE ("none"),
+  /** All pages of a page set share one resources dictionary. */
+  PAGE_SET ("pageset"),
+  /** All pages of the document share one resources dictionary. */
+  DOCUMENT ("document");
+
+  private final String m_sID;
+
+  EPLResourceSharing (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  @Nullable
+  public static EPLResourceSharing getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (EPLResourceSharing.class, sID);
+  }
+}
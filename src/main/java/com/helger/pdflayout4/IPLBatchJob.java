@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.WillCloseWhenClosed;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.io.file.FileHelper;
+
+/**
+ * A single job for the {@link PLBatchRenderer}. Both methods are invoked on
+ * the worker thread, so that the layout of a job is only built when it is
+ * about to be rendered.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+public interface IPLBatchJob
+{
+  /**
+   * @return The layout to be rendered. May not be <code>null</code>.
+   */
+  @Nonnull
+  PageLayoutPDF createPageLayout ();
+
+  /**
+   * @return The output stream to write the PDF to. May not be
+   *         <code>null</code>. Is closed by the caller.
+   * @throws IOException
+   *         If the output stream cannot be opened
+   */
+  @Nonnull
+  @WillCloseWhenClosed
+  OutputStream openOutputStream () throws IOException;
+
+  /**
+   * Create a job that writes the layout to a file.
+   *
+   * @param aPageLayoutSupplier
+   *        The supplier for the layout. May not be <code>null</code>.
+   * @param aFile
+   *        The destination file. May not be <code>null</code>.
+   * @return The new job. Never <code>null</code>.
+   */
+  @Nonnull
+  static IPLBatchJob create (@Nonnull final Supplier <? extends PageLayoutPDF> aPageLayoutSupplier,
+                             @Nonnull final File aFile)
+  {
+    ValueEnforcer.notNull (aPageLayoutSupplier, "PageLayoutSupplier");
+    ValueEnforcer.notNull (aFile, "File");
+    return new IPLBatchJob ()
+    {
+      @Override
+      @Nonnull
+      public PageLayoutPDF createPageLayout ()
+      {
+        return aPageLayoutSupplier.get ();
+      }
+
+      @Override
+      @Nonnull
+      public OutputStream openOutputStream () throws IOException
+      {
+        final OutputStream ret = FileHelper.getBufferedOutputStream (aFile);
+        if (ret == null)
+          throw new IOException ("Failed to open " + aFile.getAbsolutePath () + " for writing");
+        return ret;
+      }
+    };
+  }
+}
@@ -0,0 +1,373 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillClose;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.pdflayout4.render.IPLCancellationToken;
+
+/**
+ * Renders {@link PageLayoutPDF} objects asynchronously on a provided
+ * {@link Executor}. At most a configurable number of documents is rendered at
+ * the same time; all other jobs wait in an internal queue that can optionally
+ * be bounded. No thread is ever blocked while waiting for a free slot and no
+ * monitor locks are used, so the executor may as well run on virtual threads.
+ * <br>
+ * Each {@link PageLayoutPDF} must only be submitted once at a time, as it is
+ * not thread-safe itself. Cancelling a returned future aborts the rendering
+ * cooperatively or, if the job is still waiting, removes it from the queue.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@ThreadSafe
+public class PLAsyncRenderer
+{
+  private final class Job implements Runnable
+  {
+    private final PageLayoutPDF m_aPageLayout;
+    private final OutputStream m_aOS;
+    private final IPLCancellationToken m_aToken;
+    private final Duration m_aTimeout;
+    private final CompletableFuture <PLRenderResult> m_aFuture = new CompletableFuture <> ();
+    private final long m_nQueuedNanos = System.nanoTime ();
+
+    Job (@Nonnull final PageLayoutPDF aPageLayout,
+         @Nonnull final OutputStream aOS,
+         @Nullable final IPLCancellationToken aToken,
+         @Nullable final Duration aTimeout)
+    {
+      m_aPageLayout = aPageLayout;
+      m_aOS = aOS;
+      m_aToken = aToken;
+      m_aTimeout = aTimeout;
+    }
+
+    @Override
+    public void run ()
+    {
+      PLRenderResult aResult = null;
+      Throwable aError = null;
+      try
+      {
+        if (m_aFuture.isDone ())
+        {
+          // Cancelled after it was taken from the queue but before it started
+          m_aFailedCount.incrementAndGet ();
+          StreamHelper.close (m_aOS);
+        }
+        else
+        {
+          final long nStartNanos = System.nanoTime ();
+          final IPLCancellationToken aEffectiveToken = () -> m_aFuture.isCancelled () ||
+                                                             (m_aToken != null && m_aToken.isCancellationRequested ());
+          m_aPageLayout.renderTo (m_aOS, aEffectiveToken, m_aTimeout);
+          aResult = new PLRenderResult (m_aPageLayout, nStartNanos - m_nQueuedNanos, System.nanoTime () - nStartNanos);
+        }
+      }
+      catch (final Throwable t)
+      {
+        aError = t;
+      }
+      finally
+      {
+        // Free the slot before the caller is notified
+        m_aInFlight.decrementAndGet ();
+        _dispatch ();
+      }
+
+      if (aError != null)
+      {
+        m_aFailedCount.incrementAndGet ();
+        m_aFuture.completeExceptionally (aError);
+      }
+      else
+        if (aResult != null)
+        {
+          m_aCompletedCount.incrementAndGet ();
+          m_aFuture.complete (aResult);
+        }
+    }
+  }
+
+  private final Executor m_aExecutor;
+  private final int m_nMaxInFlight;
+  private final int m_nMaxQueueLength;
+
+  private final Queue <Job> m_aQueue = new ConcurrentLinkedQueue <> ();
+  // ConcurrentLinkedQueue.size is O(n)
+  private final AtomicInteger m_aQueueLength = new AtomicInteger (0);
+  private final AtomicInteger m_aInFlight = new AtomicInteger (0);
+  private final AtomicLong m_aSubmittedCount = new AtomicLong (0);
+  private final AtomicLong m_aRejectedCount = new AtomicLong (0);
+  private final AtomicLong m_aCompletedCount = new AtomicLong (0);
+  private final AtomicLong m_aFailedCount = new AtomicLong (0);
+
+  /**
+   * Constructor with an unbounded queue.
+   *
+   * @param aExecutor
+   *        The executor to render on. May not be <code>null</code>.
+   * @param nMaxInFlight
+   *        The maximum number of documents rendered at the same time. Must be
+   *        &gt; 0.
+   */
+  public PLAsyncRenderer (@Nonnull final Executor aExecutor, @Nonnegative final int nMaxInFlight)
+  {
+    this (aExecutor, nMaxInFlight, 0);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param aExecutor
+   *        The executor to render on. May not be <code>null</code>.
+   * @param nMaxInFlight
+   *        The maximum number of documents rendered at the same time. Must be
+   *        &gt; 0.
+   * @param nMaxQueueLength
+   *        The maximum number of waiting documents. Additional documents are
+   *        rejected. A value &le; 0 means unbounded.
+   */
+  public PLAsyncRenderer (@Nonnull final Executor aExecutor,
+                          @Nonnegative final int nMaxInFlight,
+                          final int nMaxQueueLength)
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    ValueEnforcer.isGT0 (nMaxInFlight, "MaxInFlight");
+    m_aExecutor = aExecutor;
+    m_nMaxInFlight = nMaxInFlight;
+    m_nMaxQueueLength = nMaxQueueLength;
+  }
+
+  /**
+   * @return The maximum number of documents rendered at the same time.
+   */
+  @Nonnegative
+  public final int getMaxInFlight ()
+  {
+    return m_nMaxInFlight;
+  }
+
+  /**
+   * @return The maximum number of waiting documents. A value &le; 0 means
+   *         unbounded.
+   */
+  public final int getMaxQueueLength ()
+  {
+    return m_nMaxQueueLength;
+  }
+
+  /**
+   * @return The number of documents currently being rendered.
+   */
+  @Nonnegative
+  public int getInFlightCount ()
+  {
+    return m_aInFlight.get ();
+  }
+
+  /**
+   * @return The number of documents currently waiting for a free slot.
+   */
+  @Nonnegative
+  public int getQueueLength ()
+  {
+    return m_aQueueLength.get ();
+  }
+
+  /**
+   * @return The number of documents submitted so far, including rejected
+   *         ones.
+   */
+  @Nonnegative
+  public long getSubmittedCount ()
+  {
+    return m_aSubmittedCount.get ();
+  }
+
+  /**
+   * @return The number of documents rejected because the queue was full or
+   *         the executor rejected them.
+   */
+  @Nonnegative
+  public long getRejectedCount ()
+  {
+    return m_aRejectedCount.get ();
+  }
+
+  /**
+   * @return The number of successfully rendered documents.
+   */
+  @Nonnegative
+  public long getCompletedCount ()
+  {
+    return m_aCompletedCount.get ();
+  }
+
+  /**
+   * @return The number of documents that failed to render, including
+   *         cancelled ones.
+   */
+  @Nonnegative
+  public long getFailedCount ()
+  {
+    return m_aFailedCount.get ();
+  }
+
+  private void _dispatch ()
+  {
+    while (true)
+    {
+      final int nInFlight = m_aInFlight.get ();
+      if (nInFlight >= m_nMaxInFlight)
+        return;
+      if (!m_aInFlight.compareAndSet (nInFlight, nInFlight + 1))
+        continue;
+
+      final Job aJob = m_aQueue.poll ();
+      if (aJob == null)
+      {
+        m_aInFlight.decrementAndGet ();
+        // Another thread may have enqueued while we held the slot
+        if (m_aQueue.isEmpty ())
+          return;
+        continue;
+      }
+      m_aQueueLength.decrementAndGet ();
+
+      try
+      {
+        m_aExecutor.execute (aJob);
+      }
+      catch (final RejectedExecutionException ex)
+      {
+        m_aInFlight.decrementAndGet ();
+        m_aRejectedCount.incrementAndGet ();
+        StreamHelper.close (aJob.m_aOS);
+        aJob.m_aFuture.completeExceptionally (ex);
+      }
+    }
+  }
+
+  private void _onJobDone (@Nonnull final Job aJob)
+  {
+    // Only a job cancelled while still waiting can be removed here. Whoever
+    // removes the job from the queue (this method or _dispatch) owns it, so it
+    // is counted exactly once.
+    if (aJob.m_aFuture.isCancelled () && m_aQueue.remove (aJob))
+    {
+      m_aQueueLength.decrementAndGet ();
+      m_aFailedCount.incrementAndGet ();
+      StreamHelper.close (aJob.m_aOS);
+    }
+  }
+
+  /**
+   * Render the provided layout asynchronously.
+   *
+   * @param aPageLayout
+   *        The layout to render. May not be <code>null</code>.
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>. Is
+   *        closed automatically.
+   * @return The future with the result. Never <code>null</code>. Completes
+   *         exceptionally with a {@link RejectedExecutionException} if the
+   *         queue is full.
+   */
+  @Nonnull
+  public CompletableFuture <PLRenderResult> render (@Nonnull final PageLayoutPDF aPageLayout,
+                                                    @Nonnull @WillClose final OutputStream aOS)
+  {
+    return render (aPageLayout, aOS, null, null);
+  }
+
+  /**
+   * Render the provided layout asynchronously.
+   *
+   * @param aPageLayout
+   *        The layout to render. May not be <code>null</code>.
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>. Is
+   *        closed automatically.
+   * @param aCancellationToken
+   *        The optional cancellation token. May be <code>null</code>.
+   * @param aTimeout
+   *        The optional maximum duration of the PDF creation itself, excluding
+   *        the time waiting in the queue. May be <code>null</code>.
+   * @return The future with the result. Never <code>null</code>. Completes
+   *         exceptionally with a {@link RejectedExecutionException} if the
+   *         queue is full.
+   */
+  @Nonnull
+  public CompletableFuture <PLRenderResult> render (@Nonnull final PageLayoutPDF aPageLayout,
+                                                    @Nonnull @WillClose final OutputStream aOS,
+                                                    @Nullable final IPLCancellationToken aCancellationToken,
+                                                    @Nullable final Duration aTimeout)
+  {
+    ValueEnforcer.notNull (aPageLayout, "PageLayout");
+    ValueEnforcer.notNull (aOS, "OutputStream");
+
+    m_aSubmittedCount.incrementAndGet ();
+    final Job aJob = new Job (aPageLayout, aOS, aCancellationToken, aTimeout);
+    if (m_nMaxQueueLength > 0 && m_aQueueLength.incrementAndGet () > m_nMaxQueueLength)
+    {
+      m_aQueueLength.decrementAndGet ();
+      m_aRejectedCount.incrementAndGet ();
+      StreamHelper.close (aOS);
+      aJob.m_aFuture.completeExceptionally (new RejectedExecutionException ("The render queue is full (" +
+                                                                             m_nMaxQueueLength +
+                                                                             " entries)"));
+      return aJob.m_aFuture;
+    }
+    if (m_nMaxQueueLength <= 0)
+      m_aQueueLength.incrementAndGet ();
+
+    m_aQueue.add (aJob);
+    aJob.m_aFuture.whenComplete ( (aResult, aError) -> _onJobDone (aJob));
+    _dispatch ();
+    return aJob.m_aFuture;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Executor", m_aExecutor)
+                                       .append ("MaxInFlight", m_nMaxInFlight)
+                                       .append ("MaxQueueLength", m_nMaxQueueLength)
+                                       .append ("InFlight", m_aInFlight.get ())
+                                       .append ("QueueLength", m_aQueueLength.get ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4;
+
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.pdflayout4.base.IPLRenderableObject;
+import com.helger.pdflayout4.element.image.PLEncodedImageCache;
+import com.helger.pdflayout4.render.IPLRenderListener;
+
+/**
+ * Renders a potentially very large number of documents on a fixed number of
+ * workers. The jobs are taken lazily from an {@link Iterator}, so that e.g. a
+ * {@link java.util.stream.Stream} of jobs can be used without materializing
+ * it. All workers share the process wide caches, namely the
+ * {@link com.helger.pdflayout4.spec.PreloadFontManager} for parsed fonts and,
+ * if they are enabled explicitly, the
+ * {@link com.helger.pdflayout4.spec.TextLayoutCache} for line breaking and the
+ * {@link PLEncodedImageCache} for encoded images.<br>
+ * Font subsets are always created per document, as a subset depends on the
+ * characters used in the respective document.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@ThreadSafe
+public class PLBatchRenderer
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (PLBatchRenderer.class);
+
+  private final Executor m_aExecutor;
+  private final int m_nWorkerCount;
+  private BiConsumer <? super IPLBatchJob, ? super Exception> m_aErrorHandler;
+
+  /**
+   * Constructor.
+   *
+   * @param aExecutor
+   *        The executor to run the workers on. Must be able to run at least
+   *        the number of workers concurrently to use all of them. May not be
+   *        <code>null</code>.
+   * @param nWorkerCount
+   *        The number of workers. Must be &gt; 0.
+   */
+  public PLBatchRenderer (@Nonnull final Executor aExecutor, @Nonnegative final int nWorkerCount)
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    ValueEnforcer.isGT0 (nWorkerCount, "WorkerCount");
+    m_aExecutor = aExecutor;
+    m_nWorkerCount = nWorkerCount;
+  }
+
+  /**
+   * @return The number of workers.
+   */
+  @Nonnegative
+  public final int getWorkerCount ()
+  {
+    return m_nWorkerCount;
+  }
+
+  /**
+   * @return The error handler invoked for each failed job. May be
+   *         <code>null</code> in which case errors are only logged.
+   */
+  @Nullable
+  public final BiConsumer <? super IPLBatchJob, ? super Exception> getErrorHandler ()
+  {
+    return m_aErrorHandler;
+  }
+
+  /**
+   * Set the error handler invoked for each failed job. It may be invoked
+   * concurrently from different workers.
+   *
+   * @param aErrorHandler
+   *        The error handler. May be <code>null</code> in which case errors
+   *        are only logged.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final PLBatchRenderer setErrorHandler (@Nullable final BiConsumer <? super IPLBatchJob, ? super Exception> aErrorHandler)
+  {
+    m_aErrorHandler = aErrorHandler;
+    return this;
+  }
+
+  private void _onError (@Nonnull final IPLBatchJob aJob, @Nonnull final Exception ex)
+  {
+    final BiConsumer <? super IPLBatchJob, ? super Exception> aErrorHandler = m_aErrorHandler;
+    if (aErrorHandler != null)
+      aErrorHandler.accept (aJob, ex);
+    else
+      LOGGER.error ("Failed to render batch job " + aJob, ex);
+  }
+
+  /**
+   * Render all jobs and wait until all of them are finished. A failing job
+   * does not stop the batch. If the iterator itself throws an exception, no
+   * further jobs are started and the exception is rethrown after all running
+   * jobs are finished.
+   *
+   * @param aJobs
+   *        The jobs to render. May not be <code>null</code>. The iterator is
+   *        only accessed by one worker at a time and must not contain
+   *        <code>null</code> elements.
+   * @return The batch result. Never <code>null</code>.
+   * @throws InterruptedException
+   *         If the calling thread was interrupted while waiting
+   */
+  @Nonnull
+  public PLBatchResult render (@Nonnull final Iterator <? extends IPLBatchJob> aJobs) throws InterruptedException
+  {
+    ValueEnforcer.notNull (aJobs, "Jobs");
+
+    final long nStartNanos = System.nanoTime ();
+
+    final SimpleLock aLock = new SimpleLock ();
+    final AtomicBoolean aStopped = new AtomicBoolean (false);
+    final RuntimeException [] aIteratorError = new RuntimeException [1];
+    final AtomicLong aSuccessCount = new AtomicLong (0);
+    final AtomicLong aFailureCount = new AtomicLong (0);
+    final CountDownLatch aLatch = new CountDownLatch (m_nWorkerCount);
+    // Count per batch, as the image cache is shared with everything else
+    final AtomicLong aImageCacheHits = new AtomicLong (0);
+    final AtomicLong aImageCacheMisses = new AtomicLong (0);
+    final IPLRenderListener aImageCacheListener = new IPLRenderListener ()
+    {
+      @Override
+      public void onImageCacheLookup (@Nonnull final IPLRenderableObject <?> aElement, final boolean bHit)
+      {
+        (bHit ? aImageCacheHits : aImageCacheMisses).incrementAndGet ();
+      }
+    };
+
+    final Runnable aWorker = () -> {
+      try
+      {
+        while (!aStopped.get ())
+        {
+          final IPLBatchJob aJob = aLock.lockedGet ( () -> {
+            // Another worker may have failed while this one was waiting
+            if (aIteratorError[0] != null)
+              return null;
+            try
+            {
+              return aJobs.hasNext () ? aJobs.next () : null;
+            }
+            catch (final RuntimeException ex)
+            {
+              aIteratorError[0] = ex;
+              return null;
+            }
+          });
+          if (aJob == null)
+          {
+            aStopped.set (true);
+            break;
+          }
+
+          try
+          {
+            final PageLayoutPDF aPageLayout = aJob.createPageLayout ();
+            aPageLayout.addRenderListener (aImageCacheListener);
+            try
+            {
+              final OutputStream aOS = aJob.openOutputStream ();
+              aPageLayout.renderTo (aOS);
+            }
+            finally
+            {
+              aPageLayout.removeRenderListener (aImageCacheListener);
+            }
+            aSuccessCount.incrementAndGet ();
+          }
+          catch (final Exception ex)
+          {
+            aFailureCount.incrementAndGet ();
+            _onError (aJob, ex);
+          }
+        }
+      }
+      finally
+      {
+        aLatch.countDown ();
+      }
+    };
+
+    int nStarted = 0;
+    for (int i = 0; i < m_nWorkerCount; ++i)
+    {
+      try
+      {
+        m_aExecutor.execute (aWorker);
+        nStarted++;
+      }
+      catch (final RejectedExecutionException ex)
+      {
+        // The other workers take over
+        LOGGER.warn ("Failed to start batch worker " + i + ": " + ex.getMessage ());
+        aLatch.countDown ();
+      }
+    }
+    if (nStarted == 0)
+    {
+      // Render in the calling thread
+      aWorker.run ();
+    }
+    aLatch.await ();
+
+    final RuntimeException aError = aLock.lockedGet ( () -> aIteratorError[0]);
+    if (aError != null)
+      throw aError;
+
+    return new PLBatchResult (aSuccessCount.get (),
+                              aFailureCount.get (),
+                              System.nanoTime () - nStartNanos,
+                              aImageCacheHits.get (),
+                              aImageCacheMisses.get ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Executor", m_aExecutor)
+                                       .append ("WorkerCount", m_nWorkerCount)
+                                       .append ("ErrorHandler", m_aErrorHandler)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The result of a single batch run of the {@link PLBatchRenderer}.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@Immutable
+public final class PLBatchResult
+{
+  private final long m_nSuccessCount;
+  private final long m_nFailureCount;
+  private final long m_nDurationNanos;
+  private final long m_nImageCacheHits;
+  private final long m_nImageCacheMisses;
+
+  public PLBatchResult (@Nonnegative final long nSuccessCount,
+                        @Nonnegative final long nFailureCount,
+                        @Nonnegative final long nDurationNanos,
+                        @Nonnegative final long nImageCacheHits,
+                        @Nonnegative final long nImageCacheMisses)
+  {
+    m_nSuccessCount = nSuccessCount;
+    m_nFailureCount = nFailureCount;
+    m_nDurationNanos = nDurationNanos;
+    m_nImageCacheHits = nImageCacheHits;
+    m_nImageCacheMisses = nImageCacheMisses;
+  }
+
+  /**
+   * @return The total number of jobs processed.
+   */
+  @Nonnegative
+  public long getJobCount ()
+  {
+    return m_nSuccessCount + m_nFailureCount;
+  }
+
+  /**
+   * @return The number of successfully rendered documents.
+   */
+  @Nonnegative
+  public long getSuccessCount ()
+  {
+    return m_nSuccessCount;
+  }
+
+  /**
+   * @return The number of jobs that failed.
+   */
+  @Nonnegative
+  public long getFailureCount ()
+  {
+    return m_nFailureCount;
+  }
+
+  /**
+   * @return The wall clock duration of the batch in nanoseconds.
+   */
+  @Nonnegative
+  public long getDurationNanos ()
+  {
+    return m_nDurationNanos;
+  }
+
+  /**
+   * @return The number of documents rendered per second. 0 if nothing was
+   *         rendered.
+   */
+  public double getDocumentsPerSecond ()
+  {
+    if (m_nDurationNanos <= 0)
+      return 0;
+    return getJobCount () * (double) TimeUnit.SECONDS.toNanos (1) / m_nDurationNanos;
+  }
+
+  /**
+   * @return The number of images of this batch taken from the global encoded
+   *         image cache.
+   */
+  @Nonnegative
+  public long getImageCacheHits ()
+  {
+    return m_nImageCacheHits;
+  }
+
+  /**
+   * @return The number of images of this batch not found in the global
+   *         encoded image cache.
+   */
+  @Nonnegative
+  public long getImageCacheMisses ()
+  {
+    return m_nImageCacheMisses;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("SuccessCount", m_nSuccessCount)
+                                       .append ("FailureCount", m_nFailureCount)
+                                       .append ("DurationNanos", m_nDurationNanos)
+                                       .append ("ImageCacheHits", m_nImageCacheHits)
+                                       .append ("ImageCacheMisses", m_nImageCacheMisses)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * An {@link OutputStream} that writes to a {@link WritableByteChannel} through
+ * a single direct {@link ByteBuffer}. Compared to a buffered stream on top of a
+ * {@link java.io.FileOutputStream} this avoids the copy of each chunk into a
+ * temporary native buffer. If the channel is a {@link FileChannel}, the file
+ * can optionally be truncated to the written size and forced to the device on
+ * close.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public class PLChannelOutputStream extends OutputStream
+{
+  public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  private final WritableByteChannel m_aChannel;
+  private final ByteBuffer m_aBuffer;
+  private boolean m_bTruncateOnClose = false;
+  private boolean m_bForceOnClose = false;
+  private long m_nBytesWritten = 0;
+  private boolean m_bClosed = false;
+
+  public PLChannelOutputStream (@Nonnull @WillCloseWhenClosed final WritableByteChannel aChannel)
+  {
+    this (aChannel, DEFAULT_BUFFER_SIZE);
+  }
+
+  public PLChannelOutputStream (@Nonnull @WillCloseWhenClosed final WritableByteChannel aChannel,
+                                @Nonnegative final int nBufferSize)
+  {
+    ValueEnforcer.notNull (aChannel, "Channel");
+    ValueEnforcer.isGT0 (nBufferSize, "BufferSize");
+    m_aChannel = aChannel;
+    m_aBuffer = ByteBuffer.allocateDirect (nBufferSize);
+  }
+
+  /**
+   * @return The number of bytes written to this stream so far.
+   */
+  @Nonnegative
+  public long getBytesWritten ()
+  {
+    return m_nBytesWritten;
+  }
+
+  /**
+   * Truncate the file to the current position on close. This is only
+   * considered for {@link FileChannel} objects and is required if the file was
+   * preallocated.
+   *
+   * @param bTruncateOnClose
+   *        <code>true</code> to truncate
+   * @return this for chaining
+   */
+  @Nonnull
+  public PLChannelOutputStream setTruncateOnClose (final boolean bTruncateOnClose)
+  {
+    m_bTruncateOnClose = bTruncateOnClose;
+    return this;
+  }
+
+  /**
+   * Force the content and the metadata to the storage device on close. This
+   * is only considered for {@link FileChannel} objects.
+   *
+   * @param bForceOnClose
+   *        <code>true</code> to force
+   * @return this for chaining
+   */
+  @Nonnull
+  public PLChannelOutputStream setForceOnClose (final boolean bForceOnClose)
+  {
+    m_bForceOnClose = bForceOnClose;
+    return this;
+  }
+
+  private void _ensureOpen () throws IOException
+  {
+    if (m_bClosed)
+      throw new IOException ("Stream is already closed");
+  }
+
+  private void _drain () throws IOException
+  {
+    m_aBuffer.flip ();
+    while (m_aBuffer.hasRemaining ())
+      m_aChannel.write (m_aBuffer);
+    m_aBuffer.clear ();
+  }
+
+  @Override
+  public void write (final int b) throws IOException
+  {
+    _ensureOpen ();
+    if (!m_aBuffer.hasRemaining ())
+      _drain ();
+    m_aBuffer.put ((byte) b);
+    m_nBytesWritten++;
+  }
+
+  @Override
+  public void write (@Nonnull final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+  {
+    ValueEnforcer.isArrayOfsLen (aBuf, nOfs, nLen);
+    _ensureOpen ();
+
+    int nCurOfs = nOfs;
+    int nRest = nLen;
+    while (nRest > 0)
+    {
+      if (!m_aBuffer.hasRemaining ())
+        _drain ();
+      final int nChunk = Math.min (nRest, m_aBuffer.remaining ());
+      m_aBuffer.put (aBuf, nCurOfs, nChunk);
+      nCurOfs += nChunk;
+      nRest -= nChunk;
+    }
+    m_nBytesWritten += nLen;
+  }
+
+  @Override
+  public void flush () throws IOException
+  {
+    _ensureOpen ();
+    _drain ();
+  }
+
+  @Override
+  public void close () throws IOException
+  {
+    if (!m_bClosed)
+    {
+      try
+      {
+        _drain ();
+        if (m_aChannel instanceof FileChannel)
+        {
+          final FileChannel aFileChannel = (FileChannel) m_aChannel;
+          if (m_bTruncateOnClose)
+            aFileChannel.truncate (aFileChannel.position ());
+          if (m_bForceOnClose)
+            aFileChannel.force (true);
+        }
+      }
+      finally
+      {
+        m_bClosed = true;
+        m_aChannel.close ();
+      }
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Channel", m_aChannel)
+                                       .append ("BufferSize", m_aBuffer.capacity ())
+                                       .append ("TruncateOnClose", m_bTruncateOnClose)
+                                       .append ("ForceOnClose", m_bForceOnClose)
+                                       .append ("BytesWritten", m_nBytesWritten)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Settings for rendering a PDF to a file via a
+ * {@link java.nio.channels.FileChannel}.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ * @see PageLayoutPDF#renderTo(java.nio.file.Path, PLFileOutputSettings)
+ */
+@NotThreadSafe
+public class PLFileOutputSettings
+{
+  public static final int DEFAULT_BUFFER_SIZE = PLChannelOutputStream.DEFAULT_BUFFER_SIZE;
+  public static final long DEFAULT_PREALLOCATE_BYTES = 0;
+  public static final EPLFileSyncMode DEFAULT_SYNC_MODE = EPLFileSyncMode.NONE;
+
+  private int m_nBufferSize = DEFAULT_BUFFER_SIZE;
+  private long m_nPreallocateBytes = DEFAULT_PREALLOCATE_BYTES;
+  private EPLFileSyncMode m_eSyncMode = DEFAULT_SYNC_MODE;
+
+  public PLFileOutputSettings ()
+  {}
+
+  /**
+   * @return The size of the direct write buffer in bytes. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getBufferSize ()
+  {
+    return m_nBufferSize;
+  }
+
+  /**
+   * @param nBufferSize
+   *        The size of the direct write buffer in bytes. Must be &gt; 0.
+   * @return this for chaining
+   */
+  @Nonnull
+  public PLFileOutputSettings setBufferSize (@Nonnegative final int nBufferSize)
+  {
+    ValueEnforcer.isGT0 (nBufferSize, "BufferSize");
+    m_nBufferSize = nBufferSize;
+    return this;
+  }
+
+  /**
+   * @return The number of bytes the file is extended to before writing. 0
+   *         means no preallocation. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getPreallocateBytes ()
+  {
+    return m_nPreallocateBytes;
+  }
+
+  /**
+   * Set the expected file size. The file is extended to this size before
+   * writing and truncated to the real size afterwards. Java offers no portable
+   * way to reserve blocks, so depending on the file system the preallocated
+   * range may stay sparse; it still avoids repeated file size updates while
+   * writing.
+   *
+   * @param nPreallocateBytes
+   *        The number of bytes to preallocate. Must be &ge; 0. 0 disables
+   *        preallocation.
+   * @return this for chaining
+   */
+  @Nonnull
+  public PLFileOutputSettings setPreallocateBytes (@Nonnegative final long nPreallocateBytes)
+  {
+    ValueEnforcer.isGE0 (nPreallocateBytes, "PreallocateBytes");
+    m_nPreallocateBytes = nPreallocateBytes;
+    return this;
+  }
+
+  /**
+   * @return The sync mode to use. Never <code>null</code>.
+   */
+  @Nonnull
+  public EPLFileSyncMode getSyncMode ()
+  {
+    return m_eSyncMode;
+  }
+
+  /**
+   * @param eSyncMode
+   *        The sync mode to use. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public PLFileOutputSettings setSyncMode (@Nonnull final EPLFileSyncMode eSyncMode)
+  {
+    ValueEnforcer.notNull (eSyncMode, "SyncMode");
+    m_eSyncMode = eSyncMode;
+    return this;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("BufferSize", m_nBufferSize)
+                                       .append ("PreallocateBytes", m_nPreallocateBytes)
+                                       .append ("SyncMode", m_eSyncMode)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.pdflayout4.base.IPLRenderableObject;
+import com.helger.pdflayout4.base.IPLVisitable;
+import com.helger.pdflayout4.base.IPLVisitor;
+import com.helger.pdflayout4.element.image.AbstractPLImage;
+import com.helger.pdflayout4.element.text.AbstractPLText;
+import com.helger.pdflayout4.render.PLRenderLimitExceededException;
+
+/**
+ * Resource limits for a single PDF creation. All limits are disabled by
+ * default. A value &le; 0 means "unlimited". Element count, image pixel area
+ * and the estimated heap usage are checked before the document is created,
+ * the page count is checked while the pages are created.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public class PLRenderLimits
+{
+  /**
+   * Rough number of heap bytes per character of text: the string itself, the
+   * fitted lines and their widths.
+   */
+  public static final long ESTIMATED_BYTES_PER_CHAR = 16;
+  /**
+   * Rough number of heap bytes per image pixel: the raster and the encoded
+   * copy.
+   */
+  public static final long ESTIMATED_BYTES_PER_PIXEL = 8;
+
+  private int m_nMaxElementCount;
+  private int m_nMaxPageCount;
+  private long m_nMaxImagePixels;
+  private long m_nMaxEstimatedHeapBytes;
+
+  public PLRenderLimits ()
+  {}
+
+  /**
+   * @return The maximum number of elements including all nested elements and
+   *         page headers and footers. A value &le; 0 means unlimited.
+   */
+  public int getMaxElementCount ()
+  {
+    return m_nMaxElementCount;
+  }
+
+  @Nonnull
+  public PLRenderLimits setMaxElementCount (final int nMaxElementCount)
+  {
+    m_nMaxElementCount = nMaxElementCount;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of pages of the whole document. A value &le; 0
+   *         means unlimited.
+   */
+  public int getMaxPageCount ()
+  {
+    return m_nMaxPageCount;
+  }
+
+  @Nonnull
+  public PLRenderLimits setMaxPageCount (final int nMaxPageCount)
+  {
+    m_nMaxPageCount = nMaxPageCount;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of source pixels of a single image. Only
+   *         images with a known source size are checked. A value &le; 0 means
+   *         unlimited.
+   * @see AbstractPLImage#getSourcePixelCount()
+   */
+  public long getMaxImagePixels ()
+  {
+    return m_nMaxImagePixels;
+  }
+
+  @Nonnull
+  public PLRenderLimits setMaxImagePixels (final long nMaxImagePixels)
+  {
+    m_nMaxImagePixels = nMaxImagePixels;
+    return this;
+  }
+
+  /**
+   * @return The maximum estimated heap usage in bytes, based on the text
+   *         length and image sizes of all elements. A value &le; 0 means
+   *         unlimited.
+   * @see #ESTIMATED_BYTES_PER_CHAR
+   * @see #ESTIMATED_BYTES_PER_PIXEL
+   */
+  public long getMaxEstimatedHeapBytes ()
+  {
+    return m_nMaxEstimatedHeapBytes;
+  }
+
+  @Nonnull
+  public PLRenderLimits setMaxEstimatedHeapBytes (final long nMaxEstimatedHeapBytes)
+  {
+    m_nMaxEstimatedHeapBytes = nMaxEstimatedHeapBytes;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if at least one of element count, image pixels
+   *         or heap budget is limited.
+   */
+  public boolean hasAnyElementLimit ()
+  {
+    return m_nMaxElementCount > 0 || m_nMaxImagePixels > 0 || m_nMaxEstimatedHeapBytes > 0;
+  }
+
+  /**
+   * Get the estimated heap usage of a single element, not considering any
+   * child elements.
+   *
+   * @param aElement
+   *        The element to check. May not be <code>null</code>.
+   * @return The estimated number of bytes. Always &ge; 0.
+   * @see #ESTIMATED_BYTES_PER_CHAR
+   * @see #ESTIMATED_BYTES_PER_PIXEL
+   */
+  @Nonnegative
+  public static long getEstimatedHeapBytes (@Nonnull final IPLRenderableObject <?> aElement)
+  {
+    if (aElement instanceof AbstractPLText <?>)
+      return ((AbstractPLText <?>) aElement).getText ().length () * ESTIMATED_BYTES_PER_CHAR;
+    if (aElement instanceof AbstractPLImage <?>)
+    {
+      final long nPixels = ((AbstractPLImage <?>) aElement).getSourcePixelCount ();
+      if (nPixels > 0)
+        return nPixels * ESTIMATED_BYTES_PER_PIXEL;
+    }
+    return 0;
+  }
+
+  /**
+   * Get the estimated heap usage of all elements contained in the passed
+   * object.
+   *
+   * @param aVisitable
+   *        The object to check. May not be <code>null</code>.
+   * @return The estimated number of bytes. Always &ge; 0.
+   * @throws IOException
+   *         From the visitor
+   * @see #getEstimatedHeapBytes(IPLRenderableObject)
+   */
+  @Nonnegative
+  public static long getEstimatedHeapBytes (@Nonnull final IPLVisitable aVisitable) throws IOException
+  {
+    ValueEnforcer.notNull (aVisitable, "Visitable");
+
+    final long [] aSum = new long [1];
+    aVisitable.visit (IPLVisitor.createElementVisitor (aElement -> {
+      aSum[0] += getEstimatedHeapBytes (aElement);
+      return EChange.UNCHANGED;
+    }));
+    return aSum[0];
+  }
+
+  /**
+   * Check element count, image pixels and estimated heap usage of all
+   * elements. Fails as soon as the first limit is exceeded.
+   *
+   * @param aVisitable
+   *        The object to check. May not be <code>null</code>.
+   * @throws PLRenderLimitExceededException
+   *         If a limit is exceeded
+   * @throws IOException
+   *         From the visitor
+   */
+  public void checkElements (@Nonnull final IPLVisitable aVisitable) throws IOException
+  {
+    ValueEnforcer.notNull (aVisitable, "Visitable");
+    if (!hasAnyElementLimit ())
+      return;
+
+    aVisitable.visit (new IPLVisitor ()
+    {
+      private int m_nElementCount;
+      private long m_nHeapBytes;
+
+      @Override
+      @Nonnull
+      public EChange onElement (@Nonnull final IPLRenderableObject <?> aElement)
+      {
+        m_nElementCount++;
+        if (m_nMaxElementCount > 0 && m_nElementCount > m_nMaxElementCount)
+          throw new PLRenderLimitExceededException ("The document contains more than " +
+                                                    m_nMaxElementCount +
+                                                    " elements");
+
+        if (m_nMaxImagePixels > 0 && aElement instanceof AbstractPLImage <?>)
+        {
+          final long nPixels = ((AbstractPLImage <?>) aElement).getSourcePixelCount ();
+          if (nPixels > m_nMaxImagePixels)
+            throw new PLRenderLimitExceededException ("The image " +
+                                                      aElement.getDebugID () +
+                                                      " has " +
+                                                      nPixels +
+                                                      " pixels which is more than the allowed " +
+                                                      m_nMaxImagePixels +
+                                                      " pixels");
+        }
+
+        m_nHeapBytes += getEstimatedHeapBytes (aElement);
+        if (m_nMaxEstimatedHeapBytes > 0 && m_nHeapBytes > m_nMaxEstimatedHeapBytes)
+          throw new PLRenderLimitExceededException ("The estimated heap usage of the document exceeds " +
+                                                    m_nMaxEstimatedHeapBytes +
+                                                    " bytes");
+        return EChange.UNCHANGED;
+      }
+    });
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxElementCount", m_nMaxElementCount)
+                                       .append ("MaxPageCount", m_nMaxPageCount)
+                                       .append ("MaxImagePixels", m_nMaxImagePixels)
+                                       .append ("MaxEstimatedHeapBytes", m_nMaxEstimatedHeapBytes)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The result of a single asynchronous PDF creation.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ * @see PLAsyncRenderer
+ */
+@Immutable
+public final class PLRenderResult
+{
+  private final PageLayoutPDF m_aPageLayout;
+  private final long m_nQueueNanos;
+  private final long m_nRenderNanos;
+
+  public PLRenderResult (@Nonnull final PageLayoutPDF aPageLayout, final long nQueueNanos, final long nRenderNanos)
+  {
+    ValueEnforcer.notNull (aPageLayout, "PageLayout");
+    m_aPageLayout = aPageLayout;
+    m_nQueueNanos = nQueueNanos;
+    m_nRenderNanos = nRenderNanos;
+  }
+
+  /**
+   * @return The rendered layout. Never <code>null</code>.
+   */
+  @Nonnull
+  public PageLayoutPDF getPageLayout ()
+  {
+    return m_aPageLayout;
+  }
+
+  /**
+   * @return The nanoseconds the job waited before it was started.
+   */
+  public long getQueueNanos ()
+  {
+    return m_nQueueNanos;
+  }
+
+  /**
+   * @return The nanoseconds the PDF creation itself took.
+   */
+  public long getRenderNanos ()
+  {
+    return m_nRenderNanos;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("PageLayout", m_aPageLayout)
+                                       .append ("QueueNanos", m_nQueueNanos)
+                                       .append ("RenderNanos", m_nRenderNanos)
+                                       .getToString ();
+  }
+}
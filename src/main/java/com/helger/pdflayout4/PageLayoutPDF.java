@@ -19,14 +19,22 @@ package com.helger.pdflayout4;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.GregorianCalendar;
+import java.util.concurrent.Executor;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.WillClose;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.slf4j.Logger;
@@ -49,6 +57,21 @@ import com.helger.pdflayout4.base.IPLVisitable;
 import com.helger.pdflayout4.base.IPLVisitor;
 import com.helger.pdflayout4.base.PLPageSet;
 import com.helger.pdflayout4.base.PLPageSetPrepareResult;
+import com.helger.pdflayout4.base.PLPageSetRenderOptions;
+import com.helger.pdflayout4.element.image.AbstractPLImage;
+import com.helger.pdflayout4.element.image.PLImageEncodingPipeline;
+import com.helger.pdflayout4.element.image.PLImageOptimizer;
+import com.helger.pdflayout4.pdfbox.PDContentStreamDeduplicator;
+import com.helger.pdflayout4.pdfbox.PDLinearizedWriter;
+import com.helger.pdflayout4.pdfbox.PDObjectStreamWriter;
+import com.helger.pdflayout4.pdfbox.PDParallelStreamCompressor;
+import com.helger.pdflayout4.pdfbox.PDSharedResources;
+import com.helger.pdflayout4.render.IPLCancellationToken;
+import com.helger.pdflayout4.render.IPLRenderListener;
+import com.helger.pdflayout4.render.PLCancellationCheck;
+import com.helger.pdflayout4.render.PLRenderCancelledException;
+import com.helger.pdflayout4.render.PLRenderLimitExceededException;
+import com.helger.pdflayout4.render.PLRenderMonitor;
 import com.helger.pdflayout4.render.PreparationContextGlobal;
 
 /**
@@ -62,6 +85,11 @@ import com.helger.pdflayout4.render.PreparationContextGlobal;
 public class PageLayoutPDF implements IPLVisitable
 {
   public static final boolean DEFAULT_COMPRESS_PDF = true;
+  public static final boolean DEFAULT_PREPARE_CACHE = false;
+  public static final EPLResourceSharing DEFAULT_RESOURCE_SHARING = EPLResourceSharing.NONE;
+  public static final boolean DEFAULT_DEDUPLICATE_CONTENT_STREAMS = false;
+  public static final boolean DEFAULT_USE_OBJECT_STREAMS = false;
+  public static final boolean DEFAULT_LINEARIZE = false;
 
   private static final Logger LOGGER = LoggerFactory.getLogger (PageLayoutPDF.class);
 
@@ -72,8 +100,23 @@ public class PageLayoutPDF implements IPLVisitable
   private String m_sDocumentKeywords;
   private String m_sDocumentSubject;
   private boolean m_bCompressPDF = DEFAULT_COMPRESS_PDF;
+  private boolean m_bPrepareCache = DEFAULT_PREPARE_CACHE;
   private final ICommonsList <PLPageSet> m_aPageSets = new CommonsArrayList <> ();
   private IPDDocumentCustomizer m_aDocumentCustomizer;
+  private final ICommonsList <IPLRenderListener> m_aRenderListeners = new CommonsArrayList <> ();
+  private PLRenderLimits m_aRenderLimits;
+  private MemoryUsageSetting m_aMemoryUsageSetting;
+  private long m_nMemoryUsageThreshold;
+  private PLImageOptimizer m_aImageOptimizer;
+  private Executor m_aImageEncodingExecutor;
+  private int m_nImageEncodingMaxParallel;
+  private EPLResourceSharing m_eResourceSharing = DEFAULT_RESOURCE_SHARING;
+  private boolean m_bDeduplicateContentStreams = DEFAULT_DEDUPLICATE_CONTENT_STREAMS;
+  private Executor m_aCompressionExecutor;
+  private int m_nCompressionMaxParallel;
+  private int m_nCompressionLevel = PDParallelStreamCompressor.DEFAULT_COMPRESSION_LEVEL;
+  private boolean m_bUseObjectStreams = DEFAULT_USE_OBJECT_STREAMS;
+  private boolean m_bLinearize = DEFAULT_LINEARIZE;
 
   /**
    * Constructor. Initializes Author, CreationDate and Creator from class
@@ -107,6 +150,31 @@ public class PageLayoutPDF implements IPLVisitable
     return this;
   }
 
+  /**
+   * @return <code>true</code> if prepare results of structurally identical
+   *         elements (e.g. the same text with the same font) are shared while
+   *         creating the PDF.
+   * @since 5.1.2
+   */
+  public final boolean isPrepareCache ()
+  {
+    return m_bPrepareCache;
+  }
+
+  /**
+   * @param bPrepareCache
+   *        <code>true</code> to share prepare results of structurally identical
+   *        elements, <code>false</code> to prepare each element on its own.
+   * @return this for chaining
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setPrepareCache (final boolean bPrepareCache)
+  {
+    m_bPrepareCache = bPrepareCache;
+    return this;
+  }
+
   @Nullable
   public final String getDocumentAuthor ()
   {
@@ -226,6 +294,453 @@ public class PageLayoutPDF implements IPLVisitable
     return this;
   }
 
+  /**
+   * @return All render listeners registered for this document. Listeners
+   *         registered via SPI are not contained. Never <code>null</code>.
+   * @since 5.1.2
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IPLRenderListener> getAllRenderListeners ()
+  {
+    return m_aRenderListeners.getClone ();
+  }
+
+  /**
+   * Add a render listener for this document. Listeners that should be used for
+   * all documents can be registered via SPI.
+   *
+   * @param aRenderListener
+   *        The listener to be added. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 5.1.2
+   */
+  @Nonnull
+  public PageLayoutPDF addRenderListener (@Nonnull final IPLRenderListener aRenderListener)
+  {
+    ValueEnforcer.notNull (aRenderListener, "RenderListener");
+    m_aRenderListeners.add (aRenderListener);
+    return this;
+  }
+
+  /**
+   * Remove a render listener from this document.
+   *
+   * @param aRenderListener
+   *        The listener to be removed. May be <code>null</code>.
+   * @return {@link EChange}
+   * @since 5.1.2
+   */
+  @Nonnull
+  public EChange removeRenderListener (@Nullable final IPLRenderListener aRenderListener)
+  {
+    return m_aRenderListeners.removeObject (aRenderListener);
+  }
+
+  /**
+   * @return The resource limits to be applied when rendering. May be
+   *         <code>null</code>.
+   * @since 5.1.2
+   */
+  @Nullable
+  public final PLRenderLimits getRenderLimits ()
+  {
+    return m_aRenderLimits;
+  }
+
+  /**
+   * Set resource limits for rendering, so that runaway documents are rejected
+   * with a {@link PDFCreationLimitExceededException} instead of exhausting the
+   * heap.
+   *
+   * @param aRenderLimits
+   *        The limits to use. May be <code>null</code> to render without
+   *        limits.
+   * @return this for chaining
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setRenderLimits (@Nullable final PLRenderLimits aRenderLimits)
+  {
+    m_aRenderLimits = aRenderLimits;
+    return this;
+  }
+
+  /**
+   * @return The PDFBox memory usage setting to be used for stream data. May be
+   *         <code>null</code> in which case all data is kept in main memory.
+   * @see #getMemoryUsageThreshold()
+   * @since 5.1.2
+   */
+  @Nullable
+  public final MemoryUsageSetting getMemoryUsageSetting ()
+  {
+    return m_aMemoryUsageSetting;
+  }
+
+  /**
+   * Set the PDFBox memory usage setting for stream data. Use e.g.
+   * {@link MemoryUsageSetting#setupMixed(long)} together with
+   * {@link MemoryUsageSetting#setTempDir(File)} to spill content and image
+   * streams of large documents to a scratch file.
+   *
+   * @param aMemoryUsageSetting
+   *        The setting to use. May be <code>null</code> to keep everything in
+   *        main memory.
+   * @return this for chaining
+   * @see #setMemoryUsageThreshold(long)
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setMemoryUsageSetting (@Nullable final MemoryUsageSetting aMemoryUsageSetting)
+  {
+    m_aMemoryUsageSetting = aMemoryUsageSetting;
+    return this;
+  }
+
+  /**
+   * @return The estimated document size in bytes from which on the memory
+   *         usage setting is applied. A value &le; 0 means it is always
+   *         applied.
+   * @since 5.1.2
+   */
+  public final long getMemoryUsageThreshold ()
+  {
+    return m_nMemoryUsageThreshold;
+  }
+
+  /**
+   * Set the estimated document size in bytes from which on the memory usage
+   * setting is applied. Smaller documents are kept in main memory only. The
+   * estimation is based on the text length and image sizes of all elements
+   * (see {@link PLRenderLimits#getEstimatedHeapBytes(IPLVisitable)}).
+   *
+   * @param nMemoryUsageThreshold
+   *        The threshold in bytes. A value &le; 0 means the memory usage
+   *        setting is always applied.
+   * @return this for chaining
+   * @see #setMemoryUsageSetting(MemoryUsageSetting)
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setMemoryUsageThreshold (final long nMemoryUsageThreshold)
+  {
+    m_nMemoryUsageThreshold = nMemoryUsageThreshold;
+    return this;
+  }
+
+  /**
+   * @return The image optimizer for all images of this document. May be
+   *         <code>null</code>.
+   * @since 5.1.2
+   */
+  @Nullable
+  public final PLImageOptimizer getImageOptimizer ()
+  {
+    return m_aImageOptimizer;
+  }
+
+  /**
+   * Set the image optimizer for all images of this document, that don't
+   * define their own optimizer. Use it e.g. to downsample large photos to the
+   * resolution required by their layout size.
+   *
+   * @param aImageOptimizer
+   *        The image optimizer to use. May be <code>null</code> to embed all
+   *        images as they are.
+   * @return this for chaining
+   * @see com.helger.pdflayout4.element.image.AbstractPLImage#setImageOptimizer(PLImageOptimizer)
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setImageOptimizer (@Nullable final PLImageOptimizer aImageOptimizer)
+  {
+    m_aImageOptimizer = aImageOptimizer;
+    return this;
+  }
+
+  /**
+   * @return The executor to encode images in the background. May be
+   *         <code>null</code>.
+   * @since 5.1.2
+   */
+  @Nullable
+  public final Executor getImageEncodingExecutor ()
+  {
+    return m_aImageEncodingExecutor;
+  }
+
+  /**
+   * @return The maximum number of images encoded in the background at the
+   *         same time.
+   * @since 5.1.2
+   */
+  public final int getImageEncodingMaxParallel ()
+  {
+    return m_nImageEncodingMaxParallel;
+  }
+
+  /**
+   * Encode all images in the background while the layout is prepared, so that
+   * the wall time of image heavy documents is roughly the maximum of layout
+   * and encoding time instead of their sum.
+   *
+   * @param aExecutor
+   *        The executor to encode on. May be <code>null</code> to encode all
+   *        images synchronously while rendering.
+   * @param nMaxParallel
+   *        The maximum number of images encoded at the same time. Must be &gt;
+   *        0 if an executor is provided.
+   * @return this for chaining
+   * @see PLImageEncodingPipeline
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setImageEncodingExecutor (@Nullable final Executor aExecutor, final int nMaxParallel)
+  {
+    if (aExecutor != null)
+      ValueEnforcer.isGT0 (nMaxParallel, "MaxParallel");
+    m_aImageEncodingExecutor = aExecutor;
+    m_nImageEncodingMaxParallel = nMaxParallel;
+    return this;
+  }
+
+  /**
+   * @return Which pages share a single resources dictionary. Never
+   *         <code>null</code>.
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final EPLResourceSharing getResourceSharing ()
+  {
+    return m_eResourceSharing;
+  }
+
+  /**
+   * Define which pages share a single resources dictionary. Sharing makes
+   * documents with many pages smaller and faster to save, as the references
+   * to fonts and images are written only once.
+   *
+   * @param eResourceSharing
+   *        The resource sharing to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setResourceSharing (@Nonnull final EPLResourceSharing eResourceSharing)
+  {
+    ValueEnforcer.notNull (eResourceSharing, "ResourceSharing");
+    m_eResourceSharing = eResourceSharing;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if byte identical page content streams are
+   *         stored only once. The default is
+   *         {@link #DEFAULT_DEDUPLICATE_CONTENT_STREAMS}.
+   * @since 5.1.2
+   */
+  public final boolean isDeduplicateContentStreams ()
+  {
+    return m_bDeduplicateContentStreams;
+  }
+
+  /**
+   * Enable or disable the deduplication of page content streams. If enabled,
+   * pages with byte identical content (e.g. blank separator pages or repeated
+   * terms and conditions) reference the same content stream, which is
+   * compressed only once. This requires the content of each page to be
+   * buffered and digested, so it only pays off for documents with repeated
+   * pages.
+   *
+   * @param bDeduplicateContentStreams
+   *        <code>true</code> to enable deduplication.
+   * @return this for chaining
+   * @see PDContentStreamDeduplicator
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setDeduplicateContentStreams (final boolean bDeduplicateContentStreams)
+  {
+    m_bDeduplicateContentStreams = bDeduplicateContentStreams;
+    return this;
+  }
+
+  /**
+   * @return The executor to compress content streams on. May be
+   *         <code>null</code>.
+   * @since 5.1.2
+   */
+  @Nullable
+  public final Executor getCompressionExecutor ()
+  {
+    return m_aCompressionExecutor;
+  }
+
+  /**
+   * @return The maximum number of streams compressed at the same time.
+   * @since 5.1.2
+   */
+  public final int getCompressionMaxParallel ()
+  {
+    return m_nCompressionMaxParallel;
+  }
+
+  /**
+   * Compress the content streams in parallel right before the document is
+   * saved, instead of compressing them while the pages are rendered. This is
+   * only used if PDF compression is enabled. Image streams are compressed when
+   * they are created and are therefore not affected.
+   *
+   * @param aExecutor
+   *        The executor to compress on. May be <code>null</code> to compress
+   *        all content streams synchronously while rendering.
+   * @param nMaxParallel
+   *        The maximum number of streams compressed at the same time. Must be
+   *        &gt; 0 if an executor is provided.
+   * @return this for chaining
+   * @see #setCompressPDF(boolean)
+   * @see PDParallelStreamCompressor
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setCompressionExecutor (@Nullable final Executor aExecutor, final int nMaxParallel)
+  {
+    if (aExecutor != null)
+      ValueEnforcer.isGT0 (nMaxParallel, "MaxParallel");
+    m_aCompressionExecutor = aExecutor;
+    m_nCompressionMaxParallel = nMaxParallel;
+    return this;
+  }
+
+  /**
+   * @return The Flate compression level used for parallel compression.
+   * @since 5.1.2
+   */
+  public final int getCompressionLevel ()
+  {
+    return m_nCompressionLevel;
+  }
+
+  /**
+   * Set the Flate compression level used for parallel compression. Content
+   * streams compressed while rendering always use the PDFBox default level.
+   *
+   * @param nCompressionLevel
+   *        The compression level from 0 (no compression) to 9 (best
+   *        compression) or -1 for the default level.
+   * @return this for chaining
+   * @see #setCompressionExecutor(Executor, int)
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setCompressionLevel (final int nCompressionLevel)
+  {
+    ValueEnforcer.isBetweenInclusive (nCompressionLevel, "CompressionLevel", -1, 9);
+    m_nCompressionLevel = nCompressionLevel;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the document is written with compressed
+   *         object streams and a cross-reference stream. The default is
+   *         {@link #DEFAULT_USE_OBJECT_STREAMS}.
+   * @since 5.1.2
+   */
+  public final boolean isUseObjectStreams ()
+  {
+    return m_bUseObjectStreams;
+  }
+
+  /**
+   * Enable or disable writing compressed object streams and a cross-reference
+   * stream (PDF 1.5). This makes documents with many small objects
+   * considerably smaller. Readers that only support PDF 1.4 cannot open such
+   * documents.
+   *
+   * @param bUseObjectStreams
+   *        <code>true</code> to use object streams.
+   * @return this for chaining
+   * @see PDObjectStreamWriter
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setUseObjectStreams (final boolean bUseObjectStreams)
+  {
+    m_bUseObjectStreams = bUseObjectStreams;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the document is written linearized ("fast web
+   *         view"). The default is {@link #DEFAULT_LINEARIZE}.
+   * @since 5.1.2
+   */
+  public final boolean isLinearize ()
+  {
+    return m_bLinearize;
+  }
+
+  /**
+   * Enable or disable writing linearized documents ("fast web view"). The
+   * objects of the first page and the hint tables are written at the start of
+   * the file, so that viewers can display the first page before the whole
+   * document was downloaded. Linearized documents are written with classic
+   * cross-reference tables, so this setting takes precedence over
+   * {@link #setUseObjectStreams(boolean)}.
+   *
+   * @param bLinearize
+   *        <code>true</code> to linearize the document.
+   * @return this for chaining
+   * @see PDLinearizedWriter
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final PageLayoutPDF setLinearize (final boolean bLinearize)
+  {
+    m_bLinearize = bLinearize;
+    return this;
+  }
+
+  @Nullable
+  private PLImageEncodingPipeline _startImageEncoding () throws IOException
+  {
+    if (m_aImageEncodingExecutor == null)
+      return null;
+
+    final PLImageEncodingPipeline ret = new PLImageEncodingPipeline (m_aImageEncodingExecutor,
+                                                                     m_nImageEncodingMaxParallel);
+    visit (IPLVisitor.createElementVisitor (aElement -> {
+      if (aElement instanceof AbstractPLImage <?>)
+        ret.submit ((AbstractPLImage <?>) aElement, m_aImageOptimizer);
+      return EChange.UNCHANGED;
+    }));
+    return ret;
+  }
+
+  @Nonnull
+  private PDDocument _createDocument () throws IOException
+  {
+    if (m_aMemoryUsageSetting == null)
+      return new PDDocument ();
+
+    if (m_nMemoryUsageThreshold > 0)
+    {
+      final long nEstimatedBytes = PLRenderLimits.getEstimatedHeapBytes (this);
+      if (nEstimatedBytes <= m_nMemoryUsageThreshold)
+        return new PDDocument ();
+
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Estimated document size of " +
+                      nEstimatedBytes +
+                      " bytes exceeds the threshold of " +
+                      m_nMemoryUsageThreshold +
+                      " bytes - using " +
+                      m_aMemoryUsageSetting);
+    }
+    return new PDDocument (m_aMemoryUsageSetting);
+  }
+
   @Nonnull
   public EChange visit (@Nonnull final IPLVisitor aVisitor) throws IOException
   {
@@ -247,21 +762,107 @@ public class PageLayoutPDF implements IPLVisitable
    */
   @Nonnull
   public PageLayoutPDF renderTo (@Nonnull @WillClose final OutputStream aOS) throws PDFCreationException
+  {
+    return renderTo (aOS, null, null);
+  }
+
+  /**
+   * Render this layout to an OutputStream with cooperative cancellation.
+   * Cancellation and timeout are checked while preparing each element, for
+   * each split step and before each page is rendered.
+   *
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>. Is
+   *        closed automatically.
+   * @param aCancellationToken
+   *        The optional cancellation token. May be <code>null</code>.
+   * @param aTimeout
+   *        The optional maximum duration of the whole PDF creation. May be
+   *        <code>null</code>.
+   * @return this for chaining
+   * @throws PDFCreationCancelledException
+   *         If cancellation was requested or the timeout was exceeded. The
+   *         output stream content is undefined in this case.
+   * @throws PDFCreationException
+   *         In case of an error
+   * @since 5.1.2
+   */
+  @Nonnull
+  public PageLayoutPDF renderTo (@Nonnull @WillClose final OutputStream aOS,
+                                 @Nullable final IPLCancellationToken aCancellationToken,
+                                 @Nullable final Duration aTimeout) throws PDFCreationException
   {
     ValueEnforcer.notNull (aOS, "OutputStream");
 
-    if (false)
+    final PLCancellationCheck aCancellationCheck;
+    final PLImageEncodingPipeline aImageEncodingPipeline;
+    boolean bStreamHandedOver = false;
+    try
     {
-      // For Serialization testing only
-      SystemProperties.setPropertyValue ("sun.io.serialization.extendedDebugInfo", true);
-      for (final PLPageSet aPageSet : m_aPageSets)
-        SerializationHelper.getSerializedByteArray (aPageSet);
+      if (aTimeout != null)
+        ValueEnforcer.isFalse (aTimeout.isNegative (), "Timeout may not be negative");
+
+      // Check the limits before anything is allocated
+      if (m_aRenderLimits != null)
+      {
+        try
+        {
+          m_aRenderLimits.checkElements (this);
+        }
+        catch (final PLRenderLimitExceededException ex)
+        {
+          throw new PDFCreationLimitExceededException (ex.getMessage (), ex);
+        }
+        catch (final IOException ex)
+        {
+          throw new PDFCreationException ("IO Error", ex);
+        }
+      }
+
+      // Only present if a token or a timeout is present
+      aCancellationCheck = PLCancellationCheck.createIfRequired (aCancellationToken, aTimeout);
+
+      if (false)
+      {
+        // For Serialization testing only
+        SystemProperties.setPropertyValue ("sun.io.serialization.extendedDebugInfo", true);
+        for (final PLPageSet aPageSet : m_aPageSets)
+          SerializationHelper.getSerializedByteArray (aPageSet);
+      }
+
+      // Start encoding the images, so that it overlaps with the preparation
+      try
+      {
+        aImageEncodingPipeline = _startImageEncoding ();
+      }
+      catch (final IOException ex)
+      {
+        throw new PDFCreationException ("IO Error", ex);
+      }
+      bStreamHandedOver = true;
     }
+    finally
+    {
+      // The stream must be closed on every exit path
+      if (!bStreamHandedOver)
+        StreamHelper.close (aOS);
+    }
+
+    // Only present if there is at least one listener
+    final PLRenderMonitor aMonitor = PLRenderMonitor.createIfRequired (m_aRenderListeners);
+    final long nDocumentStartNanos = aMonitor == null ? 0 : System.nanoTime ();
 
     // create a new document
     // Use a buffered OS - approx 30% faster!
-    try (final PDDocument aDoc = new PDDocument (); final OutputStream aBufferedOS = StreamHelper.getBuffered (aOS))
+    // Channel based streams are already buffered
+    // The stream is opened first, so that it is closed even if the document
+    // cannot be created
+    try (final OutputStream aBufferedOS = aOS instanceof PLChannelOutputStream ? aOS : StreamHelper.getBuffered (aOS);
+        final PDDocument aDoc = _createDocument ())
     {
+      if (aMonitor != null)
+        aMonitor.onDocumentStart ();
+
       // Small consistency check to avoid creating empty, invalid PDFs
       int nTotalElements = 0;
       for (final PLPageSet aPageSet : m_aPageSets)
@@ -292,12 +893,20 @@ public class PageLayoutPDF implements IPLVisitable
 
       // Prepare all page sets
       final PreparationContextGlobal aGlobalPrepareCtx = new PreparationContextGlobal (aDoc);
+      aGlobalPrepareCtx.setPrepareCacheEnabled (m_bPrepareCache);
+      aGlobalPrepareCtx.setRenderMonitor (aMonitor);
+      aGlobalPrepareCtx.setCancellationCheck (aCancellationCheck);
+      if (m_aRenderLimits != null)
+        aGlobalPrepareCtx.setMaxPageCount (m_aRenderLimits.getMaxPageCount ());
       final PLPageSetPrepareResult [] aPRs = new PLPageSetPrepareResult [m_aPageSets.size ()];
       int nPageSetIndex = 0;
       int nTotalPageCount = 0;
       for (final PLPageSet aPageSet : m_aPageSets)
       {
+        final long nPrepareStartNanos = aMonitor == null ? 0 : System.nanoTime ();
         final PLPageSetPrepareResult aPR = aPageSet.prepareAllPages (aGlobalPrepareCtx);
+        if (aMonitor != null)
+          aMonitor.onPageSetPrepared (aPageSet, aPR.getPageCount (), System.nanoTime () - nPrepareStartNanos);
         aPRs[nPageSetIndex] = aPR;
         nTotalPageCount += aPR.getPageCount ();
         nPageSetIndex++;
@@ -307,31 +916,86 @@ public class PageLayoutPDF implements IPLVisitable
       nPageSetIndex = 0;
       final int nPageSetCount = m_aPageSets.size ();
       int nTotalPageIndex = 0;
+      // With parallel compression, the pages are rendered uncompressed
+      final boolean bParallelCompression = m_bCompressPDF && m_aCompressionExecutor != null;
+      final PDContentStreamDeduplicator aDeduplicator = m_bDeduplicateContentStreams ? new PDContentStreamDeduplicator ()
+                                                                                       : null;
+      final PDSharedResources aDocumentResources = m_eResourceSharing == EPLResourceSharing.DOCUMENT ? new PDSharedResources ()
+                                                                                                    : null;
+      final PLPageSetRenderOptions aRenderOptions = new PLPageSetRenderOptions ().setRenderMonitor (aMonitor)
+                                                                                .setCancellationCheck (aCancellationCheck)
+                                                                                .setImageOptimizer (m_aImageOptimizer)
+                                                                                .setImageEncodingPipeline (aImageEncodingPipeline)
+                                                                                .setDeduplicator (aDeduplicator);
       for (final PLPageSet aPageSet : m_aPageSets)
       {
         final PLPageSetPrepareResult aPR = aPRs[nPageSetIndex];
+        aRenderOptions.setSharedResources (m_eResourceSharing == EPLResourceSharing.PAGE_SET ? new PDSharedResources ()
+                                                                                             : aDocumentResources);
         aPageSet.renderAllPages (aPR,
                                  aDoc,
-                                 m_bCompressPDF,
+                                 m_bCompressPDF && !bParallelCompression,
                                  nPageSetIndex,
                                  nPageSetCount,
                                  nTotalPageIndex,
-                                 nTotalPageCount);
+                                 nTotalPageCount,
+                                 aRenderOptions);
         // Inc afterwards
         nTotalPageIndex += aPR.getPageCount ();
         nPageSetIndex++;
       }
 
+      if (aDeduplicator != null && LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Content stream deduplication: " + aDeduplicator);
+
       // Customize the whole document (optional)
       if (m_aDocumentCustomizer != null)
+      {
+        final long nCustomizeStartNanos = aMonitor == null ? 0 : System.nanoTime ();
         m_aDocumentCustomizer.customizeDocument (aDoc);
+        if (aMonitor != null)
+          aMonitor.onDocumentCustomized (System.nanoTime () - nCustomizeStartNanos);
+      }
+
+      if (aCancellationCheck != null)
+        aCancellationCheck.checkNotCancelled ("finishing the document");
+
+      if (bParallelCompression)
+      {
+        final PDParallelStreamCompressor aCompressor = new PDParallelStreamCompressor (m_aCompressionExecutor,
+                                                                                       m_nCompressionMaxParallel,
+                                                                                       m_nCompressionLevel);
+        aCompressor.compressAll (aDoc);
+        if (LOGGER.isDebugEnabled ())
+          LOGGER.debug ("Parallel compression: " + aCompressor);
+      }
+      if (aMonitor != null)
+        aMonitor.onContentStreamsFinished ();
 
       // save document to output stream
-      aDoc.save (aBufferedOS);
+      final long nSaveStartNanos = aMonitor == null ? 0 : System.nanoTime ();
+      if (m_bLinearize)
+        new PDLinearizedWriter ().write (aDoc, aBufferedOS);
+      else
+        if (m_bUseObjectStreams)
+          new PDObjectStreamWriter ().write (aDoc, aBufferedOS);
+        else
+          aDoc.save (aBufferedOS);
+      if (aMonitor != null)
+        aMonitor.onDocumentSaved (System.nanoTime () - nSaveStartNanos);
 
       if (LOGGER.isDebugEnabled ())
         LOGGER.debug ("PDF successfully created");
     }
+    catch (final PLRenderCancelledException ex)
+    {
+      // The PDDocument was already closed
+      throw new PDFCreationCancelledException (ex.getMessage (), ex);
+    }
+    catch (final PLRenderLimitExceededException ex)
+    {
+      throw new PDFCreationLimitExceededException (ex.getMessage (), ex);
+    }
     catch (final IOException ex)
     {
       throw new PDFCreationException ("IO Error", ex);
@@ -340,6 +1004,13 @@ public class PageLayoutPDF implements IPLVisitable
     {
       throw new PDFCreationException ("Internal error", ex);
     }
+    finally
+    {
+      if (aImageEncodingPipeline != null)
+        aImageEncodingPipeline.cancelPending ();
+      if (aMonitor != null)
+        aMonitor.onDocumentEnd (System.nanoTime () - nDocumentStartNanos);
+    }
 
     return this;
   }
@@ -385,4 +1056,132 @@ public class PageLayoutPDF implements IPLVisitable
   {
     return renderTo (FileHelper.getOutputStream (aFile));
   }
+
+  /**
+   * Render this layout to a {@link File} with cooperative cancellation.
+   *
+   * @param aFile
+   *        The file to write to. May not be <code>null</code>.
+   * @param aCancellationToken
+   *        The optional cancellation token. May be <code>null</code>.
+   * @param aTimeout
+   *        The optional maximum duration of the whole PDF creation. May be
+   *        <code>null</code>.
+   * @return this for chaining
+   * @throws PDFCreationCancelledException
+   *         If cancellation was requested or the timeout was exceeded
+   * @throws PDFCreationException
+   *         In case of an error
+   * @see #renderTo(OutputStream, IPLCancellationToken, Duration)
+   * @since 5.1.2
+   */
+  @Nonnull
+  public PageLayoutPDF renderTo (@Nonnull final File aFile,
+                                 @Nullable final IPLCancellationToken aCancellationToken,
+                                 @Nullable final Duration aTimeout) throws PDFCreationException
+  {
+    return renderTo (FileHelper.getOutputStream (aFile), aCancellationToken, aTimeout);
+  }
+
+  /**
+   * Render this layout to a {@link WritableByteChannel}. The data is written
+   * through a direct buffer of {@link PLChannelOutputStream#DEFAULT_BUFFER_SIZE}
+   * bytes.
+   *
+   * @param aChannel
+   *        The channel to write to. May not be <code>null</code>. Is closed
+   *        automatically.
+   * @return this for chaining
+   * @throws PDFCreationException
+   *         In case of an error
+   * @since 5.1.2
+   */
+  @Nonnull
+  public PageLayoutPDF renderTo (@Nonnull @WillClose final WritableByteChannel aChannel) throws PDFCreationException
+  {
+    return renderTo (new PLChannelOutputStream (aChannel));
+  }
+
+  /**
+   * Render this layout to a file using a {@link FileChannel}.
+   *
+   * @param aPath
+   *        The file to write to. May not be <code>null</code>. An existing
+   *        file is overwritten.
+   * @param aSettings
+   *        The output settings to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @throws PDFCreationException
+   *         In case of an error
+   * @since 5.1.2
+   */
+  @Nonnull
+  public PageLayoutPDF renderTo (@Nonnull final Path aPath,
+                                 @Nonnull final PLFileOutputSettings aSettings) throws PDFCreationException
+  {
+    return renderTo (aPath, aSettings, null, null);
+  }
+
+  /**
+   * Render this layout to a file using a {@link FileChannel} with cooperative
+   * cancellation.
+   *
+   * @param aPath
+   *        The file to write to. May not be <code>null</code>. An existing
+   *        file is overwritten.
+   * @param aSettings
+   *        The output settings to use. May not be <code>null</code>.
+   * @param aCancellationToken
+   *        The optional cancellation token. May be <code>null</code>.
+   * @param aTimeout
+   *        The optional maximum duration of the whole PDF creation. May be
+   *        <code>null</code>.
+   * @return this for chaining
+   * @throws PDFCreationCancelledException
+   *         If cancellation was requested or the timeout was exceeded
+   * @throws PDFCreationException
+   *         In case of an error
+   * @since 5.1.2
+   */
+  @Nonnull
+  public PageLayoutPDF renderTo (@Nonnull final Path aPath,
+                                 @Nonnull final PLFileOutputSettings aSettings,
+                                 @Nullable final IPLCancellationToken aCancellationToken,
+                                 @Nullable final Duration aTimeout) throws PDFCreationException
+  {
+    ValueEnforcer.notNull (aPath, "Path");
+    ValueEnforcer.notNull (aSettings, "Settings");
+
+    final PLChannelOutputStream aOS;
+    FileChannel aChannel = null;
+    boolean bChannelHandedOver = false;
+    try
+    {
+      aChannel = FileChannel.open (aPath,
+                                   StandardOpenOption.CREATE,
+                                   StandardOpenOption.TRUNCATE_EXISTING,
+                                   StandardOpenOption.WRITE);
+      final long nPreallocateBytes = aSettings.getPreallocateBytes ();
+      if (nPreallocateBytes > 0)
+      {
+        // Extend the file by writing its last byte; the position stays at 0
+        aChannel.write (ByteBuffer.wrap (new byte [1]), nPreallocateBytes - 1);
+      }
+      aOS = new PLChannelOutputStream (aChannel, aSettings.getBufferSize ());
+      aOS.setTruncateOnClose (nPreallocateBytes > 0);
+      aOS.setForceOnClose (aSettings.getSyncMode () == EPLFileSyncMode.AT_END);
+      bChannelHandedOver = true;
+    }
+    catch (final IOException ex)
+    {
+      throw new PDFCreationException ("IO Error", ex);
+    }
+    finally
+    {
+      if (!bChannelHandedOver)
+        StreamHelper.close (aChannel);
+    }
+    // Closes the stream and the channel on every exit path
+    return renderTo (aOS, aCancellationToken, aTimeout);
+  }
 }
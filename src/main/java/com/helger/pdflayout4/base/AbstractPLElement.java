@@ -23,8 +23,11 @@ import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.OverrideOnDemand;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.pdflayout4.render.PreparationContext;
 import com.helger.pdflayout4.spec.BorderSpec;
+import com.helger.pdflayout4.spec.IntrinsicWidthSpec;
 import com.helger.pdflayout4.spec.MarginSpec;
 import com.helger.pdflayout4.spec.PaddingSpec;
 import com.helger.pdflayout4.spec.SizeSpec;
@@ -147,6 +150,36 @@ public abstract class AbstractPLElement <IMPLTYPE extends AbstractPLElement <IMP
     return thisAsT ();
   }
 
+  /**
+   * Determine the intrinsic width of the content of this element. Min and max
+   * size are applied by the caller.
+   *
+   * @param aCtx
+   *        The preparation context. Never <code>null</code>.
+   * @return <code>null</code> if the intrinsic width cannot be determined
+   *         without preparing this element. This is the default.
+   * @see #measureIntrinsic(PreparationContext)
+   * @since 5.1.2
+   */
+  @Nullable
+  @OverrideOnDemand
+  protected IntrinsicWidthSpec onMeasureIntrinsic (@Nonnull final PreparationContext aCtx)
+  {
+    return null;
+  }
+
+  @Override
+  @Nullable
+  public final IntrinsicWidthSpec measureIntrinsic (@Nonnull final PreparationContext aCtx)
+  {
+    final IntrinsicWidthSpec ret = onMeasureIntrinsic (aCtx);
+    if (ret == null)
+      return null;
+
+    // Consider min and max size like in getRenderSize
+    return ret.getClamped (m_aMinSize.getWidth (), m_aMaxSize.getWidth ());
+  }
+
   @Override
   @Nonnull
   @OverridingMethodsMustInvokeSuper
@@ -28,8 +28,12 @@ import com.helger.commons.annotation.OverrideOnDemand;
 import com.helger.commons.state.EChange;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.pdflayout4.debug.PLDebugLog;
+import com.helger.pdflayout4.jfr.PLJFR;
+import com.helger.pdflayout4.render.PLPrepareCache;
+import com.helger.pdflayout4.render.PLRenderMonitor;
 import com.helger.pdflayout4.render.PageRenderContext;
 import com.helger.pdflayout4.render.PreparationContext;
+import com.helger.pdflayout4.render.PreparationContextGlobal;
 import com.helger.pdflayout4.spec.SizeSpec;
 
 /**
@@ -144,6 +148,85 @@ public abstract class AbstractPLRenderableObject <IMPLTYPE extends AbstractPLRen
   @Nonnull
   protected abstract SizeSpec onPrepare (@Nonnull final PreparationContext aCtx);
 
+  /**
+   * Get the structural key of this object for the prepare cache. Two objects
+   * with equal keys must have the same prepare result for the same available
+   * size.
+   *
+   * @return <code>null</code> if the prepare result of this object cannot be
+   *         shared. This is the default.
+   * @see PreparationContextGlobal#setPrepareCacheEnabled(boolean)
+   * @since 5.1.2
+   */
+  @Nullable
+  @OverrideOnDemand
+  protected Object getPrepareCacheKey ()
+  {
+    return null;
+  }
+
+  /**
+   * Get the state that was created by {@link #onPrepare(PreparationContext)}
+   * so that it can be reused by structurally identical objects. Only called if
+   * {@link #getPrepareCacheKey()} returned a non-<code>null</code> key.
+   *
+   * @return The state that must not be modified afterwards or
+   *         <code>null</code> if there is nothing to share. This is the
+   *         default.
+   * @since 5.1.2
+   */
+  @Nullable
+  @OverrideOnDemand
+  protected Object getPreparedStateForCache ()
+  {
+    return null;
+  }
+
+  /**
+   * Use the prepare result of a structurally identical object instead of
+   * calling {@link #onPrepare(PreparationContext)}. Should be overridden, if
+   * {@link #getPreparedStateForCache()} is overridden.
+   *
+   * @param aCtx
+   *        Preparation context. Never <code>null</code>.
+   * @param aPreparedState
+   *        The state as returned by {@link #getPreparedStateForCache()} of the
+   *        other object. Must be used read-only. Never <code>null</code>.
+   * @return <code>true</code> if the state was applied, <code>false</code> if
+   *         {@link #onPrepare(PreparationContext)} should be called instead.
+   *         The default returns <code>false</code>.
+   * @since 5.1.2
+   */
+  @OverrideOnDemand
+  protected boolean onPrepareFromCache (@Nonnull final PreparationContext aCtx, @Nonnull final Object aPreparedState)
+  {
+    return false;
+  }
+
+  @Nonnull
+  private SizeSpec _prepare (@Nonnull final PreparationContext aCtx)
+  {
+    final PreparationContextGlobal aGlobalCtx = aCtx.getGlobalContext ();
+    final PLPrepareCache aCache = aGlobalCtx == null ? null : aGlobalCtx.getPrepareCache ();
+    final Object aCacheKey = aCache == null ? null : getPrepareCacheKey ();
+    if (aCacheKey == null)
+      return onPrepare (aCtx);
+
+    final PLPrepareCache.Entry aEntry = aCache.get (aCacheKey, aCtx);
+    if (aEntry != null && onPrepareFromCache (aCtx, aEntry.getPreparedState ()))
+    {
+      if (PLDebugLog.isDebugPrepare ())
+        PLDebugLog.debugPrepare (this, "Using prepare result from cache");
+      return aEntry.getPreparedSize ();
+    }
+
+    final SizeSpec ret = onPrepare (aCtx);
+    final Object aPreparedState = getPreparedStateForCache ();
+    if (aPreparedState != null)
+      aCache.put (aCacheKey, aCtx, ret, aPreparedState);
+    return ret;
+  }
+
   /**
    * Overwrite this method to adopt prepared sizes (e.g. for min or max size) to
    * get the render size.
@@ -216,6 +299,10 @@ public abstract class AbstractPLRenderableObject <IMPLTYPE extends AbstractPLRen
     // Prepare only once!
     internalCheckNotPrepared ();
 
+    final PreparationContextGlobal aGlobalCtx = aCtx.getGlobalContext ();
+    if (aGlobalCtx != null && aGlobalCtx.getCancellationCheck () != null)
+      aGlobalCtx.getCancellationCheck ().checkNotCancelled ("preparing elements");
+
     if (PLDebugLog.isDebugPrepare ())
     {
       String sSuffix = "";
@@ -235,10 +322,22 @@ public abstract class AbstractPLRenderableObject <IMPLTYPE extends AbstractPLRen
     // Remember available size
     m_aPrepareAvailableSize = new SizeSpec (aCtx.getAvailableWidth (), aCtx.getAvailableHeight ());
 
+    final PLRenderMonitor aMonitor = aGlobalCtx == null ? null : aGlobalCtx.getRenderMonitor ();
+    if (aMonitor != null)
+      aMonitor.onElementPrepared (this);
+    final boolean bTimed = aMonitor != null && aMonitor.isElementEventRequired ();
+    final long nStartNanos = bTimed ? System.nanoTime () : 0;
+    final Object aJFREvent = PLJFR.beginPrepare ();
+
     // Do prepare
-    final SizeSpec aPrepResultSize = onPrepare (aCtx);
+    final SizeSpec aPrepResultSize = _prepare (aCtx);
     _setPreparedSize (aPrepResultSize);
 
+    PLJFR.endPrepare (aJFREvent, this, m_aPrepareAvailableSize, m_aRenderSize);
+
+    if (bTimed)
+      aMonitor.onElementPrepared (this, m_aPrepareAvailableSize, m_aRenderSize, System.nanoTime () - nStartNanos);
+
     // Return the render size
     return m_aRenderSize;
   }
@@ -312,8 +411,17 @@ public abstract class AbstractPLRenderableObject <IMPLTYPE extends AbstractPLRen
                                                         aCtx.getWidth (),
                                                         aCtx.getHeight ()));
 
+    final PLRenderMonitor aMonitor = aCtx.getRenderMonitor ();
+    final boolean bTimed = aMonitor != null && aMonitor.isElementEventRequired ();
+    final long nStartNanos = bTimed ? System.nanoTime () : 0;
+    final Object aJFREvent = PLJFR.beginRender ();
+
     // Main perform after border
     onRender (aCtx);
+
+    PLJFR.endRender (aJFREvent, this, aCtx.getWidth (), aCtx.getHeight ());
+    if (bTimed)
+      aMonitor.onElementRendered (this, aCtx.getWidth (), aCtx.getHeight (), System.nanoTime () - nStartNanos);
   }
 
   @Override
@@ -26,6 +26,7 @@ import com.helger.commons.state.EChange;
 import com.helger.pdflayout4.render.PagePreRenderContext;
 import com.helger.pdflayout4.render.PageRenderContext;
 import com.helger.pdflayout4.render.PreparationContext;
+import com.helger.pdflayout4.spec.IntrinsicWidthSpec;
 import com.helger.pdflayout4.spec.SizeSpec;
 
 /**
@@ -92,6 +93,28 @@ public interface IPLRenderableObject <IMPLTYPE extends IPLRenderableObject <IMPL
     return getRenderSize ().getHeight ();
   }
 
+  /**
+   * Determine the intrinsic width of this object without preparing it. This is
+   * used by containers with "auto" width columns to determine the column widths
+   * upfront, so that each contained object needs to be prepared only once. The
+   * result must be consistent with {@link #prepare(PreparationContext)}: if the
+   * available width is at least the maximum width, the prepared width must be
+   * the maximum width.
+   *
+   * @param aCtx
+   *        The preparation context. Only the global context is relevant. Never
+   *        <code>null</code>.
+   * @return The intrinsic width without margin, border and padding, or
+   *         <code>null</code> if the width depends on the available width and
+   *         can only be determined by preparing this object.
+   * @since 5.1.2
+   */
+  @Nullable
+  default IntrinsicWidthSpec measureIntrinsic (@Nonnull final PreparationContext aCtx)
+  {
+    return null;
+  }
+
   /**
    * Prepare this element once for rendering.
    *
@@ -104,9 +127,32 @@ public interface IPLRenderableObject <IMPLTYPE extends IPLRenderableObject <IMPL
   @Nonnull
   SizeSpec prepare (@Nonnull final PreparationContext aCtx);
 
+  /**
+   * Determine if {@link #beforeRender(PagePreRenderContext)} of this object
+   * needs to be called. This is used to remember only the relevant objects of
+   * each page, so that not the whole element tree needs to be visited for each
+   * page. Contained objects are considered independently.
+   *
+   * @return <code>true</code> if this object has pre-render work to do. The
+   *         default is <code>true</code>, so that custom implementations are
+   *         never skipped. Most elements and containers return
+   *         <code>false</code>, so a subclass overriding
+   *         {@link #beforeRender(PagePreRenderContext)} must override this
+   *         method as well.
+   * @since 5.1.2
+   */
+  default boolean isBeforeRenderRequired ()
+  {
+    return true;
+  }
+
   /**
    * Called after the page was created but before the content stream is created.
-   * This is e.g. used for images to create their XObjects upfront.
+   * This is e.g. used for images to create their XObjects upfront.<br>
+   * Note: this method is only called if {@link #isBeforeRenderRequired()}
+   * returns <code>true</code>. When overriding this method in a subclass of an
+   * existing element, make sure to override {@link #isBeforeRenderRequired()}
+   * to return <code>true</code> as well - otherwise it is silently skipped.
    *
    * @param aCtx
    *        The current page render context. Never <code>null</code>.
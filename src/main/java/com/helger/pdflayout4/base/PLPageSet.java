@@ -35,17 +35,24 @@ import org.slf4j.LoggerFactory;
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
 import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.state.EChange;
 import com.helger.commons.string.StringHelper;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.pdflayout4.debug.PLDebugLog;
 import com.helger.pdflayout4.element.special.PLPageBreak;
+import com.helger.pdflayout4.jfr.PLJFR;
+import com.helger.pdflayout4.pdfbox.PDContentStreamOptions;
+import com.helger.pdflayout4.pdfbox.PDContentStreamStatistics;
 import com.helger.pdflayout4.pdfbox.PDPageContentStreamWithCache;
 import com.helger.pdflayout4.render.ERenderingElementType;
 import com.helger.pdflayout4.render.IPreRenderContextCustomizer;
 import com.helger.pdflayout4.render.IRenderContextCustomizer;
+import com.helger.pdflayout4.render.PLCancellationCheck;
 import com.helger.pdflayout4.render.PLRenderHelper;
+import com.helger.pdflayout4.render.PLRenderMonitor;
 import com.helger.pdflayout4.render.PagePreRenderContext;
 import com.helger.pdflayout4.render.PageRenderContext;
 import com.helger.pdflayout4.render.PreparationContext;
@@ -655,8 +662,12 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
 
       // Create a copy of the list, so that we can safely modify it
       final ICommonsList <PLElementWithSize> aElementsWithSize = ret.getAllElements ();
+      final PLCancellationCheck aCancellationCheck = aGlobalCtx.getCancellationCheck ();
       while (aElementsWithSize.isNotEmpty ())
       {
+        if (aCancellationCheck != null)
+          aCancellationCheck.checkNotCancelled ("splitting elements onto pages");
+
         // Use the first element
         final PLElementWithSize aElementWithSize = aElementsWithSize.remove (0);
         final IPLRenderableObject <?> aElement = aElementWithSize.getElement ();
@@ -691,8 +702,14 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
                                              " and height " +
                                              fSplitHeight);
 
+              final PLRenderMonitor aMonitor = aGlobalCtx.getRenderMonitor ();
+              final long nSplitStartNanos = aMonitor == null ? 0 : System.nanoTime ();
+              final Object aJFREvent = PLJFR.beginSplit ();
               final PLSplitResult aSplitResult = aElement.getAsSplittable ()
                                                          .splitElementVert (fElementPreparedWidth, fSplitHeight);
+              PLJFR.endSplit (aJFREvent, aElement, fElementPreparedWidth, fSplitHeight, aSplitResult != null);
+              if (aMonitor != null)
+                aMonitor.onSplit (aElement, aSplitResult != null, System.nanoTime () - nSplitStartNanos);
               if (aSplitResult != null)
                 assert fSplitHeight > 0;
               if (fSplitHeight <= 0)
@@ -782,6 +799,7 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
 
             // Something on the current page -> start a new page
             ret.addPerPageElements (aCurPageElements);
+            aGlobalCtx.onPageCreated ();
             aCurPageElements = new CommonsArrayList <> ();
 
             // Start at the top again
@@ -817,6 +835,7 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
         }
 
         ret.addPerPageElements (aCurPageElements);
+        aGlobalCtx.onPageCreated ();
       }
 
       if (PLDebugLog.isDebugSplit ())
@@ -826,6 +845,14 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
     return ret;
   }
 
+  @Nonnull
+  private static ICommonsList <IPLRenderableObject <?>> _getAllBeforeRenderElements (@Nonnull final IPLRenderableObject <?> aElement)
+  {
+    final ICommonsList <IPLRenderableObject <?>> ret = new CommonsArrayList <> ();
+    PLPageSetPrepareResult.addAllBeforeRenderElements (aElement, ret);
+    return ret;
+  }
+
   /**
    * Render all pages of this layout to the specified PDDocument
    *
@@ -854,14 +881,66 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
                               @Nonnegative final int nTotalPageStartIndex,
                               @Nonnegative final int nTotalPageCount) throws IOException
   {
+    renderAllPages (aPrepareResult,
+                    aDoc,
+                    bCompressPDF,
+                    nPageSetIndex,
+                    nPageSetCount,
+                    nTotalPageStartIndex,
+                    nTotalPageCount,
+                    new PLPageSetRenderOptions ());
+  }
+
+  /**
+   * Render all pages of this layout to the specified PDDocument
+   *
+   * @param aPrepareResult
+   *        The preparation result. May not be <code>null</code>.
+   * @param aDoc
+   *        The PDDocument. May not be <code>null</code>.
+   * @param bCompressPDF
+   *        <code>true</code> for create enflated PDF content
+   * @param nPageSetIndex
+   *        Page set index. Always &ge; 0.
+   * @param nPageSetCount
+   *        Page set count. Always &ge; 1.
+   * @param nTotalPageStartIndex
+   *        Total page index. Always &ge; 0.
+   * @param nTotalPageCount
+   *        Total page count. Always &ge; 1.
+   * @param aOptions
+   *        The additional render options. May not be <code>null</code>.
+   * @throws IOException
+   *         In case of render errors
+   * @since 5.1.2
+   */
+  public void renderAllPages (@Nonnull final PLPageSetPrepareResult aPrepareResult,
+                              @Nonnull final PDDocument aDoc,
+                              final boolean bCompressPDF,
+                              @Nonnegative final int nPageSetIndex,
+                              @Nonnegative final int nPageSetCount,
+                              @Nonnegative final int nTotalPageStartIndex,
+                              @Nonnegative final int nTotalPageCount,
+                              @Nonnull final PLPageSetRenderOptions aOptions) throws IOException
+  {
+    ValueEnforcer.notNull (aOptions, "Options");
+    final PLRenderMonitor aMonitor = aOptions.getRenderMonitor ();
+    final PLCancellationCheck aCancellationCheck = aOptions.getCancellationCheck ();
+
     // Start at the left top
     final float fXLeft = getOutlineLeft ();
     final float fYTop = getYTop ();
 
+    // Header and footer are the same on all pages - collect them only once
+    final ICommonsMap <IPLRenderableObject <?>, ICommonsList <IPLRenderableObject <?>>> aHeaderFooterBeforeRender = new CommonsHashMap <> ();
+
     int nPageIndex = 0;
     final int nPageCount = aPrepareResult.getPageCount ();
     for (final ICommonsList <PLElementWithSize> aPerPage : aPrepareResult.directGetPerPageElements ())
     {
+      if (aCancellationCheck != null)
+        aCancellationCheck.checkNotCancelled ("rendering pages");
+
       if (PLDebugLog.isDebugRender ())
         PLDebugLog.debugRender (this,
                                 "Start rendering page index " +
@@ -873,6 +952,8 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
                                       " and available size " +
                                       PLDebugLog.getWH (getAvailableWidth (), getAvailableHeight ()));
 
+      final long nPageStartNanos = aMonitor == null ? 0 : System.nanoTime ();
+
       // Layout in memory
       final PDPage aPage = new PDPage (m_aPageSize.getAsRectangle ());
       aDoc.addPage (aPage);
@@ -891,26 +972,44 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
                                                                              nPageIndex,
                                                                              nPageCount,
                                                                              nTotalPageStartIndex + nPageIndex,
-                                                                             nTotalPageCount);
+                                                                             nTotalPageCount,
+                                                                             aMonitor);
+        aPreRenderCtx.setImageOptimizer (aOptions.getImageOptimizer ());
+        aPreRenderCtx.setImageEncodingPipeline (aOptions.getImageEncodingPipeline ());
         if (m_aPRCCustomizer != null)
           m_aPRCCustomizer.customizePreRenderContext (aPreRenderCtx);
 
-        final IPLVisitor aVisitor = IPLVisitor.createElementVisitor (x -> x.beforeRender (aPreRenderCtx));
-
+        // Call only the elements that need it, in the same order as visited
         if (aPageHeader != null)
-          aPageHeader.visit (aVisitor);
+        {
+          final ICommonsList <IPLRenderableObject <?>> aElements = aHeaderFooterBeforeRender.computeIfAbsent (aPageHeader,
+                                                                                                            PLPageSet::_getAllBeforeRenderElements);
+          for (final IPLRenderableObject <?> aElement : aElements)
+            aElement.beforeRender (aPreRenderCtx);
+        }
 
         if (aPageFooter != null)
-          aPageFooter.visit (aVisitor);
+        {
+          final ICommonsList <IPLRenderableObject <?>> aElements = aHeaderFooterBeforeRender.computeIfAbsent (aPageFooter,
+                                                                                                            PLPageSet::_getAllBeforeRenderElements);
+          for (final IPLRenderableObject <?> aElement : aElements)
+            aElement.beforeRender (aPreRenderCtx);
+        }
 
-        for (final PLElementWithSize aElementWithHeight : aPerPage)
-          aElementWithHeight.getElement ().visit (aVisitor);
+        for (final IPLRenderableObject <?> aElement : aPrepareResult.directGetBeforeRenderElements (nPageIndex))
+          aElement.beforeRender (aPreRenderCtx);
       }
 
+      final PDContentStreamStatistics aContentStreamStats = aMonitor == null ? null
+                                                                             : aMonitor.createContentStreamStatisticsIfRequired ();
+      final PDContentStreamOptions aContentStreamOptions = new PDContentStreamOptions ().setCompress (bCompressPDF)
+                                                                                      .setStatistics (aContentStreamStats)
+                                                                                      .setSharedResources (aOptions.getSharedResources ())
+                                                                                      .setDeduplicator (aOptions.getDeduplicator ());
       final PDPageContentStreamWithCache aContentStream = new PDPageContentStreamWithCache (aDoc,
                                                                                             aPage,
                                                                                             PDPageContentStream.AppendMode.OVERWRITE,
-                                                                                            bCompressPDF);
+                                                                                            aContentStreamOptions);
       try
       {
         // Page rect before content - debug: red
@@ -937,7 +1036,8 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
                                                                  fStartLeft,
                                                                  fStartTop,
                                                                  fWidth,
-                                                                 fHeight);
+                                                                 fHeight,
+                                                                 aMonitor);
           if (m_aRCCustomizer != null)
             m_aRCCustomizer.customizeRenderContext (aRCtx);
           aPageHeader.render (aRCtx);
@@ -958,7 +1058,8 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
                                                                  fStartLeft,
                                                                  fStartTop,
                                                                  fWidth,
-                                                                 fHeight);
+                                                                 fHeight,
+                                                                 aMonitor);
           if (m_aRCCustomizer != null)
             m_aRCCustomizer.customizeRenderContext (aRCtx);
           aElement.render (aRCtx);
@@ -980,7 +1081,8 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
                                                                  fStartLeft,
                                                                  fStartTop,
                                                                  fWidth,
-                                                                 fHeight);
+                                                                 fHeight,
+                                                                 aMonitor);
           if (m_aRCCustomizer != null)
             m_aRCCustomizer.customizeRenderContext (aRCtx);
           aPageFooter.render (aRCtx);
@@ -990,6 +1092,12 @@ public class PLPageSet extends AbstractPLObject <PLPageSet> implements
       {
         aContentStream.close ();
       }
+      if (aMonitor != null)
+        aMonitor.onPageRendered (this,
+                                 nPageIndex,
+                                 nTotalPageStartIndex + nPageIndex,
+                                 aContentStreamStats,
+                                 System.nanoTime () - nPageStartNanos);
       ++nPageIndex;
     }
     if (PLDebugLog.isDebugRender ())
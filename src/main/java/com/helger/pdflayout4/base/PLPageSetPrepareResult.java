@@ -16,6 +16,7 @@
  */
 package com.helger.pdflayout4.base;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 import javax.annotation.Nonnegative;
@@ -27,6 +28,7 @@ import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.annotation.ReturnsMutableObject;
 import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.state.EChange;
 
 /**
  * Page set preparae result. Used only internally.
@@ -39,6 +41,7 @@ public final class PLPageSetPrepareResult implements Serializable
   private final ICommonsList <PLElementWithSize> m_aContentHeight = new CommonsArrayList <> ();
   private float m_fFooterHeight = Float.NaN;
   private final ICommonsList <ICommonsList <PLElementWithSize>> m_aPerPageElements = new CommonsArrayList <> ();
+  private final ICommonsList <ICommonsList <IPLRenderableObject <?>>> m_aPerPageBeforeRenderElements = new CommonsArrayList <> ();
 
   PLPageSetPrepareResult ()
   {}
@@ -122,6 +125,12 @@ public final class PLPageSetPrepareResult implements Serializable
   {
     ValueEnforcer.notEmptyNoNullValue (aCurPageElements, "CurPageElements");
     m_aPerPageElements.add (aCurPageElements);
+
+    // Remember the elements that need to be called before rendering
+    final ICommonsList <IPLRenderableObject <?>> aBeforeRenderElements = new CommonsArrayList <> ();
+    for (final PLElementWithSize aElementWithSize : aCurPageElements)
+      addAllBeforeRenderElements (aElementWithSize.getElement (), aBeforeRenderElements);
+    m_aPerPageBeforeRenderElements.add (aBeforeRenderElements);
   }
 
   @Nonnegative
@@ -142,4 +151,47 @@ public final class PLPageSetPrepareResult implements Serializable
   {
     return m_aPerPageElements;
   }
+
+  /**
+   * @param nPageIndex
+   *        The 0-based page index.
+   * @return All elements of the page for which
+   *         {@link IPLRenderableObject#beforeRender(com.helger.pdflayout4.render.PagePreRenderContext)}
+   *         needs to be called, in visiting order. Never <code>null</code>.
+   * @since 5.1.2
+   */
+  @Nonnull
+  @ReturnsMutableObject ("speed")
+  ICommonsList <IPLRenderableObject <?>> directGetBeforeRenderElements (@Nonnegative final int nPageIndex)
+  {
+    return m_aPerPageBeforeRenderElements.get (nPageIndex);
+  }
+
+  /**
+   * Collect the provided element and all contained elements, that require a
+   * call to
+   * {@link IPLRenderableObject#beforeRender(com.helger.pdflayout4.render.PagePreRenderContext)}.
+   *
+   * @param aElement
+   *        The element to start at. May not be <code>null</code>.
+   * @param aTarget
+   *        The target list to fill. May not be <code>null</code>.
+   * @since 5.1.2
+   */
+  static void addAllBeforeRenderElements (@Nonnull final IPLRenderableObject <?> aElement,
+                                          @Nonnull final ICommonsList <IPLRenderableObject <?>> aTarget)
+  {
+    try
+    {
+      aElement.visit (IPLVisitor.createElementVisitor (x -> {
+        if (x.isBeforeRenderRequired ())
+          aTarget.add (x);
+        return EChange.UNCHANGED;
+      }));
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException ("Failed to collect elements of " + aElement.getDebugID (), ex);
+    }
+  }
 }
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.base;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.pdflayout4.element.image.PLImageEncodingPipeline;
+import com.helger.pdflayout4.element.image.PLImageOptimizer;
+import com.helger.pdflayout4.pdfbox.PDContentStreamDeduplicator;
+import com.helger.pdflayout4.pdfbox.PDSharedResources;
+import com.helger.pdflayout4.render.PLCancellationCheck;
+import com.helger.pdflayout4.render.PLRenderMonitor;
+
+/**
+ * The optional settings for rendering the pages of a {@link PLPageSet}. All
+ * settings are <code>null</code> by default.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ * @see PLPageSet#renderAllPages(PLPageSetPrepareResult,
+ *      org.apache.pdfbox.pdmodel.PDDocument, boolean, int, int, int, int,
+ *      PLPageSetRenderOptions)
+ */
+@NotThreadSafe
+public class PLPageSetRenderOptions
+{
+  private PLRenderMonitor m_aRenderMonitor;
+  private PLCancellationCheck m_aCancellationCheck;
+  private PLImageOptimizer m_aImageOptimizer;
+  private PLImageEncodingPipeline m_aImageEncodingPipeline;
+  private PDSharedResources m_aSharedResources;
+  private PDContentStreamDeduplicator m_aDeduplicator;
+
+  public PLPageSetRenderOptions ()
+  {}
+
+  /**
+   * @return The render monitor to be notified. May be <code>null</code>.
+   */
+  @Nullable
+  public PLRenderMonitor getRenderMonitor ()
+  {
+    return m_aRenderMonitor;
+  }
+
+  @Nonnull
+  public PLPageSetRenderOptions setRenderMonitor (@Nullable final PLRenderMonitor aRenderMonitor)
+  {
+    m_aRenderMonitor = aRenderMonitor;
+    return this;
+  }
+
+  /**
+   * @return The cancellation check, that is invoked before each page. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public PLCancellationCheck getCancellationCheck ()
+  {
+    return m_aCancellationCheck;
+  }
+
+  @Nonnull
+  public PLPageSetRenderOptions setCancellationCheck (@Nullable final PLCancellationCheck aCancellationCheck)
+  {
+    m_aCancellationCheck = aCancellationCheck;
+    return this;
+  }
+
+  /**
+   * @return The image optimizer of the document. May be <code>null</code>.
+   */
+  @Nullable
+  public PLImageOptimizer getImageOptimizer ()
+  {
+    return m_aImageOptimizer;
+  }
+
+  @Nonnull
+  public PLPageSetRenderOptions setImageOptimizer (@Nullable final PLImageOptimizer aImageOptimizer)
+  {
+    m_aImageOptimizer = aImageOptimizer;
+    return this;
+  }
+
+  /**
+   * @return The pipeline with the images encoded in the background. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public PLImageEncodingPipeline getImageEncodingPipeline ()
+  {
+    return m_aImageEncodingPipeline;
+  }
+
+  @Nonnull
+  public PLPageSetRenderOptions setImageEncodingPipeline (@Nullable final PLImageEncodingPipeline aImageEncodingPipeline)
+  {
+    m_aImageEncodingPipeline = aImageEncodingPipeline;
+    return this;
+  }
+
+  /**
+   * @return The resources dictionary to be used by all pages. May be
+   *         <code>null</code> to use a separate dictionary per page.
+   */
+  @Nullable
+  public PDSharedResources getSharedResources ()
+  {
+    return m_aSharedResources;
+  }
+
+  @Nonnull
+  public PLPageSetRenderOptions setSharedResources (@Nullable final PDSharedResources aSharedResources)
+  {
+    m_aSharedResources = aSharedResources;
+    return this;
+  }
+
+  /**
+   * @return The deduplicator for identical page content streams. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public PDContentStreamDeduplicator getDeduplicator ()
+  {
+    return m_aDeduplicator;
+  }
+
+  @Nonnull
+  public PLPageSetRenderOptions setDeduplicator (@Nullable final PDContentStreamDeduplicator aDeduplicator)
+  {
+    m_aDeduplicator = aDeduplicator;
+    return this;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).appendIfNotNull ("RenderMonitor", m_aRenderMonitor)
+                                       .appendIfNotNull ("CancellationCheck", m_aCancellationCheck)
+                                       .appendIfNotNull ("ImageOptimizer", m_aImageOptimizer)
+                                       .appendIfNotNull ("ImageEncodingPipeline", m_aImageEncodingPipeline)
+                                       .appendIfNotNull ("SharedResources", m_aSharedResources)
+                                       .appendIfNotNull ("Deduplicator", m_aDeduplicator)
+                                       .getToString ();
+  }
+}
@@ -35,6 +35,7 @@ import com.helger.pdflayout4.debug.PLDebugLog;
 import com.helger.pdflayout4.render.PLRenderHelper;
 import com.helger.pdflayout4.render.PageRenderContext;
 import com.helger.pdflayout4.render.PreparationContext;
+import com.helger.pdflayout4.spec.IntrinsicWidthSpec;
 import com.helger.pdflayout4.spec.SizeSpec;
 
 /**
@@ -113,6 +114,13 @@ public abstract class AbstractPLBox <IMPLTYPE extends AbstractPLBox <IMPLTYPE>>
     return thisAsT ();
   }
 
+  @Override
+  public boolean isBeforeRenderRequired ()
+  {
+    // Contained objects are handled separately
+    return false;
+  }
+
   @Override
   @Nonnull
   public EChange visit (@Nonnull final IPLVisitor aVisitor) throws IOException
@@ -172,6 +180,21 @@ public abstract class AbstractPLBox <IMPLTYPE extends AbstractPLBox <IMPLTYPE>>
     return aRenderSize;
   }
 
+  @Override
+  @Nullable
+  protected IntrinsicWidthSpec onMeasureIntrinsic (@Nonnull final PreparationContext aCtx)
+  {
+    // Always uses the available width
+    if (isFullWidth ())
+      return null;
+
+    if (m_aElement == null)
+      return IntrinsicWidthSpec.WIDTH0;
+
+    final IntrinsicWidthSpec aElementWidth = m_aElement.measureIntrinsic (aCtx);
+    return aElementWidth == null ? null : aElementWidth.plus (m_aElement.getOutlineXSum ());
+  }
+
   @Override
   protected SizeSpec onPrepare (@Nonnull final PreparationContext aCtx)
   {
@@ -17,6 +17,7 @@
 package com.helger.pdflayout4.element.hbox;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.ObjIntConsumer;
 
@@ -27,6 +28,7 @@ import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.OverrideOnDemand;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.ICommonsList;
@@ -41,8 +43,10 @@ import com.helger.pdflayout4.base.PLElementWithSize;
 import com.helger.pdflayout4.base.PLSplitResult;
 import com.helger.pdflayout4.debug.PLDebugLog;
 import com.helger.pdflayout4.element.special.PLSpacerX;
+import com.helger.pdflayout4.jfr.PLJFR;
 import com.helger.pdflayout4.render.PageRenderContext;
 import com.helger.pdflayout4.render.PreparationContext;
+import com.helger.pdflayout4.spec.IntrinsicWidthSpec;
 import com.helger.pdflayout4.spec.SizeSpec;
 import com.helger.pdflayout4.spec.WidthSpec;
 
@@ -237,6 +241,13 @@ public abstract class AbstractPLHBox <IMPLTYPE extends AbstractPLHBox <IMPLTYPE>
     return m_aColumns.containsAny (x -> x.getElement ().isVertSplittable ());
   }
 
+  @Override
+  public boolean isBeforeRenderRequired ()
+  {
+    // Contained objects are handled separately
+    return false;
+  }
+
   @Override
   @Nonnull
   public EChange visit (@Nonnull final IPLVisitor aVisitor) throws IOException
@@ -247,6 +258,27 @@ public abstract class AbstractPLHBox <IMPLTYPE extends AbstractPLHBox <IMPLTYPE>
     return ret;
   }
 
+  @Override
+  @Nullable
+  public IntrinsicWidthSpec measureIntrinsic (@Nonnull final PreparationContext aCtx)
+  {
+    // Only if all columns are sized by their content, the HBox has an
+    // intrinsic width
+    IntrinsicWidthSpec ret = IntrinsicWidthSpec.WIDTH0;
+    for (final PLHBoxColumn aColumn : m_aColumns)
+    {
+      if (!aColumn.getWidth ().isAuto ())
+        return null;
+
+      final IPLRenderableObject <?> aElement = aColumn.getElement ();
+      final IntrinsicWidthSpec aColumnWidth = aElement.measureIntrinsic (aCtx);
+      if (aColumnWidth == null)
+        return null;
+      ret = ret.plus (aColumnWidth.plus (aElement.getOutlineXSum ()));
+    }
+    return ret;
+  }
+
   @Override
   @OverridingMethodsMustInvokeSuper
   protected SizeSpec onPrepare (@Nonnull final PreparationContext aCtx)
@@ -256,6 +288,12 @@ public abstract class AbstractPLHBox <IMPLTYPE extends AbstractPLHBox <IMPLTYPE>
 
     final float fElementWidth = aCtx.getAvailableWidth () - getOutlineXSum ();
     final float fElementHeight = aCtx.getAvailableHeight () - getOutlineYSum ();
+
+    // Were the column widths already resolved outside (e.g. by a table)?
+    final float [] aResolvedColumnWidths = getPreResolvedColumnWidths (fElementWidth);
+    if (aResolvedColumnWidths != null)
+      return _prepareWithResolvedColumnWidths (aCtx, fElementWidth, fElementHeight, aResolvedColumnWidths);
+
     float fUsedWidthFull = 0;
     float fMaxColumnHeightFull = 0;
     float fMaxContentHeightNet = 0;
@@ -321,6 +359,11 @@ public abstract class AbstractPLHBox <IMPLTYPE extends AbstractPLHBox <IMPLTYPE>
       final float fAvailableAutoColumnWidthAll = fAvailableAutoColumnWidth * nAutoColumns;
 
       final SizeSpec [] aTooWideAutoCols = new SizeSpec [m_aColumns.size ()];
+      // Intrinsic widths including outline of the too wide columns that were
+      // only measured
+      final IntrinsicWidthSpec [] aTooWideIntrinsic = new IntrinsicWidthSpec [m_aColumns.size ()];
+      boolean bAllTooWideMeasured = true;
+      float fMinWidthAutoTooWide = 0;
 
       nIndex = 0;
       for (final PLHBoxColumn aColumn : m_aColumns)
@@ -329,6 +372,29 @@ public abstract class AbstractPLHBox <IMPLTYPE extends AbstractPLHBox <IMPLTYPE>
         {
           final IPLRenderableObject <?> aElement = aColumn.getElement ();
 
+          // Measure first: a column that is too wide for its share is not
+          // prepared until its final width is known, so that every measurable
+          // element is prepared only once
+          final IntrinsicWidthSpec aIntrinsicWidth = aElement.measureIntrinsic (aCtx);
+          if (aIntrinsicWidth != null)
+          {
+            final IntrinsicWidthSpec aIntrinsicWidthFull = aIntrinsicWidth.plus (aElement.getOutlineXSum ());
+            if (aIntrinsicWidthFull.getMaxWidth () > fAvailableAutoColumnWidth)
+            {
+              aTooWideAutoCols[nIndex] = new SizeSpec (aIntrinsicWidth.getMaxWidth (), 0);
+              aTooWideIntrinsic[nIndex] = aIntrinsicWidthFull;
+              fMinWidthAutoTooWide += aIntrinsicWidthFull.getMinWidth ();
+
+              // The whole column width remains
+              fRemainingWidthAutoFull += fAvailableAutoColumnWidth;
+
+              // What would be used ideally
+              fUsedWidthAutoTooWide += aIntrinsicWidthFull.getMaxWidth ();
+              ++nIndex;
+              continue;
+            }
+          }
+
           // Prepare child element
           final SizeSpec aElementPreparedSize = aElement.prepare (new PreparationContext (aCtx.getGlobalContext (),
                                                                                           fAvailableAutoColumnWidthAll,
@@ -359,6 +425,7 @@ public abstract class AbstractPLHBox <IMPLTYPE extends AbstractPLHBox <IMPLTYPE>
           {
             // Remember prepared sized
             aTooWideAutoCols[nIndex] = aElementPreparedSize;
+            bAllTooWideMeasured = false;
 
             // The whole column width remains
             fRemainingWidthAutoFull += fAvailableAutoColumnWidth;
@@ -370,6 +437,15 @@ public abstract class AbstractPLHBox <IMPLTYPE extends AbstractPLHBox <IMPLTYPE>
         ++nIndex;
       }
 
+      // If all too wide columns were measured and their content cannot be
+      // displayed unwrapped, each column first gets its minimum width and the
+      // rest is split according to the missing width, so that long words are
+      // not broken if it can be avoided
+      final boolean bDistributeByMinWidth = bAllTooWideMeasured &&
+                                            fUsedWidthAutoTooWide > fRemainingWidthAutoFull &&
+                                            fMinWidthAutoTooWide <= fRemainingWidthAutoFull &&
+                                            fUsedWidthAutoTooWide > fMinWidthAutoTooWide;
+
       // Second pass: split all too wide auto columns on fRemainingWidthAuto
       nIndex = 0;
       for (final PLHBoxColumn aColumn : m_aColumns)
@@ -387,11 +463,24 @@ public abstract class AbstractPLHBox <IMPLTYPE extends AbstractPLHBox <IMPLTYPE>
           final float fAvailableColumnWidthPerc = fUsedWidthAutoTooWide == 0 ? 0 : fTooWideColumnWidth /
                                                                                    fUsedWidthAutoTooWide;
 
-          // Use x% of remaining width
-          final float fNewAvailableColumnWidth = fRemainingWidthAutoFull * fAvailableColumnWidthPerc;
+          final float fNewAvailableColumnWidth;
+          if (bDistributeByMinWidth)
+          {
+            final IntrinsicWidthSpec aIntrinsicWidthFull = aTooWideIntrinsic[nIndex];
+            final float fMinWidthFull = aIntrinsicWidthFull.getMinWidth ();
+            fNewAvailableColumnWidth = fMinWidthFull +
+                                       (fRemainingWidthAutoFull - fMinWidthAutoTooWide) *
+                                                       (aIntrinsicWidthFull.getMaxWidth () - fMinWidthFull) /
+                                                       (fUsedWidthAutoTooWide - fMinWidthAutoTooWide);
+          }
+          else
+          {
+            // Use x% of remaining width
+            fNewAvailableColumnWidth = fRemainingWidthAutoFull * fAvailableColumnWidthPerc;
+          }
 
-          // Prepare child element
-          if (aElement instanceof AbstractPLRenderableObject <?>)
+          // Prepare child element (was not prepared if it was only measured)
+          if (aElement.isPrepared () && aElement instanceof AbstractPLRenderableObject <?>)
             ((AbstractPLRenderableObject <?>) aElement).internalMarkAsNotPrepared ();
           final SizeSpec aElementPreparedSize = aElement.prepare (new PreparationContext (aCtx.getGlobalContext (),
                                                                                           fNewAvailableColumnWidth,
@@ -455,9 +544,79 @@ public abstract class AbstractPLHBox <IMPLTYPE extends AbstractPLHBox <IMPLTYPE>
       }
     }
 
+    return _finishPrepare (fElementWidth, fElementHeight, fUsedWidthFull, fMaxColumnHeightFull, fMaxContentHeightNet);
+  }
+
+  /**
+   * Prepare all columns, if the width of all columns is already known.
+   *
+   * @param aCtx
+   *        Preparation context. May not be <code>null</code>.
+   * @param fElementWidth
+   *        Available width without outline.
+   * @param fElementHeight
+   *        Available height without outline.
+   * @param aColumnWidths
+   *        The resolved widths of all columns. Must have exactly one entry per
+   *        column.
+   * @return The prepared size. Never <code>null</code>.
+   */
+  @Nonnull
+  private SizeSpec _prepareWithResolvedColumnWidths (@Nonnull final PreparationContext aCtx,
+                                                     final float fElementWidth,
+                                                     final float fElementHeight,
+                                                     @Nonnull final float [] aColumnWidths)
+  {
+    if (aColumnWidths.length != m_aColumns.size ())
+      throw new IllegalStateException ("Resolved " +
+                                       aColumnWidths.length +
+                                       " column widths but having " +
+                                       m_aColumns.size () +
+                                       " columns");
+
+    float fUsedWidthFull = 0;
+    float fMaxColumnHeightFull = 0;
+    float fMaxContentHeightNet = 0;
+
+    int nIndex = 0;
+    for (final PLHBoxColumn aColumn : m_aColumns)
+    {
+      final IPLRenderableObject <?> aElement = aColumn.getElement ();
+      // Full width of this element
+      final float fColumnWidthFull = aColumnWidths[nIndex];
+
+      // Prepare child element
+      final SizeSpec aElementPreparedSize = aElement.prepare (new PreparationContext (aCtx.getGlobalContext (),
+                                                                                      fColumnWidthFull,
+                                                                                      fElementHeight));
+
+      // Update used width
+      fUsedWidthFull += fColumnWidthFull;
+
+      // Update used height
+      fMaxContentHeightNet = Math.max (fMaxContentHeightNet, aElementPreparedSize.getHeight ());
+      final float fColumnHeightFull = aElementPreparedSize.getHeight () + aElement.getOutlineYSum ();
+      fMaxColumnHeightFull = Math.max (fMaxColumnHeightFull, fColumnHeightFull);
+
+      // Remember width and height for element (without padding and margin)
+      m_aPreparedColumnSizes[nIndex] = new SizeSpec (fColumnWidthFull, fColumnHeightFull);
+      m_aPreparedElementSizes[nIndex] = aElementPreparedSize;
+      ++nIndex;
+    }
+
+    return _finishPrepare (fElementWidth, fElementHeight, fUsedWidthFull, fMaxColumnHeightFull, fMaxContentHeightNet);
+  }
+
+  @Nonnull
+  private SizeSpec _finishPrepare (final float fElementWidth,
+                                   final float fElementHeight,
+                                   final float fUsedWidthFull,
+                                   final float fMaxColumnHeightFull,
+                                   final float fMaxContentHeightNet)
+  {
     // Set min size for block elements
     {
-      nIndex = 0;
+      int nIndex = 0;
       for (final PLHBoxColumn aColumn : m_aColumns)
       {
         final IPLRenderableObject <?> aElement = aColumn.getElement ();
@@ -490,6 +649,79 @@ public abstract class AbstractPLHBox <IMPLTYPE extends AbstractPLHBox <IMPLTYPE>
     return new SizeSpec (fUsedWidthFull, fMaxColumnHeightFull);
   }
 
+  /**
+   * Get the already resolved widths of all columns. This is an optimization for
+   * containers of many HBoxes with the same column layout (like tables), so
+   * that the column widths don't need to be calculated for every single HBox.
+   * Only layouts without "auto" width columns can be resolved upfront, because
+   * "auto" columns depend on the content of the respective HBox.
+   *
+   * @param fElementWidth
+   *        The available width of this HBox without the outline.
+   * @return <code>null</code> if the column widths should be calculated by this
+   *         HBox (the default). Otherwise an array with the full width of each
+   *         column. The returned array is not modified.
+   * @see #getResolvedColumnWidths(List, float)
+   */
+  @Nullable
+  @OverrideOnDemand
+  protected float [] getPreResolvedColumnWidths (final float fElementWidth)
+  {
+    return null;
+  }
+
+  /**
+   * Resolve the widths of all columns in the same way {@link #onPrepare(PreparationContext)}
+   * does it. This only works if no "auto" width column is contained.
+   *
+   * @param aWidths
+   *        The width specifications of all columns. May not be
+   *        <code>null</code>.
+   * @param fElementWidth
+   *        The available width without outline.
+   * @return <code>null</code> if at least one "auto" width column is contained,
+   *         the full width of each column otherwise.
+   */
+  @Nullable
+  public static float [] getResolvedColumnWidths (@Nonnull final List <WidthSpec> aWidths, final float fElementWidth)
+  {
+    ValueEnforcer.notNull (aWidths, "Widths");
+
+    final int nCols = aWidths.size ();
+    final float [] ret = new float [nCols];
+    float fUsedWidthFull = 0;
+    int nStarColumns = 0;
+
+    // 1. all absolute width items
+    for (int i = 0; i < nCols; ++i)
+    {
+      final WidthSpec aWidth = aWidths.get (i);
+      if (aWidth.isAuto ())
+      {
+        // Depends on the content
+        return null;
+      }
+      if (aWidth.isAbsolute ())
+      {
+        ret[i] = aWidth.getEffectiveValue (fElementWidth);
+        fUsedWidthFull += ret[i];
+      }
+      else
+        ++nStarColumns;
+    }
+
+    // 2. all star width items
+    if (nStarColumns > 0)
+    {
+      final float fRestWidth = fElementWidth - fUsedWidthFull;
+      final float fColumnWidthFull = fRestWidth / nStarColumns;
+      for (int i = 0; i < nCols; ++i)
+        if (aWidths.get (i).isStar ())
+          ret[i] = fColumnWidthFull;
+    }
+    return ret;
+  }
+
   @Override
   protected void onMarkAsNotPrepared ()
   {
@@ -625,8 +857,10 @@ public abstract class AbstractPLHBox <IMPLTYPE extends AbstractPLHBox <IMPLTYPE>
                                        PLDebugLog.getWH (fSplitWidth, fSplitHeight));
 
         // Use width and height without padding and margin!
+        final Object aJFREvent = PLJFR.beginSplit ();
         final PLSplitResult aSplitResult = aColumnElement.getAsSplittable ()
                                                          .splitElementVert (fSplitWidth, fSplitHeight);
+        PLJFR.endSplit (aJFREvent, aColumnElement, fSplitWidth, fSplitHeight, aSplitResult != null);
         if (aSplitResult != null)
         {
           final IPLRenderableObject <?> aHBox1Element = aSplitResult.getFirstElement ().getElement ();
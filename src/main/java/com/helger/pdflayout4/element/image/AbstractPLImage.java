@@ -16,24 +16,43 @@
  */
 package com.helger.pdflayout4.element.image;
 
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
+import javax.annotation.WillNotClose;
+import javax.imageio.ImageIO;
 
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.OverrideOnDemand;
+import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.state.EChange;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.pdflayout4.base.AbstractPLInlineElement;
+import com.helger.pdflayout4.jfr.PLJFR;
+import com.helger.pdflayout4.pdfbox.JPEGPassThroughFactory;
+import com.helger.pdflayout4.pdfbox.JPEGPassThroughFactory.JPEGHeader;
 import com.helger.pdflayout4.pdfbox.PDPageContentStreamWithCache;
+import com.helger.pdflayout4.pdfbox.PNGPassThroughFactory;
 import com.helger.pdflayout4.render.PLRenderHelper;
+import com.helger.pdflayout4.render.PLRenderMonitor;
 import com.helger.pdflayout4.render.PagePreRenderContext;
 import com.helger.pdflayout4.render.PageRenderContext;
 import com.helger.pdflayout4.render.PreparationContext;
+import com.helger.pdflayout4.spec.IntrinsicWidthSpec;
 import com.helger.pdflayout4.spec.SizeSpec;
 
 /**
@@ -47,13 +66,20 @@ public abstract class AbstractPLImage <IMPLTYPE extends AbstractPLImage <IMPLTYP
                                       AbstractPLInlineElement <IMPLTYPE>
 {
   public static final EPLImageType DEFAULT_IMAGE_TYPE = EPLImageType.JPEG;
+  private static final Logger LOGGER = LoggerFactory.getLogger (AbstractPLImage.class);
+  // Enough to re-read the PNG header
+  private static final int HEADER_MARK_LIMIT = 64;
+  private static final Dimension UNKNOWN_SOURCE_SIZE = new Dimension (-1, -1);
 
   private final float m_fImageWidth;
   private final float m_fImageHeight;
   private EPLImageType m_eImageType = DEFAULT_IMAGE_TYPE;
+  private PLImageOptimizer m_aImageOptimizer;
 
   // Status var
   private transient PDImageXObject m_aXObject;
+  private transient PDDocument m_aXObjectDoc;
+  private transient Dimension m_aSourceSize;
 
   public AbstractPLImage (@Nonnegative final float fImageWidth, @Nonnegative final float fImageHeight)
   {
@@ -114,6 +140,58 @@ public abstract class AbstractPLImage <IMPLTYPE extends AbstractPLImage <IMPLTYP
     return thisAsT ();
   }
 
+  /**
+   * @return The image optimizer of this element. May be <code>null</code> in
+   *         which case the optimizer of the document is used.
+   * @see #getEffectiveImageOptimizer(PagePreRenderContext)
+   * @since 5.1.2
+   */
+  @Nullable
+  public final PLImageOptimizer getImageOptimizer ()
+  {
+    return m_aImageOptimizer;
+  }
+
+  /**
+   * Set the image optimizer for this element, overriding the one of the
+   * document. Note: not all subclasses of this class support optimization.
+   * Please check the respective documentation!
+   *
+   * @param aImageOptimizer
+   *        The image optimizer to use. May be <code>null</code> to use the one
+   *        of the document.
+   * @return this for chaining
+   * @since 5.1.2
+   */
+  @Nonnull
+  public final IMPLTYPE setImageOptimizer (@Nullable final PLImageOptimizer aImageOptimizer)
+  {
+    m_aImageOptimizer = aImageOptimizer;
+    return thisAsT ();
+  }
+
+  /**
+   * Get the image optimizer to be used for rendering.
+   *
+   * @param aCtx
+   *        Render context. May not be <code>null</code>.
+   * @return The optimizer of this element, or the one of the document. May be
+   *         <code>null</code>.
+   * @since 5.1.2
+   */
+  @Nullable
+  protected final PLImageOptimizer getEffectiveImageOptimizer (@Nonnull final PagePreRenderContext aCtx)
+  {
+    return m_aImageOptimizer != null ? m_aImageOptimizer : aCtx.getImageOptimizer ();
+  }
+
+  @Override
+  @Nonnull
+  protected IntrinsicWidthSpec onMeasureIntrinsic (@Nonnull final PreparationContext aCtx)
+  {
+    return IntrinsicWidthSpec.fixed (m_fImageWidth);
+  }
+
   @Override
   protected SizeSpec onPrepare (@Nonnull final PreparationContext aCtx)
   {
@@ -126,6 +204,214 @@ public abstract class AbstractPLImage <IMPLTYPE extends AbstractPLImage <IMPLTYP
     // Nada
   }
 
+  /**
+   * Read the pixel size of a JPEG or PNG file from its header, without
+   * decoding the image.
+   *
+   * @param aIS
+   *        The stream to read from. May not be <code>null</code>.
+   * @return <code>null</code> if the stream contains neither a JPEG nor a PNG
+   *         file.
+   * @throws IOException
+   *         In case of a read error or a corrupt JPEG header
+   * @since 5.1.2
+   */
+  @Nullable
+  protected static Dimension readJPEGOrPNGSize (@Nonnull @WillNotClose final InputStream aIS) throws IOException
+  {
+    final InputStream aMarkIS = aIS.markSupported () ? aIS : new BufferedInputStream (aIS, HEADER_MARK_LIMIT);
+    aMarkIS.mark (HEADER_MARK_LIMIT);
+    final Dimension aPNGSize = PNGPassThroughFactory.readSize (aMarkIS);
+    if (aPNGSize != null)
+      return aPNGSize;
+
+    aMarkIS.reset ();
+    final JPEGHeader aHeader = JPEGPassThroughFactory.readHeader (aMarkIS);
+    if (aHeader != null)
+      return new Dimension (aHeader.getWidth (), aHeader.getHeight ());
+    return null;
+  }
+
+  /**
+   * Determine the pixel size of the source image, if possible without
+   * decoding it. Called at most once per element.
+   *
+   * @return The pixel size of the source image or <code>null</code> if it is
+   *         not known.
+   * @throws IOException
+   *         In case the source cannot be read
+   * @since 5.1.2
+   */
+  @Nullable
+  @OverrideOnDemand
+  protected Dimension readSourceSize () throws IOException
+  {
+    return null;
+  }
+
+  /**
+   * @return The pixel size of the source image or <code>null</code> if it is
+   *         not known without decoding the image. The value is determined only
+   *         once.
+   * @since 5.1.2
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  public final Dimension getSourceSize ()
+  {
+    Dimension aSourceSize = m_aSourceSize;
+    if (aSourceSize == null)
+    {
+      try
+      {
+        aSourceSize = readSourceSize ();
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.warn ("Failed to read the source size of " + getDebugID () + ": " + ex.getMessage ());
+        aSourceSize = null;
+      }
+      if (aSourceSize == null)
+        aSourceSize = UNKNOWN_SOURCE_SIZE;
+      m_aSourceSize = aSourceSize;
+    }
+    return aSourceSize == UNKNOWN_SOURCE_SIZE ? null : new Dimension (aSourceSize);
+  }
+
+  /**
+   * @return The number of pixels of the source image or a value &le; 0 if it
+   *         is not known without decoding the image. This is used for resource
+   *         limit checks.
+   * @see #getSourceSize()
+   * @since 5.1.2
+   */
+  public final long getSourcePixelCount ()
+  {
+    final Dimension aSourceSize = getSourceSize ();
+    return aSourceSize == null ? -1 : (long) aSourceSize.width * aSourceSize.height;
+  }
+
+  /**
+   * Check if the encoded source image can be embedded without decoding it.
+   *
+   * @param aImageOptimizer
+   *        The effective image optimizer. May be <code>null</code>.
+   * @return <code>true</code> if there is no optimizer or if the optimizer
+   *         would not change the source image.
+   * @see PLImageOptimizer#isOptimizationRequired(Dimension, float, float)
+   * @since 5.1.2
+   */
+  protected final boolean isPassThroughPossible (@Nullable final PLImageOptimizer aImageOptimizer)
+  {
+    return aImageOptimizer == null ||
+           !aImageOptimizer.isOptimizationRequired (getSourceSize (), m_fImageWidth, m_fImageHeight);
+  }
+
+  /**
+   * Decode an image file, optimize it and create the {@link PDImageXObject}
+   * according to the image type. JPEG files are re-encoded with a quality not
+   * higher than the estimated quality of the source.
+   *
+   * @param aDoc
+   *        The document to create the image in. May not be <code>null</code>.
+   * @param aIS
+   *        The stream with the image file. May not be <code>null</code>.
+   * @param aImageOptimizer
+   *        The image optimizer to apply. May not be <code>null</code>.
+   * @param aSource
+   *        The source of the image for error messages only.
+   * @return <code>null</code> if the optimizer did not change the image. In
+   *         this case the source image should be embedded without decoding.
+   * @throws IOException
+   *         If the image cannot be read
+   * @see PLImageOptimizer#getJPEGQuality(float)
+   * @since 5.1.2
+   */
+  @Nullable
+  protected final PDImageXObject createOptimizedXObject (@Nonnull final PDDocument aDoc,
+                                                         @Nonnull @WillNotClose final InputStream aIS,
+                                                         @Nonnull final PLImageOptimizer aImageOptimizer,
+                                                         @Nonnull final Object aSource) throws IOException
+  {
+    final InputStream aMarkIS = aIS.markSupported () ? aIS : new BufferedInputStream (aIS);
+    float fSourceQuality = 0;
+    if (m_eImageType == EPLImageType.JPEG)
+    {
+      aMarkIS.mark (JPEGPassThroughFactory.MAX_HEADER_BYTES);
+      try
+      {
+        final JPEGHeader aHeader = JPEGPassThroughFactory.readHeader (aMarkIS);
+        if (aHeader != null)
+          fSourceQuality = aHeader.getQuality ();
+      }
+      catch (final IOException ex)
+      {
+        // Let ImageIO decide whether it can read the file
+      }
+      aMarkIS.reset ();
+    }
+
+    final BufferedImage aImage = ImageIO.read (aMarkIS);
+    if (aImage == null)
+      throw new IOException ("Failed to read image from " + aSource);
+
+    final BufferedImage aOptimized = aImageOptimizer.optimize (aImage, m_fImageWidth, m_fImageHeight);
+    if (aOptimized == aImage)
+    {
+      // Re-encoding would only lose quality
+      return null;
+    }
+
+    switch (m_eImageType)
+    {
+      case JPEG:
+        return JPEGFactory.createFromImage (aDoc, aOptimized, aImageOptimizer.getJPEGQuality (fSourceQuality));
+      case LOSSLESS:
+        return LosslessFactory.createFromImage (aDoc, aOptimized);
+      default:
+        throw new IllegalStateException ("Image type cannot be optimized: " + toString ());
+    }
+  }
+
+  /**
+   * @param aCtx
+   *        Render context. May not be <code>null</code>.
+   * @return The object identifying the source of this image for the
+   *         {@link PLEncodedImageCache} or <code>null</code> if this image
+   *         should not be cached across documents. The returned object must
+   *         implement equals and hashCode consistently and must not be
+   *         modified afterwards.
+   * @since 5.1.2
+   */
+  @Nullable
+  @OverrideOnDemand
+  protected Object getImageCacheSource (@Nonnull final PagePreRenderContext aCtx)
+  {
+    return null;
+  }
+
+  /**
+   * Create the {@link PDImageXObject} independent of a page. This is used to
+   * encode images in the background (see {@link PLImageEncodingPipeline}) and
+   * must therefore not modify this object.
+   *
+   * @param aDoc
+   *        The document to create the image in. May not be <code>null</code>.
+   * @param aImageOptimizer
+   *        The effective image optimizer. May be <code>null</code>.
+   * @return <code>null</code> if this is not supported by the implementation.
+   * @throws IOException
+   *         In case of error.
+   * @since 5.1.2
+   */
+  @Nullable
+  @OverrideOnDemand
+  protected PDImageXObject createXObject (@Nonnull final PDDocument aDoc,
+                                          @Nullable final PLImageOptimizer aImageOptimizer) throws IOException
+  {
+    return null;
+  }
+
   /**
    * Resolve the {@link PDImageXObject} for rendering. Must consider the image
    * type according to {@link #getImageType()}.
@@ -148,9 +434,47 @@ public abstract class AbstractPLImage <IMPLTYPE extends AbstractPLImage <IMPLTYP
     // http://stackoverflow.com/questions/8521290/cant-add-an-image-to-a-pdf-using-pdfbox
     try
     {
-      m_aXObject = getXObject (aCtx);
-      if (m_aXObject == null)
-        throw new IllegalStateException ("Failed to create PDImageXObject");
+      final PLRenderMonitor aMonitor = aCtx.getRenderMonitor ();
+      final long nStartNanos = aMonitor == null ? 0 : System.nanoTime ();
+      final PDDocument aDoc = aCtx.getDocument ();
+      // Reuse the image if this element is rendered more than once into the
+      // same document (e.g. in a page header)
+      if (m_aXObject == null || m_aXObjectDoc != aDoc)
+      {
+        final Object aJFREvent = PLJFR.beginImage ();
+        String sSource = "cache";
+        final Object aCacheSource = getImageCacheSource (aCtx);
+        final PLEncodedImageCache aCache = PLEncodedImageCache.getInstance ();
+        PDImageXObject aXObject = aCacheSource == null ? null : aCache.get (aDoc, aCacheSource, m_eImageType);
+        if (aCacheSource != null && aMonitor != null && aCache.isEnabled ())
+          aMonitor.onImageCacheLookup (this, aXObject != null);
+        if (aXObject == null)
+        {
+          // Maybe it was already encoded in the background
+          final PLImageEncodingPipeline aPipeline = aCtx.getImageEncodingPipeline ();
+          if (aPipeline != null)
+          {
+            aXObject = aPipeline.getXObject (this, aDoc);
+            if (aXObject != null && aCacheSource != null)
+              aCache.put (aCacheSource, m_eImageType, aXObject);
+            sSource = "pipeline";
+          }
+        }
+        if (aXObject == null)
+        {
+          aXObject = getXObject (aCtx);
+          if (aXObject == null)
+            throw new IllegalStateException ("Failed to create PDImageXObject");
+          if (aCacheSource != null)
+            aCache.put (aCacheSource, m_eImageType, aXObject);
+          sSource = "encoded";
+        }
+        m_aXObject = aXObject;
+        m_aXObjectDoc = aDoc;
+        PLJFR.endImage (aJFREvent, this, sSource);
+        if (aMonitor != null)
+          aMonitor.onImageEncoded (this, System.nanoTime () - nStartNanos);
+      }
     }
     catch (final IOException ex)
     {
@@ -0,0 +1,277 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.element.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDIndexed;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.StreamHelper;
+
+/**
+ * The encoded data of an image, independent of a {@link PDDocument}. Only
+ * images with a single filter and a device colour space or an indexed colour
+ * space based on a device colour space can be represented. Colour key masks
+ * are supported, stencil masks are not.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ * @see PLEncodedImageCache
+ * @see PLImageEncodingPipeline
+ */
+@Immutable
+final class PLEncodedImage
+{
+  private final byte [] m_aData;
+  private final COSName m_aFilter;
+  private final COSDictionary m_aDecodeParms;
+  private final int m_nWidth;
+  private final int m_nHeight;
+  private final int m_nBitsPerComponent;
+  // The device colour space or the base of the indexed colour space
+  private final PDColorSpace m_aColorSpace;
+  // Only for indexed colour spaces
+  private final int m_nHighValue;
+  private final byte [] m_aLookup;
+  private final float [] m_aDecode;
+  private final int [] m_aColorKeyMask;
+  private final PLEncodedImage m_aSoftMask;
+
+  PLEncodedImage (@Nonnull final byte [] aData,
+                  @Nonnull final COSName aFilter,
+                  @Nullable final COSDictionary aDecodeParms,
+                  final int nWidth,
+                  final int nHeight,
+                  final int nBitsPerComponent,
+                  @Nonnull final PDColorSpace aColorSpace,
+                  final int nHighValue,
+                  @Nullable final byte [] aLookup,
+                  @Nullable final float [] aDecode,
+                  @Nullable final int [] aColorKeyMask,
+                  @Nullable final PLEncodedImage aSoftMask)
+  {
+    m_aData = aData;
+    m_aFilter = aFilter;
+    m_aDecodeParms = aDecodeParms;
+    m_nWidth = nWidth;
+    m_nHeight = nHeight;
+    m_nBitsPerComponent = nBitsPerComponent;
+    m_aColorSpace = aColorSpace;
+    m_nHighValue = nHighValue;
+    m_aLookup = aLookup;
+    m_aDecode = aDecode;
+    m_aColorKeyMask = aColorKeyMask;
+    m_aSoftMask = aSoftMask;
+  }
+
+  long getByteCount ()
+  {
+    return m_aData.length +
+           (m_aLookup == null ? 0 : m_aLookup.length) +
+           (m_aSoftMask == null ? 0 : m_aSoftMask.getByteCount ());
+  }
+
+  @Nonnull
+  private PDColorSpace _createColorSpace () throws IOException
+  {
+    if (m_aLookup == null)
+      return m_aColorSpace;
+
+    // New COS objects for every document
+    final COSArray aIndexed = new COSArray ();
+    aIndexed.add (COSName.INDEXED);
+    aIndexed.add (m_aColorSpace.getCOSObject ());
+    aIndexed.add (COSInteger.get (m_nHighValue));
+    aIndexed.add (new COSString (m_aLookup));
+    return new PDIndexed (aIndexed);
+  }
+
+  @Nonnull
+  PDImageXObject createXObject (@Nonnull final PDDocument aDoc) throws IOException
+  {
+    final PDImageXObject ret = new PDImageXObject (aDoc,
+                                                   new NonBlockingByteArrayInputStream (m_aData),
+                                                   m_aFilter,
+                                                   m_nWidth,
+                                                   m_nHeight,
+                                                   m_nBitsPerComponent,
+                                                   _createColorSpace ());
+    if (m_aDecodeParms != null)
+    {
+      final COSDictionary aDecodeParms = new COSDictionary ();
+      aDecodeParms.addAll (m_aDecodeParms);
+      ret.getCOSObject ().setItem (COSName.DECODE_PARMS, aDecodeParms);
+    }
+    if (m_aDecode != null)
+    {
+      final COSArray aDecode = new COSArray ();
+      aDecode.setFloatArray (m_aDecode);
+      ret.setDecode (aDecode);
+    }
+    if (m_aColorKeyMask != null)
+    {
+      final COSArray aMask = new COSArray ();
+      for (final int nValue : m_aColorKeyMask)
+        aMask.add (COSInteger.get (nValue));
+      ret.getCOSObject ().setItem (COSName.MASK, aMask);
+    }
+    if (m_aSoftMask != null)
+      ret.getCOSObject ().setItem (COSName.SMASK, m_aSoftMask.createXObject (aDoc));
+    return ret;
+  }
+
+  private static boolean _isDeviceColorSpace (@Nullable final PDColorSpace aColorSpace)
+  {
+    return aColorSpace instanceof PDDeviceRGB ||
+           aColorSpace instanceof PDDeviceGray ||
+           aColorSpace instanceof PDDeviceCMYK;
+  }
+
+  @Nullable
+  private static byte [] _getLookup (@Nullable final COSBase aLookup) throws IOException
+  {
+    if (aLookup instanceof COSString)
+      return ((COSString) aLookup).getBytes ();
+    if (aLookup instanceof COSStream)
+    {
+      try (final InputStream aIS = ((COSStream) aLookup).createInputStream ())
+      {
+        return StreamHelper.getAllBytes (aIS);
+      }
+    }
+    return null;
+  }
+
+  private static boolean _isSimpleDictionary (@Nonnull final COSDictionary aDict)
+  {
+    for (final COSBase aValue : aDict.getValues ())
+      if (!(aValue instanceof COSNumber) && !(aValue instanceof COSBoolean) && !(aValue instanceof COSName))
+        return false;
+    return true;
+  }
+
+  @Nullable
+  static PLEncodedImage createOrNull (@Nonnull final PDImageXObject aXObject) throws IOException
+  {
+    final COSStream aStream = aXObject.getCOSObject ();
+    final COSBase aFilter = aStream.getFilters ();
+    if (!(aFilter instanceof COSName))
+      return null;
+
+    int [] aColorKeyMask = null;
+    final COSBase aMask = aStream.getDictionaryObject (COSName.MASK);
+    if (aMask != null)
+    {
+      // Stencil masks are not supported
+      if (!(aMask instanceof COSArray))
+        return null;
+      final COSArray aMaskArray = (COSArray) aMask;
+      aColorKeyMask = new int [aMaskArray.size ()];
+      for (int i = 0; i < aColorKeyMask.length; ++i)
+      {
+        final COSBase aValue = aMaskArray.getObject (i);
+        if (!(aValue instanceof COSNumber))
+          return null;
+        aColorKeyMask[i] = ((COSNumber) aValue).intValue ();
+      }
+    }
+
+    PDColorSpace aColorSpace = aXObject.getColorSpace ();
+    int nHighValue = 0;
+    byte [] aLookup = null;
+    if (aColorSpace instanceof PDIndexed)
+    {
+      // [/Indexed base hival lookup]
+      final COSBase aIndexed = aColorSpace.getCOSObject ();
+      if (!(aIndexed instanceof COSArray) || ((COSArray) aIndexed).size () != 4)
+        return null;
+      final COSBase aHighValue = ((COSArray) aIndexed).getObject (2);
+      if (!(aHighValue instanceof COSNumber))
+        return null;
+      nHighValue = ((COSNumber) aHighValue).intValue ();
+      aLookup = _getLookup (((COSArray) aIndexed).getObject (3));
+      if (aLookup == null)
+        return null;
+      aColorSpace = ((PDIndexed) aColorSpace).getBaseColorSpace ();
+    }
+    if (!_isDeviceColorSpace (aColorSpace))
+      return null;
+
+    COSDictionary aDecodeParms = null;
+    final COSBase aDecodeParmsBase = aStream.getDictionaryObject (COSName.DECODE_PARMS);
+    if (aDecodeParmsBase != null)
+    {
+      if (!(aDecodeParmsBase instanceof COSDictionary) || !_isSimpleDictionary ((COSDictionary) aDecodeParmsBase))
+        return null;
+      // Copy, as the source object may still be modified
+      aDecodeParms = new COSDictionary ();
+      aDecodeParms.addAll ((COSDictionary) aDecodeParmsBase);
+    }
+
+    PLEncodedImage aSoftMask = null;
+    final PDImageXObject aSoftMaskXObject = aXObject.getSoftMask ();
+    if (aSoftMaskXObject != null)
+    {
+      aSoftMask = createOrNull (aSoftMaskXObject);
+      if (aSoftMask == null)
+        return null;
+    }
+
+    final byte [] aData;
+    try (final InputStream aIS = aStream.createRawInputStream ())
+    {
+      aData = StreamHelper.getAllBytes (aIS);
+    }
+    if (aData == null)
+      return null;
+
+    final COSArray aDecode = aXObject.getDecode ();
+    return new PLEncodedImage (aData,
+                               (COSName) aFilter,
+                               aDecodeParms,
+                               aXObject.getWidth (),
+                               aXObject.getHeight (),
+                               aXObject.getBitsPerComponent (),
+                               aColorSpace,
+                               nHighValue,
+                               aLookup,
+                               aDecode == null ? null : aDecode.toFloatArray (),
+                               aColorKeyMask,
+                               aSoftMask);
+  }
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.element.image;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.concurrent.SimpleReadWriteLock;
+import com.helger.commons.hashcode.HashCodeGenerator;
+
+/**
+ * A process wide, size limited LRU cache for encoded images. The encoded bytes
+ * of an image are stored once and copied into every document that uses the
+ * same image source with the same {@link EPLImageType}, so that e.g. a logo
+ * used in many documents is only encoded once. The key is the image source
+ * object (e.g. the {@link java.awt.image.BufferedImage} of a {@link PLImage}),
+ * so the source must not be modified after it was rendered.<br>
+ * Only images with a single filter and a device colour space are cached. The
+ * cache is disabled by default.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@ThreadSafe
+public final class PLEncodedImageCache
+{
+  @Immutable
+  private static final class Key
+  {
+    private final Object m_aSource;
+    private final EPLImageType m_eImageType;
+    private final int m_nHashCode;
+
+    Key (@Nonnull final Object aSource, @Nonnull final EPLImageType eImageType)
+    {
+      m_aSource = aSource;
+      m_eImageType = eImageType;
+      m_nHashCode = new HashCodeGenerator (this).append (aSource).append (eImageType).getHashCode ();
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (o == null || !getClass ().equals (o.getClass ()))
+        return false;
+      final Key rhs = (Key) o;
+      return m_aSource.equals (rhs.m_aSource) && m_eImageType == rhs.m_eImageType;
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return m_nHashCode;
+    }
+  }
+
+  private static final PLEncodedImageCache INSTANCE = new PLEncodedImageCache ();
+
+  private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
+  private long m_nMaxBytes;
+  private long m_nCachedBytes;
+  // Access order for LRU
+  private final Map <Key, PLEncodedImage> m_aMap = new LinkedHashMap <> (16, 0.75f, true);
+  private final AtomicLong m_aHits = new AtomicLong (0);
+  private final AtomicLong m_aMisses = new AtomicLong (0);
+
+  private PLEncodedImageCache ()
+  {}
+
+  /**
+   * @return The global instance. Never <code>null</code>.
+   */
+  @Nonnull
+  public static PLEncodedImageCache getInstance ()
+  {
+    return INSTANCE;
+  }
+
+  /**
+   * @return The maximum number of encoded bytes to be cached. Always &ge; 0. 0
+   *         means the cache is disabled, which is the default.
+   */
+  @Nonnegative
+  public long getMaxBytes ()
+  {
+    return m_aRWLock.readLockedLong ( () -> m_nMaxBytes);
+  }
+
+  /**
+   * @return <code>true</code> if the cache is enabled.
+   */
+  public boolean isEnabled ()
+  {
+    return getMaxBytes () > 0;
+  }
+
+  /**
+   * Set the maximum number of encoded bytes to be cached. If the new size is
+   * smaller than the current size, the least recently used entries are
+   * removed.
+   *
+   * @param nMaxBytes
+   *        The maximum number of bytes. Must be &ge; 0. 0 disables the cache.
+   */
+  public void setMaxBytes (@Nonnegative final long nMaxBytes)
+  {
+    ValueEnforcer.isGE0 (nMaxBytes, "MaxBytes");
+    m_aRWLock.writeLocked ( () -> {
+      m_nMaxBytes = nMaxBytes;
+      _evict ();
+    });
+  }
+
+  private void _evict ()
+  {
+    final Iterator <PLEncodedImage> it = m_aMap.values ().iterator ();
+    while (m_nCachedBytes > m_nMaxBytes && it.hasNext ())
+    {
+      m_nCachedBytes -= it.next ().getByteCount ();
+      it.remove ();
+    }
+  }
+
+  /**
+   * @return The number of encoded bytes currently cached. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getCachedBytes ()
+  {
+    return m_aRWLock.readLockedLong ( () -> m_nCachedBytes);
+  }
+
+  /**
+   * @return The number of currently cached images. Always &ge; 0.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aRWLock.readLockedInt (m_aMap::size);
+  }
+
+  /**
+   * @return The number of successful lookups since the last
+   *         {@link #clear()}.
+   */
+  @Nonnegative
+  public long getHitCount ()
+  {
+    return m_aHits.get ();
+  }
+
+  /**
+   * @return The number of unsuccessful lookups since the last
+   *         {@link #clear()}.
+   */
+  @Nonnegative
+  public long getMissCount ()
+  {
+    return m_aMisses.get ();
+  }
+
+  /**
+   * Remove all entries and reset the statistics.
+   */
+  public void clear ()
+  {
+    m_aRWLock.writeLocked ( () -> {
+      m_aMap.clear ();
+      m_nCachedBytes = 0;
+    });
+    m_aHits.set (0);
+    m_aMisses.set (0);
+  }
+
+  /**
+   * Get a copy of a cached image for the passed document.
+   *
+   * @param aDoc
+   *        The document the image is created for. May not be
+   *        <code>null</code>.
+   * @param aSource
+   *        The source of the image. May not be <code>null</code>.
+   * @param eImageType
+   *        The image type to use. May not be <code>null</code>.
+   * @return <code>null</code> if the cache is disabled or if no such image is
+   *         cached.
+   * @throws IOException
+   *         in case of error
+   */
+  @Nullable
+  PDImageXObject get (@Nonnull final PDDocument aDoc,
+                      @Nonnull final Object aSource,
+                      @Nonnull final EPLImageType eImageType) throws IOException
+  {
+    if (!isEnabled ())
+      return null;
+
+    final Key aKey = new Key (aSource, eImageType);
+    // Write lock, because the access order is modified
+    final PLEncodedImage aCached = m_aRWLock.writeLockedGet ( () -> m_aMap.get (aKey));
+    if (aCached == null)
+    {
+      m_aMisses.incrementAndGet ();
+      return null;
+    }
+    m_aHits.incrementAndGet ();
+    return aCached.createXObject (aDoc);
+  }
+
+  /**
+   * Put a freshly encoded image into the cache. Images that cannot be cached
+   * or that are larger than the whole cache are silently ignored.
+   *
+   * @param aSource
+   *        The source of the image. May not be <code>null</code>.
+   * @param eImageType
+   *        The image type used. May not be <code>null</code>.
+   * @param aXObject
+   *        The encoded image. May not be <code>null</code>.
+   * @throws IOException
+   *         in case of error
+   */
+  void put (@Nonnull final Object aSource,
+            @Nonnull final EPLImageType eImageType,
+            @Nonnull final PDImageXObject aXObject) throws IOException
+  {
+    if (!isEnabled ())
+      return;
+
+    final PLEncodedImage aNew = PLEncodedImage.createOrNull (aXObject);
+    if (aNew != null)
+    {
+      final Key aKey = new Key (aSource, eImageType);
+      m_aRWLock.writeLocked ( () -> {
+        if (aNew.getByteCount () <= m_nMaxBytes)
+        {
+          final PLEncodedImage aOld = m_aMap.put (aKey, aNew);
+          if (aOld != null)
+            m_nCachedBytes -= aOld.getByteCount ();
+          m_nCachedBytes += aNew.getByteCount ();
+          _evict ();
+        }
+      });
+    }
+  }
+}
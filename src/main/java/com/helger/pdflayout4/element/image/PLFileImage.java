@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.element.image;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.OverridingMethodsMustInvokeSuper;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.CCITTFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.io.stream.ByteBufferInputStream;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.pdflayout4.pdfbox.JPEGPassThroughFactory;
+import com.helger.pdflayout4.render.PagePreRenderContext;
+
+/**
+ * Represent a static image based on a local file. In contrast to
+ * {@link PLStreamImage} the file is not read into the heap for
+ * {@link EPLImageType#CCITT} and {@link EPLImageType#JPEG}:
+ * <ul>
+ * <li>CCITT: the compressed strips of the requested TIFF page are copied
+ * directly from the file into the image stream. Multi page TIFF files (e.g.
+ * scans) are supported.</li>
+ * <li>JPEG: the file is memory mapped and the DCT data is copied without
+ * decoding (see {@link JPEGPassThroughFactory}).</li>
+ * <li>LOSSLESS: the file is read completely, as the PNG chunks must be
+ * reassembled.</li>
+ * </ul>
+ * If an image optimizer is set, JPEG and LOSSLESS images are decoded and
+ * optimized if the optimizer would change them. CCITT images are never
+ * optimized.
+ *
+ * @see PLStreamImage
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+public class PLFileImage extends AbstractPLImage <PLFileImage>
+{
+  private final Path m_aPath;
+  private final int m_nTIFFPageIndex;
+
+  public PLFileImage (@Nonnull final Path aPath,
+                      @Nonnegative final float fImageWidth,
+                      @Nonnegative final float fImageHeight)
+  {
+    this (aPath, 0, fImageWidth, fImageHeight);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aPath
+   *        The path of the image file. May not be <code>null</code>.
+   * @param nTIFFPageIndex
+   *        The 0-based index of the page to use within a multi page TIFF file.
+   *        Only used for {@link EPLImageType#CCITT}. Must be &ge; 0.
+   * @param fImageWidth
+   *        Image width in PDF units. Must be &gt; 0.
+   * @param fImageHeight
+   *        Image height in PDF units. Must be &gt; 0.
+   */
+  public PLFileImage (@Nonnull final Path aPath,
+                      @Nonnegative final int nTIFFPageIndex,
+                      @Nonnegative final float fImageWidth,
+                      @Nonnegative final float fImageHeight)
+  {
+    super (fImageWidth, fImageHeight);
+    ValueEnforcer.notNull (aPath, "Path");
+    ValueEnforcer.isGE0 (nTIFFPageIndex, "TIFFPageIndex");
+
+    m_aPath = aPath;
+    m_nTIFFPageIndex = nTIFFPageIndex;
+  }
+
+  @Override
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public PLFileImage setBasicDataFrom (@Nonnull final PLFileImage aSource)
+  {
+    super.setBasicDataFrom (aSource);
+    return this;
+  }
+
+  @Nonnull
+  public final Path getPath ()
+  {
+    return m_aPath;
+  }
+
+  @Nonnegative
+  public final int getTIFFPageIndex ()
+  {
+    return m_nTIFFPageIndex;
+  }
+
+  @Override
+  @Nullable
+  protected Dimension readSourceSize () throws IOException
+  {
+    if (getImageType () == EPLImageType.CCITT)
+      return null;
+
+    try (final InputStream aIS = Files.newInputStream (m_aPath))
+    {
+      return readJPEGOrPNGSize (aIS);
+    }
+  }
+
+  @Nonnull
+  private PDImageXObject _createJPEG (@Nonnull final PDDocument aDoc) throws IOException
+  {
+    try (final FileChannel aChannel = FileChannel.open (m_aPath, StandardOpenOption.READ))
+    {
+      final long nSize = aChannel.size ();
+      if (nSize > Integer.MAX_VALUE)
+      {
+        // Too large to be mapped at once - stream it
+        try (final InputStream aIS = Files.newInputStream (m_aPath))
+        {
+          return JPEGPassThroughFactory.createFromStream (aDoc, aIS);
+        }
+      }
+
+      // The mapping stays valid after the channel is closed and is released
+      // by the garbage collector
+      final MappedByteBuffer aMapped = aChannel.map (FileChannel.MapMode.READ_ONLY, 0, nSize);
+      return JPEGPassThroughFactory.createFromStream (aDoc, new ByteBufferInputStream (aMapped));
+    }
+  }
+
+  @Override
+  @Nonnull
+  protected PDImageXObject createXObject (@Nonnull final PDDocument aDoc,
+                                          @Nullable final PLImageOptimizer aOptimizer) throws IOException
+  {
+    if (getImageType () != EPLImageType.CCITT && !isPassThroughPossible (aOptimizer))
+    {
+      try (final InputStream aIS = Files.newInputStream (m_aPath))
+      {
+        final PDImageXObject ret = createOptimizedXObject (aDoc, aIS, aOptimizer, m_aPath);
+        if (ret != null)
+          return ret;
+      }
+      // Unchanged by the optimizer - embed the file as is
+    }
+
+    switch (getImageType ())
+    {
+      case CCITT:
+      {
+        final PDImageXObject ret = CCITTFactory.createFromFile (aDoc, m_aPath.toFile (), m_nTIFFPageIndex);
+        if (ret == null)
+          throw new IOException ("Page index " + m_nTIFFPageIndex + " does not exist in TIFF file " + m_aPath);
+        return ret;
+      }
+      case JPEG:
+        return _createJPEG (aDoc);
+      case LOSSLESS:
+        return PLStreamImage.createLosslessFromByteArray (aDoc, Files.readAllBytes (m_aPath), m_aPath);
+      default:
+        throw new IllegalStateException ("Unsupported image type: " + toString ());
+    }
+  }
+
+  @Override
+  @Nonnull
+  protected PDImageXObject getXObject (@Nonnull final PagePreRenderContext aCtx) throws IOException
+  {
+    return createXObject (aCtx.getDocument (), getEffectiveImageOptimizer (aCtx));
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ())
+                            .append ("Path", m_aPath)
+                            .append ("TIFFPageIndex", m_nTIFFPageIndex)
+                            .getToString ();
+  }
+}
@@ -16,6 +16,7 @@
  */
 package com.helger.pdflayout4.element.image;
 
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 
@@ -24,18 +25,21 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
 
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.graphics.image.CCITTFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.pdflayout4.render.PagePreRenderContext;
 
 /**
  * Represent a static image based on {@link BufferedImage}. This image type is
- * supported for all {@link EPLImageType}s!
+ * supported for all {@link EPLImageType}s! The image optimizer is applied for
+ * all image types except {@link EPLImageType#CCITT}.
  * 
  * @see PLStreamImage
  * @author Philip Helger
@@ -76,21 +80,59 @@ public class PLImage extends AbstractPLImage <PLImage>
 
   @Override
   @Nonnull
-  protected PDImageXObject getXObject (@Nonnull final PagePreRenderContext aCtx) throws IOException
+  protected Dimension readSourceSize ()
+  {
+    return new Dimension (m_aImage.getWidth (), m_aImage.getHeight ());
+  }
+
+  @Override
+  @Nullable
+  protected Object getImageCacheSource (@Nonnull final PagePreRenderContext aCtx)
+  {
+    final PLImageOptimizer aOptimizer = getEffectiveImageOptimizer (aCtx);
+    if (aOptimizer == null || getImageType () == EPLImageType.CCITT)
+      return m_aImage;
+    // The result depends on the optimizer and the layout size
+    return new CommonsArrayList <> (m_aImage,
+                                    aOptimizer,
+                                    Float.valueOf (getImageWidth ()),
+                                    Float.valueOf (getImageHeight ()));
+  }
+
+  @Override
+  @Nonnull
+  protected PDImageXObject createXObject (@Nonnull final PDDocument aDoc,
+                                          @Nullable final PLImageOptimizer aOptimizer) throws IOException
   {
     switch (getImageType ())
     {
       case CCITT:
-        return CCITTFactory.createFromImage (aCtx.getDocument (), m_aImage);
+        // Requires a bitonal image - cannot be optimized
+        return CCITTFactory.createFromImage (aDoc, m_aImage);
       case JPEG:
-        return JPEGFactory.createFromImage (aCtx.getDocument (), m_aImage);
+        if (aOptimizer != null)
+          return JPEGFactory.createFromImage (aDoc,
+                                              aOptimizer.optimize (m_aImage, getImageWidth (), getImageHeight ()),
+                                              aOptimizer.getJPEGQuality ());
+        return JPEGFactory.createFromImage (aDoc, m_aImage);
       case LOSSLESS:
-        return LosslessFactory.createFromImage (aCtx.getDocument (), m_aImage);
+        return LosslessFactory.createFromImage (aDoc,
+                                                aOptimizer == null ? m_aImage
+                                                                   : aOptimizer.optimize (m_aImage,
+                                                                                          getImageWidth (),
+                                                                                          getImageHeight ()));
       default:
         throw new IllegalStateException ("Unsupported image type: " + toString ());
     }
   }
 
+  @Override
+  @Nonnull
+  protected PDImageXObject getXObject (@Nonnull final PagePreRenderContext aCtx) throws IOException
+  {
+    return createXObject (aCtx.getDocument (), getEffectiveImageOptimizer (aCtx));
+  }
+
   @Override
   public String toString ()
   {
@@ -0,0 +1,234 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.element.image;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Encodes images on a provided {@link Executor} while the layout is prepared,
+ * so that the encoded data is already available when a page is rendered. As
+ * PDFBox documents are not thread-safe, each image is encoded into a private
+ * temporary document and only the encoded bytes are copied into the real
+ * document afterwards. At most a configurable number of images is encoded at
+ * the same time.<br>
+ * Images are registered and resolved from the rendering thread only; only the
+ * encoding itself happens on the executor.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public class PLImageEncodingPipeline
+{
+  private final Executor m_aExecutor;
+  private final int m_nMaxParallel;
+  private final Map <AbstractPLImage <?>, CompletableFuture <PLEncodedImage>> m_aFutures = new IdentityHashMap <> ();
+  private final Queue <Runnable> m_aQueue = new ConcurrentLinkedQueue <> ();
+  private final AtomicInteger m_aInFlight = new AtomicInteger (0);
+
+  /**
+   * Constructor
+   *
+   * @param aExecutor
+   *        The executor to encode on. May not be <code>null</code>.
+   * @param nMaxParallel
+   *        The maximum number of images encoded at the same time. Must be &gt;
+   *        0.
+   */
+  public PLImageEncodingPipeline (@Nonnull final Executor aExecutor, @Nonnegative final int nMaxParallel)
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    ValueEnforcer.isGT0 (nMaxParallel, "MaxParallel");
+    m_aExecutor = aExecutor;
+    m_nMaxParallel = nMaxParallel;
+  }
+
+  /**
+   * @return The maximum number of images encoded at the same time.
+   */
+  @Nonnegative
+  public final int getMaxParallel ()
+  {
+    return m_nMaxParallel;
+  }
+
+  /**
+   * @return The number of registered images.
+   */
+  @Nonnegative
+  public int getImageCount ()
+  {
+    return m_aFutures.size ();
+  }
+
+  private void _dispatch ()
+  {
+    while (true)
+    {
+      final int nInFlight = m_aInFlight.get ();
+      if (nInFlight >= m_nMaxParallel)
+        return;
+      if (!m_aInFlight.compareAndSet (nInFlight, nInFlight + 1))
+        continue;
+
+      final Runnable aTask = m_aQueue.poll ();
+      if (aTask == null)
+      {
+        m_aInFlight.decrementAndGet ();
+        // Another thread may have enqueued while we held the slot
+        if (m_aQueue.isEmpty ())
+          return;
+        continue;
+      }
+
+      try
+      {
+        m_aExecutor.execute (aTask);
+      }
+      catch (final RejectedExecutionException ex)
+      {
+        // Run it in the current thread instead
+        aTask.run ();
+      }
+    }
+  }
+
+  @Nullable
+  private static PLEncodedImage _encode (@Nonnull final AbstractPLImage <?> aImage,
+                                         @Nullable final PLImageOptimizer aImageOptimizer) throws IOException
+  {
+    try (final PDDocument aTempDoc = new PDDocument ())
+    {
+      final PDImageXObject aXObject = aImage.createXObject (aTempDoc, aImageOptimizer);
+      return aXObject == null ? null : PLEncodedImage.createOrNull (aXObject);
+    }
+  }
+
+  /**
+   * Start encoding the passed image in the background. Images that are already
+   * registered are ignored.
+   *
+   * @param aImage
+   *        The image to encode. May not be <code>null</code>.
+   * @param aDocumentImageOptimizer
+   *        The image optimizer of the document. May be <code>null</code>.
+   */
+  public void submit (@Nonnull final AbstractPLImage <?> aImage,
+                      @Nullable final PLImageOptimizer aDocumentImageOptimizer)
+  {
+    ValueEnforcer.notNull (aImage, "Image");
+    if (m_aFutures.containsKey (aImage))
+      return;
+
+    final PLImageOptimizer aImageOptimizer = aImage.getImageOptimizer () != null ? aImage.getImageOptimizer ()
+                                                                                : aDocumentImageOptimizer;
+    final CompletableFuture <PLEncodedImage> aFuture = new CompletableFuture <> ();
+    m_aFutures.put (aImage, aFuture);
+    m_aQueue.add ( () -> {
+      try
+      {
+        if (!aFuture.isDone ())
+          aFuture.complete (_encode (aImage, aImageOptimizer));
+      }
+      catch (final Throwable t)
+      {
+        aFuture.completeExceptionally (t);
+      }
+      finally
+      {
+        m_aInFlight.decrementAndGet ();
+        _dispatch ();
+      }
+    });
+    _dispatch ();
+  }
+
+  /**
+   * Get the background encoded image, waiting for the encoding to finish if
+   * necessary.
+   *
+   * @param aImage
+   *        The image to resolve. May not be <code>null</code>.
+   * @param aDoc
+   *        The document to create the image in. May not be <code>null</code>.
+   * @return <code>null</code> if the image was not registered or could not be
+   *         encoded in the background. In that case the image must be encoded
+   *         directly.
+   * @throws IOException
+   *         If the background encoding failed
+   */
+  @Nullable
+  public PDImageXObject getXObject (@Nonnull final AbstractPLImage <?> aImage,
+                                    @Nonnull final PDDocument aDoc) throws IOException
+  {
+    final CompletableFuture <PLEncodedImage> aFuture = m_aFutures.get (aImage);
+    if (aFuture == null)
+      return null;
+
+    final PLEncodedImage aEncoded;
+    try
+    {
+      aEncoded = aFuture.join ();
+    }
+    catch (final CompletionException ex)
+    {
+      if (ex.getCause () instanceof IOException)
+        throw (IOException) ex.getCause ();
+      throw new IOException ("Failed to encode image in the background", ex.getCause ());
+    }
+    return aEncoded == null ? null : aEncoded.createXObject (aDoc);
+  }
+
+  /**
+   * Cancel all images that were not yet encoded. Must be called when the
+   * rendering is finished or failed.
+   */
+  public void cancelPending ()
+  {
+    for (final CompletableFuture <PLEncodedImage> aFuture : m_aFutures.values ())
+      aFuture.cancel (false);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Executor", m_aExecutor)
+                                       .append ("MaxParallel", m_nMaxParallel)
+                                       .append ("ImageCount", m_aFutures.size ())
+                                       .getToString ();
+  }
+}
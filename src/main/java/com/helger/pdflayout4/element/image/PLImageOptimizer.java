@@ -0,0 +1,298 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.element.image;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Optimizes an image before it is embedded into the PDF. Images with a higher
+ * resolution than the target resolution (based on the layout size of the
+ * element) are downsampled, and images that only contain neutral colours can
+ * be converted to grey scale. Additionally the JPEG quality to be used can be
+ * defined.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ * @see AbstractPLImage#setImageOptimizer(PLImageOptimizer)
+ */
+@Immutable
+public final class PLImageOptimizer
+{
+  /** The default JPEG quality as used by PDFBox */
+  public static final float DEFAULT_JPEG_QUALITY = 0.75f;
+
+  private static final float PDF_UNITS_PER_INCH = 72f;
+
+  private final float m_fTargetDPI;
+  private final boolean m_bConvertToGrayscale;
+  private final float m_fJPEGQuality;
+
+  /**
+   * Constructor
+   *
+   * @param fTargetDPI
+   *        The maximum effective resolution in dots per inch. A value &le; 0
+   *        means no downsampling.
+   * @param bConvertToGrayscale
+   *        <code>true</code> to convert images without alpha channel whose
+   *        pixels are all neutral (red = green = blue) to grey scale.
+   * @param fJPEGQuality
+   *        The JPEG quality from 0 to 1. Only used for
+   *        {@link EPLImageType#JPEG}.
+   */
+  public PLImageOptimizer (final float fTargetDPI, final boolean bConvertToGrayscale, final float fJPEGQuality)
+  {
+    ValueEnforcer.isBetweenInclusive (fJPEGQuality, "JPEGQuality", 0f, 1f);
+    m_fTargetDPI = fTargetDPI;
+    m_bConvertToGrayscale = bConvertToGrayscale;
+    m_fJPEGQuality = fJPEGQuality;
+  }
+
+  /**
+   * @return The maximum effective resolution in dots per inch. A value &le; 0
+   *         means no downsampling.
+   */
+  public float getTargetDPI ()
+  {
+    return m_fTargetDPI;
+  }
+
+  /**
+   * @return <code>true</code> if neutral images are converted to grey scale.
+   */
+  public boolean isConvertToGrayscale ()
+  {
+    return m_bConvertToGrayscale;
+  }
+
+  /**
+   * @return The JPEG quality from 0 to 1.
+   */
+  @Nonnegative
+  public float getJPEGQuality ()
+  {
+    return m_fJPEGQuality;
+  }
+
+  /**
+   * Get the JPEG quality to re-encode a single image with. Encoding with a
+   * higher quality than the source JPEG only increases the size, so the
+   * quality of the source is used if it is lower than the configured one.
+   *
+   * @param fSourceQuality
+   *        The estimated quality of the source JPEG from 0 to 1 or a value
+   *        &le; 0 if it is unknown.
+   * @return The JPEG quality from 0 to 1.
+   * @see com.helger.pdflayout4.pdfbox.JPEGPassThroughFactory.JPEGHeader#getQuality()
+   */
+  @Nonnegative
+  public float getJPEGQuality (final float fSourceQuality)
+  {
+    return fSourceQuality > 0 ? Math.min (m_fJPEGQuality, fSourceQuality) : m_fJPEGQuality;
+  }
+
+  @Nonnull
+  private static BufferedImage _scale (@Nonnull final BufferedImage aImage, final int nWidth, final int nHeight)
+  {
+    final int nType;
+    if (aImage.getType () == BufferedImage.TYPE_BYTE_GRAY)
+      nType = BufferedImage.TYPE_BYTE_GRAY;
+    else
+      nType = aImage.getColorModel ().hasAlpha () ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+    final BufferedImage ret = new BufferedImage (nWidth, nHeight, nType);
+    final Graphics2D aG2D = ret.createGraphics ();
+    try
+    {
+      aG2D.setRenderingHint (RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      aG2D.setRenderingHint (RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      aG2D.drawImage (aImage, 0, 0, nWidth, nHeight, null);
+    }
+    finally
+    {
+      aG2D.dispose ();
+    }
+    return ret;
+  }
+
+  @Nonnegative
+  private int _getTargetPixels (@Nonnegative final float fLayoutSize)
+  {
+    return Math.max (1, (int) Math.ceil (fLayoutSize / PDF_UNITS_PER_INCH * m_fTargetDPI));
+  }
+
+  @Nonnull
+  private BufferedImage _downsample (@Nonnull final BufferedImage aImage,
+                                     @Nonnegative final float fLayoutWidth,
+                                     @Nonnegative final float fLayoutHeight)
+  {
+    final int nTargetWidth = _getTargetPixels (fLayoutWidth);
+    final int nTargetHeight = _getTargetPixels (fLayoutHeight);
+    if (aImage.getWidth () <= nTargetWidth && aImage.getHeight () <= nTargetHeight)
+      return aImage;
+
+    // Keep the aspect ratio and reach the target resolution in both directions
+    final double dFactor = Math.max ((double) nTargetWidth / aImage.getWidth (),
+                                     (double) nTargetHeight / aImage.getHeight ());
+    final int nFinalWidth = Math.max (1, (int) Math.round (aImage.getWidth () * dFactor));
+    final int nFinalHeight = Math.max (1, (int) Math.round (aImage.getHeight () * dFactor));
+
+    // Halve in multiple steps, as bilinear scaling by more than 50% skips
+    // pixels
+    BufferedImage ret = aImage;
+    while (ret.getWidth () / 2 >= nFinalWidth && ret.getHeight () / 2 >= nFinalHeight)
+      ret = _scale (ret, ret.getWidth () / 2, ret.getHeight () / 2);
+    if (ret.getWidth () != nFinalWidth || ret.getHeight () != nFinalHeight)
+      ret = _scale (ret, nFinalWidth, nFinalHeight);
+    return ret;
+  }
+
+  @Nonnull
+  private static BufferedImage _toGrayscaleIfNeutral (@Nonnull final BufferedImage aImage)
+  {
+    if (aImage.getType () == BufferedImage.TYPE_BYTE_GRAY || aImage.getColorModel ().hasAlpha ())
+      return aImage;
+
+    final int nWidth = aImage.getWidth ();
+    final int nHeight = aImage.getHeight ();
+    final BufferedImage ret = new BufferedImage (nWidth, nHeight, BufferedImage.TYPE_BYTE_GRAY);
+    final WritableRaster aRaster = ret.getRaster ();
+    final int [] aRow = new int [nWidth];
+    final int [] aGrayRow = new int [nWidth];
+    for (int y = 0; y < nHeight; ++y)
+    {
+      aImage.getRGB (0, y, nWidth, 1, aRow, 0, nWidth);
+      for (int x = 0; x < nWidth; ++x)
+      {
+        final int nRGB = aRow[x];
+        final int nRed = (nRGB >> 16) & 0xff;
+        if (nRed != ((nRGB >> 8) & 0xff) || nRed != (nRGB & 0xff))
+        {
+          // Not neutral
+          return aImage;
+        }
+        aGrayRow[x] = nRed;
+      }
+      // Copy the samples, so that no colour conversion is applied
+      aRaster.setSamples (0, y, nWidth, 1, 0, aGrayRow);
+    }
+    return ret;
+  }
+
+  /**
+   * Check if an image of the passed pixel size may be changed by
+   * {@link #optimize(BufferedImage, float, float)}. If not, an already encoded
+   * image can be embedded without decoding it.
+   *
+   * @param aSourceSize
+   *        The pixel size of the source image. May be <code>null</code> if it
+   *        is not known.
+   * @param fLayoutWidth
+   *        The width in PDF units the image is rendered with. Must be &gt; 0.
+   * @param fLayoutHeight
+   *        The height in PDF units the image is rendered with. Must be &gt; 0.
+   * @return <code>true</code> if the image must be decoded and optimized.
+   */
+  public boolean isOptimizationRequired (@Nullable final Dimension aSourceSize,
+                                         @Nonnegative final float fLayoutWidth,
+                                         @Nonnegative final float fLayoutHeight)
+  {
+    // Neutral colours can only be detected on the decoded pixels
+    if (m_bConvertToGrayscale)
+      return true;
+    if (m_fTargetDPI <= 0)
+      return false;
+    if (aSourceSize == null)
+      return true;
+    return aSourceSize.width > _getTargetPixels (fLayoutWidth) ||
+           aSourceSize.height > _getTargetPixels (fLayoutHeight);
+  }
+
+  /**
+   * Optimize the passed image for the provided layout size.
+   *
+   * @param aImage
+   *        The source image. May not be <code>null</code>. Is not modified.
+   * @param fLayoutWidth
+   *        The width in PDF units the image is rendered with. Must be &gt; 0.
+   * @param fLayoutHeight
+   *        The height in PDF units the image is rendered with. Must be &gt; 0.
+   * @return The optimized image or the source image if no optimization was
+   *         possible. Never <code>null</code>.
+   */
+  @Nonnull
+  public BufferedImage optimize (@Nonnull final BufferedImage aImage,
+                                 @Nonnegative final float fLayoutWidth,
+                                 @Nonnegative final float fLayoutHeight)
+  {
+    ValueEnforcer.notNull (aImage, "Image");
+    ValueEnforcer.isGT0 (fLayoutWidth, "LayoutWidth");
+    ValueEnforcer.isGT0 (fLayoutHeight, "LayoutHeight");
+
+    BufferedImage ret = aImage;
+    if (m_fTargetDPI > 0)
+      ret = _downsample (ret, fLayoutWidth, fLayoutHeight);
+    if (m_bConvertToGrayscale)
+      ret = _toGrayscaleIfNeutral (ret);
+    return ret;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final PLImageOptimizer rhs = (PLImageOptimizer) o;
+    return EqualsHelper.equals (m_fTargetDPI, rhs.m_fTargetDPI) &&
+           m_bConvertToGrayscale == rhs.m_bConvertToGrayscale &&
+           EqualsHelper.equals (m_fJPEGQuality, rhs.m_fJPEGQuality);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_fTargetDPI)
+                                       .append (m_bConvertToGrayscale)
+                                       .append (m_fJPEGQuality)
+                                       .getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("TargetDPI", m_fTargetDPI)
+                                       .append ("ConvertToGrayscale", m_bConvertToGrayscale)
+                                       .append ("JPEGQuality", m_fJPEGQuality)
+                                       .getToString ();
+  }
+}
@@ -16,6 +16,7 @@
  */
 package com.helger.pdflayout4.element.image;
 
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,21 +25,33 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
+import javax.annotation.WillNotClose;
+import javax.imageio.ImageIO;
 
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.graphics.image.CCITTFactory;
-import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.io.IHasInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
 import com.helger.commons.io.stream.StreamHelper;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.pdflayout4.pdfbox.JPEGPassThroughFactory;
+import com.helger.pdflayout4.pdfbox.JPEGPassThroughFactory.JPEGHeader;
+import com.helger.pdflayout4.pdfbox.PNGPassThroughFactory;
 import com.helger.pdflayout4.render.PagePreRenderContext;
 
 /**
  * Represent a static image based on {@link BufferedImage} read from an
- * {@link InputStream}. This is not supported for the image type
- * {@link EPLImageType#LOSSLESS}!
+ * {@link InputStream}. For the image type {@link EPLImageType#LOSSLESS} PNG
+ * images are embedded without decoding the pixels (see
+ * {@link PNGPassThroughFactory}); all other image formats are decoded and
+ * re-compressed. JPEG images are copied without decoding (see
+ * {@link JPEGPassThroughFactory}). If an image optimizer is set, the image is
+ * only decoded and optimized if the optimizer would change it.
  *
  * @see PLImage
  * @author Philip Helger
@@ -57,6 +70,53 @@ public class PLStreamImage extends AbstractPLImage <PLStreamImage>
     m_aIIS = aImage;
   }
 
+  /**
+   * Create a JPEG image, whose layout size is derived from the pixel size and
+   * the resolution. Only the JPEG header is read for this purpose.
+   *
+   * @param aImage
+   *        The JPEG image source. May not be <code>null</code>.
+   * @param fDefaultDPI
+   *        The resolution in dots per inch to be used if the JPEG file contains
+   *        no resolution. Must be &gt; 0.
+   * @param bPreferHeaderDPI
+   *        <code>true</code> to use the resolution from the JFIF header if
+   *        present, <code>false</code> to always use the provided resolution.
+   * @return The new image with image type {@link EPLImageType#JPEG}. Never
+   *         <code>null</code>.
+   * @throws IOException
+   *         If the source is not a readable JPEG file
+   * @since 5.1.2
+   */
+  @Nonnull
+  public static PLStreamImage createJPEG (@Nonnull final IHasInputStream aImage,
+                                          @Nonnegative final float fDefaultDPI,
+                                          final boolean bPreferHeaderDPI) throws IOException
+  {
+    ValueEnforcer.notNull (aImage, "Image");
+    ValueEnforcer.isGT0 (fDefaultDPI, "DefaultDPI");
+
+    final InputStream aIS = aImage.getInputStream ();
+    if (aIS == null)
+      throw new IOException ("Failed to open InputStream from " + aImage);
+
+    final JPEGHeader aHeader;
+    try (final InputStream aRealIS = aIS)
+    {
+      aHeader = JPEGPassThroughFactory.readHeader (aRealIS);
+    }
+    if (aHeader == null)
+      throw new IOException ("The stream does not contain a JPEG file: " + aImage);
+
+    final boolean bUseHeaderDPI = bPreferHeaderDPI && aHeader.hasDPI ();
+    final float fDPIX = bUseHeaderDPI ? aHeader.getDPIX () : fDefaultDPI;
+    final float fDPIY = bUseHeaderDPI ? aHeader.getDPIY () : fDefaultDPI;
+    // 72 PDF units per inch
+    return new PLStreamImage (aImage,
+                              aHeader.getWidth () * 72f / fDPIX,
+                              aHeader.getHeight () * 72f / fDPIY).setImageType (EPLImageType.JPEG);
+  }
+
   @Override
   @Nonnull
   @OverridingMethodsMustInvokeSuper
@@ -72,10 +132,82 @@ public class PLStreamImage extends AbstractPLImage <PLStreamImage>
     return m_aIIS;
   }
 
+  @Override
+  @Nullable
+  protected Object getImageCacheSource (@Nonnull final PagePreRenderContext aCtx)
+  {
+    final PLImageOptimizer aOptimizer = getEffectiveImageOptimizer (aCtx);
+    if (aOptimizer == null || getImageType () == EPLImageType.CCITT)
+      return m_aIIS;
+    // The result depends on the optimizer and the layout size
+    return new CommonsArrayList <> (m_aIIS,
+                                    aOptimizer,
+                                    Float.valueOf (getImageWidth ()),
+                                    Float.valueOf (getImageHeight ()));
+  }
+
+  @Override
+  @Nullable
+  protected Dimension readSourceSize () throws IOException
+  {
+    if (getImageType () == EPLImageType.CCITT)
+      return null;
+
+    final InputStream aIS = m_aIIS.getInputStream ();
+    if (aIS == null)
+      throw new IOException ("Failed to open InputStream from " + m_aIIS);
+    try (final InputStream aRealIS = aIS)
+    {
+      return readJPEGOrPNGSize (aRealIS);
+    }
+  }
+
+  /**
+   * Create a lossless image from the bytes of an image file. PNG data is
+   * embedded without decoding, all other formats are decoded with ImageIO.
+   *
+   * @param aDoc
+   *        The document to create the image in. May not be <code>null</code>.
+   * @param aBytes
+   *        The bytes of the image file. May not be <code>null</code>.
+   * @param aSource
+   *        The source of the bytes for error messages only.
+   * @return The new image. Never <code>null</code>.
+   * @throws IOException
+   *         If the image cannot be read
+   */
+  @Nonnull
+  static PDImageXObject createLosslessFromByteArray (@Nonnull final PDDocument aDoc,
+                                                     @Nonnull final byte [] aBytes,
+                                                     @Nonnull final Object aSource) throws IOException
+  {
+    // PNG data can be embedded without decoding
+    final PDImageXObject ret = PNGPassThroughFactory.createFromByteArray (aDoc, aBytes);
+    if (ret != null)
+      return ret;
+
+    final BufferedImage aImage = ImageIO.read (new NonBlockingByteArrayInputStream (aBytes));
+    if (aImage == null)
+      throw new IOException ("Failed to read image from " + aSource);
+    return LosslessFactory.createFromImage (aDoc, aImage);
+  }
+
   @Override
   @Nonnull
   protected PDImageXObject getXObject (@Nonnull final PagePreRenderContext aCtx) throws IOException
   {
+    return createXObject (aCtx.getDocument (), getEffectiveImageOptimizer (aCtx));
+  }
+
+  @Override
+  @Nonnull
+  protected PDImageXObject createXObject (@Nonnull final PDDocument aDoc,
+                                          @Nullable final PLImageOptimizer aOptimizer) throws IOException
+  {
+    // Decide before the stream is opened, as the source size may need to be
+    // read
+    final boolean bPassThrough = getImageType () == EPLImageType.CCITT || isPassThroughPossible (aOptimizer);
+
     // The input stream is only sometimes closed automatically
     final InputStream aIS = m_aIIS.getInputStream ();
     if (aIS == null)
@@ -83,19 +215,42 @@ public class PLStreamImage extends AbstractPLImage <PLStreamImage>
 
     try (final InputStream aRealIS = aIS)
     {
+      if (bPassThrough)
+        return _createPassThrough (aDoc, aRealIS);
+
+      // Keep the bytes, as the stream may not be readable twice
       final byte [] aBytes = StreamHelper.getAllBytes (aRealIS);
-      switch (getImageType ())
-      {
-        case CCITT:
-          return CCITTFactory.createFromByteArray (aCtx.getDocument (), aBytes);
-        case JPEG:
-          return JPEGFactory.createFromByteArray (aCtx.getDocument (), aBytes);
-        case LOSSLESS:
-          // API does not support it
-          throw new IllegalStateException ("Lossless images cannot be read from Stream - use the version with BufferedImage!");
-        default:
-          throw new IllegalStateException ("Unsupported image type: " + toString ());
-      }
+      final PDImageXObject ret = createOptimizedXObject (aDoc,
+                                                         new NonBlockingByteArrayInputStream (aBytes),
+                                                         aOptimizer,
+                                                         m_aIIS);
+      if (ret != null)
+        return ret;
+
+      // Unchanged by the optimizer - embed the source as is
+      return _createPassThrough (aDoc, new NonBlockingByteArrayInputStream (aBytes));
+    }
+  }
+
+  @Nonnull
+  private PDImageXObject _createPassThrough (@Nonnull final PDDocument aDoc,
+                                             @Nonnull @WillNotClose final InputStream aIS) throws IOException
+  {
+    if (getImageType () == EPLImageType.JPEG)
+    {
+      // Copy the DCT data without reading the whole file into memory
+      return JPEGPassThroughFactory.createFromStream (aDoc, aIS);
+    }
+
+    final byte [] aBytes = StreamHelper.getAllBytes (aIS);
+    switch (getImageType ())
+    {
+      case CCITT:
+        return CCITTFactory.createFromByteArray (aDoc, aBytes);
+      case LOSSLESS:
+        return createLosslessFromByteArray (aDoc, aBytes, m_aIIS);
+      default:
+        throw new IllegalStateException ("Unsupported image type: " + toString ());
     }
   }
 
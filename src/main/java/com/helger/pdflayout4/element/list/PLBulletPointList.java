@@ -80,6 +80,12 @@ public class PLBulletPointList extends AbstractPLRenderableObject <PLBulletPoint
     return this;
   }
 
+  @Override
+  public boolean isBeforeRenderRequired ()
+  {
+    return false;
+  }
+
   @Override
   protected SizeSpec onPrepare (final PreparationContext aCtx)
   {
@@ -24,6 +24,7 @@ import com.helger.commons.string.ToStringGenerator;
 import com.helger.pdflayout4.base.AbstractPLRenderableObject;
 import com.helger.pdflayout4.render.PageRenderContext;
 import com.helger.pdflayout4.render.PreparationContext;
+import com.helger.pdflayout4.spec.IntrinsicWidthSpec;
 import com.helger.pdflayout4.spec.SizeSpec;
 
 /**
@@ -61,6 +62,19 @@ public class PLPageBreak extends AbstractPLRenderableObject <PLPageBreak>
     return m_bForcePageBreak;
   }
 
+  @Override
+  @Nonnull
+  public IntrinsicWidthSpec measureIntrinsic (@Nonnull final PreparationContext aCtx)
+  {
+    return IntrinsicWidthSpec.WIDTH0;
+  }
+
+  @Override
+  public boolean isBeforeRenderRequired ()
+  {
+    return false;
+  }
+
   @Override
   protected SizeSpec onPrepare (@Nonnull final PreparationContext aCtx)
   {
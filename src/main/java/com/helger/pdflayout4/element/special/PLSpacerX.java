@@ -19,12 +19,14 @@ package com.helger.pdflayout4.element.special;
 import java.io.IOException;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
 
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.pdflayout4.base.AbstractPLRenderableObject;
 import com.helger.pdflayout4.render.PageRenderContext;
 import com.helger.pdflayout4.render.PreparationContext;
+import com.helger.pdflayout4.spec.IntrinsicWidthSpec;
 import com.helger.pdflayout4.spec.SizeSpec;
 
 /**
@@ -66,6 +68,20 @@ public class PLSpacerX extends AbstractPLRenderableObject <PLSpacerX>
     return this;
   }
 
+  @Override
+  @Nullable
+  public IntrinsicWidthSpec measureIntrinsic (@Nonnull final PreparationContext aCtx)
+  {
+    // Without a fixed width, the available width is used
+    return m_fWidth > 0 ? IntrinsicWidthSpec.fixed (m_fWidth) : null;
+  }
+
+  @Override
+  public boolean isBeforeRenderRequired ()
+  {
+    return false;
+  }
+
   @Override
   protected SizeSpec onPrepare (@Nonnull final PreparationContext aCtx)
   {
@@ -25,6 +25,7 @@ import com.helger.commons.string.ToStringGenerator;
 import com.helger.pdflayout4.base.AbstractPLRenderableObject;
 import com.helger.pdflayout4.render.PageRenderContext;
 import com.helger.pdflayout4.render.PreparationContext;
+import com.helger.pdflayout4.spec.IntrinsicWidthSpec;
 import com.helger.pdflayout4.spec.SizeSpec;
 
 /**
@@ -68,6 +69,19 @@ public class PLSpacerY extends AbstractPLRenderableObject <PLSpacerY>
     return this;
   }
 
+  @Override
+  @Nonnull
+  public IntrinsicWidthSpec measureIntrinsic (@Nonnull final PreparationContext aCtx)
+  {
+    return IntrinsicWidthSpec.WIDTH0;
+  }
+
+  @Override
+  public boolean isBeforeRenderRequired ()
+  {
+    return false;
+  }
+
   @Override
   protected SizeSpec onPrepare (@Nonnull final PreparationContext aCtx)
   {
@@ -17,7 +17,6 @@
 package com.helger.pdflayout4.element.table;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.ObjIntConsumer;
 
@@ -258,32 +257,11 @@ public class PLTable extends AbstractPLRenderableObject <PLTable> implements
     {
       final PLTableCell aRealCell = aCell != null ? aCell : new PLTableCell (new PLSpacerX ());
       final int nColSpan = aRealCell.getColSpan ();
-      if (nColSpan == 1)
-      {
-        aRow.addCell (aRealCell, m_aWidths.get (nWidthIndex));
-      }
-      else
-      {
-        if (m_eCommonWidthType == null)
-          throw new IllegalArgumentException ("Since columns with different width types are used, 'colspan' must be 1");
-
-        final List <WidthSpec> aWidths = m_aWidths.subList (nWidthIndex, nWidthIndex + nColSpan);
-        WidthSpec aRealWidth;
-        if (m_eCommonWidthType == EValueUOMType.STAR)
-        {
-          // aggregate
-          aRealWidth = WidthSpec.perc (nColSpan * 100f / m_aWidths.size ());
-        }
-        else
-        {
-          // aggregate values
-          float fWidth = 0;
-          for (final WidthSpec aWidth : aWidths)
-            fWidth += aWidth.getValue ();
-          aRealWidth = new WidthSpec (m_eCommonWidthType, fWidth);
-        }
-        aRow.addCell (aRealCell, aRealWidth);
-      }
+      final WidthSpec aRealWidth = PLTableColumnWidths.getSpannedWidth (m_aWidths,
+                                                                        m_eCommonWidthType,
+                                                                        nWidthIndex,
+                                                                        nColSpan);
+      aRow.addCell (aRealCell, aRealWidth);
       nWidthIndex += nColSpan;
     }
     addRow (aRow, aHeight);
@@ -405,6 +383,13 @@ public class PLTable extends AbstractPLRenderableObject <PLTable> implements
     return aRow == null ? null : aRow.getCellAtIndex (nColIndex);
   }
 
+  @Override
+  public boolean isBeforeRenderRequired ()
+  {
+    // Contained objects are handled separately
+    return false;
+  }
+
   @Override
   @Nonnull
   public EChange visit (@Nonnull final IPLVisitor aVisitor) throws IOException
@@ -423,7 +408,19 @@ public class PLTable extends AbstractPLRenderableObject <PLTable> implements
     final PreparationContext aChildCtx = new PreparationContext (aCtx.getGlobalContext (),
                                                                  fElementWidth,
                                                                  fElementHeight);
-    final SizeSpec aVBoxPreparedSize = m_aRows.prepare (aChildCtx);
+
+    // All rows share the same column widths - resolve them only once
+    final PLTableColumnWidths aColumnWidths = new PLTableColumnWidths (m_aWidths, m_eCommonWidthType);
+    forEachRow (x -> x.internalSetTableColumnWidths (aColumnWidths));
+    final SizeSpec aVBoxPreparedSize;
+    try
+    {
+      aVBoxPreparedSize = m_aRows.prepare (aChildCtx);
+    }
+    finally
+    {
+      forEachRow (x -> x.internalSetTableColumnWidths (null));
+    }
     return aVBoxPreparedSize.plus (m_aRows.getOutlineXSum (), m_aRows.getOutlineYSum ());
   }
 
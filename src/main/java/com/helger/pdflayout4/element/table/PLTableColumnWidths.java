@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.element.table;
+
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.pdflayout4.element.hbox.AbstractPLHBox;
+import com.helger.pdflayout4.spec.EValueUOMType;
+import com.helger.pdflayout4.spec.WidthSpec;
+
+/**
+ * Internal helper that resolves the column widths of a single {@link PLTable}
+ * once per preparation. All rows created by
+ * {@link PLTable#addAndReturnRow(Iterable, com.helger.pdflayout4.spec.HeightSpec)}
+ * use the width specifications of the table (summed up for cells with a
+ * "colspan"), so they can simply use the sum of the resolved table column
+ * widths instead of resolving their own width specifications.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+final class PLTableColumnWidths
+{
+  private final List <WidthSpec> m_aWidths;
+  private final EValueUOMType m_eCommonWidthType;
+  private float m_fElementWidth = Float.NaN;
+  private float [] m_aResolvedWidths;
+
+  PLTableColumnWidths (@Nonnull final List <WidthSpec> aWidths, @Nullable final EValueUOMType eCommonWidthType)
+  {
+    m_aWidths = aWidths;
+    m_eCommonWidthType = eCommonWidthType;
+  }
+
+  /**
+   * Get the width specification of a cell spanning one or more table columns.
+   *
+   * @param aWidths
+   *        The width specifications of all table columns. May not be
+   *        <code>null</code>.
+   * @param eCommonWidthType
+   *        The width type shared by all columns. May be <code>null</code> if
+   *        different types are used, in which case only a colspan of 1 is
+   *        allowed.
+   * @param nStartIndex
+   *        The index of the first spanned column.
+   * @param nColSpan
+   *        The number of spanned columns. Must be &gt; 0.
+   * @return The width specification to use. Never <code>null</code>.
+   */
+  @Nonnull
+  static WidthSpec getSpannedWidth (@Nonnull final List <WidthSpec> aWidths,
+                                    @Nullable final EValueUOMType eCommonWidthType,
+                                    @Nonnegative final int nStartIndex,
+                                    @Nonnegative final int nColSpan)
+  {
+    ValueEnforcer.isGT0 (nColSpan, "ColSpan");
+    if (nColSpan == 1)
+      return aWidths.get (nStartIndex);
+
+    if (eCommonWidthType == null)
+      throw new IllegalArgumentException ("Since columns with different width types are used, 'colspan' must be 1");
+
+    if (eCommonWidthType == EValueUOMType.STAR)
+    {
+      // aggregate
+      return WidthSpec.perc (nColSpan * 100f / aWidths.size ());
+    }
+
+    // aggregate values
+    float fWidth = 0;
+    for (int i = nStartIndex; i < nStartIndex + nColSpan; ++i)
+      fWidth += aWidths.get (i).getValue ();
+    return new WidthSpec (eCommonWidthType, fWidth);
+  }
+
+  /**
+   * Check if the passed width specification is the one the table uses for the
+   * provided cell.
+   *
+   * @param aWidth
+   *        The width specification of the cell. May not be <code>null</code>.
+   * @param nStartIndex
+   *        The index of the first spanned table column.
+   * @param nColSpan
+   *        The number of spanned table columns.
+   * @return <code>true</code> if the resolved table column widths can be used
+   *         for this cell.
+   */
+  boolean isTableWidth (@Nonnull final WidthSpec aWidth,
+                        @Nonnegative final int nStartIndex,
+                        @Nonnegative final int nColSpan)
+  {
+    if (nColSpan < 1 || nStartIndex + nColSpan > m_aWidths.size ())
+      return false;
+    if (nColSpan > 1 && m_eCommonWidthType == null)
+      return false;
+    return EqualsHelper.equals (aWidth, getSpannedWidth (m_aWidths, m_eCommonWidthType, nStartIndex, nColSpan));
+  }
+
+  /**
+   * @return The number of table columns.
+   */
+  @Nonnegative
+  int getColumnCount ()
+  {
+    return m_aWidths.size ();
+  }
+
+  /**
+   * Get the resolved full width of each table column. The result is only
+   * calculated again if the available width changes (e.g. because a row has
+   * a margin).
+   *
+   * @param fElementWidth
+   *        The available width of the row without outline.
+   * @return <code>null</code> if the column widths cannot be resolved upfront.
+   *         The returned array may not be modified.
+   * @see AbstractPLHBox#getResolvedColumnWidths(List, float)
+   */
+  @Nullable
+  float [] getResolvedColumnWidths (final float fElementWidth)
+  {
+    if (Float.compare (fElementWidth, m_fElementWidth) != 0)
+    {
+      m_aResolvedWidths = AbstractPLHBox.getResolvedColumnWidths (m_aWidths, fElementWidth);
+      m_fElementWidth = fElementWidth;
+    }
+    return m_aResolvedWidths;
+  }
+}
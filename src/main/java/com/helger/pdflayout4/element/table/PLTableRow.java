@@ -37,9 +37,64 @@ import com.helger.pdflayout4.spec.WidthSpec;
 
 public class PLTableRow extends AbstractPLHBox <PLTableRow>
 {
+  // Only set while the owning table is prepared
+  private transient PLTableColumnWidths m_aTableColumnWidths;
+
   public PLTableRow ()
   {}
 
+  /**
+   * INTERNAL method. Do not call from outside! Set the column widths of the
+   * owning table.
+   *
+   * @param aTableColumnWidths
+   *        The table column widths to use. May be <code>null</code>.
+   */
+  final void internalSetTableColumnWidths (@Nullable final PLTableColumnWidths aTableColumnWidths)
+  {
+    m_aTableColumnWidths = aTableColumnWidths;
+  }
+
+  @Override
+  @Nullable
+  protected float [] getPreResolvedColumnWidths (final float fElementWidth)
+  {
+    final PLTableColumnWidths aTableWidths = m_aTableColumnWidths;
+    if (aTableWidths == null)
+      return null;
+
+    final float [] aTableColumnWidths = aTableWidths.getResolvedColumnWidths (fElementWidth);
+    if (aTableColumnWidths == null)
+      return null;
+
+    // Map the table columns onto the cells of this row
+    final float [] ret = new float [getColumnCount ()];
+    int nTableIndex = 0;
+    for (int i = 0; i < ret.length; ++i)
+    {
+      final PLHBoxColumn aColumn = getColumnAtIndex (i);
+      if (!(aColumn.getElement () instanceof PLTableCell))
+        return null;
+      final int nColSpan = ((PLTableCell) aColumn.getElement ()).getColSpan ();
+      if (!aTableWidths.isTableWidth (aColumn.getWidth (), nTableIndex, nColSpan))
+      {
+        // Row was modified or created manually
+        return null;
+      }
+      float fWidth = 0;
+      for (int j = 0; j < nColSpan; ++j)
+        fWidth += aTableColumnWidths[nTableIndex + j];
+      ret[i] = fWidth;
+      nTableIndex += nColSpan;
+    }
+
+    // If not all table columns are used, the remaining width is distributed
+    // differently
+    if (nTableIndex != aTableWidths.getColumnCount ())
+      return null;
+    return ret;
+  }
+
   @Override
   @Nonnull
   protected PLTableCell internalCreateVertSplitEmptyElement (@Nonnull final IPLRenderableObject <?> aSrcObject,
@@ -49,6 +49,7 @@ import com.helger.pdflayout4.render.PageRenderContext;
 import com.helger.pdflayout4.render.PreparationContext;
 import com.helger.pdflayout4.spec.EHorzAlignment;
 import com.helger.pdflayout4.spec.FontSpec;
+import com.helger.pdflayout4.spec.IntrinsicWidthSpec;
 import com.helger.pdflayout4.spec.LoadedFont;
 import com.helger.pdflayout4.spec.SizeSpec;
 import com.helger.pdflayout4.spec.TextAndWidthSpec;
@@ -71,6 +72,7 @@ public abstract class AbstractPLText <IMPLTYPE extends AbstractPLText <IMPLTYPE>
 
   private String m_sOriginalText;
   private String m_sTextWithPlaceholdersReplaced;
+  private PLTextPlaceholderTemplate m_aPlaceholderTemplate;
   private final FontSpec m_aFontSpec;
   private float m_fLineSpacing = DEFAULT_LINE_SPACING;
 
@@ -120,6 +122,8 @@ public abstract class AbstractPLText <IMPLTYPE extends AbstractPLText <IMPLTYPE>
   {
     m_sOriginalText = getCleanedPLText (sText);
     m_sTextWithPlaceholdersReplaced = m_sOriginalText;
+    // Locate placeholders only once
+    m_aPlaceholderTemplate = PLTextPlaceholderTemplate.parse (m_sOriginalText);
   }
 
   @Override
@@ -390,6 +394,26 @@ public abstract class AbstractPLText <IMPLTYPE extends AbstractPLText <IMPLTYPE>
     return new SizeSpec (fMaxWidth, getDisplayHeightOfLineCount (m_aPreparedLines.size (), false));
   }
 
+  @Override
+  @Nonnull
+  protected IntrinsicWidthSpec onMeasureIntrinsic (@Nonnull final PreparationContext aCtx)
+  {
+    if (hasNoText ())
+      return IntrinsicWidthSpec.WIDTH0;
+
+    try
+    {
+      final LoadedFont aLoadedFont = aCtx.getGlobalContext ().getLoadedFont (m_aFontSpec);
+      // Use the approximations from the placeholders - same as in prepare
+      final String sTextToMeasure = StringHelper.replaceMultiple (m_sOriginalText, ESTIMATION_REPLACEMENTS);
+      return aLoadedFont.getIntrinsicWidth (sTextToMeasure, m_aFontSpec.getFontSize ());
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException ("Failed to measure text element: " + toString (), ex);
+    }
+  }
+
   @Override
   protected SizeSpec onPrepare (@Nonnull final PreparationContext aCtx)
   {
@@ -407,6 +431,49 @@ public abstract class AbstractPLText <IMPLTYPE extends AbstractPLText <IMPLTYPE>
     }
   }
 
+  @Override
+  @Nonnull
+  protected Object getPrepareCacheKey ()
+  {
+    // Everything that is relevant for onPrepare
+    return new CommonsArrayList <Object> (getClass (),
+                                          m_sOriginalText,
+                                          m_aFontSpec,
+                                          Integer.valueOf (m_nMaxRows),
+                                          Float.valueOf (m_fLineSpacing),
+                                          Float.valueOf (getOutlineXSum ()));
+  }
+
+  @Override
+  @Nullable
+  protected Object getPreparedStateForCache ()
+  {
+    // Empty text has no lines
+    // Use a copy, so that later modifications of this object don't affect the
+    // cache
+    return m_aPreparedLinesUnmodified == null ? null : m_aPreparedLinesUnmodified.getClone ();
+  }
+
+  @Override
+  @SuppressWarnings ("unchecked")
+  protected boolean onPrepareFromCache (@Nonnull final PreparationContext aCtx, @Nonnull final Object aPreparedState)
+  {
+    try
+    {
+      m_aLoadedFont = aCtx.getGlobalContext ().getLoadedFont (m_aFontSpec);
+      final float fFontSize = m_aFontSpec.getFontSize ();
+      m_fTextHeight = m_aLoadedFont.getTextHeight (fFontSize);
+      m_fDescent = m_aLoadedFont.getDescent (fFontSize);
+      // Each object gets its own list, as the cached one is shared
+      internalSetPreparedLines (((ICommonsList <TextAndWidthSpec>) aPreparedState).getClone ());
+      return true;
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException ("Failed to prepare text element: " + toString (), ex);
+    }
+  }
+
   @Override
   protected void onMarkAsNotPrepared ()
   {
@@ -424,6 +491,40 @@ public abstract class AbstractPLText <IMPLTYPE extends AbstractPLText <IMPLTYPE>
     internalMarkAsPrepared (aOnPrepareResult);
   }
 
+  /**
+   * Set the replaced text without fitting it again, if each line of the
+   * replaced text fits into the available width. In this case fitting would
+   * not break any line, so the lines can be used directly.
+   *
+   * @return <code>true</code> if the text was set, <code>false</code> if the
+   *         text needs to be fitted.
+   */
+  private boolean _setDisplayTextIfFitting (@Nonnull final String sNewTextWithPlaceholdersReplaced,
+                                            @Nonnull final PagePreRenderContext aCtx,
+                                            final float fAvailableWidth) throws IOException
+  {
+    final ICommonsList <TextAndWidthSpec> aLines = m_aPlaceholderTemplate.getReplacedLinesIfFitting (aCtx::getPlaceholder,
+                                                                                                     m_aLoadedFont,
+                                                                                                     m_aFontSpec.getFontSize (),
+                                                                                                     fAvailableWidth);
+    if (aLines == null)
+      return false;
+
+    if (PLDebugLog.isDebugPrepare ())
+      PLDebugLog.debugPrepare (this, "Replaced placeholders without fitting the text again");
+
+    internalMarkAsNotPrepared ();
+    m_sTextWithPlaceholdersReplaced = sNewTextWithPlaceholdersReplaced;
+    internalSetPreparedLines (aLines);
+
+    // Same as in _prepareText
+    float fMaxWidth = Float.MIN_VALUE;
+    for (final TextAndWidthSpec aTWS : m_aPreparedLines)
+      fMaxWidth = Math.max (fMaxWidth, aTWS.getWidth ());
+    internalMarkAsPrepared (new SizeSpec (fMaxWidth, getDisplayHeightOfLineCount (m_aPreparedLines.size (), false)));
+    return true;
+  }
+
   /**
    * @return The total number of prepared lines, not taking the maxRows into
    *         consideration. Always &ge; 0.
@@ -565,6 +666,13 @@ public abstract class AbstractPLText <IMPLTYPE extends AbstractPLText <IMPLTYPE>
     return new PLSplitResult (aText1, aText2);
   }
 
+  @Override
+  public boolean isBeforeRenderRequired ()
+  {
+    // Only placeholders need to be replaced
+    return m_bReplacePlaceholder;
+  }
+
   @Override
   @Nonnull
   public EChange beforeRender (@Nonnull final PagePreRenderContext aCtx) throws IOException
@@ -572,11 +680,28 @@ public abstract class AbstractPLText <IMPLTYPE extends AbstractPLText <IMPLTYPE>
     if (m_bReplacePlaceholder)
     {
       final String sOrigText = m_sOriginalText;
+      final float fAvailableWidth = getPrepareAvailableSize ().getWidth ();
+      if (aCtx.isAllPlaceholdersInVariableSyntax ())
+      {
+        // Use the pre-parsed placeholders
+        if (m_aPlaceholderTemplate == null)
+          return EChange.UNCHANGED;
+
+        final String sDisplayText = m_aPlaceholderTemplate.getReplacedText (aCtx::getPlaceholder);
+        if (sOrigText.equals (sDisplayText))
+          return EChange.UNCHANGED;
+
+        // Something changed
+        if (!_setDisplayTextIfFitting (sDisplayText, aCtx, fAvailableWidth))
+          _setDisplayTextAfterPrepare (sDisplayText, fAvailableWidth);
+        return EChange.CHANGED;
+      }
+
       final String sDisplayText = StringHelper.replaceMultiple (sOrigText, aCtx.getAllPlaceholders ());
       if (!sOrigText.equals (sDisplayText))
       {
         // Something changed
-        _setDisplayTextAfterPrepare (sDisplayText, getPrepareAvailableSize ().getWidth ());
+        _setDisplayTextAfterPrepare (sDisplayText, fAvailableWidth);
         return EChange.CHANGED;
       }
     }
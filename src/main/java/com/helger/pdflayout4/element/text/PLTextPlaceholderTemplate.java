@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.element.text;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.function.Function;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.pdflayout4.spec.LoadedFont;
+import com.helger.pdflayout4.spec.TextAndWidthSpec;
+
+/**
+ * A text that was split into literal parts and placeholders of the form
+ * <code>${name}</code> once, so that the placeholders can be replaced without
+ * scanning the whole text again. The widths of the literal parts are cached, so
+ * that only the widths of the replacement values need to be determined.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+final class PLTextPlaceholderTemplate implements Serializable
+{
+  private static final String VAR_START = "${";
+  private static final char VAR_END = '}';
+
+  // Per line: the segments, alternating literal and placeholder, always
+  // starting and ending with a (maybe empty) literal
+  private final String [] [] m_aLines;
+
+  // Width cache of the literal segments
+  private transient LoadedFont m_aLiteralWidthFont;
+  private transient float m_fLiteralWidthFontSize;
+  private transient float [] [] m_aLiteralWidths;
+
+  private PLTextPlaceholderTemplate (@Nonnull final String [] [] aLines)
+  {
+    m_aLines = aLines;
+  }
+
+  /**
+   * @return The number of lines as separated by "\n". Always &gt; 0.
+   */
+  @Nonnegative
+  public int getLineCount ()
+  {
+    return m_aLines.length;
+  }
+
+  @Nonnull
+  private static String _resolve (@Nonnull final String sPlaceholder,
+                                  @Nonnull final Function <String, String> aResolver)
+  {
+    final String ret = aResolver.apply (sPlaceholder);
+    // Unknown placeholders remain unchanged
+    return ret != null ? ret : sPlaceholder;
+  }
+
+  @Nonnull
+  private String _getReplacedLine (@Nonnegative final int nLine, @Nonnull final Function <String, String> aResolver)
+  {
+    final String [] aSegments = m_aLines[nLine];
+    final StringBuilder aSB = new StringBuilder ();
+    for (int i = 0; i < aSegments.length; ++i)
+      aSB.append ((i % 2) == 0 ? aSegments[i] : _resolve (aSegments[i], aResolver));
+    return aSB.toString ();
+  }
+
+  /**
+   * Get the text with all placeholders replaced.
+   *
+   * @param aResolver
+   *        The function to resolve a placeholder (including the leading "${"
+   *        and the trailing "}") to its value. If <code>null</code> is returned
+   *        the placeholder is not replaced. May not be <code>null</code>.
+   * @return The replaced text with lines separated by "\n". Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public String getReplacedText (@Nonnull final Function <String, String> aResolver)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    for (int nLine = 0; nLine < m_aLines.length; ++nLine)
+    {
+      if (nLine > 0)
+        aSB.append ('\n');
+      aSB.append (_getReplacedLine (nLine, aResolver));
+    }
+    return aSB.toString ();
+  }
+
+  @Nonnull
+  private float [] [] _getLiteralWidths (@Nonnull final LoadedFont aLoadedFont,
+                                         final float fFontSize) throws IOException
+  {
+    if (m_aLiteralWidths == null || m_aLiteralWidthFont != aLoadedFont || m_fLiteralWidthFontSize != fFontSize)
+    {
+      final float [] [] aLiteralWidths = new float [m_aLines.length] [];
+      for (int nLine = 0; nLine < m_aLines.length; ++nLine)
+      {
+        final String [] aSegments = m_aLines[nLine];
+        final float [] aWidths = new float [aSegments.length];
+        for (int i = 0; i < aSegments.length; i += 2)
+          aWidths[i] = aLoadedFont.getStringWidth (aSegments[i], fFontSize);
+        aLiteralWidths[nLine] = aWidths;
+      }
+      m_aLiteralWidths = aLiteralWidths;
+      m_aLiteralWidthFont = aLoadedFont;
+      m_fLiteralWidthFontSize = fFontSize;
+    }
+    return m_aLiteralWidths;
+  }
+
+  /**
+   * Get all lines with all placeholders replaced, if each line fits into the
+   * provided width. Only the replacement values are measured, the literal
+   * widths are cached.
+   *
+   * @param aResolver
+   *        The function to resolve a placeholder to its value. May not be
+   *        <code>null</code>.
+   * @param aLoadedFont
+   *        The font to measure with. May not be <code>null</code>.
+   * @param fFontSize
+   *        The font size to measure with. Must be &gt; 0.
+   * @param fMaxWidth
+   *        The maximum width of each line.
+   * @return <code>null</code> if at least one line does not fit into the
+   *         maximum width and the text needs to be fitted regularly.
+   * @throws IOException
+   *         In case of a PDFBox error
+   */
+  @Nullable
+  public ICommonsList <TextAndWidthSpec> getReplacedLinesIfFitting (@Nonnull final Function <String, String> aResolver,
+                                                                    @Nonnull final LoadedFont aLoadedFont,
+                                                                    final float fFontSize,
+                                                                    final float fMaxWidth) throws IOException
+  {
+    final float [] [] aLiteralWidths = _getLiteralWidths (aLoadedFont, fFontSize);
+    final ICommonsList <TextAndWidthSpec> ret = new CommonsArrayList <> (m_aLines.length);
+    for (int nLine = 0; nLine < m_aLines.length; ++nLine)
+    {
+      final String [] aSegments = m_aLines[nLine];
+      final float [] aWidths = aLiteralWidths[nLine];
+      final StringBuilder aSB = new StringBuilder ();
+      float fWidth = 0;
+      for (int i = 0; i < aSegments.length; ++i)
+        if ((i % 2) == 0)
+        {
+          aSB.append (aSegments[i]);
+          fWidth += aWidths[i];
+        }
+        else
+        {
+          final String sValue = _resolve (aSegments[i], aResolver);
+          aSB.append (sValue);
+          fWidth += aLoadedFont.getStringWidth (sValue, fFontSize);
+        }
+
+      if (fWidth > fMaxWidth)
+        return null;
+      ret.add (new TextAndWidthSpec (aSB.toString (), fWidth));
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("LineCount", m_aLines.length).getToString ();
+  }
+
+  /**
+   * Split the passed text into literals and placeholders.
+   *
+   * @param sText
+   *        The text to parse. May not be <code>null</code>.
+   * @return <code>null</code> if the text contains no placeholder.
+   */
+  @Nullable
+  public static PLTextPlaceholderTemplate parse (@Nonnull final String sText)
+  {
+    ValueEnforcer.notNull (sText, "Text");
+
+    if (sText.indexOf (VAR_START) < 0)
+      return null;
+
+    // Same line splitting as in LoadedFont.getFitToWidth
+    final String [] aLines = StringHelper.getExplodedArray ('\n', sText);
+    final String [] [] aLineSegments = new String [aLines.length] [];
+    boolean bAnyPlaceholder = false;
+    for (int nLine = 0; nLine < aLines.length; ++nLine)
+    {
+      final String sLine = aLines[nLine];
+      final ICommonsList <String> aSegments = new CommonsArrayList <> ();
+      int nLiteralStart = 0;
+      int nVarStart = sLine.indexOf (VAR_START);
+      while (nVarStart >= 0)
+      {
+        final int nVarEnd = sLine.indexOf (VAR_END, nVarStart + VAR_START.length ());
+        if (nVarEnd < 0)
+          break;
+        // Use the innermost start, e.g. for "${a ${b}"
+        nVarStart = sLine.lastIndexOf (VAR_START, nVarEnd);
+        aSegments.add (sLine.substring (nLiteralStart, nVarStart));
+        aSegments.add (sLine.substring (nVarStart, nVarEnd + 1));
+        nLiteralStart = nVarEnd + 1;
+        nVarStart = sLine.indexOf (VAR_START, nLiteralStart);
+      }
+      aSegments.add (sLine.substring (nLiteralStart));
+      if (aSegments.size () > 1)
+        bAnyPlaceholder = true;
+      aLineSegments[nLine] = aSegments.toArray (new String [aSegments.size ()]);
+    }
+    return bAnyPlaceholder ? new PLTextPlaceholderTemplate (aLineSegments) : null;
+  }
+}
@@ -60,9 +60,11 @@ import com.helger.pdflayout4.base.IPLVisitor;
 import com.helger.pdflayout4.base.PLElementWithSize;
 import com.helger.pdflayout4.base.PLSplitResult;
 import com.helger.pdflayout4.debug.PLDebugLog;
+import com.helger.pdflayout4.jfr.PLJFR;
 import com.helger.pdflayout4.render.PageRenderContext;
 import com.helger.pdflayout4.render.PreparationContext;
 import com.helger.pdflayout4.spec.HeightSpec;
+import com.helger.pdflayout4.spec.IntrinsicWidthSpec;
 import com.helger.pdflayout4.spec.SizeSpec;
 
 /**
@@ -420,6 +422,13 @@ public abstract class AbstractPLVBox <IMPLTYPE extends AbstractPLVBox <IMPLTYPE>
     return thisAsT ();
   }
 
+  @Override
+  public boolean isBeforeRenderRequired ()
+  {
+    // Contained objects are handled separately
+    return false;
+  }
+
   @Override
   @Nonnull
   public EChange visit (@Nonnull final IPLVisitor aVisitor) throws IOException
@@ -430,6 +439,27 @@ public abstract class AbstractPLVBox <IMPLTYPE extends AbstractPLVBox <IMPLTYPE>
     return ret;
   }
 
+  @Override
+  @Nullable
+  public IntrinsicWidthSpec measureIntrinsic (@Nonnull final PreparationContext aCtx)
+  {
+    // Always uses the available width
+    if (m_bFullWidth)
+      return null;
+
+    // All rows are prepared with the same width - the widest row counts
+    IntrinsicWidthSpec ret = IntrinsicWidthSpec.WIDTH0;
+    for (final PLVBoxRow aRow : m_aRows)
+    {
+      final IPLRenderableObject <?> aElement = aRow.getElement ();
+      final IntrinsicWidthSpec aRowWidth = aElement.measureIntrinsic (aCtx);
+      if (aRowWidth == null)
+        return null;
+      ret = ret.max (aRowWidth.plus (aElement.getOutlineXSum ()));
+    }
+    return ret;
+  }
+
   @Override
   @OverridingMethodsMustInvokeSuper
   protected SizeSpec onPrepare (@Nonnull final PreparationContext aCtx)
@@ -791,8 +821,10 @@ public abstract class AbstractPLVBox <IMPLTYPE extends AbstractPLVBox <IMPLTYPE>
                                            PLDebugLog.getWH (fSplitWidth, fSplitHeight));
 
             // Try to split the element contained in the row
+            final Object aJFREvent = PLJFR.beginSplit ();
             final PLSplitResult aSplitResult = aRowElement.getAsSplittable ()
                                                           .splitElementVert (fSplitWidth, fSplitHeight);
+            PLJFR.endSplit (aJFREvent, aRowElement, fSplitWidth, fSplitHeight, aSplitResult != null);
             if (aSplitResult != null)
             {
               final IPLRenderableObject <?> aVBox1RowElement = aSplitResult.getFirstElement ().getElement ();
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.jfr;
+
+import javax.annotation.Nonnull;
+
+import com.helger.pdflayout4.base.IPLRenderableObject;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Abstract base class for all JFR events that refer to a single element.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@SuppressForbidden (reason = "Only used via PLJFR if JFR is available")
+@Category ({ PLJFR.CATEGORY })
+@StackTrace (false)
+abstract class AbstractPLElementEvent extends jdk.jfr.Event
+{
+  @Label ("Element Type")
+  String elementType;
+
+  @Label ("Debug ID")
+  String debugID;
+
+  protected final void setElement (@Nonnull final IPLRenderableObject <?> aElement)
+  {
+    elementType = aElement.getClass ().getName ();
+    debugID = aElement.getDebugID ();
+  }
+}
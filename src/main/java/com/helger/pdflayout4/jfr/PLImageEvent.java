@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.jfr;
+
+import javax.annotation.Nonnull;
+
+import com.helger.pdflayout4.element.image.AbstractPLImage;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for creating the PDF image object of a single image element.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@SuppressForbidden (reason = "Only used via PLJFR if JFR is available")
+@Name (PLJFR.EVENT_PREFIX + "Image")
+@Label ("Create Image")
+@Description ("Creation of the PDF image object of a single image element")
+final class PLImageEvent extends AbstractPLElementEvent
+{
+  @Label ("Image Width")
+  float imageWidth;
+
+  @Label ("Image Height")
+  float imageHeight;
+
+  @Label ("Image Type")
+  String imageType;
+
+  @Label ("Source")
+  @Description ("Where the image was taken from: cache, pipeline or encoded")
+  String source;
+
+  void endAndCommit (@Nonnull final AbstractPLImage <?> aElement, @Nonnull final String sSource)
+  {
+    end ();
+    if (shouldCommit ())
+    {
+      setElement (aElement);
+      imageWidth = aElement.getImageWidth ();
+      imageHeight = aElement.getImageHeight ();
+      imageType = aElement.getImageType ().getID ();
+      source = sSource;
+      commit ();
+    }
+  }
+}
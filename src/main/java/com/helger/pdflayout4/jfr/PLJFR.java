@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.jfr;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.pdflayout4.base.IPLRenderableObject;
+import com.helger.pdflayout4.element.image.AbstractPLImage;
+import com.helger.pdflayout4.spec.PreloadFont;
+import com.helger.pdflayout4.spec.SizeSpec;
+
+/**
+ * Entry point for the JDK Flight Recorder events of this library. The events
+ * are emitted for preparing, splitting and rendering elements, for loading
+ * fonts and for creating images. They are enabled and thresholded with the
+ * regular JFR settings using the event names starting with
+ * {@value #EVENT_PREFIX}, so no code change is needed to profile a document.
+ * If no recording is active, only an enabled check is performed.<br>
+ * JFR is part of Java 8 since update 262. On runtimes without JFR no event
+ * class is ever loaded and all methods do nothing.<br>
+ * The begin methods return an opaque event object that must be passed to the
+ * respective end method. It is <code>null</code> if the event is not
+ * recorded.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@Immutable
+@SuppressForbidden (reason = "Event classes are only accessed if JFR is available")
+public final class PLJFR
+{
+  /** The prefix of all event names */
+  public static final String EVENT_PREFIX = "com.helger.pdflayout4.";
+  /** The JFR category of all events */
+  public static final String CATEGORY = "PDF Layout";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (PLJFR.class);
+  private static final boolean AVAILABLE;
+
+  static
+  {
+    boolean bAvailable;
+    try
+    {
+      Class.forName ("jdk.jfr.Event");
+      bAvailable = true;
+    }
+    catch (final ClassNotFoundException | LinkageError ex)
+    {
+      bAvailable = false;
+      LOGGER.info ("JDK Flight Recorder is not available - no JFR events are emitted");
+    }
+    AVAILABLE = bAvailable;
+  }
+
+  private PLJFR ()
+  {}
+
+  /**
+   * @return <code>true</code> if the JDK Flight Recorder is available in the
+   *         current runtime, <code>false</code> if not.
+   */
+  public static boolean isAvailable ()
+  {
+    return AVAILABLE;
+  }
+
+  @Nullable
+  public static Object beginPrepare ()
+  {
+    if (!AVAILABLE)
+      return null;
+    final PLPrepareEvent ret = new PLPrepareEvent ();
+    if (!ret.isEnabled ())
+      return null;
+    ret.begin ();
+    return ret;
+  }
+
+  public static void endPrepare (@Nullable final Object aEvent,
+                                 @Nonnull final IPLRenderableObject <?> aElement,
+                                 @Nonnull final SizeSpec aAvailableSize,
+                                 @Nonnull final SizeSpec aPreparedSize)
+  {
+    if (aEvent != null)
+      ((PLPrepareEvent) aEvent).endAndCommit (aElement, aAvailableSize, aPreparedSize);
+  }
+
+  @Nullable
+  public static Object beginSplit ()
+  {
+    if (!AVAILABLE)
+      return null;
+    final PLSplitEvent ret = new PLSplitEvent ();
+    if (!ret.isEnabled ())
+      return null;
+    ret.begin ();
+    return ret;
+  }
+
+  public static void endSplit (@Nullable final Object aEvent,
+                               @Nonnull final IPLRenderableObject <?> aElement,
+                               final float fAvailableWidth,
+                               final float fAvailableHeight,
+                               final boolean bSplit)
+  {
+    if (aEvent != null)
+      ((PLSplitEvent) aEvent).endAndCommit (aElement, fAvailableWidth, fAvailableHeight, bSplit);
+  }
+
+  @Nullable
+  public static Object beginRender ()
+  {
+    if (!AVAILABLE)
+      return null;
+    final PLRenderEvent ret = new PLRenderEvent ();
+    if (!ret.isEnabled ())
+      return null;
+    ret.begin ();
+    return ret;
+  }
+
+  public static void endRender (@Nullable final Object aEvent,
+                                @Nonnull final IPLRenderableObject <?> aElement,
+                                final float fWidth,
+                                final float fHeight)
+  {
+    if (aEvent != null)
+      ((PLRenderEvent) aEvent).endAndCommit (aElement, fWidth, fHeight);
+  }
+
+  @Nullable
+  public static Object beginFontLoad ()
+  {
+    if (!AVAILABLE)
+      return null;
+    final PLFontLoadEvent ret = new PLFontLoadEvent ();
+    if (!ret.isEnabled ())
+      return null;
+    ret.begin ();
+    return ret;
+  }
+
+  public static void endFontLoad (@Nullable final Object aEvent, @Nonnull final PreloadFont aFont)
+  {
+    if (aEvent != null)
+      ((PLFontLoadEvent) aEvent).endAndCommit (aFont);
+  }
+
+  @Nullable
+  public static Object beginImage ()
+  {
+    if (!AVAILABLE)
+      return null;
+    final PLImageEvent ret = new PLImageEvent ();
+    if (!ret.isEnabled ())
+      return null;
+    ret.begin ();
+    return ret;
+  }
+
+  /**
+   * @param aEvent
+   *        The event returned by {@link #beginImage()}. May be
+   *        <code>null</code>.
+   * @param aElement
+   *        The image element. May not be <code>null</code>.
+   * @param sSource
+   *        Where the image was taken from. One of "cache", "pipeline" or
+   *        "encoded". May not be <code>null</code>.
+   */
+  public static void endImage (@Nullable final Object aEvent,
+                               @Nonnull final AbstractPLImage <?> aElement,
+                               @Nonnull final String sSource)
+  {
+    if (aEvent != null)
+      ((PLImageEvent) aEvent).endAndCommit (aElement, sSource);
+  }
+}
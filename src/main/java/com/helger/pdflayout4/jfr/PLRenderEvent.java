@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.jfr;
+
+import javax.annotation.Nonnull;
+
+import com.helger.pdflayout4.base.IPLRenderableObject;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for the rendering of a single element. The duration includes the
+ * rendering of all contained elements.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@SuppressForbidden (reason = "Only used via PLJFR if JFR is available")
+@Name (PLJFR.EVENT_PREFIX + "Render")
+@Label ("Render Element")
+@Description ("Rendering of a single layout element including all contained elements")
+@Threshold ("1 ms")
+final class PLRenderEvent extends AbstractPLElementEvent
+{
+  @Label ("Width")
+  float width;
+
+  @Label ("Height")
+  float height;
+
+  void endAndCommit (@Nonnull final IPLRenderableObject <?> aElement, final float fWidth, final float fHeight)
+  {
+    end ();
+    if (shouldCommit ())
+    {
+      setElement (aElement);
+      width = fWidth;
+      height = fHeight;
+      commit ();
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.jfr;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks classes that intentionally use the non-portable <code>jdk.jfr</code>
+ * API, so that they are excluded from the forbidden API check. These classes
+ * must only be accessed via {@link PLJFR}, which checks that JFR is available
+ * at runtime.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@Documented
+@Retention (RetentionPolicy.CLASS)
+@Target (ElementType.TYPE)
+@interface SuppressForbidden
+{
+  /**
+   * @return The reason for the suppression.
+   */
+  String reason ();
+}
@@ -0,0 +1,423 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.Immutable;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Create a {@link PDImageXObject} from a JPEG stream without decoding it.
+ * Only the markers up to the frame header (SOF) are parsed to determine the
+ * dimensions and the number of components; afterwards the complete file is
+ * copied as is into a DCTDecode stream. Only 8 bit JPEG files are supported.
+ * In contrast to
+ * {@link org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory} the file is
+ * never held on the heap as a whole.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@Immutable
+public final class JPEGPassThroughFactory
+{
+  /**
+   * The maximum number of bytes before the frame header. Larger headers (e.g.
+   * with huge embedded thumbnails or ICC profiles) are rejected.
+   */
+  public static final int MAX_HEADER_BYTES = 4 * 1024 * 1024;
+
+  /**
+   * The information from the JPEG header.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class JPEGHeader
+  {
+    private final int m_nWidth;
+    private final int m_nHeight;
+    private final int m_nComponents;
+    private final int m_nBitsPerComponent;
+    private final float m_fDPIX;
+    private final float m_fDPIY;
+    private final float m_fQuality;
+
+    JPEGHeader (final int nWidth,
+                final int nHeight,
+                final int nComponents,
+                final int nBitsPerComponent,
+                final float fDPIX,
+                final float fDPIY,
+                final float fQuality)
+    {
+      m_nWidth = nWidth;
+      m_nHeight = nHeight;
+      m_nComponents = nComponents;
+      m_nBitsPerComponent = nBitsPerComponent;
+      m_fDPIX = fDPIX;
+      m_fDPIY = fDPIY;
+      m_fQuality = fQuality;
+    }
+
+    /**
+     * @return The width in pixels.
+     */
+    @Nonnegative
+    public int getWidth ()
+    {
+      return m_nWidth;
+    }
+
+    /**
+     * @return The height in pixels.
+     */
+    @Nonnegative
+    public int getHeight ()
+    {
+      return m_nHeight;
+    }
+
+    /**
+     * @return The number of colour components (1, 3 or 4).
+     */
+    @Nonnegative
+    public int getComponents ()
+    {
+      return m_nComponents;
+    }
+
+    /**
+     * @return The sample precision in bits.
+     */
+    @Nonnegative
+    public int getBitsPerComponent ()
+    {
+      return m_nBitsPerComponent;
+    }
+
+    /**
+     * @return The horizontal resolution in dots per inch from the JFIF header
+     *         or 0 if it is unknown.
+     */
+    public float getDPIX ()
+    {
+      return m_fDPIX;
+    }
+
+    /**
+     * @return The vertical resolution in dots per inch from the JFIF header or
+     *         0 if it is unknown.
+     */
+    public float getDPIY ()
+    {
+      return m_fDPIY;
+    }
+
+    /**
+     * @return <code>true</code> if the resolution is known.
+     */
+    public boolean hasDPI ()
+    {
+      return m_fDPIX > 0 && m_fDPIY > 0;
+    }
+
+    /**
+     * @return The quality from 0 to 1 the file was most likely encoded with,
+     *         estimated from the first quantization table, or 0 if it is
+     *         unknown.
+     */
+    public float getQuality ()
+    {
+      return m_fQuality;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("Width", m_nWidth)
+                                         .append ("Height", m_nHeight)
+                                         .append ("Components", m_nComponents)
+                                         .append ("BitsPerComponent", m_nBitsPerComponent)
+                                         .append ("DPIX", m_fDPIX)
+                                         .append ("DPIY", m_fDPIY)
+                                         .append ("Quality", m_fQuality)
+                                         .getToString ();
+    }
+  }
+
+  // The sum of the standard luminance quantization table of the IJG library
+  // (JPEG specification Annex K.1) which corresponds to a quality of 50
+  private static final int STD_LUMINANCE_SUM = 3_688;
+
+  private JPEGPassThroughFactory ()
+  {}
+
+  private static int _read (@Nonnull final InputStream aIS) throws IOException
+  {
+    final int ret = aIS.read ();
+    if (ret < 0)
+      throw new EOFException ("Unexpected end of JPEG header");
+    return ret;
+  }
+
+  private static int _readShort (@Nonnull final InputStream aIS) throws IOException
+  {
+    return (_read (aIS) << 8) | _read (aIS);
+  }
+
+  private static void _skip (@Nonnull final InputStream aIS, final long nBytes) throws IOException
+  {
+    long nRest = nBytes;
+    while (nRest > 0)
+    {
+      final long nSkipped = aIS.skip (nRest);
+      if (nSkipped > 0)
+        nRest -= nSkipped;
+      else
+      {
+        _read (aIS);
+        nRest--;
+      }
+    }
+  }
+
+  private static boolean _isSOF (final int nMarker)
+  {
+    // SOF0-SOF15 except DHT, JPG and DAC
+    return nMarker >= 0xc0 && nMarker <= 0xcf && nMarker != 0xc4 && nMarker != 0xc8 && nMarker != 0xcc;
+  }
+
+  /**
+   * Estimate the quality from a quantization table, based on the scaling the
+   * IJG library applies to its standard table.
+   *
+   * @param nTableSum
+   *        The sum of all 64 values of the luminance quantization table.
+   * @return The estimated quality from 0 to 1.
+   */
+  private static float _estimateQuality (final long nTableSum)
+  {
+    final double dScale = nTableSum * 100d / STD_LUMINANCE_SUM;
+    final double dQuality = dScale <= 100 ? (200 - dScale) / 2 : 5000 / dScale;
+    return (float) Math.max (0.01, Math.min (1, dQuality / 100));
+  }
+
+  /**
+   * Read the JPEG header up to and including the frame header. The stream is
+   * positioned after the frame header afterwards.
+   *
+   * @param aIS
+   *        The stream to read from. May not be <code>null</code>.
+   * @return <code>null</code> if the stream does not contain a JPEG file.
+   * @throws IOException
+   *         If the header is truncated or corrupt
+   */
+  @Nullable
+  public static JPEGHeader readHeader (@Nonnull @WillNotClose final InputStream aIS) throws IOException
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+
+    // SOI
+    if (aIS.read () != 0xff || aIS.read () != 0xd8)
+      return null;
+
+    float fDPIX = 0;
+    float fDPIY = 0;
+    float fQuality = 0;
+    while (true)
+    {
+      int nMarker = _read (aIS);
+      if (nMarker != 0xff)
+        throw new IOException ("Expected a JPEG marker but found 0x" + Integer.toHexString (nMarker));
+      // Skip fill bytes
+      while (nMarker == 0xff)
+        nMarker = _read (aIS);
+
+      // Standalone markers: TEM and RST0-RST7
+      if (nMarker == 0x01 || (nMarker >= 0xd0 && nMarker <= 0xd7))
+        continue;
+      if (nMarker == 0xd9 || nMarker == 0xda)
+        throw new IOException ("JPEG file contains no frame header");
+
+      final int nLength = _readShort (aIS);
+      if (nLength < 2)
+        throw new IOException ("Invalid JPEG segment length " + nLength);
+
+      if (_isSOF (nMarker))
+      {
+        final int nBitsPerComponent = _read (aIS);
+        final int nHeight = _readShort (aIS);
+        final int nWidth = _readShort (aIS);
+        final int nComponents = _read (aIS);
+        if (nWidth <= 0 || nHeight <= 0)
+          throw new IOException ("JPEG files with the height defined in a DNL segment are not supported");
+        return new JPEGHeader (nWidth, nHeight, nComponents, nBitsPerComponent, fDPIX, fDPIY, fQuality);
+      }
+
+      if (nMarker == 0xdb)
+      {
+        // DQT - one or more quantization tables
+        int nRest = nLength - 2;
+        while (nRest > 0)
+        {
+          final int nInfo = _read (aIS);
+          final boolean b16Bit = (nInfo >> 4) != 0;
+          long nSum = 0;
+          for (int i = 0; i < 64; ++i)
+            nSum += b16Bit ? _readShort (aIS) : _read (aIS);
+          // Table 0 is the luminance table
+          if ((nInfo & 0x0f) == 0)
+            fQuality = _estimateQuality (nSum);
+          nRest -= 1 + (b16Bit ? 128 : 64);
+        }
+        if (nRest < 0)
+          throw new IOException ("Invalid JPEG quantization table segment");
+        continue;
+      }
+
+      if (nMarker == 0xe0 && nLength >= 16)
+      {
+        // APP0 - maybe JFIF
+        final byte [] aID = new byte [5];
+        for (int i = 0; i < aID.length; ++i)
+          aID[i] = (byte) _read (aIS);
+        if ("JFIF\0".equals (new String (aID, StandardCharsets.ISO_8859_1)))
+        {
+          // Version
+          _skip (aIS, 2);
+          final int nUnits = _read (aIS);
+          final int nDensityX = _readShort (aIS);
+          final int nDensityY = _readShort (aIS);
+          if (nUnits == 1)
+          {
+            // Dots per inch
+            fDPIX = nDensityX;
+            fDPIY = nDensityY;
+          }
+          else
+            if (nUnits == 2)
+            {
+              // Dots per cm
+              fDPIX = nDensityX * 2.54f;
+              fDPIY = nDensityY * 2.54f;
+            }
+          _skip (aIS, nLength - 2 - 5 - 7);
+        }
+        else
+          _skip (aIS, nLength - 2 - 5);
+      }
+      else
+        _skip (aIS, nLength - 2);
+    }
+  }
+
+  @Nullable
+  private static PDColorSpace _getColorSpace (final int nComponents)
+  {
+    switch (nComponents)
+    {
+      case 1:
+        return PDDeviceGray.INSTANCE;
+      case 3:
+        return PDDeviceRGB.INSTANCE;
+      case 4:
+        return PDDeviceCMYK.INSTANCE;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Create an image by copying the passed JPEG stream.
+   *
+   * @param aDoc
+   *        The document to create the image in. May not be <code>null</code>.
+   * @param aIS
+   *        The JPEG stream. May not be <code>null</code>. It is read
+   *        completely but not closed.
+   * @return The new image and never <code>null</code>.
+   * @throws IOException
+   *         If the stream does not contain a supported JPEG file
+   */
+  @Nonnull
+  public static PDImageXObject createFromStream (@Nonnull final PDDocument aDoc,
+                                                 @Nonnull @WillNotClose final InputStream aIS) throws IOException
+  {
+    ValueEnforcer.notNull (aDoc, "Document");
+    ValueEnforcer.notNull (aIS, "InputStream");
+
+    // Remember the header, so that the complete file can be copied afterwards
+    final InputStream aMarkIS = aIS.markSupported () ? aIS : new BufferedInputStream (aIS, 16 * 1024);
+    aMarkIS.mark (MAX_HEADER_BYTES);
+    final JPEGHeader aHeader = readHeader (aMarkIS);
+    if (aHeader == null)
+      throw new IOException ("The stream does not contain a JPEG file");
+    aMarkIS.reset ();
+
+    // DCTDecode only supports 8 bit samples
+    if (aHeader.getBitsPerComponent () != 8)
+      throw new IOException ("JPEG files with a precision of " +
+                             aHeader.getBitsPerComponent () +
+                             " bits are not supported");
+    final PDColorSpace aColorSpace = _getColorSpace (aHeader.getComponents ());
+    if (aColorSpace == null)
+      throw new IOException ("JPEG files with " + aHeader.getComponents () + " components are not supported");
+
+    final PDImageXObject ret = new PDImageXObject (aDoc,
+                                                   aMarkIS,
+                                                   COSName.DCT_DECODE,
+                                                   aHeader.getWidth (),
+                                                   aHeader.getHeight (),
+                                                   aHeader.getBitsPerComponent (),
+                                                   aColorSpace);
+    if (aColorSpace == PDDeviceCMYK.INSTANCE)
+    {
+      // CMYK JPEGs (as written by Adobe applications) store inverted values -
+      // same as JPEGFactory
+      final COSArray aDecode = new COSArray ();
+      for (int i = 0; i < 4; ++i)
+      {
+        aDecode.add (COSInteger.ONE);
+        aDecode.add (COSInteger.ZERO);
+      }
+      ret.setDecode (aDecode);
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+
+import com.helger.commons.ValueEnforcer;
+
+/**
+ * Serializes COS objects for the custom document writers. Streams and all
+ * dictionaries that are not direct are written as references to indirect
+ * objects, everything else is written inline.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+final class PDCOSSerializer
+{
+  private static final byte [] SPACE = { ' ' };
+  private static final byte [] NEWLINE = { '\n' };
+
+  private final ToIntFunction <COSBase> m_aObjectNumberResolver;
+
+  /**
+   * Constructor
+   *
+   * @param aObjectNumberResolver
+   *        Resolves the object number of an indirect object. May not be
+   *        <code>null</code>.
+   */
+  PDCOSSerializer (@Nonnull final ToIntFunction <COSBase> aObjectNumberResolver)
+  {
+    ValueEnforcer.notNull (aObjectNumberResolver, "ObjectNumberResolver");
+    m_aObjectNumberResolver = aObjectNumberResolver;
+  }
+
+  static void write (@Nonnull final OutputStream aOS, @Nonnull final String s) throws IOException
+  {
+    aOS.write (s.getBytes (StandardCharsets.ISO_8859_1));
+  }
+
+  /**
+   * Get the indirect object the passed value refers to.
+   *
+   * @param aValue
+   *        The value to check. May be <code>null</code>.
+   * @return <code>null</code> if the value is written inline.
+   */
+  @Nullable
+  static COSDictionary getIndirectObject (@Nullable final COSBase aValue)
+  {
+    if (aValue instanceof COSObject)
+    {
+      final COSBase aTarget = ((COSObject) aValue).getObject ();
+      return aTarget instanceof COSDictionary ? (COSDictionary) aTarget : null;
+    }
+    if (aValue instanceof COSStream || (aValue instanceof COSDictionary && !aValue.isDirect ()))
+      return (COSDictionary) aValue;
+    return null;
+  }
+
+  /**
+   * Get the document ID from the trailer or create a new one.
+   *
+   * @param aTrailer
+   *        The document trailer. May not be <code>null</code>.
+   * @return The ID array with two entries. Never <code>null</code>.
+   * @throws IOException
+   *         If no ID can be created
+   */
+  @Nonnull
+  static COSArray getOrCreateID (@Nonnull final COSDictionary aTrailer) throws IOException
+  {
+    final COSBase aExistingID = aTrailer.getDictionaryObject (COSName.ID);
+    if (aExistingID instanceof COSArray && ((COSArray) aExistingID).size () == 2)
+      return (COSArray) aExistingID;
+
+    try
+    {
+      final MessageDigest aMD = MessageDigest.getInstance ("MD5");
+      aMD.update (Long.toString (System.currentTimeMillis ()).getBytes (StandardCharsets.ISO_8859_1));
+      aMD.update (Long.toString (System.nanoTime ()).getBytes (StandardCharsets.ISO_8859_1));
+      final COSString aID = new COSString (aMD.digest ());
+      aID.setForceHexForm (true);
+      final COSArray ret = new COSArray ();
+      ret.add (aID);
+      ret.add (aID);
+      return ret;
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IOException ("MD5 is not supported", ex);
+    }
+  }
+
+  void writeDictionaryEntries (@Nonnull final COSDictionary aDict,
+                               final boolean bSkipLength,
+                               @Nonnull final OutputStream aOS) throws IOException
+  {
+    for (final Map.Entry <COSName, COSBase> aEntry : aDict.entrySet ())
+    {
+      if (bSkipLength && COSName.LENGTH.equals (aEntry.getKey ()))
+        continue;
+      aEntry.getKey ().writePDF (aOS);
+      aOS.write (SPACE);
+      writeValue (aEntry.getValue (), aOS);
+      aOS.write (NEWLINE);
+    }
+  }
+
+  void writeValue (@Nullable final COSBase aValue, @Nonnull final OutputStream aOS) throws IOException
+  {
+    final COSDictionary aIndirect = getIndirectObject (aValue);
+    if (aIndirect != null)
+    {
+      write (aOS, m_aObjectNumberResolver.applyAsInt (aIndirect) + " 0 R");
+      return;
+    }
+
+    final COSBase aRealValue = aValue instanceof COSObject ? ((COSObject) aValue).getObject () : aValue;
+    if (aRealValue == null || aRealValue instanceof COSNull)
+      write (aOS, "null");
+    else
+      if (aRealValue instanceof COSDictionary)
+      {
+        write (aOS, "<<");
+        writeDictionaryEntries ((COSDictionary) aRealValue, false, aOS);
+        write (aOS, ">>");
+      }
+      else
+        if (aRealValue instanceof COSArray)
+        {
+          write (aOS, "[");
+          boolean bFirst = true;
+          for (final COSBase aItem : (COSArray) aRealValue)
+          {
+            if (bFirst)
+              bFirst = false;
+            else
+              aOS.write (SPACE);
+            writeValue (aItem, aOS);
+          }
+          write (aOS, "]");
+        }
+        else
+          if (aRealValue instanceof COSString)
+            COSWriter.writeString ((COSString) aRealValue, aOS);
+          else
+            if (aRealValue instanceof COSName)
+              ((COSName) aRealValue).writePDF (aOS);
+            else
+              if (aRealValue instanceof COSInteger)
+                ((COSInteger) aRealValue).writePDF (aOS);
+              else
+                if (aRealValue instanceof COSFloat)
+                  ((COSFloat) aRealValue).writePDF (aOS);
+                else
+                  if (aRealValue instanceof COSBoolean)
+                    ((COSBoolean) aRealValue).writePDF (aOS);
+                  else
+                    throw new IOException ("Unsupported PDF object type: " + aRealValue.getClass ().getName ());
+  }
+
+  /**
+   * Write an indirect object that is not a stream.
+   *
+   * @param nObjectNumber
+   *        The object number.
+   * @param aDict
+   *        The dictionary to write. May not be <code>null</code>.
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case of write errors
+   */
+  void writeObject (final int nObjectNumber,
+                    @Nonnull final COSDictionary aDict,
+                    @Nonnull final OutputStream aOS) throws IOException
+  {
+    write (aOS, nObjectNumber + " 0 obj\n<<");
+    writeDictionaryEntries (aDict, false, aOS);
+    write (aOS, ">>\nendobj\n");
+  }
+
+  /**
+   * Write the start of a stream object, up to and including the "stream"
+   * keyword.
+   *
+   * @param nObjectNumber
+   *        The object number.
+   * @param aDict
+   *        The stream dictionary. The contained length is ignored. May not be
+   *        <code>null</code>.
+   * @param nLength
+   *        The length of the stream data.
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case of write errors
+   */
+  void writeStreamStart (final int nObjectNumber,
+                         @Nonnull final COSDictionary aDict,
+                         final long nLength,
+                         @Nonnull final OutputStream aOS) throws IOException
+  {
+    write (aOS, nObjectNumber + " 0 obj\n<<");
+    writeDictionaryEntries (aDict, true, aOS);
+    write (aOS, "/Length " + nLength + ">>\nstream\n");
+  }
+
+  static void writeStreamEnd (@Nonnull final OutputStream aOS) throws IOException
+  {
+    write (aOS, "\nendstream\nendobj\n");
+  }
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Finds byte identical page content streams within a single document (e.g.
+ * blank separator pages or repeated terms and conditions) and lets all
+ * identical pages reference the same content stream. Two content streams are
+ * considered identical, if their uncompressed bytes have the same SHA-256
+ * digest and all resource names refer to the same objects.<br>
+ * The content streams must be written uncompressed - compression is applied
+ * here once per unique content stream.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public class PDContentStreamDeduplicator
+{
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  private final ICommonsMap <ICommonsList <Object>, PDPage> m_aUniquePages = new CommonsHashMap <> ();
+  private int m_nDuplicates;
+  private long m_nSavedBytes;
+
+  public PDContentStreamDeduplicator ()
+  {}
+
+  /**
+   * @return The number of unique content streams found so far. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getUniqueCount ()
+  {
+    return m_aUniquePages.size ();
+  }
+
+  /**
+   * @return The number of content streams that were replaced with an already
+   *         existing one. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getDuplicateCount ()
+  {
+    return m_nDuplicates;
+  }
+
+  /**
+   * @return The number of content stream bytes (as stored in the PDF) that
+   *         were not written because of duplicates. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getSavedBytes ()
+  {
+    return m_nSavedBytes;
+  }
+
+  @Nonnull
+  private static String _getDigest (@Nonnull final byte [] aBytes)
+  {
+    try
+    {
+      return StringHelper.getHexEncoded (MessageDigest.getInstance (DIGEST_ALGORITHM).digest (aBytes));
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      // Every JRE must support SHA-256
+      throw new IllegalStateException ("Digest algorithm " + DIGEST_ALGORITHM + " is not supported", ex);
+    }
+  }
+
+  private static void _addResourceKey (@Nonnull final COSDictionary aResources,
+                                       final boolean bSharedResources,
+                                       @Nonnull final ICommonsList <Object> aKey)
+  {
+    if (bSharedResources)
+    {
+      // Names are never reassigned in shared resources
+      aKey.add (aResources);
+      return;
+    }
+
+    // Compare the objects behind all resource names
+    for (final Map.Entry <COSName, COSBase> aKindEntry : aResources.entrySet ())
+    {
+      aKey.add (aKindEntry.getKey ());
+      final COSBase aKindValue = aKindEntry.getValue ();
+      if (aKindValue instanceof COSDictionary)
+        for (final Map.Entry <COSName, COSBase> aEntry : ((COSDictionary) aKindValue).entrySet ())
+        {
+          aKey.add (aEntry.getKey ());
+          aKey.add (aEntry.getValue ());
+        }
+      else
+        aKey.add (aKindValue);
+    }
+  }
+
+  /**
+   * Deduplicate the finished content stream of the passed page. If an
+   * identical page was already seen, the passed page references the content
+   * stream and the resources of the previous page. Otherwise the content
+   * stream is compressed if requested and remembered.
+   *
+   * @param aPage
+   *        The page that was just rendered. May not be <code>null</code>.
+   * @param aContents
+   *        The uncompressed content stream of the page. May not be
+   *        <code>null</code>.
+   * @param bSharedResources
+   *        <code>true</code> if the resources dictionary of the page is shared
+   *        with other pages and resource names are never reassigned.
+   * @param bCompress
+   *        <code>true</code> to compress unique content streams.
+   * @return The content stream used by the page. Never <code>null</code>.
+   * @throws IOException
+   *         In case of a stream error
+   */
+  @Nonnull
+  public COSStream deduplicate (@Nonnull final PDPage aPage,
+                                @Nonnull final COSStream aContents,
+                                final boolean bSharedResources,
+                                final boolean bCompress) throws IOException
+  {
+    final byte [] aBytes;
+    try (final InputStream aIS = aContents.createRawInputStream ())
+    {
+      aBytes = StreamHelper.getAllBytes (aIS);
+    }
+
+    final ICommonsList <Object> aKey = new CommonsArrayList <> ();
+    aKey.add (_getDigest (aBytes));
+    final COSBase aResources = aPage.getCOSObject ().getDictionaryObject (COSName.RESOURCES);
+    if (aResources instanceof COSDictionary)
+      _addResourceKey ((COSDictionary) aResources, bSharedResources, aKey);
+
+    final PDPage aExistingPage = m_aUniquePages.get (aKey);
+    if (aExistingPage != null)
+    {
+      // Reference the existing objects - the new ones are not written
+      final COSDictionary aExistingDict = aExistingPage.getCOSObject ();
+      final COSStream aExistingContents = (COSStream) aExistingDict.getDictionaryObject (COSName.CONTENTS);
+      aPage.getCOSObject ().setItem (COSName.CONTENTS, aExistingContents);
+      aPage.getCOSObject ().setItem (COSName.RESOURCES, aExistingDict.getItem (COSName.RESOURCES));
+      m_nDuplicates++;
+      m_nSavedBytes += aExistingContents.getLength ();
+      return aExistingContents;
+    }
+
+    if (bCompress)
+    {
+      try (final OutputStream aOS = aContents.createOutputStream (COSName.FLATE_DECODE))
+      {
+        aOS.write (aBytes);
+      }
+    }
+    m_aUniquePages.put (aKey, aPage);
+    return aContents;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("UniqueCount", m_aUniquePages.size ())
+                                       .append ("Duplicates", m_nDuplicates)
+                                       .append ("SavedBytes", m_nSavedBytes)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The options for creating a {@link PDPageContentStreamWithCache}. All options
+ * are disabled by default.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public class PDContentStreamOptions
+{
+  private boolean m_bCompress;
+  private PDContentStreamStatistics m_aStatistics;
+  private PDSharedResources m_aSharedResources;
+  private PDContentStreamDeduplicator m_aDeduplicator;
+
+  public PDContentStreamOptions ()
+  {}
+
+  /**
+   * @return <code>true</code> to compress the content stream.
+   */
+  public boolean isCompress ()
+  {
+    return m_bCompress;
+  }
+
+  @Nonnull
+  public PDContentStreamOptions setCompress (final boolean bCompress)
+  {
+    m_bCompress = bCompress;
+    return this;
+  }
+
+  /**
+   * @return The statistics to be filled. May be <code>null</code>.
+   */
+  @Nullable
+  public PDContentStreamStatistics getStatistics ()
+  {
+    return m_aStatistics;
+  }
+
+  @Nonnull
+  public PDContentStreamOptions setStatistics (@Nullable final PDContentStreamStatistics aStatistics)
+  {
+    m_aStatistics = aStatistics;
+    return this;
+  }
+
+  /**
+   * @return The resources shared with other pages. If present, they replace
+   *         the resources of the page. May be <code>null</code>.
+   */
+  @Nullable
+  public PDSharedResources getSharedResources ()
+  {
+    return m_aSharedResources;
+  }
+
+  @Nonnull
+  public PDContentStreamOptions setSharedResources (@Nullable final PDSharedResources aSharedResources)
+  {
+    m_aSharedResources = aSharedResources;
+    return this;
+  }
+
+  /**
+   * @return The deduplicator to be invoked when the content stream is closed.
+   *         Only used in overwrite mode. May be <code>null</code>.
+   */
+  @Nullable
+  public PDContentStreamDeduplicator getDeduplicator ()
+  {
+    return m_aDeduplicator;
+  }
+
+  @Nonnull
+  public PDContentStreamOptions setDeduplicator (@Nullable final PDContentStreamDeduplicator aDeduplicator)
+  {
+    m_aDeduplicator = aDeduplicator;
+    return this;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Compress", m_bCompress)
+                                       .appendIfNotNull ("Statistics", m_aStatistics)
+                                       .appendIfNotNull ("SharedResources", m_aSharedResources)
+                                       .appendIfNotNull ("Deduplicator", m_aDeduplicator)
+                                       .getToString ();
+  }
+}
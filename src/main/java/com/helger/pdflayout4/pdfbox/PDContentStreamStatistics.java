@@ -0,0 +1,244 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.apache.pdfbox.cos.COSStream;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.mutable.MutableInt;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Counters for a single content stream (or the sum of several content
+ * streams). Filled by {@link PDPageContentStreamExt} and
+ * {@link PDPageContentStreamWithCache} if an instance is provided.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public class PDContentStreamStatistics
+{
+  private final ICommonsMap <String, MutableInt> m_aOperators = new CommonsHashMap <> ();
+  private long m_nUncompressedBytes;
+  private long m_nCompressedBytes;
+  private int m_nAvoidedStateChanges;
+  private int m_nTextRuns;
+  private long m_nGlyphs;
+  private int m_nImages;
+  private int m_nForms;
+  // Streams stored uncompressed, that may be compressed before saving
+  private final Map <COSStream, Long> m_aUncompressedStreams = new IdentityHashMap <> ();
+
+  public PDContentStreamStatistics ()
+  {}
+
+  void incOperator (@Nonnull final byte [] aOperator)
+  {
+    m_aOperators.computeIfAbsent (new String (aOperator, StandardCharsets.ISO_8859_1), k -> new MutableInt (0)).inc ();
+  }
+
+  void addStreamBytes (@Nonnegative final long nUncompressedBytes, @Nonnegative final long nCompressedBytes)
+  {
+    m_nUncompressedBytes += nUncompressedBytes;
+    m_nCompressedBytes += nCompressedBytes;
+  }
+
+  void addUncompressedStream (@Nonnull final COSStream aStream, @Nonnegative final long nStoredBytes)
+  {
+    m_aUncompressedStreams.put (aStream, Long.valueOf (nStoredBytes));
+  }
+
+  /**
+   * Update the number of stored bytes for all content streams that were
+   * stored uncompressed and that were compressed afterwards, e.g. by
+   * {@link PDParallelStreamCompressor}. Afterwards the streams are no longer
+   * referenced by this object. Calling this method more than once is
+   * harmless.
+   */
+  public void updateStoredBytes ()
+  {
+    for (final Map.Entry <COSStream, Long> aEntry : m_aUncompressedStreams.entrySet ())
+    {
+      final long nStoredBytes = aEntry.getKey ().getLength ();
+      m_nCompressedBytes += nStoredBytes - aEntry.getValue ().longValue ();
+    }
+    m_aUncompressedStreams.clear ();
+  }
+
+  void incAvoidedStateChange ()
+  {
+    m_nAvoidedStateChanges++;
+  }
+
+  void incTextRun (@Nonnegative final int nGlyphs)
+  {
+    m_nTextRuns++;
+    m_nGlyphs += nGlyphs;
+  }
+
+  void incImage ()
+  {
+    m_nImages++;
+  }
+
+  void incForm ()
+  {
+    m_nForms++;
+  }
+
+  /**
+   * Add all counters of the passed statistics to this statistics.
+   *
+   * @param aOther
+   *        The statistics to add. May not be <code>null</code>.
+   */
+  public void addAll (@Nonnull final PDContentStreamStatistics aOther)
+  {
+    ValueEnforcer.notNull (aOther, "Other");
+    for (final Map.Entry <String, MutableInt> aEntry : aOther.m_aOperators.entrySet ())
+      m_aOperators.computeIfAbsent (aEntry.getKey (), k -> new MutableInt (0)).inc (aEntry.getValue ().intValue ());
+    m_nUncompressedBytes += aOther.m_nUncompressedBytes;
+    m_nCompressedBytes += aOther.m_nCompressedBytes;
+    m_nAvoidedStateChanges += aOther.m_nAvoidedStateChanges;
+    m_nTextRuns += aOther.m_nTextRuns;
+    m_nGlyphs += aOther.m_nGlyphs;
+    m_nImages += aOther.m_nImages;
+    m_nForms += aOther.m_nForms;
+  }
+
+  /**
+   * @return The number of written operators per operator name (e.g. "Tj" or
+   *         "re"). Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsMap <String, Integer> getAllOperatorCounts ()
+  {
+    final ICommonsMap <String, Integer> ret = new CommonsHashMap <> ();
+    for (final Map.Entry <String, MutableInt> aEntry : m_aOperators.entrySet ())
+      ret.put (aEntry.getKey (), Integer.valueOf (aEntry.getValue ().intValue ()));
+    return ret;
+  }
+
+  /**
+   * @return The overall number of written operators. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getOperatorCount ()
+  {
+    int ret = 0;
+    for (final MutableInt aCount : m_aOperators.values ())
+      ret += aCount.intValue ();
+    return ret;
+  }
+
+  /**
+   * @return The number of content bytes written before compression. Always
+   *         &ge; 0.
+   */
+  @Nonnegative
+  public long getUncompressedBytes ()
+  {
+    return m_nUncompressedBytes;
+  }
+
+  /**
+   * @return The number of content bytes stored in the PDF - after compression
+   *         if compression is enabled. With parallel compression this value
+   *         is only correct after {@link #updateStoredBytes()} was called,
+   *         which happens before the document is saved. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getCompressedBytes ()
+  {
+    return m_nCompressedBytes;
+  }
+
+  /**
+   * @return The number of font, colour, line dash and line width changes that
+   *         were not written, because the value was already active. Always
+   *         &ge; 0.
+   */
+  @Nonnegative
+  public int getAvoidedStateChangeCount ()
+  {
+    return m_nAvoidedStateChanges;
+  }
+
+  /**
+   * @return The number of text show operations. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getTextRunCount ()
+  {
+    return m_nTextRuns;
+  }
+
+  /**
+   * @return The number of characters written in text show operations. Always
+   *         &ge; 0.
+   */
+  @Nonnegative
+  public long getGlyphCount ()
+  {
+    return m_nGlyphs;
+  }
+
+  /**
+   * @return The number of image XObjects drawn. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getImageCount ()
+  {
+    return m_nImages;
+  }
+
+  /**
+   * @return The number of form XObjects drawn. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getFormCount ()
+  {
+    return m_nForms;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Operators", m_aOperators)
+                                       .append ("UncompressedBytes", m_nUncompressedBytes)
+                                       .append ("CompressedBytes", m_nCompressedBytes)
+                                       .append ("AvoidedStateChanges", m_nAvoidedStateChanges)
+                                       .append ("TextRuns", m_nTextRuns)
+                                       .append ("Glyphs", m_nGlyphs)
+                                       .append ("Images", m_nImages)
+                                       .append ("Forms", m_nForms)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,702 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentHelper;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.stream.CountingOutputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Writes a linearized ("fast web view") PDF, which PDFBox 2.x cannot write
+ * itself. The catalog and all objects required for the first page are
+ * written at the start of the file, followed by the objects of the other
+ * pages in page order, the objects shared between several pages and all
+ * remaining objects. A primary hint stream with the page offset and shared
+ * object hint tables is written after the catalog. Each shared object forms
+ * its own shared object group.<br>
+ * Classic cross-reference tables are used, so the output does not contain
+ * object streams. Only new, unencrypted documents are supported. Fonts
+ * designated for subsetting are subset before writing, just like PDFBox does.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public class PDLinearizedWriter
+{
+  private static final byte [] BINARY_COMMENT = { '%', (byte) 0xe2, (byte) 0xe3, (byte) 0xcf, (byte) 0xd3, '\n' };
+  private static final int XREF_ENTRY_LENGTH = 20;
+  private static final String STREAM_END = "\nendstream\nendobj\n";
+
+  /**
+   * A serialized indirect object. For streams the raw data is not contained.
+   */
+  private static final class SerializedObject
+  {
+    private final COSDictionary m_aObject;
+    private final byte [] m_aPrefix;
+    private final long m_nDataLength;
+    private long m_nOffset;
+
+    SerializedObject (@Nonnull final COSDictionary aObject, @Nonnull final byte [] aPrefix, final long nDataLength)
+    {
+      m_aObject = aObject;
+      m_aPrefix = aPrefix;
+      m_nDataLength = nDataLength;
+    }
+
+    long getLength ()
+    {
+      return m_aObject instanceof COSStream ? m_aPrefix.length + m_nDataLength + STREAM_END.length ()
+                                            : m_aPrefix.length;
+    }
+  }
+
+  /**
+   * Bit oriented writer for the hint tables.
+   */
+  private static final class BitWriter
+  {
+    private final NonBlockingByteArrayOutputStream m_aBAOS = new NonBlockingByteArrayOutputStream ();
+    private int m_nCurrent;
+    private int m_nBitCount;
+
+    void write (final long nValue, @Nonnegative final int nBits)
+    {
+      for (int i = nBits - 1; i >= 0; --i)
+      {
+        m_nCurrent = (m_nCurrent << 1) | (int) ((nValue >>> i) & 1);
+        m_nBitCount++;
+        if (m_nBitCount == 8)
+        {
+          m_aBAOS.write (m_nCurrent);
+          m_nCurrent = 0;
+          m_nBitCount = 0;
+        }
+      }
+    }
+
+    void flush ()
+    {
+      if (m_nBitCount > 0)
+        write (0, 8 - m_nBitCount);
+    }
+
+    int size ()
+    {
+      return m_aBAOS.size ();
+    }
+
+    @Nonnull
+    byte [] toByteArray ()
+    {
+      flush ();
+      return m_aBAOS.toByteArray ();
+    }
+  }
+
+  private final Map <COSBase, SerializedObject> m_aObjects = new IdentityHashMap <> ();
+  private final Map <COSBase, Integer> m_aObjectNumbers = new IdentityHashMap <> ();
+  private final PDCOSSerializer m_aSerializer = new PDCOSSerializer (this::_getObjectNumber);
+
+  // Statistics
+  private int m_nFirstPageObjectCount;
+  private int m_nSharedObjectCount;
+
+  public PDLinearizedWriter ()
+  {}
+
+  /**
+   * @return The number of objects in the first page section of the last
+   *         written document.
+   */
+  @Nonnegative
+  public int getFirstPageObjectCount ()
+  {
+    return m_nFirstPageObjectCount;
+  }
+
+  /**
+   * @return The number of objects shared between pages other than the first
+   *         page of the last written document.
+   */
+  @Nonnegative
+  public int getSharedObjectCount ()
+  {
+    return m_nSharedObjectCount;
+  }
+
+  private int _getObjectNumber (@Nonnull final COSBase aObject)
+  {
+    final Integer aNumber = m_aObjectNumbers.get (aObject);
+    if (aNumber == null)
+      throw new IllegalStateException ("Object was not collected: " + aObject);
+    return aNumber.intValue ();
+  }
+
+  private static boolean _isPageTreeNode (@Nonnull final COSDictionary aDict)
+  {
+    final COSBase aType = aDict.getDictionaryObject (COSName.TYPE);
+    return COSName.PAGE.equals (aType) || COSName.PAGES.equals (aType) || COSName.CATALOG.equals (aType);
+  }
+
+  /**
+   * Collect all indirect objects reachable from the passed start value.
+   *
+   * @param aStart
+   *        The start value. May be <code>null</code>.
+   * @param bPageOnly
+   *        <code>true</code> to collect only the objects of a single page -
+   *        other page tree nodes and the catalog are not followed.
+   * @param aSeen
+   *        The objects that were already found. Is modified.
+   * @param aResult
+   *        The list to add the new objects to in the order they were found.
+   */
+  private static void _collect (@Nullable final COSBase aStart,
+                                final boolean bPageOnly,
+                                @Nonnull final Map <COSBase, Boolean> aSeen,
+                                @Nonnull final ICommonsList <COSDictionary> aResult)
+  {
+    final Deque <COSBase> aStack = new ArrayDeque <> ();
+    if (aStart != null)
+      aStack.push (aStart);
+    boolean bIsStart = true;
+    while (!aStack.isEmpty ())
+    {
+      final COSBase aValue = aStack.pop ();
+      final COSDictionary aIndirect = PDCOSSerializer.getIndirectObject (aValue);
+      final COSBase aContainer;
+      if (aIndirect != null)
+      {
+        if (bPageOnly && !bIsStart && _isPageTreeNode (aIndirect))
+          continue;
+        if (aSeen.put (aIndirect, Boolean.TRUE) != null)
+          continue;
+        aResult.add (aIndirect);
+        aContainer = aIndirect;
+      }
+      else
+        aContainer = aValue instanceof COSObject ? ((COSObject) aValue).getObject () : aValue;
+      bIsStart = false;
+
+      // Push in reverse order, so that the objects are found in natural order
+      if (aContainer instanceof COSDictionary)
+      {
+        final ICommonsList <COSBase> aChildren = new CommonsArrayList <> ();
+        for (final Map.Entry <COSName, COSBase> aEntry : ((COSDictionary) aContainer).entrySet ())
+          if (!bPageOnly || !COSName.PARENT.equals (aEntry.getKey ()))
+            aChildren.add (aEntry.getValue ());
+        for (int i = aChildren.size () - 1; i >= 0; --i)
+          if (aChildren.get (i) != null)
+            aStack.push (aChildren.get (i));
+      }
+      else
+        if (aContainer instanceof COSArray)
+        {
+          final COSArray aArray = (COSArray) aContainer;
+          for (int i = aArray.size () - 1; i >= 0; --i)
+            if (aArray.get (i) != null)
+              aStack.push (aArray.get (i));
+        }
+    }
+  }
+
+  @Nonnull
+  private SerializedObject _serialize (@Nonnull final COSDictionary aObject) throws IOException
+  {
+    final int nObjectNumber = _getObjectNumber (aObject);
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    long nDataLength = 0;
+    if (aObject instanceof COSStream)
+    {
+      nDataLength = ((COSStream) aObject).getLength ();
+      m_aSerializer.writeStreamStart (nObjectNumber, aObject, nDataLength, aBAOS);
+    }
+    else
+      m_aSerializer.writeObject (nObjectNumber, aObject, aBAOS);
+    return new SerializedObject (aObject, aBAOS.toByteArray (), nDataLength);
+  }
+
+  @Nonnull
+  private static String _pad (final long nValue)
+  {
+    // Fixed width, so that the length is known in advance
+    return String.format (Locale.US, "%010d", Long.valueOf (nValue));
+  }
+
+  @Nonnegative
+  private static int _getBitCount (final long nValue)
+  {
+    return nValue <= 0 ? 0 : 64 - Long.numberOfLeadingZeros (nValue);
+  }
+
+  private static long _sumLength (@Nonnull final Iterable <SerializedObject> aObjects)
+  {
+    long ret = 0;
+    for (final SerializedObject aObject : aObjects)
+      ret += aObject.getLength ();
+    return ret;
+  }
+
+  private void _writeXRefEntry (@Nonnull final OutputStream aOS, @Nonnull final COSBase aObject) throws IOException
+  {
+    PDCOSSerializer.write (aOS, _pad (m_aObjects.get (aObject).m_nOffset) + " 00000 n\r\n");
+  }
+
+  private static void _checkOffset (@Nonnull final CountingOutputStream aOS, final long nExpected)
+  {
+    if (aOS.getBytesWritten () != nExpected)
+      throw new IllegalStateException ("Internal error: expected offset " +
+                                       nExpected +
+                                       " but is " +
+                                       aOS.getBytesWritten ());
+  }
+
+  private void _writeObject (@Nonnull final CountingOutputStream aOS,
+                             @Nonnull final SerializedObject aObject) throws IOException
+  {
+    _checkOffset (aOS, aObject.m_nOffset);
+    aOS.write (aObject.m_aPrefix);
+    if (aObject.m_aObject instanceof COSStream)
+    {
+      final long nStart = aOS.getBytesWritten ();
+      try (final InputStream aIS = ((COSStream) aObject.m_aObject).createRawInputStream ())
+      {
+        StreamHelper.copyInputStreamToOutputStream (aIS, aOS);
+      }
+      if (aOS.getBytesWritten () - nStart != aObject.m_nDataLength)
+        throw new IOException ("Stream object " +
+                               _getObjectNumber (aObject.m_aObject) +
+                               " has an invalid length");
+      PDCOSSerializer.writeStreamEnd (aOS);
+    }
+  }
+
+  /**
+   * Write the passed document linearized to the passed output stream. The
+   * output stream is flushed but not closed.
+   *
+   * @param aDoc
+   *        The document to write. May not be <code>null</code>. Must not be
+   *        encrypted and must contain at least one page.
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case of write errors
+   */
+  public void write (@Nonnull final PDDocument aDoc, @Nonnull final OutputStream aOS) throws IOException
+  {
+    ValueEnforcer.notNull (aDoc, "Document");
+    ValueEnforcer.notNull (aOS, "OutputStream");
+    if (aDoc.isEncrypted () || aDoc.getEncryption () != null)
+      throw new IOException ("Encrypted documents cannot be linearized");
+    final int nPageCount = aDoc.getNumberOfPages ();
+    if (nPageCount == 0)
+      throw new IOException ("Documents without pages cannot be linearized");
+
+    PDDocumentHelper.subsetDesignatedFonts (aDoc);
+    m_aObjects.clear ();
+    m_aObjectNumbers.clear ();
+
+    final COSDictionary aTrailer = aDoc.getDocument ().getTrailer ();
+    final COSBase aRootBase = aTrailer.getDictionaryObject (COSName.ROOT);
+    if (!(aRootBase instanceof COSDictionary))
+      throw new IOException ("Document has no catalog");
+    final COSDictionary aCatalog = (COSDictionary) aRootBase;
+    final COSBase aInfoBase = aTrailer.getDictionaryObject (COSName.INFO);
+    final COSDictionary aInfo = aInfoBase instanceof COSDictionary ? (COSDictionary) aInfoBase : null;
+
+    // Objects per page
+    final ICommonsList <ICommonsList <COSDictionary>> aPerPage = new CommonsArrayList <> (nPageCount);
+    final Map <COSBase, Integer> aUsageCount = new IdentityHashMap <> ();
+    for (final PDPage aPage : aDoc.getPages ())
+    {
+      final ICommonsList <COSDictionary> aPageObjects = new CommonsArrayList <> ();
+      _collect (aPage.getCOSObject (), true, new IdentityHashMap <> (), aPageObjects);
+      aPerPage.add (aPageObjects);
+      for (final COSDictionary aObject : aPageObjects)
+        aUsageCount.merge (aObject, Integer.valueOf (1), (a, b) -> Integer.valueOf (a.intValue () + b.intValue ()));
+    }
+
+    // Assign the objects to the parts of a linearized file
+    final Map <COSBase, Boolean> aAssigned = new IdentityHashMap <> ();
+    aAssigned.put (aCatalog, Boolean.TRUE);
+    final ICommonsList <COSDictionary> aFirstPage = new CommonsArrayList <> ();
+    for (final COSDictionary aObject : aPerPage.getFirst ())
+      if (aAssigned.put (aObject, Boolean.TRUE) == null)
+        aFirstPage.add (aObject);
+
+    final ICommonsList <ICommonsList <COSDictionary>> aOtherPages = new CommonsArrayList <> ();
+    for (int i = 1; i < nPageCount; ++i)
+    {
+      final ICommonsList <COSDictionary> aPageObjects = new CommonsArrayList <> ();
+      for (final COSDictionary aObject : aPerPage.get (i))
+        if (aUsageCount.get (aObject).intValue () == 1 && aAssigned.put (aObject, Boolean.TRUE) == null)
+          aPageObjects.add (aObject);
+      aOtherPages.add (aPageObjects);
+    }
+
+    final ICommonsList <COSDictionary> aShared = new CommonsArrayList <> ();
+    for (int i = 1; i < nPageCount; ++i)
+      for (final COSDictionary aObject : aPerPage.get (i))
+        if (aAssigned.put (aObject, Boolean.TRUE) == null)
+          aShared.add (aObject);
+
+    final ICommonsList <COSDictionary> aAll = new CommonsArrayList <> ();
+    {
+      final Map <COSBase, Boolean> aSeen = new IdentityHashMap <> ();
+      _collect (aCatalog, false, aSeen, aAll);
+      _collect (aInfo, false, aSeen, aAll);
+    }
+    final ICommonsList <COSDictionary> aRemaining = new CommonsArrayList <> ();
+    for (final COSDictionary aObject : aAll)
+      if (aAssigned.put (aObject, Boolean.TRUE) == null)
+        aRemaining.add (aObject);
+
+    // Main section objects are numbered first, starting at 1
+    final ICommonsList <COSDictionary> aMainSection = new CommonsArrayList <> ();
+    aOtherPages.forEach (aMainSection::addAll);
+    aMainSection.addAll (aShared);
+    aMainSection.addAll (aRemaining);
+    int nNextObjectNumber = 1;
+    for (final COSDictionary aObject : aMainSection)
+      m_aObjectNumbers.put (aObject, Integer.valueOf (nNextObjectNumber++));
+    final int nMainSize = nNextObjectNumber;
+    // First page section: linearization dictionary, catalog, hint stream,
+    // first page
+    final int nLinDictNumber = nNextObjectNumber++;
+    m_aObjectNumbers.put (aCatalog, Integer.valueOf (nNextObjectNumber++));
+    final int nHintNumber = nNextObjectNumber++;
+    for (final COSDictionary aObject : aFirstPage)
+      m_aObjectNumbers.put (aObject, Integer.valueOf (nNextObjectNumber++));
+    final int nTotalSize = nNextObjectNumber;
+
+    // Serialize everything except stream data
+    for (final COSBase aObject : m_aObjectNumbers.keySet ())
+      m_aObjects.put (aObject, _serialize ((COSDictionary) aObject));
+
+    final ICommonsList <SerializedObject> aFirstPageSer = aFirstPage.getAllMapped (m_aObjects::get);
+    final ICommonsList <ICommonsList <SerializedObject>> aOtherPagesSer = aOtherPages.getAllMapped (x -> x.getAllMapped (m_aObjects::get));
+    final ICommonsList <SerializedObject> aSharedSer = aShared.getAllMapped (m_aObjects::get);
+    final ICommonsList <SerializedObject> aRemainingSer = aRemaining.getAllMapped (m_aObjects::get);
+    final SerializedObject aCatalogSer = m_aObjects.get (aCatalog);
+
+    // Fixed length parts
+    final byte [] aHeader;
+    {
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      PDCOSSerializer.write (aBAOS,
+                             "%PDF-" + String.format (Locale.US, "%.1f", Float.valueOf (aDoc.getVersion ())) + "\n");
+      aBAOS.write (BINARY_COMMENT);
+      aHeader = aBAOS.toByteArray ();
+    }
+    final int nFirstPageObjectNumber = _getObjectNumber (aFirstPage.getFirst ());
+    final String sLinDictStart = nLinDictNumber + " 0 obj\n<</Linearized 1/L ";
+    final int nLinDictLength = sLinDictStart.length () +
+                               _pad (0).length () * 5 +
+                               ("/H [ ]/O " + nFirstPageObjectNumber + "/E /N " + nPageCount + "/T >>\nendobj\n").length ();
+    final byte [] aTrailerID;
+    {
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      m_aSerializer.writeValue (PDCOSSerializer.getOrCreateID (aTrailer), aBAOS);
+      aTrailerID = aBAOS.toByteArray ();
+    }
+    final int nFirstXRefCount = nTotalSize - nMainSize;
+    final String sFirstXRefStart = "xref\n" + nMainSize + " " + nFirstXRefCount + "\n";
+    final String sFirstTrailerStart = "trailer\n<</Size " + nTotalSize + "/Prev ";
+    final String sFirstTrailerEnd = "/Root " +
+                                    _getObjectNumber (aCatalog) +
+                                    " 0 R" +
+                                    (aInfo != null ? "/Info " + _getObjectNumber (aInfo) + " 0 R" : "") +
+                                    "/ID ";
+    final String sFirstTrailerEnd2 = ">>\nstartxref\n0\n%%EOF\n";
+    final long nFirstXRefLength = sFirstXRefStart.length () +
+                                  (long) nFirstXRefCount * XREF_ENTRY_LENGTH +
+                                  sFirstTrailerStart.length () +
+                                  _pad (0).length () +
+                                  sFirstTrailerEnd.length () +
+                                  aTrailerID.length +
+                                  sFirstTrailerEnd2.length ();
+
+    // Offsets as if the hint stream was not present
+    final long nLinDictOffset = aHeader.length;
+    final long nFirstXRefOffset = nLinDictOffset + nLinDictLength;
+    aCatalogSer.m_nOffset = nFirstXRefOffset + nFirstXRefLength;
+    final long nHintOffset = aCatalogSer.m_nOffset + aCatalogSer.getLength ();
+    long nPos = nHintOffset;
+    for (final SerializedObject aObject : aFirstPageSer)
+    {
+      aObject.m_nOffset = nPos;
+      nPos += aObject.getLength ();
+    }
+    final long nFirstPageEndAdjusted = nPos;
+    for (final ICommonsList <SerializedObject> aList : aOtherPagesSer)
+      for (final SerializedObject aObject : aList)
+      {
+        aObject.m_nOffset = nPos;
+        nPos += aObject.getLength ();
+      }
+    for (final SerializedObject aObject : aSharedSer)
+    {
+      aObject.m_nOffset = nPos;
+      nPos += aObject.getLength ();
+    }
+    for (final SerializedObject aObject : aRemainingSer)
+    {
+      aObject.m_nOffset = nPos;
+      nPos += aObject.getLength ();
+    }
+    final long nMainXRefOffsetAdjusted = nPos;
+
+    // Shared object identifiers: first page objects, then shared objects
+    final Map <COSBase, Integer> aSharedIDs = new IdentityHashMap <> ();
+    for (final COSDictionary aObject : aFirstPage)
+      aSharedIDs.put (aObject, Integer.valueOf (aSharedIDs.size ()));
+    for (final COSDictionary aObject : aShared)
+      aSharedIDs.put (aObject, Integer.valueOf (aSharedIDs.size ()));
+
+    // Page offset hint table
+    final long [] aPageObjectCount = new long [nPageCount];
+    final long [] aPageLength = new long [nPageCount];
+    final ICommonsList <ICommonsList <Integer>> aPageSharedRefs = new CommonsArrayList <> (nPageCount);
+    aPageObjectCount[0] = aFirstPageSer.size ();
+    aPageLength[0] = _sumLength (aFirstPageSer);
+    aPageSharedRefs.add (new CommonsArrayList <> ());
+    for (int i = 1; i < nPageCount; ++i)
+    {
+      final ICommonsList <SerializedObject> aList = aOtherPagesSer.get (i - 1);
+      aPageObjectCount[i] = aList.size ();
+      aPageLength[i] = _sumLength (aList);
+      final ICommonsList <Integer> aRefs = new CommonsArrayList <> ();
+      for (final COSDictionary aObject : aPerPage.get (i))
+      {
+        final Integer aID = aSharedIDs.get (aObject);
+        if (aID != null)
+          aRefs.add (aID);
+      }
+      aPageSharedRefs.add (aRefs);
+    }
+    long nMinObjects = Long.MAX_VALUE;
+    long nMaxObjects = 0;
+    long nMinLength = Long.MAX_VALUE;
+    long nMaxLength = 0;
+    int nMaxSharedRefs = 0;
+    for (int i = 0; i < nPageCount; ++i)
+    {
+      nMinObjects = Math.min (nMinObjects, aPageObjectCount[i]);
+      nMaxObjects = Math.max (nMaxObjects, aPageObjectCount[i]);
+      nMinLength = Math.min (nMinLength, aPageLength[i]);
+      nMaxLength = Math.max (nMaxLength, aPageLength[i]);
+      nMaxSharedRefs = Math.max (nMaxSharedRefs, aPageSharedRefs.get (i).size ());
+    }
+    final int nBitsObjects = _getBitCount (nMaxObjects - nMinObjects);
+    final int nBitsLength = _getBitCount (nMaxLength - nMinLength);
+    final int nBitsSharedRefs = _getBitCount (nMaxSharedRefs);
+    final int nBitsSharedID = _getBitCount (aSharedIDs.size ());
+
+    final BitWriter aBW = new BitWriter ();
+    aBW.write (nMinObjects, 32);
+    aBW.write (aFirstPageSer.getFirst ().m_nOffset, 32);
+    aBW.write (nBitsObjects, 16);
+    aBW.write (nMinLength, 32);
+    aBW.write (nBitsLength, 16);
+    // Content stream offset and length - like other writers, the page values
+    // are used
+    aBW.write (0, 32);
+    aBW.write (0, 16);
+    aBW.write (nMinLength, 32);
+    aBW.write (nBitsLength, 16);
+    aBW.write (nBitsSharedRefs, 16);
+    aBW.write (nBitsSharedID, 16);
+    // Numerator bits and denominator
+    aBW.write (0, 16);
+    aBW.write (1, 16);
+    for (int i = 0; i < nPageCount; ++i)
+      aBW.write (aPageObjectCount[i] - nMinObjects, nBitsObjects);
+    aBW.flush ();
+    for (int i = 0; i < nPageCount; ++i)
+      aBW.write (aPageLength[i] - nMinLength, nBitsLength);
+    aBW.flush ();
+    for (int i = 0; i < nPageCount; ++i)
+      aBW.write (aPageSharedRefs.get (i).size (), nBitsSharedRefs);
+    aBW.flush ();
+    for (int i = 0; i < nPageCount; ++i)
+      for (final Integer aID : aPageSharedRefs.get (i))
+        aBW.write (aID.intValue (), nBitsSharedID);
+    aBW.flush ();
+    // Numerators have 0 bits, content stream offsets have 0 bits
+    for (int i = 0; i < nPageCount; ++i)
+      aBW.write (aPageLength[i] - nMinLength, nBitsLength);
+    aBW.flush ();
+    final int nSharedTableOffset = aBW.size ();
+
+    // Shared object hint table - one group per object
+    final ICommonsList <SerializedObject> aGroups = new CommonsArrayList <> (aFirstPageSer);
+    aGroups.addAll (aSharedSer);
+    long nMinGroupLength = Long.MAX_VALUE;
+    long nMaxGroupLength = 0;
+    for (final SerializedObject aObject : aGroups)
+    {
+      nMinGroupLength = Math.min (nMinGroupLength, aObject.getLength ());
+      nMaxGroupLength = Math.max (nMaxGroupLength, aObject.getLength ());
+    }
+    final int nBitsGroupLength = _getBitCount (nMaxGroupLength - nMinGroupLength);
+    aBW.write (aSharedSer.isEmpty () ? 0 : _getObjectNumber (aShared.getFirst ()), 32);
+    aBW.write (aSharedSer.isEmpty () ? 0 : aSharedSer.getFirst ().m_nOffset, 32);
+    aBW.write (aFirstPageSer.size (), 32);
+    aBW.write (aGroups.size (), 32);
+    aBW.write (0, 16);
+    aBW.write (nMinGroupLength, 32);
+    aBW.write (nBitsGroupLength, 16);
+    for (final SerializedObject aObject : aGroups)
+      aBW.write (aObject.getLength () - nMinGroupLength, nBitsGroupLength);
+    aBW.flush ();
+    // No signatures
+    for (int i = 0; i < aGroups.size (); ++i)
+      aBW.write (0, 1);
+    final byte [] aHintData = aBW.toByteArray ();
+
+    final String sHintStart = nHintNumber +
+                              " 0 obj\n<</S " +
+                              nSharedTableOffset +
+                              "/Length " +
+                              aHintData.length +
+                              ">>\nstream\n";
+    final long nHintLength = sHintStart.length () + aHintData.length + STREAM_END.length ();
+
+    // Real offsets
+    for (final ICommonsList <SerializedObject> aList : new CommonsArrayList <> (aFirstPageSer,
+                                                                               aSharedSer,
+                                                                               aRemainingSer))
+      for (final SerializedObject aObject : aList)
+        aObject.m_nOffset += nHintLength;
+    for (final ICommonsList <SerializedObject> aList : aOtherPagesSer)
+      for (final SerializedObject aObject : aList)
+        aObject.m_nOffset += nHintLength;
+    final long nFirstPageEnd = nFirstPageEndAdjusted + nHintLength;
+    final long nMainXRefOffset = nMainXRefOffsetAdjusted + nHintLength;
+    final String sMainXRefStart = "xref\n0 " + nMainSize + "\n";
+    final String sMainTrailer = "trailer\n<</Size " + nMainSize + ">>\nstartxref\n" + nFirstXRefOffset + "\n%%EOF\n";
+    final long nFileLength = nMainXRefOffset +
+                             sMainXRefStart.length () +
+                             (long) nMainSize * XREF_ENTRY_LENGTH +
+                             sMainTrailer.length ();
+
+    // Now write everything
+    final CountingOutputStream aCOS = new CountingOutputStream (aOS);
+    aCOS.write (aHeader);
+
+    _checkOffset (aCOS, nLinDictOffset);
+    PDCOSSerializer.write (aCOS,
+                           sLinDictStart +
+                                 _pad (nFileLength) +
+                                 "/H [" +
+                                 _pad (nHintOffset) +
+                                 " " +
+                                 _pad (nHintLength) +
+                                 "]/O " +
+                                 nFirstPageObjectNumber +
+                                 "/E " +
+                                 _pad (nFirstPageEnd) +
+                                 "/N " +
+                                 nPageCount +
+                                 "/T " +
+                                 _pad (nMainXRefOffset + sMainXRefStart.length () - 1) +
+                                 ">>\nendobj\n");
+
+    _checkOffset (aCOS, nFirstXRefOffset);
+    PDCOSSerializer.write (aCOS, sFirstXRefStart);
+    PDCOSSerializer.write (aCOS, _pad (nLinDictOffset) + " 00000 n\r\n");
+    _writeXRefEntry (aCOS, aCatalog);
+    PDCOSSerializer.write (aCOS, _pad (nHintOffset) + " 00000 n\r\n");
+    for (final COSDictionary aObject : aFirstPage)
+      _writeXRefEntry (aCOS, aObject);
+    PDCOSSerializer.write (aCOS, sFirstTrailerStart + _pad (nMainXRefOffset) + sFirstTrailerEnd);
+    aCOS.write (aTrailerID);
+    PDCOSSerializer.write (aCOS, sFirstTrailerEnd2);
+
+    _writeObject (aCOS, aCatalogSer);
+
+    _checkOffset (aCOS, nHintOffset);
+    PDCOSSerializer.write (aCOS, sHintStart);
+    aCOS.write (aHintData);
+    PDCOSSerializer.writeStreamEnd (aCOS);
+
+    for (final SerializedObject aObject : aFirstPageSer)
+      _writeObject (aCOS, aObject);
+    for (final ICommonsList <SerializedObject> aList : aOtherPagesSer)
+      for (final SerializedObject aObject : aList)
+        _writeObject (aCOS, aObject);
+    for (final SerializedObject aObject : aSharedSer)
+      _writeObject (aCOS, aObject);
+    for (final SerializedObject aObject : aRemainingSer)
+      _writeObject (aCOS, aObject);
+
+    _checkOffset (aCOS, nMainXRefOffset);
+    PDCOSSerializer.write (aCOS, sMainXRefStart);
+    PDCOSSerializer.write (aCOS, "0000000000 65535 f\r\n");
+    for (final COSDictionary aObject : aMainSection)
+      _writeXRefEntry (aCOS, aObject);
+    PDCOSSerializer.write (aCOS, sMainTrailer);
+    _checkOffset (aCOS, nFileLength);
+    aCOS.flush ();
+
+    m_nFirstPageObjectCount = aFirstPage.size ();
+    m_nSharedObjectCount = aShared.size ();
+
+    // Release the references
+    m_aObjects.clear ();
+    m_aObjectNumbers.clear ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("FirstPageObjectCount", m_nFirstPageObjectCount)
+                                       .append ("SharedObjectCount", m_nSharedObjectCount)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,386 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentHelper;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.io.stream.CountingOutputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Writes a {@link PDDocument} with compressed object streams and a
+ * cross-reference stream (PDF 1.5), which PDFBox 2.x cannot write itself. All
+ * indirect objects that are not streams are packed into Flate compressed
+ * object streams, so that documents with many small objects (pages, font
+ * descriptors etc.) get considerably smaller.<br>
+ * Only new, unencrypted documents are supported - encrypted documents must be
+ * saved with {@link PDDocument#save(OutputStream)}. Fonts designated for
+ * subsetting are subset before writing, just like PDFBox does.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public class PDObjectStreamWriter
+{
+  public static final int DEFAULT_MAX_OBJECTS_PER_STREAM = 100;
+  public static final float MIN_PDF_VERSION = 1.5f;
+
+  private final int m_nMaxObjectsPerStream;
+  private final int m_nCompressionLevel;
+  private final PDCOSSerializer m_aSerializer = new PDCOSSerializer (this::_getObjectNumber);
+
+  // Status vars - per write
+  private final Map <COSBase, Integer> m_aObjectNumbers = new IdentityHashMap <> ();
+  private final ICommonsList <COSBase> m_aPendingObjects = new CommonsArrayList <> ();
+  // Object number to {type, field 2, field 3}
+  private final ICommonsMap <Integer, long []> m_aXRefEntries = new CommonsHashMap <> ();
+  private int m_nNextObjectNumber;
+  private CountingOutputStream m_aOS;
+  private int m_nObjectStreamNumber;
+  private NonBlockingByteArrayOutputStream m_aObjectStreamBody;
+  private final ICommonsList <long []> m_aObjectStreamOffsets = new CommonsArrayList <> ();
+
+  // Statistics
+  private int m_nObjectCount;
+  private int m_nCompressedObjectCount;
+
+  public PDObjectStreamWriter ()
+  {
+    this (DEFAULT_MAX_OBJECTS_PER_STREAM, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nMaxObjectsPerStream
+   *        The maximum number of objects per object stream. Must be &gt; 0.
+   * @param nCompressionLevel
+   *        The Flate compression level of the object streams from 0 to 9 or -1
+   *        for the default level.
+   */
+  public PDObjectStreamWriter (@Nonnegative final int nMaxObjectsPerStream, final int nCompressionLevel)
+  {
+    ValueEnforcer.isBetweenInclusive (nMaxObjectsPerStream, "MaxObjectsPerStream", 1, 0xffff);
+    ValueEnforcer.isBetweenInclusive (nCompressionLevel,
+                                      "CompressionLevel",
+                                      Deflater.DEFAULT_COMPRESSION,
+                                      Deflater.BEST_COMPRESSION);
+    m_nMaxObjectsPerStream = nMaxObjectsPerStream;
+    m_nCompressionLevel = nCompressionLevel;
+  }
+
+  /**
+   * @return The number of indirect objects written by the last call to
+   *         {@link #write(PDDocument, OutputStream)}, excluding object streams
+   *         and the cross-reference stream.
+   */
+  @Nonnegative
+  public int getObjectCount ()
+  {
+    return m_nObjectCount;
+  }
+
+  /**
+   * @return The number of indirect objects written into object streams by the
+   *         last call to {@link #write(PDDocument, OutputStream)}.
+   */
+  @Nonnegative
+  public int getCompressedObjectCount ()
+  {
+    return m_nCompressedObjectCount;
+  }
+
+  private int _getObjectNumber (@Nonnull final COSBase aObject)
+  {
+    Integer aNumber = m_aObjectNumbers.get (aObject);
+    if (aNumber == null)
+    {
+      aNumber = Integer.valueOf (m_nNextObjectNumber++);
+      m_aObjectNumbers.put (aObject, aNumber);
+      m_aPendingObjects.add (aObject);
+    }
+    return aNumber.intValue ();
+  }
+
+  private void _writeStreamObject (final int nObjectNumber,
+                                   @Nonnull final COSDictionary aDict,
+                                   @Nonnull final InputStream aRawData,
+                                   final long nLength) throws IOException
+  {
+    m_aXRefEntries.put (Integer.valueOf (nObjectNumber), new long [] { 1, m_aOS.getBytesWritten (), 0 });
+    m_aSerializer.writeStreamStart (nObjectNumber, aDict, nLength, m_aOS);
+    final long nStart = m_aOS.getBytesWritten ();
+    StreamHelper.copyInputStreamToOutputStream (aRawData, m_aOS);
+    if (m_aOS.getBytesWritten () - nStart != nLength)
+      throw new IOException ("Stream object " + nObjectNumber + " has an invalid length");
+    PDCOSSerializer.writeStreamEnd (m_aOS);
+  }
+
+  @Nonnull
+  private byte [] _deflate (@Nonnull final byte [] aBytes) throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    final Deflater aDeflater = new Deflater (m_nCompressionLevel);
+    try (final DeflaterOutputStream aDOS = new DeflaterOutputStream (aBAOS, aDeflater))
+    {
+      aDOS.write (aBytes);
+    }
+    finally
+    {
+      aDeflater.end ();
+    }
+    return aBAOS.toByteArray ();
+  }
+
+  private void _flushObjectStream () throws IOException
+  {
+    if (m_aObjectStreamBody == null)
+      return;
+
+    final NonBlockingByteArrayOutputStream aHeader = new NonBlockingByteArrayOutputStream ();
+    for (final long [] aOffset : m_aObjectStreamOffsets)
+      PDCOSSerializer.write (aHeader, aOffset[0] + " " + aOffset[1] + " ");
+    aHeader.write ('\n');
+
+    final NonBlockingByteArrayOutputStream aContent = new NonBlockingByteArrayOutputStream (aHeader.size () +
+                                                                                            m_aObjectStreamBody.size ());
+    aHeader.writeTo (aContent);
+    m_aObjectStreamBody.writeTo (aContent);
+    final byte [] aCompressed = _deflate (aContent.toByteArray ());
+
+    final COSDictionary aDict = new COSDictionary ();
+    aDict.setItem (COSName.TYPE, COSName.OBJ_STM);
+    aDict.setInt (COSName.N, m_aObjectStreamOffsets.size ());
+    aDict.setInt (COSName.FIRST, aHeader.size ());
+    aDict.setItem (COSName.FILTER, COSName.FLATE_DECODE);
+    _writeStreamObject (m_nObjectStreamNumber,
+                        aDict,
+                        new NonBlockingByteArrayInputStream (aCompressed),
+                        aCompressed.length);
+
+    m_aObjectStreamBody = null;
+    m_aObjectStreamOffsets.clear ();
+  }
+
+  private void _writeCompressedObject (final int nObjectNumber, @Nonnull final COSDictionary aDict) throws IOException
+  {
+    if (m_aObjectStreamBody == null)
+    {
+      m_nObjectStreamNumber = m_nNextObjectNumber++;
+      m_aObjectStreamBody = new NonBlockingByteArrayOutputStream ();
+    }
+    final int nIndex = m_aObjectStreamOffsets.size ();
+    m_aObjectStreamOffsets.add (new long [] { nObjectNumber, m_aObjectStreamBody.size () });
+    m_aXRefEntries.put (Integer.valueOf (nObjectNumber), new long [] { 2, m_nObjectStreamNumber, nIndex });
+
+    PDCOSSerializer.write (m_aObjectStreamBody, "<<");
+    m_aSerializer.writeDictionaryEntries (aDict, false, m_aObjectStreamBody);
+    PDCOSSerializer.write (m_aObjectStreamBody, ">>\n");
+    m_nCompressedObjectCount++;
+
+    if (m_aObjectStreamOffsets.size () >= m_nMaxObjectsPerStream)
+      _flushObjectStream ();
+  }
+
+  @Nonnegative
+  private static int _getByteCount (final long nValue)
+  {
+    int ret = 1;
+    long n = nValue >>> 8;
+    while (n != 0)
+    {
+      ret++;
+      n >>>= 8;
+    }
+    return ret;
+  }
+
+  private static void _writeBigEndian (@Nonnull final OutputStream aOS, final long nValue, final int nBytes) throws IOException
+  {
+    for (int i = nBytes - 1; i >= 0; --i)
+      aOS.write ((int) (nValue >>> (i * 8)) & 0xff);
+  }
+
+  private void _reset (@Nonnull final OutputStream aOS)
+  {
+    m_aObjectNumbers.clear ();
+    m_aPendingObjects.clear ();
+    m_aXRefEntries.clear ();
+    m_nNextObjectNumber = 1;
+    m_aOS = new CountingOutputStream (aOS);
+    m_aObjectStreamBody = null;
+    m_aObjectStreamOffsets.clear ();
+    m_nObjectCount = 0;
+    m_nCompressedObjectCount = 0;
+  }
+
+  /**
+   * Write the passed document to the passed output stream. The output stream
+   * is flushed but not closed.
+   *
+   * @param aDoc
+   *        The document to write. May not be <code>null</code>. Must not be
+   *        encrypted.
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case of write errors
+   */
+  public void write (@Nonnull final PDDocument aDoc, @Nonnull final OutputStream aOS) throws IOException
+  {
+    ValueEnforcer.notNull (aDoc, "Document");
+    ValueEnforcer.notNull (aOS, "OutputStream");
+    if (aDoc.isEncrypted () || aDoc.getEncryption () != null)
+      throw new IOException ("Encrypted documents cannot be written with object streams");
+
+    PDDocumentHelper.subsetDesignatedFonts (aDoc);
+    _reset (aOS);
+
+    final COSDictionary aTrailer = aDoc.getDocument ().getTrailer ();
+    final COSBase aRoot = aTrailer.getDictionaryObject (COSName.ROOT);
+    if (!(aRoot instanceof COSDictionary))
+      throw new IOException ("Document has no catalog");
+    _getObjectNumber (aRoot);
+    final COSBase aInfo = aTrailer.getDictionaryObject (COSName.INFO);
+    if (aInfo instanceof COSDictionary)
+      _getObjectNumber (aInfo);
+    final COSArray aID = PDCOSSerializer.getOrCreateID (aTrailer);
+
+    // Header - with the recommended binary comment
+    final float fVersion = Math.max (aDoc.getVersion (), MIN_PDF_VERSION);
+    PDCOSSerializer.write (m_aOS, "%PDF-" + String.format (Locale.US, "%.1f", Float.valueOf (fVersion)) + "\n");
+    m_aOS.write (new byte [] { '%', (byte) 0xe2, (byte) 0xe3, (byte) 0xcf, (byte) 0xd3, '\n' });
+
+    // Writing an object may add new pending objects
+    for (int i = 0; i < m_aPendingObjects.size (); ++i)
+    {
+      final COSBase aObject = m_aPendingObjects.get (i);
+      final int nObjectNumber = m_aObjectNumbers.get (aObject).intValue ();
+      if (aObject instanceof COSStream)
+      {
+        final COSStream aStream = (COSStream) aObject;
+        try (final InputStream aIS = aStream.createRawInputStream ())
+        {
+          _writeStreamObject (nObjectNumber, aStream, aIS, aStream.getLength ());
+        }
+      }
+      else
+        _writeCompressedObject (nObjectNumber, (COSDictionary) aObject);
+      m_nObjectCount++;
+    }
+    _flushObjectStream ();
+
+    // The cross-reference stream itself
+    final int nXRefNumber = m_nNextObjectNumber++;
+    final long nXRefOffset = m_aOS.getBytesWritten ();
+    m_aXRefEntries.put (Integer.valueOf (nXRefNumber), new long [] { 1, nXRefOffset, 0 });
+    final int nSize = m_nNextObjectNumber;
+
+    long nMaxField2 = 0;
+    for (final long [] aEntry : m_aXRefEntries.values ())
+      nMaxField2 = Math.max (nMaxField2, aEntry[1]);
+    final int nW2 = _getByteCount (nMaxField2);
+    final int nW3 = 2;
+
+    final NonBlockingByteArrayOutputStream aXRefData = new NonBlockingByteArrayOutputStream ();
+    for (int nObjectNumber = 0; nObjectNumber < nSize; ++nObjectNumber)
+    {
+      final long [] aEntry = m_aXRefEntries.get (Integer.valueOf (nObjectNumber));
+      if (aEntry == null)
+      {
+        // Free entry - always object 0
+        aXRefData.write (0);
+        _writeBigEndian (aXRefData, 0, nW2);
+        _writeBigEndian (aXRefData, 0xffff, nW3);
+      }
+      else
+      {
+        aXRefData.write ((int) aEntry[0]);
+        _writeBigEndian (aXRefData, aEntry[1], nW2);
+        _writeBigEndian (aXRefData, aEntry[2], nW3);
+      }
+    }
+    final byte [] aXRefCompressed = _deflate (aXRefData.toByteArray ());
+
+    final COSDictionary aXRefDict = new COSDictionary ();
+    aXRefDict.setItem (COSName.TYPE, COSName.XREF);
+    aXRefDict.setInt (COSName.SIZE, nSize);
+    final COSArray aW = new COSArray ();
+    aW.add (COSInteger.get (1));
+    aW.add (COSInteger.get (nW2));
+    aW.add (COSInteger.get (nW3));
+    aXRefDict.setItem (COSName.W, aW);
+    aXRefDict.setItem (COSName.FILTER, COSName.FLATE_DECODE);
+    // Already written - so only references are created
+    aXRefDict.setItem (COSName.ROOT, aRoot);
+    if (aInfo instanceof COSDictionary)
+      aXRefDict.setItem (COSName.INFO, aInfo);
+    aXRefDict.setItem (COSName.ID, aID);
+    _writeStreamObject (nXRefNumber,
+                        aXRefDict,
+                        new NonBlockingByteArrayInputStream (aXRefCompressed),
+                        aXRefCompressed.length);
+
+    PDCOSSerializer.write (m_aOS, "startxref\n" + nXRefOffset + "\n%%EOF\n");
+    m_aOS.flush ();
+
+    // Release the references
+    m_aPendingObjects.clear ();
+    m_aObjectNumbers.clear ();
+    m_aXRefEntries.clear ();
+    m_aOS = null;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxObjectsPerStream", m_nMaxObjectsPerStream)
+                                       .append ("CompressionLevel", m_nCompressionLevel)
+                                       .append ("ObjectCount", m_nObjectCount)
+                                       .append ("CompressedObjectCount", m_nCompressedObjectCount)
+                                       .getToString ();
+  }
+}
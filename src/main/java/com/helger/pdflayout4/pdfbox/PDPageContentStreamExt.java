@@ -25,6 +25,7 @@ import java.text.NumberFormat;
 import java.util.Locale;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import org.apache.commons.logging.Log;
@@ -33,6 +34,7 @@ import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.pdfwriter.COSWriter;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentHelper;
@@ -63,6 +65,7 @@ import org.apache.pdfbox.util.NumberFormatUtil;
 
 import com.helger.commons.annotation.CodingStyleguideUnaware;
 import com.helger.commons.collection.NonBlockingStack;
+import com.helger.commons.io.stream.CountingOutputStream;
 
 /**
  * Provides the ability to write to a page content stream.<br>
@@ -71,6 +74,7 @@ import com.helger.commons.collection.NonBlockingStack;
  * <li>Speed up in text drawing</li>
  * <li>Removed all deprecated methods</li>
  * <li>Allowing to prepend content</li>
+ * <li>Optional statistics</li>
  * </ul>
  *
  * @author Ben Litchfield
@@ -84,6 +88,13 @@ public final class PDPageContentStreamExt implements Closeable
   private final PDDocument m_aDoc;
   protected OutputStream m_aOS;
   private PDResources m_aResources;
+  private COSStream m_aContents;
+  private PDContentStreamStatistics m_aStats;
+  private CountingOutputStream m_aCountingOS;
+  private PDContentStreamDeduplicator m_aDeduplicator;
+  private PDPage m_aDeduplicatorPage;
+  private boolean m_bDeduplicatorSharedResources;
+  private boolean m_bDeduplicatorCompress;
 
   private boolean m_bInTextMode = false;
   private final NonBlockingStack <PDFont> m_aFontStack = new NonBlockingStack <> ();
@@ -203,6 +214,7 @@ public final class PDPageContentStreamExt implements Closeable
       // Sets the compoundStream as page contents
       sourcePage.getCOSObject ().setItem (COSName.CONTENTS, array);
       m_aOS = contentsToAppend.createOutputStream (filter);
+      m_aContents = contentsToAppend.getCOSObject ();
 
       // restore the initial/unmodified graphics context
       if (resetContext)
@@ -219,6 +231,7 @@ public final class PDPageContentStreamExt implements Closeable
       final PDStream contents = new PDStream (aDoc);
       sourcePage.setContents (contents);
       m_aOS = contents.createOutputStream (filter);
+      m_aContents = contents.getCOSObject ();
     }
 
     // this has to be done here, as the resources will be set to null when
@@ -279,6 +292,68 @@ public final class PDPageContentStreamExt implements Closeable
     return m_aOS;
   }
 
+  /**
+   * Start collecting statistics for everything written from now on.
+   *
+   * @param aStats
+   *        The statistics to fill. May be <code>null</code>.
+   * @since 5.1.2
+   */
+  void setStatistics (@Nullable final PDContentStreamStatistics aStats)
+  {
+    m_aStats = aStats;
+    if (aStats != null && m_aCountingOS == null)
+    {
+      m_aCountingOS = new CountingOutputStream (m_aOS);
+      m_aOS = m_aCountingOS;
+    }
+  }
+
+  @Nullable
+  final PDContentStreamStatistics getStatistics ()
+  {
+    return m_aStats;
+  }
+
+  /**
+   * Use the passed resources instead of the ones of the page. The caller is
+   * responsible to set the same resources on the page.
+   *
+   * @param aResources
+   *        The resources to use. May not be <code>null</code>.
+   * @since 5.1.2
+   */
+  void setResources (@Nonnull final PDResources aResources)
+  {
+    m_aResources = aResources;
+  }
+
+  /**
+   * Deduplicate the content stream when it is closed. The content stream must
+   * have been created uncompressed and in overwrite mode.
+   *
+   * @param aDeduplicator
+   *        The deduplicator to use. May not be <code>null</code>.
+   * @param aPage
+   *        The page this content stream belongs to. May not be
+   *        <code>null</code>.
+   * @param bSharedResources
+   *        <code>true</code> if the resources are shared with other pages.
+   * @param bCompress
+   *        <code>true</code> to compress the content stream if it is unique.
+   * @since 5.1.2
+   */
+  void setDeduplicator (@Nonnull final PDContentStreamDeduplicator aDeduplicator,
+                        @Nonnull final PDPage aPage,
+                        final boolean bSharedResources,
+                        final boolean bCompress)
+  {
+    m_aDeduplicator = aDeduplicator;
+    m_aDeduplicatorPage = aPage;
+    m_bDeduplicatorSharedResources = bSharedResources;
+    m_bDeduplicatorCompress = bCompress;
+  }
+
   /**
    * Begin some text operations.
    *
@@ -507,6 +582,8 @@ public final class PDPageContentStreamExt implements Closeable
 
     writeOperand (m_aResources.add (image));
     writeOperator ((byte) 'D', (byte) 'o');
+    if (m_aStats != null)
+      m_aStats.incImage ();
 
     restoreGraphicsState ();
   }
@@ -623,6 +700,8 @@ public final class PDPageContentStreamExt implements Closeable
 
     writeOperand (m_aResources.add (form));
     writeOperator ((byte) 'D', (byte) 'o');
+    if (m_aStats != null)
+      m_aStats.incForm ();
   }
 
   /**
@@ -1524,6 +1603,8 @@ public final class PDPageContentStreamExt implements Closeable
   {
     m_aOS.write (text);
     m_aOS.write ('\n');
+    if (m_aStats != null)
+      m_aStats.incOperator (text);
   }
 
   /**
@@ -1605,6 +1686,26 @@ public final class PDPageContentStreamExt implements Closeable
   public void close () throws IOException
   {
     m_aOS.close ();
+    boolean bDuplicate = false;
+    if (m_aDeduplicator != null && m_aContents != null)
+    {
+      final COSStream aUsedContents = m_aDeduplicator.deduplicate (m_aDeduplicatorPage,
+                                                                   m_aContents,
+                                                                   m_bDeduplicatorSharedResources,
+                                                                   m_bDeduplicatorCompress);
+      bDuplicate = aUsedContents != m_aContents;
+    }
+    if (m_aStats != null)
+    {
+      final long nUncompressed = m_aCountingOS.getBytesWritten ();
+      // The length is set when the stream is closed
+      // Duplicates are not stored at all
+      final long nStored = bDuplicate ? 0 : m_aContents != null ? m_aContents.getLength () : nUncompressed;
+      m_aStats.addStreamBytes (nUncompressed, nStored);
+      // May still be compressed before saving
+      if (!bDuplicate && m_aContents != null && m_aContents.getFilters () == null)
+        m_aStats.addUncompressedStream (m_aContents, nStored);
+    }
   }
 
   private static boolean _isOutside255Interval (final int val)
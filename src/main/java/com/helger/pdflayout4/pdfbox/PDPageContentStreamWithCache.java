@@ -20,6 +20,7 @@ import java.awt.Color;
 import java.io.IOException;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.apache.pdfbox.pdfwriter.COSWriter;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -58,9 +59,49 @@ public class PDPageContentStreamWithCache
                                        final PDPageContentStream.AppendMode bAppendContent,
                                        final boolean bCompress) throws IOException
   {
+    this (aDocument, aSourcePage, bAppendContent, new PDContentStreamOptions ().setCompress (bCompress));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aDocument
+   *        The document to write to. May not be <code>null</code>.
+   * @param aSourcePage
+   *        The page to write to. May not be <code>null</code>.
+   * @param bAppendContent
+   *        The append mode to use.
+   * @param aOptions
+   *        The options to use. May not be <code>null</code>.
+   * @throws IOException
+   *         If the content stream cannot be created.
+   * @since 5.1.2
+   */
+  public PDPageContentStreamWithCache (@Nonnull final PDDocument aDocument,
+                                       @Nonnull final PDPage aSourcePage,
+                                       final PDPageContentStream.AppendMode bAppendContent,
+                                       @Nonnull final PDContentStreamOptions aOptions) throws IOException
+  {
+    ValueEnforcer.notNull (aOptions, "Options");
+
     m_aDocument = aDocument;
     m_aPage = aSourcePage;
-    m_aStream = new PDPageContentStreamExt (aDocument, aSourcePage, bAppendContent, bCompress);
+    final boolean bCompress = aOptions.isCompress ();
+    final PDSharedResources aSharedResources = aOptions.getSharedResources ();
+    final PDContentStreamDeduplicator aDeduplicator = aOptions.getDeduplicator ();
+    if (aSharedResources != null)
+      aSourcePage.setResources (aSharedResources);
+    final boolean bDeduplicate = aDeduplicator != null && bAppendContent.isOverwrite ();
+    // When deduplicating, only unique content streams are compressed
+    m_aStream = new PDPageContentStreamExt (aDocument, aSourcePage, bAppendContent, bCompress && !bDeduplicate);
+    m_aStream.setStatistics (aOptions.getStatistics ());
+    if (aSharedResources != null)
+    {
+      // The page only returns a new wrapper around the shared dictionary
+      m_aStream.setResources (aSharedResources);
+    }
+    if (bDeduplicate)
+      m_aStream.setDeduplicator (aDeduplicator, aSourcePage, aSharedResources != null, bCompress);
   }
 
   @Nonnull
@@ -75,6 +116,24 @@ public class PDPageContentStreamWithCache
     return m_aPage;
   }
 
+  /**
+   * @return The statistics of this content stream. May be <code>null</code>
+   *         if no statistics were requested.
+   * @since 5.1.2
+   */
+  @Nullable
+  public PDContentStreamStatistics getStatistics ()
+  {
+    return m_aStream.getStatistics ();
+  }
+
+  private void _avoidedStateChange ()
+  {
+    final PDContentStreamStatistics aStats = m_aStream.getStatistics ();
+    if (aStats != null)
+      aStats.incAvoidedStateChange ();
+  }
+
   public void setFont (@Nonnull final LoadedFont aLoadedFont, @Nonnull final FontSpec aFontSpec) throws IOException
   {
     ValueEnforcer.notNull (aLoadedFont, "Font");
@@ -88,6 +147,8 @@ public class PDPageContentStreamWithCache
       m_aLastUsedLoadedFont = aLoadedFont;
       m_fLastUsedFontSize = fFontSize;
     }
+    else
+      _avoidedStateChange ();
     setNonStrokingColor (aFontSpec.getColor ());
   }
 
@@ -100,6 +161,8 @@ public class PDPageContentStreamWithCache
       m_aStream.setStrokingColor (aColor);
       m_aLastUsedStrokingColor = aColor;
     }
+    else
+      _avoidedStateChange ();
   }
 
   @Nonnull
@@ -117,6 +180,8 @@ public class PDPageContentStreamWithCache
       m_aStream.setNonStrokingColor (aColor);
       m_aLastUsedNonStrokingColor = aColor;
     }
+    else
+      _avoidedStateChange ();
   }
 
   @Nonnull
@@ -134,6 +199,8 @@ public class PDPageContentStreamWithCache
       m_aStream.setLineDashPattern (aLineDashPattern.getPattern (), aLineDashPattern.getPhase ());
       m_aLastUsedLineDashPattern = aLineDashPattern;
     }
+    else
+      _avoidedStateChange ();
   }
 
   @Nonnull
@@ -150,6 +217,8 @@ public class PDPageContentStreamWithCache
         m_aStream.setLineWidth (fLineWidth);
         m_fLastUsedLineWidth = fLineWidth;
       }
+      else
+        _avoidedStateChange ();
   }
 
   public float getLastUsedLineWidth ()
@@ -220,6 +289,10 @@ public class PDPageContentStreamWithCache
       m_aStream.write ((byte) ' ');
       m_aStream.writeOperator ((byte) 'T', (byte) 'j');
     }
+
+    final PDContentStreamStatistics aStats = m_aStream.getStatistics ();
+    if (aStats != null)
+      aStats.incTextRun (sDrawText.codePointCount (0, sDrawText.length ()));
   }
 
   public void drawXObject (final PDImageXObject aImage,
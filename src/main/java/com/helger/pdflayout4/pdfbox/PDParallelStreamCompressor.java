@@ -0,0 +1,331 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Compresses all uncompressed page content streams and XObject streams of a
+ * document with Flate on a provided {@link Executor}, right before the
+ * document is saved. The stream bytes are read and written back on the
+ * calling thread, as PDFBox documents are not thread-safe; only the deflating
+ * itself happens on the executor. At most a configurable number of streams is
+ * compressed at the same time, and only these streams are held in memory: the
+ * oldest stream is written back before the next one is read.<br>
+ * Streams that would not get smaller are left uncompressed.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public class PDParallelStreamCompressor
+{
+  private static final class PendingStream
+  {
+    private final COSStream m_aStream;
+    private final int m_nUncompressedLength;
+    private final CompletableFuture <byte []> m_aFuture;
+
+    PendingStream (@Nonnull final COSStream aStream,
+                   @Nonnegative final int nUncompressedLength,
+                   @Nonnull final CompletableFuture <byte []> aFuture)
+    {
+      m_aStream = aStream;
+      m_nUncompressedLength = nUncompressedLength;
+      m_aFuture = aFuture;
+    }
+  }
+
+  public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Executor m_aExecutor;
+  private final int m_nMaxParallel;
+  private final int m_nCompressionLevel;
+
+  // Statistics
+  private int m_nStreams;
+  private long m_nUncompressedBytes;
+  private long m_nCompressedBytes;
+
+  /**
+   * Constructor
+   *
+   * @param aExecutor
+   *        The executor to compress on. May not be <code>null</code>.
+   * @param nMaxParallel
+   *        The maximum number of streams compressed at the same time. Must be
+   *        &gt; 0.
+   * @param nCompressionLevel
+   *        The Flate compression level from 0 (no compression) to 9 (best
+   *        compression) or -1 for the default level.
+   */
+  public PDParallelStreamCompressor (@Nonnull final Executor aExecutor,
+                                     @Nonnegative final int nMaxParallel,
+                                     final int nCompressionLevel)
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    ValueEnforcer.isGT0 (nMaxParallel, "MaxParallel");
+    ValueEnforcer.isBetweenInclusive (nCompressionLevel,
+                                      "CompressionLevel",
+                                      Deflater.DEFAULT_COMPRESSION,
+                                      Deflater.BEST_COMPRESSION);
+    m_aExecutor = aExecutor;
+    m_nMaxParallel = nMaxParallel;
+    m_nCompressionLevel = nCompressionLevel;
+  }
+
+  /**
+   * @return The maximum number of streams compressed at the same time.
+   */
+  @Nonnegative
+  public final int getMaxParallel ()
+  {
+    return m_nMaxParallel;
+  }
+
+  /**
+   * @return The Flate compression level.
+   */
+  public final int getCompressionLevel ()
+  {
+    return m_nCompressionLevel;
+  }
+
+  /**
+   * @return The number of streams compressed so far. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getStreamCount ()
+  {
+    return m_nStreams;
+  }
+
+  /**
+   * @return The number of bytes of all compressed streams before compression.
+   *         Always &ge; 0.
+   */
+  @Nonnegative
+  public long getUncompressedBytes ()
+  {
+    return m_nUncompressedBytes;
+  }
+
+  /**
+   * @return The number of bytes of all compressed streams after compression.
+   *         Always &ge; 0.
+   */
+  @Nonnegative
+  public long getCompressedBytes ()
+  {
+    return m_nCompressedBytes;
+  }
+
+  @Nonnull
+  private static byte [] _deflate (@Nonnull final byte [] aBytes, final int nCompressionLevel)
+  {
+    final Deflater aDeflater = new Deflater (nCompressionLevel);
+    try
+    {
+      aDeflater.setInput (aBytes);
+      aDeflater.finish ();
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream (Math.max (aBytes.length / 2,
+                                                                                                     64));
+      final byte [] aBuffer = new byte [Math.min (BUFFER_SIZE, Math.max (aBytes.length, 64))];
+      while (!aDeflater.finished ())
+      {
+        final int nCount = aDeflater.deflate (aBuffer);
+        aBAOS.write (aBuffer, 0, nCount);
+      }
+      return aBAOS.toByteArray ();
+    }
+    finally
+    {
+      aDeflater.end ();
+    }
+  }
+
+  @Nonnull
+  private CompletableFuture <byte []> _startDeflate (@Nonnull final byte [] aBytes)
+  {
+    try
+    {
+      return CompletableFuture.supplyAsync ( () -> _deflate (aBytes, m_nCompressionLevel), m_aExecutor);
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      // Run it in the current thread instead
+      return CompletableFuture.completedFuture (_deflate (aBytes, m_nCompressionLevel));
+    }
+  }
+
+  private void _writeBack (@Nonnull final PendingStream aPending) throws IOException
+  {
+    final byte [] aCompressed;
+    try
+    {
+      aCompressed = aPending.m_aFuture.join ();
+    }
+    catch (final CompletionException ex)
+    {
+      throw new IOException ("Failed to compress stream in the background", ex.getCause ());
+    }
+
+    final int nUncompressed = aPending.m_nUncompressedLength;
+    if (aCompressed.length >= nUncompressed)
+    {
+      // Not worth it
+      return;
+    }
+
+    final COSStream aStream = aPending.m_aStream;
+    try (final OutputStream aOS = aStream.createRawOutputStream ())
+    {
+      aOS.write (aCompressed);
+    }
+    aStream.setItem (COSName.FILTER, COSName.FLATE_DECODE);
+    m_nStreams++;
+    m_nUncompressedBytes += nUncompressed;
+    m_nCompressedBytes += aCompressed.length;
+  }
+
+  private static void _addIfUncompressed (@Nullable final COSBase aBase,
+                                          @Nonnull final Map <COSStream, Boolean> aStreams)
+  {
+    if (aBase instanceof COSStream)
+    {
+      final COSStream aStream = (COSStream) aBase;
+      if (aStream.getFilters () == null)
+        aStreams.put (aStream, Boolean.TRUE);
+    }
+  }
+
+  private static void _collectXObjects (@Nonnull final PDPage aPage, @Nonnull final Map <COSStream, Boolean> aStreams)
+  {
+    final COSBase aResources = aPage.getCOSObject ().getDictionaryObject (COSName.RESOURCES);
+    if (aResources instanceof COSDictionary)
+    {
+      final COSBase aXObjects = ((COSDictionary) aResources).getDictionaryObject (COSName.XOBJECT);
+      if (aXObjects instanceof COSDictionary)
+        for (final COSName aName : ((COSDictionary) aXObjects).keySet ())
+          _addIfUncompressed (((COSDictionary) aXObjects).getDictionaryObject (aName), aStreams);
+    }
+  }
+
+  /**
+   * Compress all uncompressed content streams and XObjects of all pages of
+   * the passed document. Each stream is compressed only once, even if it is
+   * used on multiple pages.
+   *
+   * @param aDoc
+   *        The document to compress. May not be <code>null</code>.
+   * @throws IOException
+   *         If reading or writing a stream failed
+   */
+  public void compressAll (@Nonnull final PDDocument aDoc) throws IOException
+  {
+    ValueEnforcer.notNull (aDoc, "Document");
+
+    // Identity, to handle shared and deduplicated streams only once
+    final Map <COSStream, Boolean> aStreams = new IdentityHashMap <> ();
+    for (final PDPage aPage : aDoc.getPages ())
+    {
+      final COSBase aContents = aPage.getCOSObject ().getDictionaryObject (COSName.CONTENTS);
+      if (aContents instanceof COSArray)
+      {
+        final COSArray aArray = (COSArray) aContents;
+        for (int i = 0; i < aArray.size (); ++i)
+          _addIfUncompressed (aArray.getObject (i), aStreams);
+      }
+      else
+        if (aContents != null)
+          _addIfUncompressed (aContents, aStreams);
+      _collectXObjects (aPage, aStreams);
+    }
+
+    // Only a window of streams is in memory at the same time
+    final Deque <PendingStream> aPending = new ArrayDeque <> (m_nMaxParallel);
+    try
+    {
+      for (final COSStream aStream : aStreams.keySet ())
+      {
+        if (aPending.size () >= m_nMaxParallel)
+          _writeBack (aPending.removeFirst ());
+
+        final byte [] aBytes;
+        try (final InputStream aIS = aStream.createRawInputStream ())
+        {
+          aBytes = StreamHelper.getAllBytes (aIS);
+        }
+        if (aBytes == null || aBytes.length == 0)
+          continue;
+
+        aPending.addLast (new PendingStream (aStream, aBytes.length, _startDeflate (aBytes)));
+      }
+
+      while (!aPending.isEmpty ())
+        _writeBack (aPending.removeFirst ());
+    }
+    finally
+    {
+      // Don't waste CPU after an error
+      for (final PendingStream aEntry : aPending)
+        aEntry.m_aFuture.cancel (false);
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Executor", m_aExecutor)
+                                       .append ("MaxParallel", m_nMaxParallel)
+                                       .append ("CompressionLevel", m_nCompressionLevel)
+                                       .append ("Streams", m_nStreams)
+                                       .append ("UncompressedBytes", m_nUncompressedBytes)
+                                       .append ("CompressedBytes", m_nCompressedBytes)
+                                       .getToString ();
+  }
+}
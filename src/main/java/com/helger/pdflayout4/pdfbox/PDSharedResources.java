@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
+import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.mutable.MutableInt;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A resources dictionary that is shared between several pages. Each resource
+ * gets a stable name the first time it is added, and the name is looked up in
+ * a map afterwards. {@link PDResources} itself scans the existing dictionary
+ * entries for every addition.<br>
+ * The underlying dictionary is written only once, so the pages using it are
+ * smaller. On the other hand each page references all resources of all pages,
+ * which makes extracting single pages less efficient.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public class PDSharedResources extends PDResources
+{
+  private final Map <COSBase, COSName> m_aNames = new IdentityHashMap <> ();
+  private final ICommonsMap <String, MutableInt> m_aCounters = new CommonsHashMap <> ();
+  private int m_nLookupHits;
+
+  public PDSharedResources ()
+  {}
+
+  /**
+   * @return The number of resources contained. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getResourceCount ()
+  {
+    return m_aNames.size ();
+  }
+
+  /**
+   * @return The number of additions that returned an already existing name.
+   *         Always &ge; 0.
+   */
+  @Nonnegative
+  public int getLookupHitCount ()
+  {
+    return m_nLookupHits;
+  }
+
+  @Nonnull
+  private COSName _createName (@Nonnull final String sPrefix)
+  {
+    final MutableInt aCounter = m_aCounters.computeIfAbsent (sPrefix, k -> new MutableInt (0));
+    aCounter.inc ();
+    return COSName.getPDFName (sPrefix + aCounter.intValue ());
+  }
+
+  @Nonnull
+  private COSName _getOrAdd (@Nonnull final COSBase aObject,
+                             @Nonnull final String sPrefix,
+                             @Nonnull final Consumer <COSName> aPutter)
+  {
+    COSName aName = m_aNames.get (aObject);
+    if (aName != null)
+    {
+      m_nLookupHits++;
+      return aName;
+    }
+    aName = _createName (sPrefix);
+    aPutter.accept (aName);
+    m_aNames.put (aObject, aName);
+    return aName;
+  }
+
+  @Override
+  public COSName add (final PDFont font)
+  {
+    return _getOrAdd (font.getCOSObject (), "F", x -> put (x, font));
+  }
+
+  @Override
+  public COSName add (final PDColorSpace colorSpace)
+  {
+    return _getOrAdd (colorSpace.getCOSObject (), "cs", x -> put (x, colorSpace));
+  }
+
+  @Override
+  public COSName add (final PDExtendedGraphicsState extGState)
+  {
+    return _getOrAdd (extGState.getCOSObject (), "gs", x -> put (x, extGState));
+  }
+
+  @Override
+  public COSName add (final PDShading shading)
+  {
+    return _getOrAdd (shading.getCOSObject (), "sh", x -> put (x, shading));
+  }
+
+  @Override
+  public COSName add (final PDAbstractPattern pattern)
+  {
+    return _getOrAdd (pattern.getCOSObject (), "p", x -> put (x, pattern));
+  }
+
+  @Override
+  public COSName add (final PDPropertyList properties)
+  {
+    return _getOrAdd (properties.getCOSObject (), "Prop", x -> put (x, properties));
+  }
+
+  @Override
+  public COSName add (final PDImageXObject image)
+  {
+    return add (image, "Im");
+  }
+
+  @Override
+  public COSName add (final PDFormXObject form)
+  {
+    return add (form, "Form");
+  }
+
+  @Override
+  public COSName add (final PDXObject xobject, final String prefix)
+  {
+    return _getOrAdd (xobject.getCOSObject (), prefix, x -> put (x, xobject));
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ResourceCount", m_aNames.size ())
+                                       .append ("LookupHits", m_nLookupHits)
+                                       .getToString ();
+  }
+}
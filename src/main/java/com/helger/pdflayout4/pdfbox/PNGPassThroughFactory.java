@@ -0,0 +1,485 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.Immutable;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDIndexed;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+
+/**
+ * Create a lossless {@link PDImageXObject} directly from the bytes of a PNG
+ * file. For images without an alpha channel the compressed IDAT data is
+ * copied as is into a FlateDecode stream with the PNG predictor, so the
+ * pixels are neither decoded nor re-compressed. Images with an alpha channel
+ * or with palette transparency are inflated once to split off the soft mask.
+ * Colour key transparency (tRNS for grey and RGB) is mapped to a colour key
+ * mask. Interlaced images are not supported.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@Immutable
+public final class PNGPassThroughFactory
+{
+  private static final byte [] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+
+  private static final int COLOR_TYPE_GRAY = 0;
+  private static final int COLOR_TYPE_RGB = 2;
+  private static final int COLOR_TYPE_PALETTE = 3;
+  private static final int COLOR_TYPE_GRAY_ALPHA = 4;
+  private static final int COLOR_TYPE_RGB_ALPHA = 6;
+
+  private PNGPassThroughFactory ()
+  {}
+
+  private static int _getInt (@Nonnull final byte [] aData, final int nOfs)
+  {
+    return ((aData[nOfs] & 0xff) << 24) |
+           ((aData[nOfs + 1] & 0xff) << 16) |
+           ((aData[nOfs + 2] & 0xff) << 8) |
+           (aData[nOfs + 3] & 0xff);
+  }
+
+  private static int _getShort (@Nonnull final byte [] aData, final int nOfs)
+  {
+    return ((aData[nOfs] & 0xff) << 8) | (aData[nOfs + 1] & 0xff);
+  }
+
+  /**
+   * Check if the passed bytes start with the PNG signature.
+   *
+   * @param aData
+   *        The bytes to check. May be <code>null</code>.
+   * @return <code>true</code> if it is a PNG file
+   */
+  public static boolean isPNG (@Nullable final byte [] aData)
+  {
+    return aData != null &&
+           aData.length >= PNG_SIGNATURE.length &&
+           Arrays.equals (Arrays.copyOf (aData, PNG_SIGNATURE.length), PNG_SIGNATURE);
+  }
+
+  /**
+   * Read the pixel size from the IHDR chunk of a PNG file. Only the first 24
+   * bytes of the stream are read.
+   *
+   * @param aIS
+   *        The stream to read from. May not be <code>null</code>.
+   * @return <code>null</code> if the stream does not contain a PNG file.
+   * @throws IOException
+   *         In case of a read error
+   */
+  @Nullable
+  public static Dimension readSize (@Nonnull @WillNotClose final InputStream aIS) throws IOException
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+
+    // Signature, chunk length, chunk type, width, height
+    final byte [] aHeader = new byte [PNG_SIGNATURE.length + 16];
+    int nRead = 0;
+    while (nRead < aHeader.length)
+    {
+      final int nCount = aIS.read (aHeader, nRead, aHeader.length - nRead);
+      if (nCount < 0)
+        return null;
+      nRead += nCount;
+    }
+    if (!isPNG (aHeader))
+      return null;
+    if (!"IHDR".equals (new String (aHeader, PNG_SIGNATURE.length + 4, 4, StandardCharsets.ISO_8859_1)))
+      return null;
+    final int nWidth = _getInt (aHeader, PNG_SIGNATURE.length + 8);
+    final int nHeight = _getInt (aHeader, PNG_SIGNATURE.length + 12);
+    if (nWidth <= 0 || nHeight <= 0)
+      return null;
+    return new Dimension (nWidth, nHeight);
+  }
+
+  private static int _getChannelCount (final int nColorType)
+  {
+    switch (nColorType)
+    {
+      case COLOR_TYPE_GRAY:
+      case COLOR_TYPE_PALETTE:
+        return 1;
+      case COLOR_TYPE_GRAY_ALPHA:
+        return 2;
+      case COLOR_TYPE_RGB:
+        return 3;
+      case COLOR_TYPE_RGB_ALPHA:
+        return 4;
+      default:
+        return -1;
+    }
+  }
+
+  @Nonnull
+  private static byte [] _inflate (@Nonnull final byte [] aData, final int nExpectedLength) throws IOException
+  {
+    final byte [] ret = new byte [nExpectedLength];
+    final Inflater aInflater = new Inflater ();
+    try
+    {
+      aInflater.setInput (aData);
+      int nPos = 0;
+      while (nPos < nExpectedLength && !aInflater.finished ())
+      {
+        final int nRead = aInflater.inflate (ret, nPos, nExpectedLength - nPos);
+        if (nRead == 0 && (aInflater.needsInput () || aInflater.needsDictionary ()))
+          break;
+        nPos += nRead;
+      }
+      if (nPos < nExpectedLength)
+        throw new IOException ("PNG image data is truncated");
+    }
+    catch (final DataFormatException ex)
+    {
+      throw new IOException ("Corrupt PNG image data", ex);
+    }
+    finally
+    {
+      aInflater.end ();
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private static byte [] _deflate (@Nonnull final byte [] aData) throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream (aData.length / 2 + 64);
+    try (final OutputStream aOS = new DeflaterOutputStream (aBAOS))
+    {
+      aOS.write (aData);
+    }
+    return aBAOS.toByteArray ();
+  }
+
+  private static int _paeth (final int a, final int b, final int c)
+  {
+    final int p = a + b - c;
+    final int pa = Math.abs (p - a);
+    final int pb = Math.abs (p - b);
+    final int pc = Math.abs (p - c);
+    if (pa <= pb && pa <= pc)
+      return a;
+    if (pb <= pc)
+      return b;
+    return c;
+  }
+
+  /**
+   * Undo the PNG row filters in place.
+   *
+   * @param aData
+   *        Inflated data, each row prefixed by the filter type byte.
+   * @return The raw rows without filter type bytes.
+   */
+  @Nonnull
+  private static byte [] _unfilter (@Nonnull final byte [] aData,
+                                    final int nHeight,
+                                    final int nRowBytes,
+                                    final int nBytesPerPixel) throws IOException
+  {
+    final byte [] ret = new byte [nHeight * nRowBytes];
+    for (int nRow = 0; nRow < nHeight; ++nRow)
+    {
+      final int nSrc = nRow * (nRowBytes + 1);
+      final int nFilter = aData[nSrc];
+      final int nDst = nRow * nRowBytes;
+      final int nPrev = nDst - nRowBytes;
+      for (int i = 0; i < nRowBytes; ++i)
+      {
+        final int x = aData[nSrc + 1 + i] & 0xff;
+        final int a = i >= nBytesPerPixel ? ret[nDst + i - nBytesPerPixel] & 0xff : 0;
+        final int b = nRow > 0 ? ret[nPrev + i] & 0xff : 0;
+        final int c = nRow > 0 && i >= nBytesPerPixel ? ret[nPrev + i - nBytesPerPixel] & 0xff : 0;
+        final int nValue;
+        switch (nFilter)
+        {
+          case 0:
+            nValue = x;
+            break;
+          case 1:
+            nValue = x + a;
+            break;
+          case 2:
+            nValue = x + b;
+            break;
+          case 3:
+            nValue = x + ((a + b) >>> 1);
+            break;
+          case 4:
+            nValue = x + _paeth (a, b, c);
+            break;
+          default:
+            throw new IOException ("Unsupported PNG filter type " + nFilter + " in row " + nRow);
+        }
+        ret[nDst + i] = (byte) nValue;
+      }
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private static PDImageXObject _createFlateImage (@Nonnull final PDDocument aDoc,
+                                                   @Nonnull final byte [] aFlateData,
+                                                   final int nWidth,
+                                                   final int nHeight,
+                                                   final int nBitsPerComponent,
+                                                   @Nonnull final PDColorSpace aColorSpace,
+                                                   final int nPredictorColors) throws IOException
+  {
+    final PDImageXObject ret = new PDImageXObject (aDoc,
+                                                   new NonBlockingByteArrayInputStream (aFlateData),
+                                                   COSName.FLATE_DECODE,
+                                                   nWidth,
+                                                   nHeight,
+                                                   nBitsPerComponent,
+                                                   aColorSpace);
+    if (nPredictorColors > 0)
+    {
+      // PNG row filters - "optimum" predictor
+      final COSDictionary aDecodeParms = new COSDictionary ();
+      aDecodeParms.setInt (COSName.PREDICTOR, 15);
+      aDecodeParms.setInt (COSName.COLORS, nPredictorColors);
+      aDecodeParms.setInt (COSName.BITS_PER_COMPONENT, nBitsPerComponent);
+      aDecodeParms.setInt (COSName.COLUMNS, nWidth);
+      ret.getCOSObject ().setItem (COSName.DECODE_PARMS, aDecodeParms);
+    }
+    return ret;
+  }
+
+  /**
+   * Create an image from the passed PNG bytes.
+   *
+   * @param aDoc
+   *        The document to create the image in. May not be <code>null</code>.
+   * @param aPNG
+   *        The bytes of the PNG file. May not be <code>null</code>.
+   * @return <code>null</code> if the data is not a PNG file or uses features
+   *         not supported by this class (e.g. interlacing). In that case the
+   *         image must be decoded by other means.
+   * @throws IOException
+   *         If the PNG file is corrupt
+   */
+  @Nullable
+  public static PDImageXObject createFromByteArray (@Nonnull final PDDocument aDoc,
+                                                    @Nonnull final byte [] aPNG) throws IOException
+  {
+    ValueEnforcer.notNull (aDoc, "Document");
+    ValueEnforcer.notNull (aPNG, "PNG");
+
+    if (!isPNG (aPNG))
+      return null;
+
+    int nWidth = -1;
+    int nHeight = -1;
+    int nBitDepth = -1;
+    int nColorType = -1;
+    byte [] aPalette = null;
+    byte [] aTRNS = null;
+    final NonBlockingByteArrayOutputStream aIDAT = new NonBlockingByteArrayOutputStream (aPNG.length);
+
+    int nPos = PNG_SIGNATURE.length;
+    boolean bEnd = false;
+    while (!bEnd && nPos + 8 <= aPNG.length)
+    {
+      final int nLength = _getInt (aPNG, nPos);
+      final String sType = new String (aPNG, nPos + 4, 4, StandardCharsets.ISO_8859_1);
+      final int nDataOfs = nPos + 8;
+      if (nLength < 0 || nDataOfs + nLength > aPNG.length)
+        throw new IOException ("PNG chunk '" + sType + "' exceeds the file size");
+
+      switch (sType)
+      {
+        case "IHDR":
+          if (nLength < 13)
+            throw new IOException ("PNG IHDR chunk is too short");
+          nWidth = _getInt (aPNG, nDataOfs);
+          nHeight = _getInt (aPNG, nDataOfs + 4);
+          nBitDepth = aPNG[nDataOfs + 8] & 0xff;
+          nColorType = aPNG[nDataOfs + 9] & 0xff;
+          final int nCompression = aPNG[nDataOfs + 10] & 0xff;
+          final int nFilter = aPNG[nDataOfs + 11] & 0xff;
+          final int nInterlace = aPNG[nDataOfs + 12] & 0xff;
+          if (nCompression != 0 || nFilter != 0 || nInterlace != 0)
+            return null;
+          break;
+        case "PLTE":
+          aPalette = Arrays.copyOfRange (aPNG, nDataOfs, nDataOfs + nLength);
+          break;
+        case "tRNS":
+          aTRNS = Arrays.copyOfRange (aPNG, nDataOfs, nDataOfs + nLength);
+          break;
+        case "IDAT":
+          aIDAT.write (aPNG, nDataOfs, nLength);
+          break;
+        case "IEND":
+          bEnd = true;
+          break;
+        default:
+          // Ignore all ancillary chunks
+          break;
+      }
+      // Length, type, data and CRC
+      nPos = nDataOfs + nLength + 4;
+    }
+
+    final int nChannels = _getChannelCount (nColorType);
+    if (nWidth <= 0 || nHeight <= 0 || nChannels < 0 || aIDAT.size () == 0)
+      return null;
+    if (((long) nWidth * nChannels * nBitDepth / 8 + 2) * nHeight > Integer.MAX_VALUE)
+      return null;
+    if (nColorType == COLOR_TYPE_PALETTE && aPalette == null)
+      return null;
+
+    final byte [] aIDATBytes = aIDAT.toByteArray ();
+    final int nRowBytes = (int) (((long) nWidth * nChannels * nBitDepth + 7) / 8);
+    final int nBytesPerPixel = Math.max (1, nChannels * nBitDepth / 8);
+
+    switch (nColorType)
+    {
+      case COLOR_TYPE_GRAY:
+      case COLOR_TYPE_RGB:
+      {
+        final PDImageXObject ret = _createFlateImage (aDoc,
+                                                      aIDATBytes,
+                                                      nWidth,
+                                                      nHeight,
+                                                      nBitDepth,
+                                                      nColorType == COLOR_TYPE_GRAY ? PDDeviceGray.INSTANCE
+                                                                                    : PDDeviceRGB.INSTANCE,
+                                                      nChannels);
+        if (aTRNS != null && aTRNS.length >= nChannels * 2)
+        {
+          // Colour key masking
+          final COSArray aMask = new COSArray ();
+          for (int i = 0; i < nChannels; ++i)
+          {
+            final COSInteger aValue = COSInteger.get (_getShort (aTRNS, i * 2));
+            aMask.add (aValue);
+            aMask.add (aValue);
+          }
+          ret.getCOSObject ().setItem (COSName.MASK, aMask);
+        }
+        return ret;
+      }
+      case COLOR_TYPE_PALETTE:
+      {
+        final int nEntries = aPalette.length / 3;
+        if (nEntries == 0)
+          return null;
+        final COSArray aIndexed = new COSArray ();
+        aIndexed.add (COSName.INDEXED);
+        aIndexed.add (COSName.DEVICERGB);
+        aIndexed.add (COSInteger.get (nEntries - 1));
+        aIndexed.add (new COSString (Arrays.copyOf (aPalette, nEntries * 3)));
+        final PDImageXObject ret = _createFlateImage (aDoc,
+                                                      aIDATBytes,
+                                                      nWidth,
+                                                      nHeight,
+                                                      nBitDepth,
+                                                      new PDIndexed (aIndexed),
+                                                      1);
+        if (aTRNS != null)
+        {
+          // Alpha per palette entry - map the indices to a soft mask
+          final byte [] aRaw = _unfilter (_inflate (aIDATBytes, nHeight * (nRowBytes + 1)),
+                                          nHeight,
+                                          nRowBytes,
+                                          nBytesPerPixel);
+          final byte [] aAlpha = new byte [nWidth * nHeight];
+          final int nMask = (1 << nBitDepth) - 1;
+          final int nPixelsPerByte = 8 / nBitDepth;
+          for (int y = 0; y < nHeight; ++y)
+            for (int x = 0; x < nWidth; ++x)
+            {
+              final int nByte = aRaw[y * nRowBytes + x / nPixelsPerByte] & 0xff;
+              final int nShift = 8 - nBitDepth * (x % nPixelsPerByte + 1);
+              final int nIndex = (nByte >>> nShift) & nMask;
+              aAlpha[y * nWidth + x] = nIndex < aTRNS.length ? aTRNS[nIndex] : (byte) 0xff;
+            }
+          ret.getCOSObject ()
+             .setItem (COSName.SMASK,
+                       _createFlateImage (aDoc, _deflate (aAlpha), nWidth, nHeight, 8, PDDeviceGray.INSTANCE, 0));
+        }
+        return ret;
+      }
+      case COLOR_TYPE_GRAY_ALPHA:
+      case COLOR_TYPE_RGB_ALPHA:
+      {
+        // Split colour and alpha channels
+        final byte [] aRaw = _unfilter (_inflate (aIDATBytes, nHeight * (nRowBytes + 1)),
+                                        nHeight,
+                                        nRowBytes,
+                                        nBytesPerPixel);
+        final int nBytesPerSample = nBitDepth / 8;
+        final int nColorBytes = (nChannels - 1) * nBytesPerSample;
+        final int nPixelCount = nWidth * nHeight;
+        final byte [] aColor = new byte [nPixelCount * nColorBytes];
+        final byte [] aAlpha = new byte [nPixelCount * nBytesPerSample];
+        for (int i = 0; i < nPixelCount; ++i)
+        {
+          final int nSrc = i * nBytesPerPixel;
+          System.arraycopy (aRaw, nSrc, aColor, i * nColorBytes, nColorBytes);
+          System.arraycopy (aRaw, nSrc + nColorBytes, aAlpha, i * nBytesPerSample, nBytesPerSample);
+        }
+        final PDImageXObject ret = _createFlateImage (aDoc,
+                                                      _deflate (aColor),
+                                                      nWidth,
+                                                      nHeight,
+                                                      nBitDepth,
+                                                      nColorType == COLOR_TYPE_GRAY_ALPHA ? PDDeviceGray.INSTANCE
+                                                                                          : PDDeviceRGB.INSTANCE,
+                                                      0);
+        ret.getCOSObject ()
+           .setItem (COSName.SMASK,
+                     _createFlateImage (aDoc, _deflate (aAlpha), nWidth, nHeight, nBitDepth, PDDeviceGray.INSTANCE, 0));
+        return ret;
+      }
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.render;
+
+/**
+ * Cooperative cancellation token for PDF creation. It is polled regularly
+ * while preparing, splitting and rendering, so the implementation must be
+ * cheap and thread-safe.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@FunctionalInterface
+public interface IPLCancellationToken
+{
+  /**
+   * @return <code>true</code> if the current PDF creation should be aborted as
+   *         soon as possible.
+   */
+  boolean isCancellationRequested ();
+}
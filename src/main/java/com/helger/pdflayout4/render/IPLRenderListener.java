@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.render;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.helger.commons.annotation.IsSPIInterface;
+import com.helger.pdflayout4.base.IPLRenderableObject;
+import com.helger.pdflayout4.base.PLPageSet;
+import com.helger.pdflayout4.pdfbox.PDContentStreamStatistics;
+import com.helger.pdflayout4.spec.PreloadFont;
+import com.helger.pdflayout4.spec.SizeSpec;
+
+/**
+ * Listener for the different phases of PDF creation. Listeners can either be
+ * registered on a single PageLayoutPDF or globally via the
+ * {@link java.util.ServiceLoader} mechanism. All durations are in nanoseconds.
+ * If no listener is present, no timing and counting happens at all.<br>
+ * Implementations must be thread-safe if they are used globally.<br>
+ * Events for the JDK Flight Recorder are emitted independent of this listener
+ * - see {@link com.helger.pdflayout4.jfr.PLJFR}.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@IsSPIInterface
+public interface IPLRenderListener
+{
+  /**
+   * Called before anything else happens.
+   */
+  default void onDocumentStart ()
+  {}
+
+  /**
+   * Called after all pages of a page set were prepared and split.
+   *
+   * @param aPageSet
+   *        The page set that was prepared. Never <code>null</code>.
+   * @param nPageCount
+   *        The number of resulting pages.
+   * @param nDurationNanos
+   *        Duration of preparing and splitting.
+   */
+  default void onPageSetPrepared (@Nonnull final PLPageSet aPageSet,
+                                  @Nonnegative final int nPageCount,
+                                  final long nDurationNanos)
+  {}
+
+  /**
+   * Element level events are emitted very often. Therefore they are only
+   * timed and dispatched if at least one listener requests them.
+   *
+   * @return <code>true</code> if {@link #onElementPrepared(IPLRenderableObject, SizeSpec, SizeSpec, long)}
+   *         and {@link #onElementRendered(IPLRenderableObject, float, float, long)}
+   *         should be invoked. <code>false</code> by default.
+   */
+  default boolean isElementEventRequired ()
+  {
+    return false;
+  }
+
+  /**
+   * Content stream statistics count every written operator. Therefore they are
+   * only collected if at least one listener requests them.
+   *
+   * @return <code>true</code> if {@link PDContentStreamStatistics} should be
+   *         collected for all pages. <code>false</code> by default.
+   * @see PLRenderStatistics#getAllPageContentStreamStatistics()
+   */
+  default boolean isContentStreamStatisticsRequired ()
+  {
+    return false;
+  }
+
+  /**
+   * Called after a single element was prepared. Only called if
+   * {@link #isElementEventRequired()} returns <code>true</code>. As elements
+   * are prepared recursively, the duration includes the preparation of all
+   * child elements.
+   *
+   * @param aElement
+   *        The element that was prepared. Never <code>null</code>.
+   * @param aAvailableSize
+   *        The available size for preparation. Never <code>null</code>.
+   * @param aRenderSize
+   *        The resulting render size. Never <code>null</code>.
+   * @param nDurationNanos
+   *        Duration of preparation.
+   */
+  default void onElementPrepared (@Nonnull final IPLRenderableObject <?> aElement,
+                                  @Nonnull final SizeSpec aAvailableSize,
+                                  @Nonnull final SizeSpec aRenderSize,
+                                  final long nDurationNanos)
+  {}
+
+  /**
+   * Called after a single element was rendered. Only called if
+   * {@link #isElementEventRequired()} returns <code>true</code>. The duration
+   * includes the rendering of all child elements.
+   *
+   * @param aElement
+   *        The element that was rendered. Never <code>null</code>.
+   * @param fWidth
+   *        The available render width.
+   * @param fHeight
+   *        The available render height.
+   * @param nDurationNanos
+   *        Duration of rendering.
+   */
+  default void onElementRendered (@Nonnull final IPLRenderableObject <?> aElement,
+                                  final float fWidth,
+                                  final float fHeight,
+                                  final long nDurationNanos)
+  {}
+
+  /**
+   * Called after an element was split onto two pages.
+   *
+   * @param aElement
+   *        The element that was split. Never <code>null</code>.
+   * @param bSplit
+   *        <code>true</code> if the element was split, <code>false</code> if
+   *        splitting was not possible.
+   * @param nDurationNanos
+   *        Duration of the split operation.
+   */
+  default void onSplit (@Nonnull final IPLRenderableObject <?> aElement, final boolean bSplit, final long nDurationNanos)
+  {}
+
+  /**
+   * Called after a font was loaded into the document.
+   *
+   * @param aPreloadFont
+   *        The font that was loaded. Never <code>null</code>.
+   * @param nDurationNanos
+   *        Duration of loading.
+   */
+  default void onFontLoaded (@Nonnull final PreloadFont aPreloadFont, final long nDurationNanos)
+  {}
+
+  /**
+   * Called after an image was converted to a PDF image.
+   *
+   * @param aElement
+   *        The image element. Never <code>null</code>.
+   * @param nDurationNanos
+   *        Duration of the conversion.
+   */
+  default void onImageEncoded (@Nonnull final IPLRenderableObject <?> aElement, final long nDurationNanos)
+  {}
+
+  /**
+   * Called after an image was looked up in the enabled
+   * {@link com.helger.pdflayout4.element.image.PLEncodedImageCache}.
+   *
+   * @param aElement
+   *        The image element. Never <code>null</code>.
+   * @param bHit
+   *        <code>true</code> if the encoded image was found in the cache.
+   */
+  default void onImageCacheLookup (@Nonnull final IPLRenderableObject <?> aElement, final boolean bHit)
+  {}
+
+  /**
+   * Called after a single page was rendered.
+   *
+   * @param aPageSet
+   *        The page set the page belongs to. Never <code>null</code>.
+   * @param nPageSetPageIndex
+   *        The 0-based page index within the page set.
+   * @param nTotalPageIndex
+   *        The 0-based page index within the whole document.
+   * @param nDurationNanos
+   *        Duration of pre-rendering and rendering the page.
+   */
+  default void onPageRendered (@Nonnull final PLPageSet aPageSet,
+                               @Nonnegative final int nPageSetPageIndex,
+                               @Nonnegative final int nTotalPageIndex,
+                               final long nDurationNanos)
+  {}
+
+  /**
+   * Called after the document customizer was invoked. Only called if a
+   * customizer is present.
+   *
+   * @param nDurationNanos
+   *        Duration of the customizer.
+   */
+  default void onDocumentCustomized (final long nDurationNanos)
+  {}
+
+  /**
+   * Called after the document was serialized.
+   *
+   * @param nDurationNanos
+   *        Duration of saving.
+   */
+  default void onDocumentSaved (final long nDurationNanos)
+  {}
+
+  /**
+   * Called after the document was created - also in case of an error.
+   *
+   * @param aStats
+   *        The collected counts. Never <code>null</code>.
+   * @param nDurationNanos
+   *        Duration of the overall creation.
+   */
+  default void onDocumentEnd (@Nonnull final PLRenderStatistics aStats, final long nDurationNanos)
+  {}
+}
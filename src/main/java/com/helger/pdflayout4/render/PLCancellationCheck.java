@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.render;
+
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Combines an optional {@link IPLCancellationToken} and an optional deadline
+ * for a single PDF creation.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@Immutable
+public final class PLCancellationCheck
+{
+  private final IPLCancellationToken m_aToken;
+  private final Duration m_aTimeout;
+  private final long m_nDeadlineNanos;
+
+  private PLCancellationCheck (@Nullable final IPLCancellationToken aToken, @Nullable final Duration aTimeout)
+  {
+    m_aToken = aToken;
+    m_aTimeout = aTimeout;
+    m_nDeadlineNanos = aTimeout == null ? 0 : System.nanoTime () + aTimeout.toNanos ();
+  }
+
+  /**
+   * Create a new check. The timeout starts now.
+   *
+   * @param aToken
+   *        The cancellation token. May be <code>null</code>.
+   * @param aTimeout
+   *        The maximum duration of the PDF creation. May be <code>null</code>.
+   * @return <code>null</code> if neither token nor timeout are provided.
+   */
+  @Nullable
+  public static PLCancellationCheck createIfRequired (@Nullable final IPLCancellationToken aToken,
+                                                     @Nullable final Duration aTimeout)
+  {
+    if (aToken == null && aTimeout == null)
+      return null;
+    return new PLCancellationCheck (aToken, aTimeout);
+  }
+
+  /**
+   * @return <code>true</code> if cancellation was requested or the deadline is
+   *         exceeded.
+   */
+  public boolean isCancelled ()
+  {
+    if (m_aToken != null && m_aToken.isCancellationRequested ())
+      return true;
+    return m_aTimeout != null && System.nanoTime () - m_nDeadlineNanos > 0;
+  }
+
+  /**
+   * Check if cancellation was requested or the deadline is exceeded.
+   *
+   * @param sWhere
+   *        Description of the current phase for the error message. May not be
+   *        <code>null</code>.
+   * @throws PLRenderCancelledException
+   *         if so
+   */
+  public void checkNotCancelled (@Nonnull final String sWhere)
+  {
+    if (m_aToken != null && m_aToken.isCancellationRequested ())
+      throw new PLRenderCancelledException ("PDF creation was cancelled while " + sWhere);
+    if (m_aTimeout != null && System.nanoTime () - m_nDeadlineNanos > 0)
+      throw new PLRenderCancelledException ("PDF creation exceeded the timeout of " +
+                                            m_aTimeout.toMillis () +
+                                            "ms while " +
+                                            sWhere);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).appendIfNotNull ("Token", m_aToken)
+                                       .appendIfNotNull ("Timeout", m_aTimeout)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.render;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.pdflayout4.spec.SizeSpec;
+
+/**
+ * A cache for prepare results of structurally identical elements within a
+ * single document. The element defines the structural key (e.g. text and font
+ * of a text element) and the cache adds the available size.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public final class PLPrepareCache
+{
+  /**
+   * A single cached prepare result.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class Entry
+  {
+    private final SizeSpec m_aPreparedSize;
+    private final Object m_aPreparedState;
+
+    Entry (@Nonnull final SizeSpec aPreparedSize, @Nonnull final Object aPreparedState)
+    {
+      m_aPreparedSize = aPreparedSize;
+      m_aPreparedState = aPreparedState;
+    }
+
+    /**
+     * @return The prepared size without margin, border and padding. Never
+     *         <code>null</code>.
+     */
+    @Nonnull
+    public SizeSpec getPreparedSize ()
+    {
+      return m_aPreparedSize;
+    }
+
+    /**
+     * @return The element specific prepared state. Must be used read-only.
+     *         Never <code>null</code>.
+     */
+    @Nonnull
+    public Object getPreparedState ()
+    {
+      return m_aPreparedState;
+    }
+  }
+
+  @Immutable
+  private static final class Key
+  {
+    private final Object m_aElementKey;
+    private final float m_fAvailableWidth;
+    private final float m_fAvailableHeight;
+
+    Key (@Nonnull final Object aElementKey, final float fAvailableWidth, final float fAvailableHeight)
+    {
+      m_aElementKey = aElementKey;
+      m_fAvailableWidth = fAvailableWidth;
+      m_fAvailableHeight = fAvailableHeight;
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (o == null || !getClass ().equals (o.getClass ()))
+        return false;
+      final Key rhs = (Key) o;
+      return m_aElementKey.equals (rhs.m_aElementKey) &&
+             EqualsHelper.equals (m_fAvailableWidth, rhs.m_fAvailableWidth) &&
+             EqualsHelper.equals (m_fAvailableHeight, rhs.m_fAvailableHeight);
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return new HashCodeGenerator (this).append (m_aElementKey)
+                                         .append (m_fAvailableWidth)
+                                         .append (m_fAvailableHeight)
+                                         .getHashCode ();
+    }
+  }
+
+  private final ICommonsMap <Key, Entry> m_aMap = new CommonsHashMap <> ();
+  private int m_nHits = 0;
+  private int m_nMisses = 0;
+
+  public PLPrepareCache ()
+  {}
+
+  /**
+   * Get a previously cached prepare result.
+   *
+   * @param aElementKey
+   *        The structural key of the element. May not be <code>null</code>.
+   * @param aCtx
+   *        The preparation context with the available size. May not be
+   *        <code>null</code>.
+   * @return <code>null</code> if no such prepare result is cached.
+   */
+  @Nullable
+  public Entry get (@Nonnull final Object aElementKey, @Nonnull final PreparationContext aCtx)
+  {
+    ValueEnforcer.notNull (aElementKey, "ElementKey");
+    ValueEnforcer.notNull (aCtx, "Ctx");
+
+    final Entry ret = m_aMap.get (new Key (aElementKey, aCtx.getAvailableWidth (), aCtx.getAvailableHeight ()));
+    if (ret != null)
+      m_nHits++;
+    else
+      m_nMisses++;
+    return ret;
+  }
+
+  /**
+   * Remember a prepare result.
+   *
+   * @param aElementKey
+   *        The structural key of the element. May not be <code>null</code>.
+   * @param aCtx
+   *        The preparation context with the available size. May not be
+   *        <code>null</code>.
+   * @param aPreparedSize
+   *        The prepared size without margin, border and padding. May not be
+   *        <code>null</code>.
+   * @param aPreparedState
+   *        The element specific prepared state. It must not be modified
+   *        afterwards. May not be <code>null</code>.
+   */
+  public void put (@Nonnull final Object aElementKey,
+                   @Nonnull final PreparationContext aCtx,
+                   @Nonnull final SizeSpec aPreparedSize,
+                   @Nonnull final Object aPreparedState)
+  {
+    ValueEnforcer.notNull (aElementKey, "ElementKey");
+    ValueEnforcer.notNull (aCtx, "Ctx");
+    ValueEnforcer.notNull (aPreparedSize, "PreparedSize");
+    ValueEnforcer.notNull (aPreparedState, "PreparedState");
+
+    m_aMap.put (new Key (aElementKey, aCtx.getAvailableWidth (), aCtx.getAvailableHeight ()),
+                new Entry (aPreparedSize, aPreparedState));
+  }
+
+  /**
+   * @return The number of cached prepare results. Always &ge; 0.
+   */
+  public int size ()
+  {
+    return m_aMap.size ();
+  }
+
+  /**
+   * @return The number of successful lookups. Always &ge; 0.
+   */
+  public int getHitCount ()
+  {
+    return m_nHits;
+  }
+
+  /**
+   * @return The number of unsuccessful lookups. Always &ge; 0.
+   */
+  public int getMissCount ()
+  {
+    return m_nMisses;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Size", m_aMap.size ())
+                                       .append ("Hits", m_nHits)
+                                       .append ("Misses", m_nMisses)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.render;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Unchecked exception thrown from deep within preparing, splitting or
+ * rendering if the PDF creation was cancelled or the deadline was exceeded.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+public class PLRenderCancelledException extends RuntimeException
+{
+  public PLRenderCancelledException (@Nonnull final String sMsg)
+  {
+    super (sMsg);
+  }
+}
@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.render;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.lang.ServiceLoaderHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.pdflayout4.base.IPLRenderableObject;
+import com.helger.pdflayout4.base.PLPageSet;
+import com.helger.pdflayout4.pdfbox.PDContentStreamStatistics;
+import com.helger.pdflayout4.spec.PreloadFont;
+import com.helger.pdflayout4.spec.SizeSpec;
+
+/**
+ * Dispatches the events of a single PDF creation to all
+ * {@link IPLRenderListener}s and collects the {@link PLRenderStatistics}. An
+ * instance is only created if at least one listener is present, so all call
+ * sites check for <code>null</code> first.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public final class PLRenderMonitor
+{
+  private static final ICommonsList <IPLRenderListener> SPI_LISTENERS = ServiceLoaderHelper.getAllSPIImplementations (IPLRenderListener.class);
+
+  private final ICommonsList <IPLRenderListener> m_aListeners;
+  private final boolean m_bElementEventRequired;
+  private final boolean m_bContentStreamStatisticsRequired;
+  private final PLRenderStatistics m_aStats = new PLRenderStatistics ();
+
+  private PLRenderMonitor (@Nonnull @Nonempty final ICommonsList <IPLRenderListener> aListeners)
+  {
+    m_aListeners = aListeners;
+    m_bElementEventRequired = aListeners.containsAny (IPLRenderListener::isElementEventRequired);
+    m_bContentStreamStatisticsRequired = aListeners.containsAny (IPLRenderListener::isContentStreamStatisticsRequired);
+  }
+
+  /**
+   * @return All listeners registered via the SPI. Never <code>null</code>.
+   */
+  @Nonnull
+  public static ICommonsList <IPLRenderListener> getAllSPIListeners ()
+  {
+    return SPI_LISTENERS.getClone ();
+  }
+
+  /**
+   * Create a new monitor for a single PDF creation.
+   *
+   * @param aCustomListeners
+   *        Additional listeners of the current document. May be
+   *        <code>null</code>.
+   * @return <code>null</code> if neither SPI nor custom listeners are present.
+   */
+  @Nullable
+  public static PLRenderMonitor createIfRequired (@Nullable final Iterable <? extends IPLRenderListener> aCustomListeners)
+  {
+    final ICommonsList <IPLRenderListener> aListeners = new CommonsArrayList <> (SPI_LISTENERS);
+    if (aCustomListeners != null)
+      for (final IPLRenderListener aListener : aCustomListeners)
+        aListeners.add (aListener);
+    return aListeners.isEmpty () ? null : new PLRenderMonitor (aListeners);
+  }
+
+  /**
+   * @return The statistics collected so far. Never <code>null</code>.
+   */
+  @Nonnull
+  public PLRenderStatistics getStatistics ()
+  {
+    return m_aStats;
+  }
+
+  public void onDocumentStart ()
+  {
+    for (final IPLRenderListener aListener : m_aListeners)
+      aListener.onDocumentStart ();
+  }
+
+  public void onPageSetPrepared (@Nonnull final PLPageSet aPageSet,
+                                 @Nonnegative final int nPageCount,
+                                 final long nDurationNanos)
+  {
+    for (final IPLRenderListener aListener : m_aListeners)
+      aListener.onPageSetPrepared (aPageSet, nPageCount, nDurationNanos);
+  }
+
+  /**
+   * @return <code>true</code> if at least one listener wants element level
+   *         events.
+   * @see IPLRenderListener#isElementEventRequired()
+   */
+  public boolean isElementEventRequired ()
+  {
+    return m_bElementEventRequired;
+  }
+
+  /**
+   * @return A new content stream statistics object for the next page or
+   *         <code>null</code> if no listener requested them.
+   * @see IPLRenderListener#isContentStreamStatisticsRequired()
+   */
+  @Nullable
+  public PDContentStreamStatistics createContentStreamStatisticsIfRequired ()
+  {
+    return m_bContentStreamStatisticsRequired ? new PDContentStreamStatistics () : null;
+  }
+
+  public void onElementPrepared (@Nonnull final IPLRenderableObject <?> aElement)
+  {
+    ValueEnforcer.notNull (aElement, "Element");
+    m_aStats.incPreparedElement (aElement.getClass ());
+  }
+
+  public void onElementPrepared (@Nonnull final IPLRenderableObject <?> aElement,
+                                 @Nonnull final SizeSpec aAvailableSize,
+                                 @Nonnull final SizeSpec aRenderSize,
+                                 final long nDurationNanos)
+  {
+    for (final IPLRenderListener aListener : m_aListeners)
+      if (aListener.isElementEventRequired ())
+        aListener.onElementPrepared (aElement, aAvailableSize, aRenderSize, nDurationNanos);
+  }
+
+  public void onElementRendered (@Nonnull final IPLRenderableObject <?> aElement,
+                                 final float fWidth,
+                                 final float fHeight,
+                                 final long nDurationNanos)
+  {
+    for (final IPLRenderListener aListener : m_aListeners)
+      if (aListener.isElementEventRequired ())
+        aListener.onElementRendered (aElement, fWidth, fHeight, nDurationNanos);
+  }
+
+  public void onSplit (@Nonnull final IPLRenderableObject <?> aElement, final boolean bSplit, final long nDurationNanos)
+  {
+    if (bSplit)
+      m_aStats.incSplitCount ();
+    for (final IPLRenderListener aListener : m_aListeners)
+      aListener.onSplit (aElement, bSplit, nDurationNanos);
+  }
+
+  public void onFontLoaded (@Nonnull final PreloadFont aPreloadFont, final long nDurationNanos)
+  {
+    m_aStats.incLoadedFontCount ();
+    for (final IPLRenderListener aListener : m_aListeners)
+      aListener.onFontLoaded (aPreloadFont, nDurationNanos);
+  }
+
+  public void onImageEncoded (@Nonnull final IPLRenderableObject <?> aElement, final long nDurationNanos)
+  {
+    m_aStats.incEncodedImageCount ();
+    for (final IPLRenderListener aListener : m_aListeners)
+      aListener.onImageEncoded (aElement, nDurationNanos);
+  }
+
+  public void onImageCacheLookup (@Nonnull final IPLRenderableObject <?> aElement, final boolean bHit)
+  {
+    for (final IPLRenderListener aListener : m_aListeners)
+      aListener.onImageCacheLookup (aElement, bHit);
+  }
+
+  public void onPageRendered (@Nonnull final PLPageSet aPageSet,
+                              @Nonnegative final int nPageSetPageIndex,
+                              @Nonnegative final int nTotalPageIndex,
+                              @Nullable final PDContentStreamStatistics aContentStreamStats,
+                              final long nDurationNanos)
+  {
+    m_aStats.incPageCount ();
+    if (aContentStreamStats != null)
+      m_aStats.addPageContentStreamStatistics (aContentStreamStats);
+    for (final IPLRenderListener aListener : m_aListeners)
+      aListener.onPageRendered (aPageSet, nPageSetPageIndex, nTotalPageIndex, nDurationNanos);
+  }
+
+  /**
+   * Called after all content streams are final and right before the document
+   * is saved. Updates the stored bytes of the content stream statistics, as
+   * the streams may have been compressed after rendering.
+   *
+   * @see PDContentStreamStatistics#updateStoredBytes()
+   */
+  public void onContentStreamsFinished ()
+  {
+    m_aStats.updateContentStreamStoredBytes ();
+  }
+
+  public void onDocumentCustomized (final long nDurationNanos)
+  {
+    for (final IPLRenderListener aListener : m_aListeners)
+      aListener.onDocumentCustomized (nDurationNanos);
+  }
+
+  public void onDocumentSaved (final long nDurationNanos)
+  {
+    for (final IPLRenderListener aListener : m_aListeners)
+      aListener.onDocumentSaved (nDurationNanos);
+  }
+
+  public void onDocumentEnd (final long nDurationNanos)
+  {
+    for (final IPLRenderListener aListener : m_aListeners)
+      aListener.onDocumentEnd (m_aStats, nDurationNanos);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Listeners", m_aListeners).append ("Stats", m_aStats).getToString ();
+  }
+}
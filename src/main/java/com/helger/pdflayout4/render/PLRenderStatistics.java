@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.render;
+
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.mutable.MutableInt;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.pdflayout4.pdfbox.PDContentStreamStatistics;
+
+/**
+ * The counts collected while creating a single PDF document.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@NotThreadSafe
+public final class PLRenderStatistics
+{
+  private final ICommonsMap <Class <?>, MutableInt> m_aPreparedElements = new CommonsHashMap <> ();
+  private int m_nPageCount;
+  private int m_nSplitCount;
+  private int m_nLoadedFontCount;
+  private int m_nEncodedImageCount;
+  private final ICommonsList <PDContentStreamStatistics> m_aPageContentStreamStats = new CommonsArrayList <> ();
+
+  PLRenderStatistics ()
+  {}
+
+  void incPreparedElement (@Nonnull final Class <?> aClass)
+  {
+    m_aPreparedElements.computeIfAbsent (aClass, k -> new MutableInt (0)).inc ();
+  }
+
+  void incPageCount ()
+  {
+    m_nPageCount++;
+  }
+
+  void incSplitCount ()
+  {
+    m_nSplitCount++;
+  }
+
+  void incLoadedFontCount ()
+  {
+    m_nLoadedFontCount++;
+  }
+
+  void incEncodedImageCount ()
+  {
+    m_nEncodedImageCount++;
+  }
+
+  void addPageContentStreamStatistics (@Nonnull final PDContentStreamStatistics aStats)
+  {
+    m_aPageContentStreamStats.add (aStats);
+  }
+
+  void updateContentStreamStoredBytes ()
+  {
+    for (final PDContentStreamStatistics aStats : m_aPageContentStreamStats)
+      aStats.updateStoredBytes ();
+  }
+
+  /**
+   * @return The number of prepare calls per element class. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsMap <Class <?>, Integer> getAllPreparedElementCounts ()
+  {
+    final ICommonsMap <Class <?>, Integer> ret = new CommonsHashMap <> ();
+    for (final Map.Entry <Class <?>, MutableInt> aEntry : m_aPreparedElements.entrySet ())
+      ret.put (aEntry.getKey (), Integer.valueOf (aEntry.getValue ().intValue ()));
+    return ret;
+  }
+
+  /**
+   * @return The overall number of prepare calls. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getPreparedElementCount ()
+  {
+    int ret = 0;
+    for (final MutableInt aCount : m_aPreparedElements.values ())
+      ret += aCount.intValue ();
+    return ret;
+  }
+
+  /**
+   * @return The number of rendered pages. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getPageCount ()
+  {
+    return m_nPageCount;
+  }
+
+  /**
+   * @return The number of split operations. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getSplitCount ()
+  {
+    return m_nSplitCount;
+  }
+
+  /**
+   * @return The number of fonts loaded into the document. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getLoadedFontCount ()
+  {
+    return m_nLoadedFontCount;
+  }
+
+  /**
+   * @return The number of images converted to PDF images. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getEncodedImageCount ()
+  {
+    return m_nEncodedImageCount;
+  }
+
+  /**
+   * @return The content stream statistics of all rendered pages in document
+   *         order. Only filled if at least one listener requested content
+   *         stream statistics. Never <code>null</code>.
+   * @see IPLRenderListener#isContentStreamStatisticsRequired()
+   * @since 5.1.2
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <PDContentStreamStatistics> getAllPageContentStreamStatistics ()
+  {
+    return m_aPageContentStreamStats.getClone ();
+  }
+
+  /**
+   * @return The sum of the content stream statistics of all pages. Never
+   *         <code>null</code> but empty if no content stream statistics were
+   *         requested.
+   * @see #getAllPageContentStreamStatistics()
+   */
+  @Nonnull
+  public PDContentStreamStatistics getDocumentContentStreamStatistics ()
+  {
+    final PDContentStreamStatistics ret = new PDContentStreamStatistics ();
+    for (final PDContentStreamStatistics aStats : m_aPageContentStreamStats)
+      ret.addAll (aStats);
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("PreparedElements", m_aPreparedElements)
+                                       .append ("PageCount", m_nPageCount)
+                                       .append ("SplitCount", m_nSplitCount)
+                                       .append ("LoadedFontCount", m_nLoadedFontCount)
+                                       .append ("EncodedImageCount", m_nEncodedImageCount)
+                                       .append ("PageContentStreamStats", m_aPageContentStreamStats)
+                                       .getToString ();
+  }
+}
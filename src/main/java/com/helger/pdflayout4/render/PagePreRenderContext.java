@@ -33,6 +33,8 @@ import com.helger.commons.string.StringParser;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.pdflayout4.base.EPLPlaceholder;
 import com.helger.pdflayout4.base.PLPageSet;
+import com.helger.pdflayout4.element.image.PLImageEncodingPipeline;
+import com.helger.pdflayout4.element.image.PLImageOptimizer;
 
 /**
  * This class describes the index of the current page.
@@ -52,6 +54,10 @@ public class PagePreRenderContext
   private final int m_nTotalPageIndex;
   private final int m_nTotalPageCount;
   private final ICommonsOrderedMap <String, String> m_aPlaceholders = new CommonsLinkedHashMap <> ();
+  private boolean m_bAllPlaceholdersInVariableSyntax = true;
+  private final PLRenderMonitor m_aRenderMonitor;
+  private PLImageOptimizer m_aImageOptimizer;
+  private PLImageEncodingPipeline m_aImageEncodingPipeline;
 
   public PagePreRenderContext (@Nonnull final PLPageSet aPageSet,
                                @Nonnull final PDDocument aDoc,
@@ -62,7 +68,54 @@ public class PagePreRenderContext
                                @Nonnegative final int nPageSetPageCount,
                                @Nonnegative final int nTotalPageIndex,
                                @Nonnegative final int nTotalPageCount)
+  {
+    this (aPageSet,
+          aDoc,
+          aPage,
+          nPageSetIndex,
+          nPageSetCount,
+          nPageSetPageIndex,
+          nPageSetPageCount,
+          nTotalPageIndex,
+          nTotalPageCount,
+          null);
+  }
 
+  /**
+   * Constructor
+   *
+   * @param aPageSet
+   *        Current page set. May not be <code>null</code>.
+   * @param aDoc
+   *        Current document. May not be <code>null</code>.
+   * @param aPage
+   *        Current page. May not be <code>null</code>.
+   * @param nPageSetIndex
+   *        0-based page set index.
+   * @param nPageSetCount
+   *        Number of page sets.
+   * @param nPageSetPageIndex
+   *        0-based page index within the page set.
+   * @param nPageSetPageCount
+   *        Number of pages in the page set.
+   * @param nTotalPageIndex
+   *        0-based page index within the document.
+   * @param nTotalPageCount
+   *        Number of pages in the document.
+   * @param aRenderMonitor
+   *        The optional render monitor. May be <code>null</code>.
+   * @since 5.1.2
+   */
+  public PagePreRenderContext (@Nonnull final PLPageSet aPageSet,
+                               @Nonnull final PDDocument aDoc,
+                               @Nonnull final PDPage aPage,
+                               @Nonnegative final int nPageSetIndex,
+                               @Nonnegative final int nPageSetCount,
+                               @Nonnegative final int nPageSetPageIndex,
+                               @Nonnegative final int nPageSetPageCount,
+                               @Nonnegative final int nTotalPageIndex,
+                               @Nonnegative final int nTotalPageCount,
+                               @Nullable final PLRenderMonitor aRenderMonitor)
   {
     ValueEnforcer.notNull (aPageSet, "PageSet");
     ValueEnforcer.notNull (aDoc, "Document");
@@ -83,6 +136,7 @@ public class PagePreRenderContext
     m_nPageSetPageCount = nPageSetPageCount;
     m_nTotalPageIndex = nTotalPageIndex;
     m_nTotalPageCount = nTotalPageCount;
+    m_aRenderMonitor = aRenderMonitor;
 
     // Add default placeholders
     m_aPlaceholders.put (EPLPlaceholder.PAGESET_INDEX.getVariable (), Integer.toString (getPageSetIndex ()));
@@ -206,6 +260,59 @@ public class PagePreRenderContext
     return m_nTotalPageCount;
   }
 
+  /**
+   * @return The render monitor of the current document or <code>null</code> if
+   *         no render listener is present.
+   * @since 5.1.2
+   */
+  @Nullable
+  public PLRenderMonitor getRenderMonitor ()
+  {
+    return m_aRenderMonitor;
+  }
+
+  /**
+   * @return The image optimizer of the document. May be <code>null</code>.
+   * @since 5.1.2
+   */
+  @Nullable
+  public PLImageOptimizer getImageOptimizer ()
+  {
+    return m_aImageOptimizer;
+  }
+
+  /**
+   * @param aImageOptimizer
+   *        The image optimizer of the document. May be <code>null</code>.
+   * @since 5.1.2
+   */
+  public void setImageOptimizer (@Nullable final PLImageOptimizer aImageOptimizer)
+  {
+    m_aImageOptimizer = aImageOptimizer;
+  }
+
+  /**
+   * @return The pipeline with the images encoded in the background. May be
+   *         <code>null</code>.
+   * @since 5.1.2
+   */
+  @Nullable
+  public PLImageEncodingPipeline getImageEncodingPipeline ()
+  {
+    return m_aImageEncodingPipeline;
+  }
+
+  /**
+   * @param aImageEncodingPipeline
+   *        The pipeline with the images encoded in the background. May be
+   *        <code>null</code>.
+   * @since 5.1.2
+   */
+  public void setImageEncodingPipeline (@Nullable final PLImageEncodingPipeline aImageEncodingPipeline)
+  {
+    m_aImageEncodingPipeline = aImageEncodingPipeline;
+  }
+
   @Nonnull
   @ReturnsMutableCopy
   public ICommonsOrderedMap <String, String> getAllPlaceholders ()
@@ -234,6 +341,20 @@ public class PagePreRenderContext
     ValueEnforcer.notEmpty (sKey, "Key");
     ValueEnforcer.notNull (sValue, "Value");
     m_aPlaceholders.put (sKey, sValue);
+    if (!sKey.startsWith ("${") || sKey.indexOf ("${", 2) >= 0 || sKey.indexOf ('}') != sKey.length () - 1)
+      m_bAllPlaceholdersInVariableSyntax = false;
+  }
+
+  /**
+   * @return <code>true</code> if all placeholder keys have the form
+   *         <code>${name}</code> like the ones from {@link EPLPlaceholder}. In
+   *         this case placeholders can be located in a text without knowing
+   *         the keys.
+   * @since 5.1.2
+   */
+  public boolean isAllPlaceholdersInVariableSyntax ()
+  {
+    return m_bAllPlaceholdersInVariableSyntax;
   }
 
   @Override
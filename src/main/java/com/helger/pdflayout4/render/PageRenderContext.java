@@ -17,6 +17,7 @@
 package com.helger.pdflayout4.render;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -38,6 +39,7 @@ public final class PageRenderContext
   private final float m_fStartTop;
   private final float m_fWidth;
   private final float m_fHeight;
+  private final PLRenderMonitor m_aRenderMonitor;
 
   /**
    * @param aCtx
@@ -59,7 +61,13 @@ public final class PageRenderContext
                             final float fWidth,
                             final float fHeight)
   {
-    this (aCtx.getElementType (), aCtx.getContentStream (), fStartLeft, fStartTop, fWidth, fHeight);
+    this (aCtx.getElementType (),
+          aCtx.getContentStream (),
+          fStartLeft,
+          fStartTop,
+          fWidth,
+          fHeight,
+          aCtx.getRenderMonitor ());
   }
 
   /**
@@ -84,6 +92,37 @@ public final class PageRenderContext
                             final float fStartTop,
                             final float fWidth,
                             final float fHeight)
+  {
+    this (eElementType, aCS, fStartLeft, fStartTop, fWidth, fHeight, null);
+  }
+
+  /**
+   * @param eElementType
+   *        Element type. May not be <code>null</code>.
+   * @param aCS
+   *        Page content stream. May not be <code>null</code>.
+   * @param fStartLeft
+   *        Absolute page x-start position of the element. Does not contain
+   *        margin, padding or border of the element to be rendered.
+   * @param fStartTop
+   *        Absolute page y-start position of the element. Does not contain
+   *        margin, padding or border of the element to be rendered.
+   * @param fWidth
+   *        available width determined from the surrounding element
+   * @param fHeight
+   *        available height determined from the surrounding element
+   * @param aRenderMonitor
+   *        The render monitor of the current document. May be
+   *        <code>null</code>.
+   * @since 5.1.2
+   */
+  public PageRenderContext (@Nonnull final ERenderingElementType eElementType,
+                            @Nonnull final PDPageContentStreamWithCache aCS,
+                            final float fStartLeft,
+                            final float fStartTop,
+                            final float fWidth,
+                            final float fHeight,
+                            @Nullable final PLRenderMonitor aRenderMonitor)
   {
     ValueEnforcer.notNull (eElementType, "ElementType");
     ValueEnforcer.notNull (aCS, "ContentStream");
@@ -97,6 +136,7 @@ public final class PageRenderContext
     m_fStartTop = fStartTop;
     m_fWidth = fWidth;
     m_fHeight = fHeight;
+    m_aRenderMonitor = aRenderMonitor;
   }
 
   /**
@@ -160,4 +200,15 @@ public final class PageRenderContext
   {
     return m_fHeight;
   }
+
+  /**
+   * @return The render monitor of the current document. May be
+   *         <code>null</code> if no render listener is present.
+   * @since 5.1.2
+   */
+  @Nullable
+  public PLRenderMonitor getRenderMonitor ()
+  {
+    return m_aRenderMonitor;
+  }
 }
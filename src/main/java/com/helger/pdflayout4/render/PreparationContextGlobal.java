@@ -19,6 +19,7 @@ package com.helger.pdflayout4.render;
 import java.io.IOException;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -27,6 +28,7 @@ import com.helger.commons.ValueEnforcer;
 import com.helger.commons.collection.impl.CommonsHashMap;
 import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.pdflayout4.debug.PLDebugLog;
+import com.helger.pdflayout4.jfr.PLJFR;
 import com.helger.pdflayout4.spec.FontSpec;
 import com.helger.pdflayout4.spec.LoadedFont;
 import com.helger.pdflayout4.spec.PreloadFont;
@@ -43,6 +45,11 @@ public final class PreparationContextGlobal
 {
   private final PDDocument m_aDoc;
   private final ICommonsMap <PreloadFont, LoadedFont> m_aFontCache = new CommonsHashMap <> ();
+  private PLPrepareCache m_aPrepareCache;
+  private PLRenderMonitor m_aRenderMonitor;
+  private PLCancellationCheck m_aCancellationCheck;
+  private int m_nMaxPageCount;
+  private int m_nPageCount;
 
   /**
    * Constructor
@@ -66,6 +73,136 @@ public final class PreparationContextGlobal
     return m_aDoc;
   }
 
+  /**
+   * @return <code>true</code> if prepare results of structurally identical
+   *         elements are shared, <code>false</code> if not. The default is
+   *         <code>false</code>.
+   * @since 5.1.2
+   */
+  public boolean isPrepareCacheEnabled ()
+  {
+    return m_aPrepareCache != null;
+  }
+
+  /**
+   * Enable or disable sharing of prepare results of structurally identical
+   * elements. Disabling drops all cached results.
+   *
+   * @param bEnabled
+   *        <code>true</code> to enable, <code>false</code> to disable.
+   * @return this for chaining
+   * @since 5.1.2
+   */
+  @Nonnull
+  public PreparationContextGlobal setPrepareCacheEnabled (final boolean bEnabled)
+  {
+    if (bEnabled)
+    {
+      if (m_aPrepareCache == null)
+        m_aPrepareCache = new PLPrepareCache ();
+    }
+    else
+      m_aPrepareCache = null;
+    return this;
+  }
+
+  /**
+   * @return The prepare cache or <code>null</code> if it is not enabled.
+   * @since 5.1.2
+   */
+  @Nullable
+  public PLPrepareCache getPrepareCache ()
+  {
+    return m_aPrepareCache;
+  }
+
+  /**
+   * @return The render monitor of the current document or <code>null</code> if
+   *         no render listener is present.
+   * @since 5.1.2
+   */
+  @Nullable
+  public PLRenderMonitor getRenderMonitor ()
+  {
+    return m_aRenderMonitor;
+  }
+
+  /**
+   * @param aRenderMonitor
+   *        The render monitor to be used. May be <code>null</code>.
+   * @return this for chaining
+   * @since 5.1.2
+   */
+  @Nonnull
+  public PreparationContextGlobal setRenderMonitor (@Nullable final PLRenderMonitor aRenderMonitor)
+  {
+    m_aRenderMonitor = aRenderMonitor;
+    return this;
+  }
+
+  /**
+   * @return The cancellation check of the current document or
+   *         <code>null</code> if neither cancellation token nor timeout are
+   *         present.
+   * @since 5.1.2
+   */
+  @Nullable
+  public PLCancellationCheck getCancellationCheck ()
+  {
+    return m_aCancellationCheck;
+  }
+
+  /**
+   * @param aCancellationCheck
+   *        The cancellation check to be used. May be <code>null</code>.
+   * @return this for chaining
+   * @since 5.1.2
+   */
+  @Nonnull
+  public PreparationContextGlobal setCancellationCheck (@Nullable final PLCancellationCheck aCancellationCheck)
+  {
+    m_aCancellationCheck = aCancellationCheck;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of pages of the whole document. A value &le; 0
+   *         means unlimited.
+   * @since 5.1.2
+   */
+  public int getMaxPageCount ()
+  {
+    return m_nMaxPageCount;
+  }
+
+  /**
+   * @param nMaxPageCount
+   *        The maximum number of pages of the whole document. A value &le; 0
+   *        means unlimited.
+   * @return this for chaining
+   * @since 5.1.2
+   */
+  @Nonnull
+  public PreparationContextGlobal setMaxPageCount (final int nMaxPageCount)
+  {
+    m_nMaxPageCount = nMaxPageCount;
+    return this;
+  }
+
+  /**
+   * Must be called for every page created by any page set of the document.
+   *
+   * @throws PLRenderLimitExceededException
+   *         if the maximum page count is exceeded
+   * @since 5.1.2
+   */
+  public void onPageCreated ()
+  {
+    m_nPageCount++;
+    if (m_nMaxPageCount > 0 && m_nPageCount > m_nMaxPageCount)
+      throw new PLRenderLimitExceededException ("The document has more than " + m_nMaxPageCount + " pages");
+  }
+
   @Nonnull
   public LoadedFont getLoadedFont (@Nonnull final FontSpec aFontSpec) throws IOException
   {
@@ -76,8 +213,15 @@ public final class PreparationContextGlobal
       if (PLDebugLog.isDebugFont ())
         PLDebugLog.debugFont (aPreloadFont.toString (), "Loading into current document");
 
-      aLoadedFont = new LoadedFont (aPreloadFont.loadPDFont (m_aDoc), aPreloadFont.getFallbackCodePoint ());
+      final long nStartNanos = m_aRenderMonitor == null ? 0 : System.nanoTime ();
+      final Object aJFREvent = PLJFR.beginFontLoad ();
+      aLoadedFont = new LoadedFont (aPreloadFont.loadPDFont (m_aDoc),
+                                    aPreloadFont.getFallbackCodePoint (),
+                                    aPreloadFont.getID ());
       m_aFontCache.put (aPreloadFont, aLoadedFont);
+      PLJFR.endFontLoad (aJFREvent, aPreloadFont);
+      if (m_aRenderMonitor != null)
+        m_aRenderMonitor.onFontLoaded (aPreloadFont, System.nanoTime () - nStartNanos);
     }
     return aLoadedFont;
   }
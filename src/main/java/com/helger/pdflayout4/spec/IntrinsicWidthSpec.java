@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.spec;
+
+import java.io.Serializable;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.MustImplementEqualsAndHashcode;
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * This class defines the intrinsic width of the content of an element, as
+ * determined without preparing it:
+ * <ul>
+ * <li>min width - the smallest width the content can be layouted in without
+ * overflow (e.g. the longest word of a text)</li>
+ * <li>max width - the width the content uses if unlimited width is available
+ * (e.g. the longest line of a text)</li>
+ * </ul>
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@Immutable
+@MustImplementEqualsAndHashcode
+public class IntrinsicWidthSpec implements Serializable
+{
+  public static final IntrinsicWidthSpec WIDTH0 = new IntrinsicWidthSpec (0, 0);
+
+  private final float m_fMinWidth;
+  private final float m_fMaxWidth;
+
+  /**
+   * Constructor
+   *
+   * @param fMinWidth
+   *        Minimum width. Must be &ge; 0.
+   * @param fMaxWidth
+   *        Maximum width. Must be &ge; min width.
+   */
+  public IntrinsicWidthSpec (@Nonnegative final float fMinWidth, @Nonnegative final float fMaxWidth)
+  {
+    ValueEnforcer.isGE0 (fMinWidth, "MinWidth");
+    ValueEnforcer.isTrue (fMaxWidth >= fMinWidth, () -> "MaxWidth " + fMaxWidth + " is smaller than MinWidth");
+    m_fMinWidth = fMinWidth;
+    m_fMaxWidth = fMaxWidth;
+  }
+
+  /**
+   * @return The minimum content width. Always &ge; 0.
+   */
+  @Nonnegative
+  public final float getMinWidth ()
+  {
+    return m_fMinWidth;
+  }
+
+  /**
+   * @return The maximum content width. Always &ge; min width.
+   */
+  @Nonnegative
+  public final float getMaxWidth ()
+  {
+    return m_fMaxWidth;
+  }
+
+  @Nonnull
+  @CheckReturnValue
+  public IntrinsicWidthSpec plus (final float fWidth)
+  {
+    return new IntrinsicWidthSpec (m_fMinWidth + fWidth, m_fMaxWidth + fWidth);
+  }
+
+  /**
+   * Combine this with the intrinsic width of a horizontally adjacent element.
+   *
+   * @param aOther
+   *        The other intrinsic width. May not be <code>null</code>.
+   * @return The sum of both min and max widths. Never <code>null</code>.
+   */
+  @Nonnull
+  @CheckReturnValue
+  public IntrinsicWidthSpec plus (@Nonnull final IntrinsicWidthSpec aOther)
+  {
+    return new IntrinsicWidthSpec (m_fMinWidth + aOther.m_fMinWidth, m_fMaxWidth + aOther.m_fMaxWidth);
+  }
+
+  /**
+   * Combine this with the intrinsic width of a vertically adjacent element.
+   *
+   * @param aOther
+   *        The other intrinsic width. May not be <code>null</code>.
+   * @return The maximum of both min and max widths. Never <code>null</code>.
+   */
+  @Nonnull
+  @CheckReturnValue
+  public IntrinsicWidthSpec max (@Nonnull final IntrinsicWidthSpec aOther)
+  {
+    return new IntrinsicWidthSpec (Math.max (m_fMinWidth, aOther.m_fMinWidth),
+                                   Math.max (m_fMaxWidth, aOther.m_fMaxWidth));
+  }
+
+  /**
+   * Limit min and max width to the provided range.
+   *
+   * @param fLowerBound
+   *        The lower bound of both values.
+   * @param fUpperBound
+   *        The upper bound of both values.
+   * @return The clamped widths. Never <code>null</code>.
+   */
+  @Nonnull
+  @CheckReturnValue
+  public IntrinsicWidthSpec getClamped (final float fLowerBound, final float fUpperBound)
+  {
+    final float fMinWidth = Math.min (fUpperBound, Math.max (fLowerBound, m_fMinWidth));
+    final float fMaxWidth = Math.min (fUpperBound, Math.max (fLowerBound, m_fMaxWidth));
+    if (EqualsHelper.equals (fMinWidth, m_fMinWidth) && EqualsHelper.equals (fMaxWidth, m_fMaxWidth))
+      return this;
+    return new IntrinsicWidthSpec (fMinWidth, fMaxWidth);
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (this == o)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final IntrinsicWidthSpec rhs = (IntrinsicWidthSpec) o;
+    return EqualsHelper.equals (m_fMinWidth, rhs.m_fMinWidth) && EqualsHelper.equals (m_fMaxWidth, rhs.m_fMaxWidth);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_fMinWidth).append (m_fMaxWidth).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("MinWidth", m_fMinWidth)
+                                       .append ("MaxWidth", m_fMaxWidth)
+                                       .getToString ();
+  }
+
+  /**
+   * Create an intrinsic width for content with a fixed width.
+   *
+   * @param fWidth
+   *        The fixed width. Must be &ge; 0.
+   * @return Never <code>null</code>.
+   */
+  @Nonnull
+  public static IntrinsicWidthSpec fixed (@Nonnegative final float fWidth)
+  {
+    return new IntrinsicWidthSpec (fWidth, fWidth);
+  }
+}
@@ -117,6 +117,8 @@ public class LoadedFont
    * contained
    */
   private final int m_nFallbackCodePoint;
+  /** The ID of the font for the process wide text layout cache */
+  private final String m_sLayoutCacheFontID;
   // Status vars
   private final float m_fBBHeight;
   private final float m_fDescent;
@@ -125,10 +127,31 @@ public class LoadedFont
   private final IntFloatMap m_aCodePointWidthCache = new IntFloatMap ();
 
   public LoadedFont (@Nonnull final PDFont aFont, final int nFallbackCodePoint)
+  {
+    this (aFont, nFallbackCodePoint, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aFont
+   *        The underlying font. May not be <code>null</code>.
+   * @param nFallbackCodePoint
+   *        The fallback code point for unmappable characters.
+   * @param sLayoutCacheFontID
+   *        The ID of the font (e.g. the {@link PreloadFont} ID) that is used as
+   *        part of the key in the {@link TextLayoutCache}. If it is
+   *        <code>null</code> the text layout cache is not used.
+   * @since 5.1.2
+   */
+  public LoadedFont (@Nonnull final PDFont aFont,
+                     final int nFallbackCodePoint,
+                     @Nullable final String sLayoutCacheFontID)
   {
     ValueEnforcer.notNull (aFont, "Font");
     m_aFont = aFont;
     m_nFallbackCodePoint = nFallbackCodePoint;
+    m_sLayoutCacheFontID = sLayoutCacheFontID;
 
     PDFontDescriptor aFD = aFont.getFontDescriptor ();
     if (aFD == null)
@@ -386,6 +409,21 @@ public class LoadedFont
     ValueEnforcer.isGT0 (fFontSize, "FontSize");
     ValueEnforcer.isGT0 (fMaxWidth, "MaxWidth");
 
+    // Was the same text already fitted (maybe in another document)?
+    final TextLayoutCache aCache = TextLayoutCache.getInstance ();
+    final Object aCacheKey = m_sLayoutCacheFontID == null ? null
+                                                          : aCache.createKey (m_sLayoutCacheFontID,
+                                                                              m_nFallbackCodePoint,
+                                                                              fFontSize,
+                                                                              fMaxWidth,
+                                                                              StringHelper.getNotNull (sText));
+    if (aCacheKey != null)
+    {
+      final TextAndWidthSpec [] aCachedLines = aCache.get (aCacheKey);
+      if (aCachedLines != null)
+        return new CommonsArrayList <> (aCachedLines);
+    }
+
     // First split by the contained line breaks
     // In the constructor we ensured that only "\n" is used
     final String [] aLines = StringHelper.getExplodedArray ('\n', sText);
@@ -394,9 +432,65 @@ public class LoadedFont
     for (final String sLine : aLines)
       _getLineFitToWidthForward (sLine, fFontSize, fMaxWidth, ret);
 
+    if (aCacheKey != null)
+      aCache.put (aCacheKey, ret.toArray (new TextAndWidthSpec [ret.size ()]));
+
     return ret;
   }
 
+  /**
+   * Determine the intrinsic width of the passed text without fitting it into a
+   * certain width. The minimum width is the width of the longest word, the
+   * maximum width is the width of the longest line. The widths are calculated
+   * exactly as in {@link #getFitToWidth(String, float, float)}, so a text that
+   * is fitted into its maximum width will result in the same line widths.
+   *
+   * @param sText
+   *        Text to measure. May be <code>null</code>.
+   * @param fFontSize
+   *        Font size to use. Must be &gt; 0.
+   * @return The intrinsic width of the text. Never <code>null</code>.
+   * @throws IOException
+   *         In case of a PDFBox error
+   * @since 5.1.2
+   */
+  @Nonnull
+  public IntrinsicWidthSpec getIntrinsicWidth (@Nullable final String sText,
+                                               @Nonnegative final float fFontSize) throws IOException
+  {
+    ValueEnforcer.isGT0 (fFontSize, "FontSize");
+
+    float fMaxWordWidth = 0;
+    float fMaxLineWidth = 0;
+    // In the constructor we ensured that only "\n" is used
+    for (final String sLine : StringHelper.getExplodedArray ('\n', sText))
+    {
+      float fLineWidth = 0;
+      float fWordWidth = 0;
+      int nCodePointOffset = 0;
+      while (nCodePointOffset < sLine.length ())
+      {
+        final int nCodePoint = sLine.codePointAt (nCodePointOffset);
+        nCodePointOffset += Character.charCount (nCodePoint);
+
+        final float fCodePointWidth = PLConvert.getWidthForFontSize (_getCodePointWidth (nCodePoint), fFontSize);
+        fLineWidth += fCodePointWidth;
+        if (Character.isWhitespace (nCodePoint))
+        {
+          // Word break
+          fMaxWordWidth = Math.max (fMaxWordWidth, fWordWidth);
+          fWordWidth = 0;
+        }
+        else
+          fWordWidth += fCodePointWidth;
+      }
+      fMaxWordWidth = Math.max (fMaxWordWidth, fWordWidth);
+      fMaxLineWidth = Math.max (fMaxLineWidth, fLineWidth);
+    }
+    // Avoid rounding issues
+    return new IntrinsicWidthSpec (Math.min (fMaxWordWidth, fMaxLineWidth), fMaxLineWidth);
+  }
+
   @Override
   public boolean equals (final Object o)
   {
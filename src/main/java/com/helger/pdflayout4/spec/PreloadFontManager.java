@@ -127,13 +127,19 @@ public class PreloadFontManager implements IPreloadFontResolver
   public PreloadFont getOrAddEmbeddingPreloadFont (@Nonnull final IFontResource aFontRes)
   {
     ValueEnforcer.notNull (aFontRes, "FontRes");
-    PreloadFont aPreloadFont = getPreloadFontOfID (aFontRes);
-    if (aPreloadFont == null)
-    {
-      aPreloadFont = PreloadFont.createEmbedding (aFontRes);
-      addPreloadFont (aPreloadFont);
-    }
-    return aPreloadFont;
+    final PreloadFont aPreloadFont = getPreloadFontOfID (aFontRes);
+    if (aPreloadFont != null)
+      return aPreloadFont;
+
+    // Check again in the write lock, as this may be called concurrently
+    final PreloadFont aNewPreloadFont = PreloadFont.createEmbedding (aFontRes);
+    return m_aRWLock.writeLockedGet ( () -> {
+      final PreloadFont aExisting = m_aMap.get (aNewPreloadFont.getID ());
+      if (aExisting != null)
+        return aExisting;
+      m_aMap.put (aNewPreloadFont.getID (), aNewPreloadFont);
+      return aNewPreloadFont;
+    });
   }
 
   @Nullable
@@ -0,0 +1,354 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.spec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A process wide, size limited cache for the results of
+ * {@link LoadedFont#getFitToWidth(String, float, float)}. The key consists of
+ * the {@link PreloadFont} ID, the fallback code point, the font size, the
+ * maximum width and the text. Because the line fitting only depends on the
+ * glyph widths of the font, the results can be shared across documents and
+ * threads.<br>
+ * The cache is disabled by default and must be enabled explicitly via
+ * {@link #setMaxSize(int)}. Lookups don't lock. If the maximum size is
+ * exceeded, entries are evicted in a batch in an approximated least recently
+ * used order: out of each small sample of entries the least recently used one
+ * is removed. The maximum size may be exceeded temporarily by concurrent
+ * writers.
+ *
+ * @author Philip Helger
+ * @since 5.1.2
+ */
+@ThreadSafe
+public final class TextLayoutCache
+{
+  /** The default maximum number of cached texts - disabled */
+  public static final int DEFAULT_MAX_SIZE = 0;
+  /** The default maximum length of a text to be cached */
+  public static final int DEFAULT_MAX_TEXT_LENGTH = 1024;
+
+  @Immutable
+  private static final class Key
+  {
+    private final String m_sFontID;
+    private final int m_nFallbackCodePoint;
+    private final float m_fFontSize;
+    private final float m_fMaxWidth;
+    private final String m_sText;
+    private final int m_nHashCode;
+
+    Key (@Nonnull final String sFontID,
+         final int nFallbackCodePoint,
+         final float fFontSize,
+         final float fMaxWidth,
+         @Nonnull final String sText)
+    {
+      m_sFontID = sFontID;
+      m_nFallbackCodePoint = nFallbackCodePoint;
+      m_fFontSize = fFontSize;
+      m_fMaxWidth = fMaxWidth;
+      m_sText = sText;
+      // Keys are looked up more than once
+      m_nHashCode = new HashCodeGenerator (this).append (sFontID)
+                                                .append (nFallbackCodePoint)
+                                                .append (fFontSize)
+                                                .append (fMaxWidth)
+                                                .append (sText)
+                                                .getHashCode ();
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (o == null || !getClass ().equals (o.getClass ()))
+        return false;
+      final Key rhs = (Key) o;
+      return m_nHashCode == rhs.m_nHashCode &&
+             m_sFontID.equals (rhs.m_sFontID) &&
+             m_nFallbackCodePoint == rhs.m_nFallbackCodePoint &&
+             EqualsHelper.equals (m_fFontSize, rhs.m_fFontSize) &&
+             EqualsHelper.equals (m_fMaxWidth, rhs.m_fMaxWidth) &&
+             m_sText.equals (rhs.m_sText);
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return m_nHashCode;
+    }
+  }
+
+  private static final class Value
+  {
+    private final TextAndWidthSpec [] m_aLines;
+    // Updated by concurrent readers without compare-and-set - if two readers
+    // race, either time stamp is good enough for the eviction order
+    private volatile long m_nLastAccess;
+
+    Value (@Nonnull final TextAndWidthSpec [] aLines)
+    {
+      m_aLines = aLines;
+      m_nLastAccess = System.nanoTime ();
+    }
+  }
+
+  // The number of entries compared per evicted entry
+  private static final int EVICTION_SAMPLE_SIZE = 8;
+
+  private static final TextLayoutCache INSTANCE = new TextLayoutCache ();
+
+  private volatile int m_nMaxSize = DEFAULT_MAX_SIZE;
+  private volatile int m_nMaxTextLength = DEFAULT_MAX_TEXT_LENGTH;
+  private final Map <Key, Value> m_aMap = new ConcurrentHashMap <> ();
+  private final AtomicBoolean m_aEvicting = new AtomicBoolean (false);
+  private final LongAdder m_aHits = new LongAdder ();
+  private final LongAdder m_aMisses = new LongAdder ();
+
+  private TextLayoutCache ()
+  {}
+
+  /**
+   * @return The global instance. Never <code>null</code>.
+   */
+  @Nonnull
+  public static TextLayoutCache getInstance ()
+  {
+    return INSTANCE;
+  }
+
+  /**
+   * @return The maximum number of cached texts. Always &ge; 0. 0 means the
+   *         cache is disabled, which is the default.
+   */
+  @Nonnegative
+  public int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * Set the maximum number of cached texts. If the new size is smaller than the
+   * current number of entries, the approximately least recently used entries
+   * are removed.
+   *
+   * @param nMaxSize
+   *        The maximum number of entries. Must be &ge; 0. 0 disables the cache
+   *        and removes all entries.
+   */
+  public void setMaxSize (@Nonnegative final int nMaxSize)
+  {
+    ValueEnforcer.isGE0 (nMaxSize, "MaxSize");
+    m_nMaxSize = nMaxSize;
+    if (nMaxSize == 0)
+      m_aMap.clear ();
+    else
+      _evictIfNecessary ();
+  }
+
+  /**
+   * @return <code>true</code> if the cache is enabled, <code>false</code> if
+   *         not.
+   */
+  public boolean isEnabled ()
+  {
+    return m_nMaxSize > 0;
+  }
+
+  /**
+   * @return The maximum length of texts to be cached. Longer texts are always
+   *         fitted from scratch. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getMaxTextLength ()
+  {
+    return m_nMaxTextLength;
+  }
+
+  /**
+   * @param nMaxTextLength
+   *        The maximum length of texts to be cached. Must be &ge; 0.
+   */
+  public void setMaxTextLength (@Nonnegative final int nMaxTextLength)
+  {
+    ValueEnforcer.isGE0 (nMaxTextLength, "MaxTextLength");
+    m_nMaxTextLength = nMaxTextLength;
+  }
+
+  /**
+   * @return The number of currently cached texts. Always &ge; 0.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aMap.size ();
+  }
+
+  /**
+   * @return The number of successful lookups since the last
+   *         {@link #clear()}.
+   */
+  @Nonnegative
+  public long getHitCount ()
+  {
+    return m_aHits.sum ();
+  }
+
+  /**
+   * @return The number of unsuccessful lookups since the last
+   *         {@link #clear()}.
+   */
+  @Nonnegative
+  public long getMissCount ()
+  {
+    return m_aMisses.sum ();
+  }
+
+  /**
+   * Remove all entries and reset the statistics.
+   */
+  public void clear ()
+  {
+    m_aMap.clear ();
+    m_aHits.reset ();
+    m_aMisses.reset ();
+  }
+
+  /**
+   * Remove entries if the maximum size is exceeded. Only one thread evicts at a
+   * time, and it removes 10% more entries than necessary, so that this does
+   * not happen on every put. Instead of sorting all entries, the map is
+   * iterated in samples of {@link #EVICTION_SAMPLE_SIZE} entries and the least
+   * recently used entry of each sample is removed. As the iteration order of
+   * the map does not depend on the access time, this approximates a least
+   * recently used order with linear effort.
+   */
+  private void _evictIfNecessary ()
+  {
+    final int nMaxSize = m_nMaxSize;
+    if (m_aMap.size () <= nMaxSize)
+      return;
+    if (!m_aEvicting.compareAndSet (false, true))
+    {
+      // Another thread is already evicting
+      return;
+    }
+    try
+    {
+      final int nTargetSize = nMaxSize - nMaxSize / 10;
+      int nToRemove = m_aMap.size () - nTargetSize;
+      while (nToRemove > 0)
+      {
+        // Smaller samples if only few entries are left
+        final int nSampleSize = Math.min (EVICTION_SAMPLE_SIZE, m_aMap.size ());
+        if (nSampleSize == 0)
+          break;
+
+        int nSampled = 0;
+        Map.Entry <Key, Value> aOldest = null;
+        for (final Map.Entry <Key, Value> aEntry : m_aMap.entrySet ())
+        {
+          if (aOldest == null || aEntry.getValue ().m_nLastAccess - aOldest.getValue ().m_nLastAccess < 0)
+            aOldest = aEntry;
+          if (++nSampled == nSampleSize)
+          {
+            if (m_aMap.remove (aOldest.getKey (), aOldest.getValue ()))
+              nToRemove--;
+            if (nToRemove <= 0)
+              break;
+            nSampled = 0;
+            aOldest = null;
+          }
+        }
+        // Entries may have been removed concurrently (e.g. by clear)
+        nToRemove = Math.min (nToRemove, m_aMap.size () - nTargetSize);
+      }
+    }
+    finally
+    {
+      m_aEvicting.set (false);
+    }
+  }
+
+  /**
+   * Create the cache key for a text.
+   *
+   * @return <code>null</code> if the cache is disabled or the text is too long
+   *         to be cached.
+   */
+  @Nullable
+  Object createKey (@Nonnull final String sFontID,
+                    final int nFallbackCodePoint,
+                    final float fFontSize,
+                    final float fMaxWidth,
+                    @Nonnull final String sText)
+  {
+    if (m_nMaxSize <= 0 || sText.length () > m_nMaxTextLength)
+      return null;
+    return new Key (sFontID, nFallbackCodePoint, fFontSize, fMaxWidth, sText);
+  }
+
+  @Nullable
+  TextAndWidthSpec [] get (@Nonnull final Object aKey)
+  {
+    final Value aValue = m_aMap.get (aKey);
+    if (aValue == null)
+    {
+      m_aMisses.increment ();
+      return null;
+    }
+    aValue.m_nLastAccess = System.nanoTime ();
+    m_aHits.increment ();
+    return aValue.m_aLines;
+  }
+
+  void put (@Nonnull final Object aKey, @Nonnull final TextAndWidthSpec [] aLines)
+  {
+    if (m_nMaxSize <= 0)
+      return;
+    m_aMap.put ((Key) aKey, new Value (aLines));
+    _evictIfNecessary ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Size", size ())
+                                       .append ("MaxSize", getMaxSize ())
+                                       .append ("MaxTextLength", getMaxTextLength ())
+                                       .append ("Hits", getHitCount ())
+                                       .append ("Misses", getMissCount ())
+                                       .getToString ();
+  }
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.pdfbox.pdmodel;
 
+import java.io.IOException;
+
 import javax.annotation.Nonnull;
 
 import org.apache.pdfbox.pdmodel.font.PDFont;
@@ -38,4 +40,23 @@ public final class PDDocumentHelper
       aDoc.getFontsToSubset ().add (aFont);
     }
   }
+
+  /**
+   * Subset all fonts designated for subsetting, as done by
+   * {@link PDDocument#save(java.io.OutputStream)}. This must be called by
+   * custom writers before the document is serialized.
+   *
+   * @param aDoc
+   *        The document to subset the fonts of. May not be <code>null</code>.
+   * @throws IOException
+   *         If subsetting fails
+   * @since 5.1.2
+   */
+  public static void subsetDesignatedFonts (@Nonnull final PDDocument aDoc) throws IOException
+  {
+    // getFontsToSubset is package private
+    for (final PDFont aFont : aDoc.getFontsToSubset ())
+      aFont.subset ();
+    aDoc.getFontsToSubset ().clear ();
+  }
 }
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.pdflayout4.base.PLPageSet;
+import com.helger.pdflayout4.element.text.PLText;
+import com.helger.pdflayout4.spec.FontSpec;
+import com.helger.pdflayout4.spec.PreloadFont;
+
+/**
+ * Test class for class {@link PLAsyncRenderer}.
+ *
+ * @author Philip Helger
+ */
+public final class PLAsyncRendererTest
+{
+  @Nonnull
+  private static PageLayoutPDF _createPageLayout (final int nIndex)
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.addElement (new PLText ("Document " + nIndex, new FontSpec (PreloadFont.REGULAR, 10)));
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    return aPageLayout;
+  }
+
+  @Test
+  public void testBasic ()
+  {
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    try
+    {
+      final PLAsyncRenderer aRenderer = new PLAsyncRenderer (aES, 2);
+      final ICommonsList <CompletableFuture <PLRenderResult>> aFutures = new CommonsArrayList <> ();
+      final ICommonsList <NonBlockingByteArrayOutputStream> aOutputs = new CommonsArrayList <> ();
+      for (int i = 0; i < 10; ++i)
+      {
+        final NonBlockingByteArrayOutputStream aOS = new NonBlockingByteArrayOutputStream ();
+        aOutputs.add (aOS);
+        aFutures.add (aRenderer.render (_createPageLayout (i), aOS));
+      }
+      CompletableFuture.allOf (aFutures.toArray (new CompletableFuture <?> [0])).join ();
+
+      assertEquals (10, aRenderer.getCompletedCount ());
+      assertEquals (0, aRenderer.getFailedCount ());
+      assertEquals (0, aRenderer.getInFlightCount ());
+      assertEquals (0, aRenderer.getQueueLength ());
+      for (final NonBlockingByteArrayOutputStream aOS : aOutputs)
+        assertTrue (aOS.size () > 0);
+    }
+    finally
+    {
+      aES.shutdown ();
+    }
+  }
+
+  @Test
+  public void testCancelWhileQueued ()
+  {
+    // Executor that only runs jobs on request
+    final ICommonsList <Runnable> aPending = new CommonsArrayList <> ();
+    final PLAsyncRenderer aRenderer = new PLAsyncRenderer (aPending::add, 1);
+
+    final CompletableFuture <PLRenderResult> aFuture1 = aRenderer.render (_createPageLayout (1),
+                                                                          new NonBlockingByteArrayOutputStream ());
+    final AtomicBoolean aClosed = new AtomicBoolean (false);
+    final FilterOutputStream aOS2 = new FilterOutputStream (new NonBlockingByteArrayOutputStream ())
+    {
+      @Override
+      public void close () throws IOException
+      {
+        aClosed.set (true);
+        super.close ();
+      }
+    };
+    final CompletableFuture <PLRenderResult> aFuture2 = aRenderer.render (_createPageLayout (2), aOS2);
+    assertEquals (1, aPending.size ());
+    assertEquals (1, aRenderer.getInFlightCount ());
+    assertEquals (1, aRenderer.getQueueLength ());
+
+    // Cancel the waiting job
+    assertTrue (aFuture2.cancel (true));
+    assertEquals (0, aRenderer.getQueueLength ());
+    assertEquals (1, aRenderer.getFailedCount ());
+    assertTrue (aClosed.get ());
+
+    // Finish the first job - the cancelled one must not be started
+    aPending.removeFirst ().run ();
+    assertTrue (aFuture1.isDone ());
+    assertFalse (aFuture1.isCompletedExceptionally ());
+    assertTrue (aPending.isEmpty ());
+    assertEquals (0, aRenderer.getInFlightCount ());
+    assertEquals (1, aRenderer.getCompletedCount ());
+    assertEquals (1, aRenderer.getFailedCount ());
+  }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.pdflayout4.base.PLPageSet;
+import com.helger.pdflayout4.element.image.PLEncodedImageCache;
+import com.helger.pdflayout4.element.image.PLImage;
+import com.helger.pdflayout4.element.text.PLText;
+import com.helger.pdflayout4.spec.FontSpec;
+import com.helger.pdflayout4.spec.PreloadFont;
+
+/**
+ * Test class for class {@link PLBatchRenderer}.
+ *
+ * @author Philip Helger
+ */
+public final class PLBatchRendererTest
+{
+  @Test
+  public void testBasic () throws IOException, InterruptedException
+  {
+    final BufferedImage aLogo = ImageIO.read (ClassPathResource.getInputStream ("images/test1.jpg"));
+    final PLEncodedImageCache aImageCache = PLEncodedImageCache.getInstance ();
+    final long nOldMaxBytes = aImageCache.getMaxBytes ();
+    aImageCache.clear ();
+    aImageCache.setMaxBytes (10 * 1024 * 1024);
+
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    try
+    {
+      final ICommonsList <NonBlockingByteArrayOutputStream> aOutputs = new CommonsArrayList <> ();
+      final ICommonsList <IPLBatchJob> aJobs = new CommonsArrayList <> ();
+      for (int i = 0; i < 20; ++i)
+      {
+        final int nIndex = i;
+        final NonBlockingByteArrayOutputStream aOS = new NonBlockingByteArrayOutputStream ();
+        aOutputs.add (aOS);
+        aJobs.add (new IPLBatchJob ()
+        {
+          @Override
+          @Nonnull
+          public PageLayoutPDF createPageLayout ()
+          {
+            final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+            aPS1.addElement (new PLImage (aLogo, 50, 50));
+            aPS1.addElement (new PLText ("Document " + nIndex, new FontSpec (PreloadFont.REGULAR, 10)));
+            final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+            aPageLayout.addPageSet (aPS1);
+            return aPageLayout;
+          }
+
+          @Override
+          @Nonnull
+          public OutputStream openOutputStream ()
+          {
+            return aOS;
+          }
+        });
+      }
+
+      final PLBatchResult aResult = new PLBatchRenderer (aES, 3).render (aJobs.iterator ());
+      assertEquals (20, aResult.getJobCount ());
+      assertEquals (20, aResult.getSuccessCount ());
+      assertEquals (0, aResult.getFailureCount ());
+      assertTrue (aResult.getDocumentsPerSecond () > 0);
+      // Each worker may miss once
+      assertTrue (aResult.getImageCacheHits () >= 17);
+      assertEquals (20, aResult.getImageCacheHits () + aResult.getImageCacheMisses ());
+      for (final NonBlockingByteArrayOutputStream aOS : aOutputs)
+        assertTrue (aOS.size () > 0);
+    }
+    finally
+    {
+      aES.shutdown ();
+      aImageCache.clear ();
+      aImageCache.setMaxBytes (nOldMaxBytes);
+    }
+  }
+
+  @Test
+  public void testIteratorThrows () throws InterruptedException
+  {
+    final ICommonsList <NonBlockingByteArrayOutputStream> aOutputs = new CommonsArrayList <> ();
+    final IllegalStateException aIteratorError = new IllegalStateException ("No more jobs");
+    final AtomicInteger aNextCalls = new AtomicInteger (0);
+    final Iterator <IPLBatchJob> aJobs = new Iterator <IPLBatchJob> ()
+    {
+      @Override
+      public boolean hasNext ()
+      {
+        return true;
+      }
+
+      @Override
+      public IPLBatchJob next ()
+      {
+        final int nIndex = aNextCalls.getAndIncrement ();
+        if (nIndex >= 3)
+          throw aIteratorError;
+        final NonBlockingByteArrayOutputStream aOS = new NonBlockingByteArrayOutputStream ();
+        aOutputs.add (aOS);
+        return new IPLBatchJob ()
+        {
+          @Override
+          @Nonnull
+          public PageLayoutPDF createPageLayout ()
+          {
+            final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+            aPS1.addElement (new PLText ("Document " + nIndex, new FontSpec (PreloadFont.REGULAR, 10)));
+            final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+            aPageLayout.addPageSet (aPS1);
+            return aPageLayout;
+          }
+
+          @Override
+          @Nonnull
+          public OutputStream openOutputStream ()
+          {
+            return aOS;
+          }
+        };
+      }
+    };
+
+    final ExecutorService aES = Executors.newFixedThreadPool (2);
+    try
+    {
+      new PLBatchRenderer (aES, 2).render (aJobs);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      assertSame (aIteratorError, ex);
+    }
+    finally
+    {
+      aES.shutdown ();
+    }
+
+    // No further job is requested after the error
+    assertEquals (4, aNextCalls.get ());
+    // All jobs taken before the error are rendered completely
+    assertEquals (3, aOutputs.size ());
+    for (final NonBlockingByteArrayOutputStream aOS : aOutputs)
+      assertTrue (aOS.size () > 0);
+  }
+}
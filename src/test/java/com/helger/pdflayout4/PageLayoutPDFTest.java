@@ -16,25 +16,43 @@
  */
 package com.helger.pdflayout4;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.awt.Color;
 import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
 import com.helger.commons.datetime.PDTFactory;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
 import com.helger.pdflayout4.base.EPLPlaceholder;
 import com.helger.pdflayout4.base.PLPageSet;
 import com.helger.pdflayout4.element.hbox.PLHBox;
+import com.helger.pdflayout4.element.special.PLPageBreak;
 import com.helger.pdflayout4.element.special.PLSpacerX;
 import com.helger.pdflayout4.element.special.PLSpacerY;
 import com.helger.pdflayout4.element.text.PLText;
 import com.helger.pdflayout4.element.vbox.PLVBox;
+import com.helger.pdflayout4.render.IPLRenderListener;
+import com.helger.pdflayout4.render.PLRenderStatistics;
 import com.helger.pdflayout4.spec.BorderStyleSpec;
 import com.helger.pdflayout4.spec.EHorzAlignment;
 import com.helger.pdflayout4.spec.FontSpec;
@@ -300,4 +318,337 @@ public final class PageLayoutPDFTest
     aPageLayout.addPageSet (aPS1);
     aPageLayout.renderTo (new File ("pdf/test-din-letter.pdf"));
   }
+
+  @Test
+  public void testRenderListener () throws PDFCreationException
+  {
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.addElement (new PLText ("Line 1", r10));
+    aPS1.addElement (new PLText ("Line 2", r10));
+
+    final AtomicInteger aPages = new AtomicInteger (0);
+    final AtomicInteger aTotalPages = new AtomicInteger (-1);
+    final AtomicInteger aTextRuns = new AtomicInteger (-1);
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addRenderListener (new IPLRenderListener ()
+    {
+      @Override
+      public boolean isContentStreamStatisticsRequired ()
+      {
+        return true;
+      }
+
+      @Override
+      public void onPageRendered (final PLPageSet aPageSet,
+                                  final int nPageSetPageIndex,
+                                  final int nTotalPageIndex,
+                                  final long nDurationNanos)
+      {
+        aPages.incrementAndGet ();
+      }
+
+      @Override
+      public void onDocumentEnd (final PLRenderStatistics aStats, final long nDurationNanos)
+      {
+        aTotalPages.set (aStats.getPageCount ());
+        aTextRuns.set (aStats.getDocumentContentStreamStatistics ().getTextRunCount ());
+      }
+    });
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.renderTo (new File ("pdf/test-render-listener.pdf"));
+    assertEquals (1, aPages.get ());
+    assertEquals (1, aTotalPages.get ());
+    assertEquals (2, aTextRuns.get ());
+  }
+
+  @Test (expected = PDFCreationCancelledException.class)
+  public void testCancelled () throws PDFCreationException
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.addElement (new PLText ("Dummy line", new FontSpec (PreloadFont.REGULAR, 10)));
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.renderTo (new NonBlockingByteArrayOutputStream (), () -> true, null);
+  }
+
+  @Test (expected = PDFCreationLimitExceededException.class)
+  public void testMaxElementCount () throws PDFCreationException
+  {
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    for (int i = 0; i < 10; ++i)
+      aPS1.addElement (new PLText ("Line " + i, r10));
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.setRenderLimits (new PLRenderLimits ().setMaxElementCount (5));
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.renderTo (new NonBlockingByteArrayOutputStream ());
+  }
+
+  @Test (expected = PDFCreationLimitExceededException.class)
+  public void testMaxPageCount () throws PDFCreationException
+  {
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    for (int i = 0; i < 5; ++i)
+    {
+      aPS1.addElement (new PLText ("Page " + i, r10));
+      aPS1.addElement (new PLPageBreak (true));
+    }
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.setRenderLimits (new PLRenderLimits ().setMaxPageCount (3));
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.renderTo (new NonBlockingByteArrayOutputStream ());
+  }
+
+  @Test
+  public void testStreamClosedAfterLimitFailure ()
+  {
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    for (int i = 0; i < 10; ++i)
+      aPS1.addElement (new PLText ("Line " + i, r10));
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.setRenderLimits (new PLRenderLimits ().setMaxElementCount (5));
+    aPageLayout.addPageSet (aPS1);
+
+    final AtomicBoolean aClosed = new AtomicBoolean (false);
+    final OutputStream aOS = new FilterOutputStream (new NonBlockingByteArrayOutputStream ())
+    {
+      @Override
+      public void close () throws IOException
+      {
+        aClosed.set (true);
+        super.close ();
+      }
+    };
+    try
+    {
+      aPageLayout.renderTo (aOS);
+      fail ();
+    }
+    catch (final PDFCreationException ex)
+    {
+      assertTrue (ex instanceof PDFCreationLimitExceededException);
+    }
+    assertTrue (aClosed.get ());
+
+    // Invalid timeout
+    aClosed.set (false);
+    aPageLayout.setRenderLimits (null);
+    try
+    {
+      aPageLayout.renderTo (aOS, null, Duration.ofSeconds (-1));
+      fail ();
+    }
+    catch (final IllegalArgumentException | PDFCreationException ex)
+    {
+      // expected
+    }
+    assertTrue (aClosed.get ());
+
+    // The file channel is closed as well, so the file can be deleted
+    final File aFile = new File ("pdf/test-render-to-path-limit.pdf");
+    aPageLayout.setRenderLimits (new PLRenderLimits ().setMaxElementCount (5));
+    try
+    {
+      aPageLayout.renderTo (aFile.toPath (), new PLFileOutputSettings ());
+      fail ();
+    }
+    catch (final PDFCreationException ex)
+    {
+      assertTrue (ex instanceof PDFCreationLimitExceededException);
+    }
+    assertTrue (aFile.delete ());
+  }
+
+  @Test
+  public void testRenderToPath () throws PDFCreationException
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.addElement (new PLText ("Written via a FileChannel", new FontSpec (PreloadFont.REGULAR, 10)));
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+
+    final File aFile = new File ("pdf/test-render-to-path.pdf");
+    final long nPreallocate = 10 * 1024 * 1024;
+    aPageLayout.renderTo (aFile.toPath (),
+                          new PLFileOutputSettings ().setBufferSize (4096)
+                                                     .setPreallocateBytes (nPreallocate)
+                                                     .setSyncMode (EPLFileSyncMode.AT_END));
+    // Preallocated space was truncated
+    assertTrue (aFile.length () > 0);
+    assertTrue (aFile.length () < nPreallocate);
+  }
+
+  @Test
+  public void testScratchFile () throws PDFCreationException
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.addElement (new PLText ("Stream data in a scratch file", new FontSpec (PreloadFont.REGULAR, 10)));
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.setMemoryUsageSetting (MemoryUsageSetting.setupTempFileOnly ());
+    aPageLayout.renderTo (new File ("pdf/test-scratch-file.pdf"));
+
+    // Below the threshold - main memory only
+    aPageLayout.setMemoryUsageThreshold (1024 * 1024);
+    aPageLayout.renderTo (new File ("pdf/test-scratch-file-threshold.pdf"));
+  }
+
+  @Test
+  public void testResourceSharing () throws PDFCreationException
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.setPageHeader (new PLText ("Header", new FontSpec (PreloadFont.REGULAR_BOLD, 10)));
+    for (int i = 0; i < 50; ++i)
+    {
+      aPS1.addElement (new PLText ("Page " + i, new FontSpec (PreloadFont.REGULAR, 10)));
+      aPS1.addElement (new PLPageBreak (false));
+    }
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    final NonBlockingByteArrayOutputStream aBAOSNone = new NonBlockingByteArrayOutputStream ();
+    aPageLayout.renderTo (aBAOSNone);
+
+    aPageLayout.setResourceSharing (EPLResourceSharing.DOCUMENT);
+    final NonBlockingByteArrayOutputStream aBAOSShared = new NonBlockingByteArrayOutputStream ();
+    aPageLayout.renderTo (aBAOSShared);
+    assertTrue (aBAOSShared.size () < aBAOSNone.size ());
+
+    aPageLayout.setResourceSharing (EPLResourceSharing.PAGE_SET);
+    aPageLayout.renderTo (new File ("pdf/test-resource-sharing.pdf"));
+  }
+
+  @Test
+  public void testDeduplicateContentStreams () throws PDFCreationException
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    for (int i = 0; i < 20; ++i)
+    {
+      aPS1.addElement (new PLText ("Terms and conditions that are the same on every page",
+                                   new FontSpec (PreloadFont.REGULAR, 10)));
+      aPS1.addElement (new PLPageBreak (false));
+    }
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    final NonBlockingByteArrayOutputStream aBAOSNone = new NonBlockingByteArrayOutputStream ();
+    aPageLayout.renderTo (aBAOSNone);
+
+    aPageLayout.setDeduplicateContentStreams (true);
+    final NonBlockingByteArrayOutputStream aBAOSDedup = new NonBlockingByteArrayOutputStream ();
+    aPageLayout.renderTo (aBAOSDedup);
+    assertTrue (aBAOSDedup.size () < aBAOSNone.size ());
+
+    aPageLayout.setResourceSharing (EPLResourceSharing.DOCUMENT);
+    aPageLayout.renderTo (new File ("pdf/test-deduplicate-content-streams.pdf"));
+  }
+
+  @Test
+  public void testParallelCompression () throws PDFCreationException
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    for (int i = 0; i < 20; ++i)
+    {
+      aPS1.addElement (new PLText ("Text that is compressed in parallel on page " + i,
+                                   new FontSpec (PreloadFont.REGULAR, 10)));
+      aPS1.addElement (new PLPageBreak (false));
+    }
+
+    final AtomicLong aUncompressedBytes = new AtomicLong (-1);
+    final AtomicLong aStoredBytes = new AtomicLong (-1);
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addRenderListener (new IPLRenderListener ()
+    {
+      @Override
+      public boolean isContentStreamStatisticsRequired ()
+      {
+        return true;
+      }
+
+      @Override
+      public void onDocumentEnd (final PLRenderStatistics aStats, final long nDurationNanos)
+      {
+        aUncompressedBytes.set (aStats.getDocumentContentStreamStatistics ().getUncompressedBytes ());
+        aStoredBytes.set (aStats.getDocumentContentStreamStatistics ().getCompressedBytes ());
+      }
+    });
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.setCompressPDF (false);
+    final NonBlockingByteArrayOutputStream aBAOSUncompressed = new NonBlockingByteArrayOutputStream ();
+    aPageLayout.renderTo (aBAOSUncompressed);
+    assertTrue (aUncompressedBytes.get () > 0);
+    assertEquals (aUncompressedBytes.get (), aStoredBytes.get ());
+
+    final ExecutorService aES = Executors.newFixedThreadPool (2);
+    try
+    {
+      aPageLayout.setCompressPDF (true);
+      aPageLayout.setCompressionExecutor (aES, 2);
+      aPageLayout.setCompressionLevel (9);
+      final NonBlockingByteArrayOutputStream aBAOSParallel = new NonBlockingByteArrayOutputStream ();
+      aPageLayout.renderTo (aBAOSParallel);
+      assertTrue (aBAOSParallel.size () < aBAOSUncompressed.size ());
+      // The stored bytes must reflect the compression
+      assertTrue (aUncompressedBytes.get () > 0);
+      assertTrue (aStoredBytes.get () < aUncompressedBytes.get ());
+
+      aPageLayout.renderTo (new File ("pdf/test-parallel-compression.pdf"));
+    }
+    finally
+    {
+      aES.shutdown ();
+    }
+  }
+
+  @Test
+  public void testObjectStreams () throws PDFCreationException
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    for (int i = 0; i < 50; ++i)
+    {
+      aPS1.addElement (new PLText ("Page " + i, new FontSpec (PreloadFont.REGULAR, 10)));
+      aPS1.addElement (new PLPageBreak (false));
+    }
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    final NonBlockingByteArrayOutputStream aBAOSClassic = new NonBlockingByteArrayOutputStream ();
+    aPageLayout.renderTo (aBAOSClassic);
+
+    aPageLayout.setUseObjectStreams (true);
+    final NonBlockingByteArrayOutputStream aBAOSObjStm = new NonBlockingByteArrayOutputStream ();
+    aPageLayout.renderTo (aBAOSObjStm);
+    assertTrue (aBAOSObjStm.size () < aBAOSClassic.size ());
+
+    aPageLayout.renderTo (new File ("pdf/test-object-streams.pdf"));
+  }
+
+  @Test
+  public void testLinearize () throws PDFCreationException
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    for (int i = 0; i < 10; ++i)
+    {
+      aPS1.addElement (new PLText ("Page " + i, new FontSpec (PreloadFont.REGULAR, 10)));
+      aPS1.addElement (new PLPageBreak (false));
+    }
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ().setLinearize (true);
+    aPageLayout.addPageSet (aPS1);
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    aPageLayout.renderTo (aBAOS);
+    assertTrue (aBAOS.getAsString (StandardCharsets.ISO_8859_1).contains ("/Linearized 1"));
+
+    aPageLayout.renderTo (new File ("pdf/test-linearized.pdf"));
+  }
 }
@@ -16,21 +16,42 @@
  */
 package com.helger.pdflayout4.base;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
 import java.awt.Color;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
 
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.state.EChange;
 import com.helger.pdflayout4.PDFCreationException;
 import com.helger.pdflayout4.PLDebugTestRule;
 import com.helger.pdflayout4.PageLayoutPDF;
 import com.helger.pdflayout4.element.box.PLBox;
+import com.helger.pdflayout4.element.hbox.PLHBox;
+import com.helger.pdflayout4.element.image.PLImage;
+import com.helger.pdflayout4.element.special.PLPageBreak;
+import com.helger.pdflayout4.element.special.PLSpacerX;
+import com.helger.pdflayout4.element.special.PLSpacerY;
 import com.helger.pdflayout4.element.table.PLTable;
 import com.helger.pdflayout4.element.table.PLTableCell;
 import com.helger.pdflayout4.element.text.PLText;
+import com.helger.pdflayout4.element.vbox.PLVBox;
+import com.helger.pdflayout4.render.PagePreRenderContext;
 import com.helger.pdflayout4.spec.BorderStyleSpec;
 import com.helger.pdflayout4.spec.EHorzAlignment;
 import com.helger.pdflayout4.spec.FontSpec;
@@ -381,4 +402,172 @@ public final class PLPageSetTest
     aPageLayout.addPageSet (aPS1);
     aPageLayout.renderTo (new File ("pdf/plpageset/firstpage-only.pdf"));
   }
+
+  private static final class CountingText extends PLText
+  {
+    private final AtomicInteger m_aCount = new AtomicInteger (0);
+
+    public CountingText (@Nonnull final String sText, @Nonnull final FontSpec aFont)
+    {
+      super (sText, aFont);
+    }
+
+    @Override
+    @Nonnull
+    public EChange beforeRender (@Nonnull final PagePreRenderContext aCtx) throws IOException
+    {
+      m_aCount.incrementAndGet ();
+      return super.beforeRender (aCtx);
+    }
+  }
+
+  private static final class CountingImage extends PLImage
+  {
+    private final AtomicInteger m_aCount = new AtomicInteger (0);
+
+    public CountingImage (@Nonnull final BufferedImage aImage)
+    {
+      super (aImage);
+    }
+
+    @Override
+    @Nonnull
+    public EChange beforeRender (@Nonnull final PagePreRenderContext aCtx)
+    {
+      m_aCount.incrementAndGet ();
+      return super.beforeRender (aCtx);
+    }
+  }
+
+  private static final class CountingSpacerX extends PLSpacerX
+  {
+    private final AtomicInteger m_aCount = new AtomicInteger (0);
+
+    public CountingSpacerX (final float fWidth)
+    {
+      super (fWidth);
+    }
+
+    @Override
+    @Nonnull
+    public EChange beforeRender (@Nonnull final PagePreRenderContext aCtx)
+    {
+      m_aCount.incrementAndGet ();
+      return EChange.UNCHANGED;
+    }
+  }
+
+  private static final class CountingBox extends PLBox
+  {
+    private final AtomicInteger m_aCount = new AtomicInteger (0);
+
+    public CountingBox (@Nonnull final IPLRenderableObject <?> aElement)
+    {
+      super (aElement);
+    }
+
+    // Required, as boxes are skipped by default
+    @Override
+    public boolean isBeforeRenderRequired ()
+    {
+      return true;
+    }
+
+    @Override
+    @Nonnull
+    public EChange beforeRender (@Nonnull final PagePreRenderContext aCtx) throws IOException
+    {
+      m_aCount.incrementAndGet ();
+      return super.beforeRender (aCtx);
+    }
+  }
+
+  @Test
+  public void testBeforeRenderElements ()
+  {
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+    final PLText aNestedText = new PLText ("Page " + EPLPlaceholder.TOTAL_PAGE_NUMBER.getVariable (),
+                                           r10).setReplacePlaceholder (true);
+    final PLImage aImage = new PLImage (new BufferedImage (10, 10, BufferedImage.TYPE_INT_RGB));
+    final PLVBox aVBox = new PLVBox ();
+    aVBox.addRow (new PLBox (new PLHBox ().addColumn (new PLText ("plain", r10), WidthSpec.star ())
+                                          .addColumn (new PLBox (aNestedText), WidthSpec.star ())));
+    aVBox.addRow (new PLSpacerY (5));
+    aVBox.addRow (new PLHBox ().addColumn (new PLSpacerX (5), WidthSpec.abs (5))
+                               .addColumn (new PLBox (aImage), WidthSpec.star ()));
+    aVBox.addRow (new PLPageBreak (false));
+
+    final ICommonsList <IPLRenderableObject <?>> aList = new CommonsArrayList <> ();
+    PLPageSetPrepareResult.addAllBeforeRenderElements (aVBox, aList);
+    // Only the text with placeholders and the image
+    assertEquals (2, aList.size ());
+    assertSame (aNestedText, aList.get (0));
+    assertSame (aImage, aList.get (1));
+
+    // Plain boxes and spacers don't need it
+    aList.clear ();
+    PLPageSetPrepareResult.addAllBeforeRenderElements (new PLBox (new PLVBox (new PLSpacerX (5),
+                                                                              new PLSpacerY (5),
+                                                                              new PLText ("plain", r10))),
+                                                       aList);
+    assertTrue (aList.isEmpty ());
+  }
+
+  @Test
+  public void testBeforeRenderCalled () throws PDFCreationException
+  {
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+
+    final CountingText aHeaderText = new CountingText ("Page " +
+                                                       EPLPlaceholder.TOTAL_PAGE_NUMBER.getVariable () +
+                                                       " of " +
+                                                       EPLPlaceholder.TOTAL_PAGE_COUNT.getVariable (),
+                                                       r10);
+    aHeaderText.setReplacePlaceholder (true);
+    final CountingImage aHeaderImage = new CountingImage (new BufferedImage (10, 10, BufferedImage.TYPE_INT_RGB));
+    final CountingSpacerX aHeaderSpacer = new CountingSpacerX (5);
+    final CountingBox aHeaderBox = new CountingBox (new PLHBox ().addColumn (new PLBox (aHeaderText),
+                                                                             WidthSpec.star ())
+                                                                 .addColumn (aHeaderSpacer, WidthSpec.abs (5))
+                                                                 .addColumn (aHeaderImage, WidthSpec.abs (10)));
+    aPS1.setPageHeader (aHeaderBox);
+
+    final CountingImage aFooterImage = new CountingImage (new BufferedImage (10, 10, BufferedImage.TYPE_INT_RGB));
+    aPS1.setPageFooter (new PLVBox (new PLBox (aFooterImage)));
+
+    final CountingText aBodyText = new CountingText ("Body " + EPLPlaceholder.TOTAL_PAGE_NUMBER.getVariable (), r10);
+    aBodyText.setReplacePlaceholder (true);
+    final CountingText aPlainText = new CountingText ("Plain body", r10);
+    final CountingSpacerX aBodySpacer = new CountingSpacerX (5);
+    final CountingBox aBodyBox = new CountingBox (aBodyText);
+    aPS1.addElement (new PLBox (new PLHBox ().addColumn (aBodySpacer, WidthSpec.abs (5))
+                                             .addColumn (aBodyBox, WidthSpec.star ())
+                                             .addColumn (aPlainText, WidthSpec.star ())));
+    aPS1.addElement (new PLPageBreak (true));
+    aPS1.addElement (new PLText ("Second page", r10));
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.renderTo (new NonBlockingByteArrayOutputStream ());
+
+    // Called once per page for header and footer
+    assertEquals (2, aHeaderText.m_aCount.get ());
+    assertEquals (2, aHeaderImage.m_aCount.get ());
+    assertEquals (2, aFooterImage.m_aCount.get ());
+    // Containers overriding isBeforeRenderRequired are called as well
+    assertEquals (2, aHeaderBox.m_aCount.get ());
+    assertEquals ("Page 2 of 2", aHeaderText.getAllPreparedLinesUnmodified ().getFirst ().getText ());
+
+    // Called once for the page the element is on
+    assertEquals (1, aBodyText.m_aCount.get ());
+    assertEquals ("Body 1", aBodyText.getAllPreparedLinesUnmodified ().getFirst ().getText ());
+    assertEquals (1, aBodyBox.m_aCount.get ());
+
+    // Never called
+    assertEquals (0, aPlainText.m_aCount.get ());
+    assertFalse (aPlainText.isBeforeRenderRequired ());
+    assertEquals (0, aHeaderSpacer.m_aCount.get ());
+    assertEquals (0, aBodySpacer.m_aCount.get ());
+  }
 }
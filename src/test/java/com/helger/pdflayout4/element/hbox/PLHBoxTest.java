@@ -16,9 +16,17 @@
  */
 package com.helger.pdflayout4.element.hbox;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import java.awt.Color;
 import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.junit.Rule;
 import org.junit.Test;
@@ -31,10 +39,14 @@ import com.helger.pdflayout4.base.PLPageSet;
 import com.helger.pdflayout4.element.box.PLBox;
 import com.helger.pdflayout4.element.special.PLPageBreak;
 import com.helger.pdflayout4.element.text.PLText;
+import com.helger.pdflayout4.render.PreparationContext;
+import com.helger.pdflayout4.render.PreparationContextGlobal;
 import com.helger.pdflayout4.spec.EHorzAlignment;
 import com.helger.pdflayout4.spec.EVertAlignment;
 import com.helger.pdflayout4.spec.FontSpec;
+import com.helger.pdflayout4.spec.IntrinsicWidthSpec;
 import com.helger.pdflayout4.spec.PreloadFont;
+import com.helger.pdflayout4.spec.SizeSpec;
 import com.helger.pdflayout4.spec.WidthSpec;
 
 /**
@@ -363,4 +375,85 @@ public final class PLHBoxTest
     aPageLayout.addPageSet (aPS1);
     aPageLayout.renderTo (new File ("pdf/plhbox/alignment.pdf"));
   }
+
+  /**
+   * Text that counts how often it is prepared and that can optionally not be
+   * measured, so that the HBox uses the regular two-pass preparation.
+   */
+  private static final class PLTestText extends PLText
+  {
+    private final boolean m_bMeasurable;
+    private int m_nPrepareCount = 0;
+
+    PLTestText (@Nonnull final String sText, @Nonnull final FontSpec aFontSpec, final boolean bMeasurable)
+    {
+      super (sText, aFontSpec);
+      m_bMeasurable = bMeasurable;
+    }
+
+    @Override
+    @Nullable
+    protected IntrinsicWidthSpec onMeasureIntrinsic (@Nonnull final PreparationContext aCtx)
+    {
+      return m_bMeasurable ? super.onMeasureIntrinsic (aCtx) : null;
+    }
+
+    @Override
+    protected SizeSpec onPrepare (@Nonnull final PreparationContext aCtx)
+    {
+      ++m_nPrepareCount;
+      return super.onPrepare (aCtx);
+    }
+  }
+
+  @Nonnull
+  private static PLHBox _createAutoHBox (final boolean bMeasurable)
+  {
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+    final String [] aTexts = { "Short",
+                               "A medium text that is too wide for its share",
+                               "A very long text that needs to be wrapped even if it gets all the width of the auto columns",
+                               "Tiny" };
+    final PLHBox aHBox = new PLHBox ();
+    for (final String sText : aTexts)
+      aHBox.addColumn (new PLTestText (sText, r10, bMeasurable).setPadding (2).setMargin (1), WidthSpec.auto ());
+    aHBox.addColumn (new PLBox (new PLText ("Boxed text in an auto column", r10)).setPadding (3), WidthSpec.auto ());
+    aHBox.addColumn (new PLText ("Star", r10), WidthSpec.star ());
+    return aHBox;
+  }
+
+  @Test
+  public void testAutoWidthMeasuredPreparedOnce () throws IOException
+  {
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PreparationContextGlobal aGlobalCtx = new PreparationContextGlobal (aDoc);
+      for (final float fWidth : new float [] { 150, 300, 500, 1000 })
+      {
+        final PLHBox aMeasured = _createAutoHBox (true);
+        final SizeSpec aMeasuredSize = aMeasured.prepare (new PreparationContext (aGlobalCtx, fWidth, 1000));
+        assertTrue (aMeasuredSize.getWidth () <= fWidth + 0.001f);
+        for (int i = 0; i < 4; ++i)
+        {
+          final PLTestText aText = (PLTestText) aMeasured.getColumnAtIndex (i).getElement ();
+          // Measured columns are prepared exactly once
+          assertEquals (1, aText.m_nPrepareCount);
+          if (fWidth >= 300)
+          {
+            // Enough room to never break a word
+            final IntrinsicWidthSpec aIntrinsic = aText.measureIntrinsic (new PreparationContext (aGlobalCtx,
+                                                                                                  fWidth,
+                                                                                                  1000));
+            assertTrue (aText.getPreparedSize ().getWidth () >= aIntrinsic.getMinWidth () - 0.001f);
+          }
+        }
+
+        // Columns that cannot be measured are prepared again if they are too
+        // wide for their share
+        final PLHBox aRef = _createAutoHBox (false);
+        aRef.prepare (new PreparationContext (aGlobalCtx, fWidth, 1000));
+        assertEquals (2, ((PLTestText) aRef.getColumnAtIndex (2).getElement ()).m_nPrepareCount);
+      }
+    }
+  }
 }
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.element.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDIndexed;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.pdflayout4.pdfbox.PNGPassThroughFactory;
+
+/**
+ * Test class for class {@link PLEncodedImage}.
+ *
+ * @author Philip Helger
+ */
+public final class PLEncodedImageTest
+{
+  @Test
+  public void testIndexed () throws IOException
+  {
+    final byte [] aRed = { 0, (byte) 255, 0, 0 };
+    final byte [] aGreen = { 0, 0, (byte) 255, 0 };
+    final byte [] aBlue = { 0, 0, 0, (byte) 255 };
+    final byte [] aAlphas = { 0, (byte) 255, (byte) 128, (byte) 255 };
+    final BufferedImage aImage = new BufferedImage (13,
+                                                    7,
+                                                    BufferedImage.TYPE_BYTE_BINARY,
+                                                    new IndexColorModel (2, 4, aRed, aGreen, aBlue, aAlphas));
+    for (int y = 0; y < aImage.getHeight (); ++y)
+      for (int x = 0; x < aImage.getWidth (); ++x)
+        aImage.getRaster ().setSample (x, y, 0, (x + y) % 4);
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    assertTrue (ImageIO.write (aImage, "png", aBAOS));
+
+    final PLEncodedImage aEncoded;
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDImageXObject aXObject = PNGPassThroughFactory.createFromByteArray (aDoc, aBAOS.toByteArray ());
+      assertNotNull (aXObject);
+      assertTrue (aXObject.getColorSpace () instanceof PDIndexed);
+      aEncoded = PLEncodedImage.createOrNull (aXObject);
+      assertNotNull (aEncoded);
+    }
+
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDImageXObject aXObject = aEncoded.createXObject (aDoc);
+      assertTrue (aXObject.getColorSpace () instanceof PDIndexed);
+      assertEquals (2, aXObject.getBitsPerComponent ());
+      assertNotNull (aXObject.getSoftMask ());
+      final BufferedImage aOpaque = aXObject.getOpaqueImage ();
+      for (int y = 0; y < aImage.getHeight (); ++y)
+        for (int x = 0; x < aImage.getWidth (); ++x)
+          assertEquals (aImage.getRGB (x, y) & 0xffffff, aOpaque.getRGB (x, y) & 0xffffff);
+    }
+  }
+
+  @Nonnull
+  private static COSArray _createMask (final int... aValues)
+  {
+    final COSArray ret = new COSArray ();
+    for (final int nValue : aValues)
+      ret.add (COSInteger.get (nValue));
+    return ret;
+  }
+
+  @Test
+  public void testColorKeyMask () throws IOException
+  {
+    final BufferedImage aImage = new BufferedImage (5, 3, BufferedImage.TYPE_INT_RGB);
+    final PLEncodedImage aEncoded;
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDImageXObject aXObject = LosslessFactory.createFromImage (aDoc, aImage);
+      aXObject.getCOSObject ().setItem (COSName.MASK, _createMask (0, 0, 0, 0, 0, 0));
+      aEncoded = PLEncodedImage.createOrNull (aXObject);
+      assertNotNull (aEncoded);
+
+      // Stencil masks are not supported
+      aXObject.getCOSObject ().setItem (COSName.MASK, LosslessFactory.createFromImage (aDoc, aImage));
+      assertNull (PLEncodedImage.createOrNull (aXObject));
+    }
+
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDImageXObject aXObject = aEncoded.createXObject (aDoc);
+      final COSArray aMask = (COSArray) aXObject.getCOSObject ().getDictionaryObject (COSName.MASK);
+      assertNotNull (aMask);
+      assertEquals (6, aMask.size ());
+      assertEquals (0, ((COSInteger) aMask.getObject (0)).intValue ());
+    }
+  }
+}
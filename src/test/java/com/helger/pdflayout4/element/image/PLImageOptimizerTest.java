@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.element.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.io.streamprovider.ByteArrayInputStreamProvider;
+import com.helger.pdflayout4.PDFCreationException;
+import com.helger.pdflayout4.PageLayoutPDF;
+import com.helger.pdflayout4.base.PLPageSet;
+
+/**
+ * Test class for class {@link PLImageOptimizer}.
+ *
+ * @author Philip Helger
+ */
+public final class PLImageOptimizerTest
+{
+  @Nonnull
+  private static BufferedImage _createImage (final int nWidth, final int nHeight, @Nonnull final Color aColor)
+  {
+    final BufferedImage ret = new BufferedImage (nWidth, nHeight, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D aG2D = ret.createGraphics ();
+    aG2D.setColor (aColor);
+    aG2D.fillRect (0, 0, nWidth, nHeight);
+    aG2D.dispose ();
+    return ret;
+  }
+
+  @Test
+  public void testDownsample ()
+  {
+    final BufferedImage aImage = _createImage (1000, 500, Color.RED);
+    final PLImageOptimizer aOptimizer = new PLImageOptimizer (100, false, PLImageOptimizer.DEFAULT_JPEG_QUALITY);
+
+    // 2 x 1 inch at 100 DPI
+    final BufferedImage aOptimized = aOptimizer.optimize (aImage, 144, 72);
+    assertEquals (200, aOptimized.getWidth ());
+    assertEquals (100, aOptimized.getHeight ());
+    assertEquals (Color.RED.getRGB (), aOptimized.getRGB (50, 50));
+
+    // Already small enough
+    assertSame (aImage, aOptimizer.optimize (aImage, 1000, 500));
+  }
+
+  @Test
+  public void testGrayscale ()
+  {
+    final PLImageOptimizer aOptimizer = new PLImageOptimizer (0, true, PLImageOptimizer.DEFAULT_JPEG_QUALITY);
+
+    final BufferedImage aGray = _createImage (20, 10, new Color (0x80, 0x80, 0x80));
+    final BufferedImage aOptimized = aOptimizer.optimize (aGray, 20, 10);
+    assertEquals (BufferedImage.TYPE_BYTE_GRAY, aOptimized.getType ());
+    assertEquals (0x80, aOptimized.getRaster ().getSample (5, 5, 0));
+
+    final BufferedImage aColor = _createImage (20, 10, Color.BLUE);
+    assertSame (aColor, aOptimizer.optimize (aColor, 20, 10));
+  }
+
+  @Test
+  public void testOptimizationRequired ()
+  {
+    // 2 x 1 inch at 100 DPI
+    final PLImageOptimizer aDownsample = new PLImageOptimizer (100, false, PLImageOptimizer.DEFAULT_JPEG_QUALITY);
+    assertTrue (aDownsample.isOptimizationRequired (new Dimension (201, 100), 144, 72));
+    assertTrue (aDownsample.isOptimizationRequired (new Dimension (200, 101), 144, 72));
+    assertFalse (aDownsample.isOptimizationRequired (new Dimension (200, 100), 144, 72));
+    assertTrue (aDownsample.isOptimizationRequired (null, 144, 72));
+
+    final PLImageOptimizer aNoDownsample = new PLImageOptimizer (0, false, PLImageOptimizer.DEFAULT_JPEG_QUALITY);
+    assertFalse (aNoDownsample.isOptimizationRequired (new Dimension (2000, 1000), 144, 72));
+    assertFalse (aNoDownsample.isOptimizationRequired (null, 144, 72));
+
+    final PLImageOptimizer aGrayscale = new PLImageOptimizer (0, true, PLImageOptimizer.DEFAULT_JPEG_QUALITY);
+    assertTrue (aGrayscale.isOptimizationRequired (new Dimension (20, 10), 144, 72));
+  }
+
+  @Test
+  public void testEncodedImages () throws IOException
+  {
+    // The test images have 33 x 33 pixels; 50 PDF units at 24 DPI are 17
+    // pixels
+    final PLImageOptimizer aDownsample = new PLImageOptimizer (24, false, PLImageOptimizer.DEFAULT_JPEG_QUALITY);
+    final PLImageOptimizer aLarge = new PLImageOptimizer (300, false, PLImageOptimizer.DEFAULT_JPEG_QUALITY);
+    final ICommonsList <AbstractPLImage <?>> aImages = new CommonsArrayList <> ();
+    aImages.add (new PLStreamImage (new ClassPathResource ("images/test1.jpg"), 50, 50));
+    aImages.add (new PLStreamImage (new ClassPathResource ("images/test1.png"), 50, 50).setImageType (EPLImageType.LOSSLESS));
+    aImages.add (new PLFileImage (new File ("src/test/resources/images/test1.jpg").toPath (), 50, 50));
+    aImages.add (new PLFileImage (new File ("src/test/resources/images/test1.png").toPath (),
+                                  50,
+                                  50).setImageType (EPLImageType.LOSSLESS));
+
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      for (final AbstractPLImage <?> aImage : aImages)
+      {
+        // Passed through
+        assertEquals (33, aImage.createXObject (aDoc, null).getWidth ());
+        assertEquals (33, aImage.createXObject (aDoc, aLarge).getWidth ());
+
+        // Decoded and downsampled
+        assertEquals (17, aImage.createXObject (aDoc, aDownsample).getWidth ());
+        assertEquals (17, aImage.createXObject (aDoc, aDownsample).getHeight ());
+      }
+    }
+  }
+
+  @Test
+  public void testJPEGQuality ()
+  {
+    final PLImageOptimizer aOptimizer = new PLImageOptimizer (0, false, 0.8f);
+    assertEquals (0.8f, aOptimizer.getJPEGQuality (0), 0.0001f);
+    assertEquals (0.8f, aOptimizer.getJPEGQuality (0.95f), 0.0001f);
+    assertEquals (0.5f, aOptimizer.getJPEGQuality (0.5f), 0.0001f);
+  }
+
+  @Test
+  public void testUnchangedIsPassedThrough () throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    assertTrue (ImageIO.write (_createImage (33, 33, Color.BLUE), "jpeg", aBAOS));
+    final byte [] aBytes = aBAOS.toByteArray ();
+
+    // Decoded, but not changed by the optimizer
+    final PLImageOptimizer aGrayscale = new PLImageOptimizer (0, true, PLImageOptimizer.DEFAULT_JPEG_QUALITY);
+    final PLStreamImage aImage = new PLStreamImage (new ByteArrayInputStreamProvider (aBytes), 50, 50);
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDImageXObject aXObject = aImage.createXObject (aDoc, aGrayscale);
+      assertEquals (COSName.DCT_DECODE, aXObject.getCOSObject ().getFilters ());
+      assertEquals (aBytes.length, aXObject.getCOSObject ().getLength ());
+    }
+  }
+
+  @Test
+  public void testRender () throws PDFCreationException
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.addElement (new PLImage (_createImage (2000, 2000, Color.GRAY), 100, 100));
+    aPS1.addElement (new PLImage (_createImage (2000, 2000, Color.ORANGE),
+                                  100,
+                                  100).setImageType (EPLImageType.LOSSLESS)
+                                      .setImageOptimizer (new PLImageOptimizer (72, true, 1f)));
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.setImageOptimizer (new PLImageOptimizer (150, true, 0.5f));
+    aPageLayout.renderTo (new File ("pdf/plimage/optimized.pdf"));
+  }
+}
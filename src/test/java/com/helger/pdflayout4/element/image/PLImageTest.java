@@ -16,9 +16,18 @@
  */
 package com.helger.pdflayout4.element.image;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.imageio.ImageIO;
 
@@ -28,8 +37,11 @@ import org.junit.Test;
 import org.junit.rules.TestRule;
 
 import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
 import com.helger.pdflayout4.PDFCreationException;
+import com.helger.pdflayout4.PDFCreationLimitExceededException;
 import com.helger.pdflayout4.PLDebugTestRule;
+import com.helger.pdflayout4.PLRenderLimits;
 import com.helger.pdflayout4.PageLayoutPDF;
 import com.helger.pdflayout4.base.PLPageSet;
 import com.helger.pdflayout4.element.hbox.PLHBox;
@@ -101,4 +113,138 @@ public final class PLImageTest
     aPageLayout.addPageSet (aPS1);
     aPageLayout.renderTo (new File ("pdf/plimage/text-over-image.pdf"));
   }
+
+  @Test
+  public void testStreamImageLossless () throws PDFCreationException
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    // PNG - passed through
+    aPS1.addElement (new PLStreamImage (new ClassPathResource ("images/test1.png"),
+                                        50,
+                                        50).setImageType (EPLImageType.LOSSLESS));
+    // JPEG - decoded
+    aPS1.addElement (new PLStreamImage (new ClassPathResource ("images/test1.jpg"),
+                                        50,
+                                        50).setImageType (EPLImageType.LOSSLESS));
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.renderTo (new File ("pdf/plimage/stream-lossless.pdf"));
+  }
+
+  @Test
+  public void testStreamImageJPEGSizeFromDPI () throws PDFCreationException, IOException
+  {
+    final PLStreamImage aImage = PLStreamImage.createJPEG (new ClassPathResource ("images/test1.jpg"), 300, false);
+    final BufferedImage aDecoded = ImageIO.read (ClassPathResource.getInputStream ("images/test1.jpg"));
+    assertEquals (aDecoded.getWidth () * 72f / 300, aImage.getImageWidth (), 0.001f);
+    assertEquals (aDecoded.getHeight () * 72f / 300, aImage.getImageHeight (), 0.001f);
+
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.addElement (aImage);
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.renderTo (new File ("pdf/plimage/stream-jpeg-dpi.pdf"));
+  }
+
+  @Test
+  public void testFileImage () throws PDFCreationException, IOException
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.addElement (new PLFileImage (new File ("src/test/resources/images/test1.jpg").toPath (), 200, 100));
+    aPS1.addElement (new PLFileImage (new File ("src/test/resources/images/test1.png").toPath (),
+                                      200,
+                                      100).setImageType (EPLImageType.LOSSLESS));
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.renderTo (new File ("pdf/plimage/file-image.pdf"));
+  }
+
+  @Test
+  public void testSourceSize () throws IOException
+  {
+    final BufferedImage aJPEG = ImageIO.read (ClassPathResource.getInputStream ("images/test1.jpg"));
+    final BufferedImage aPNG = ImageIO.read (ClassPathResource.getInputStream ("images/test1.png"));
+    final long nJPEGPixels = (long) aJPEG.getWidth () * aJPEG.getHeight ();
+    final long nPNGPixels = (long) aPNG.getWidth () * aPNG.getHeight ();
+
+    assertEquals (nJPEGPixels, new PLImage (aJPEG, 50, 50).getSourcePixelCount ());
+
+    // Read from the header only
+    final PLStreamImage aStreamJPEG = new PLStreamImage (new ClassPathResource ("images/test1.jpg"), 50, 50);
+    assertEquals (new Dimension (aJPEG.getWidth (), aJPEG.getHeight ()), aStreamJPEG.getSourceSize ());
+    assertEquals (nJPEGPixels, aStreamJPEG.getSourcePixelCount ());
+    assertEquals (nPNGPixels,
+                  new PLStreamImage (new ClassPathResource ("images/test1.png"),
+                                     50,
+                                     50).setImageType (EPLImageType.LOSSLESS).getSourcePixelCount ());
+    assertEquals (nJPEGPixels,
+                  new PLFileImage (new File ("src/test/resources/images/test1.jpg").toPath (),
+                                   50,
+                                   50).getSourcePixelCount ());
+    assertEquals (nPNGPixels,
+                  new PLFileImage (new File ("src/test/resources/images/test1.png").toPath (),
+                                   50,
+                                   50).setImageType (EPLImageType.LOSSLESS).getSourcePixelCount ());
+
+    // Unknown
+    assertNull (new PLStreamImage (new ClassPathResource ("images/test1.jpg"),
+                                   50,
+                                   50).setImageType (EPLImageType.CCITT).getSourceSize ());
+    assertEquals (-1,
+                  new PLStreamImage (new ClassPathResource ("images/does-not-exist.png"),
+                                     50,
+                                     50).getSourcePixelCount ());
+  }
+
+  @Test
+  public void testSourcePixelLimit ()
+  {
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.addElement (new PLStreamImage (new ClassPathResource ("images/test1.jpg"), 50, 50));
+
+    final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+    aPageLayout.addPageSet (aPS1);
+    aPageLayout.setRenderLimits (new PLRenderLimits ().setMaxImagePixels (100));
+    try
+    {
+      aPageLayout.renderTo (new NonBlockingByteArrayOutputStream ());
+      fail ();
+    }
+    catch (final PDFCreationException ex)
+    {
+      assertTrue (ex instanceof PDFCreationLimitExceededException);
+    }
+  }
+
+  @Test
+  public void testBackgroundEncoding () throws PDFCreationException, IOException
+  {
+    final BufferedImage aImage = ImageIO.read (ClassPathResource.getInputStream ("images/test1.jpg"));
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.setPageHeader (new PLImage (aImage, 20, 20));
+    for (int i = 0; i < 20; ++i)
+    {
+      aPS1.addElement (new PLImage (aImage, 100, 100).setImageType (i % 2 == 0 ? EPLImageType.JPEG
+                                                                              : EPLImageType.LOSSLESS));
+      aPS1.addElement (new PLStreamImage (new ClassPathResource ("images/test1.png"),
+                                          50,
+                                          50).setImageType (EPLImageType.LOSSLESS));
+    }
+
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    try
+    {
+      final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+      aPageLayout.addPageSet (aPS1);
+      aPageLayout.setImageEncodingExecutor (aES, 3);
+      aPageLayout.renderTo (new File ("pdf/plimage/background-encoding.pdf"));
+    }
+    finally
+    {
+      aES.shutdown ();
+    }
+  }
 }
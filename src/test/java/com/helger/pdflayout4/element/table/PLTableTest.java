@@ -16,6 +16,10 @@
  */
 package com.helger.pdflayout4.element.table;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
 import java.awt.Color;
 import java.io.File;
 import java.util.function.Function;
@@ -42,9 +46,11 @@ import com.helger.pdflayout4.element.special.PLPageBreak;
 import com.helger.pdflayout4.element.special.PLSpacerX;
 import com.helger.pdflayout4.element.special.PLSpacerY;
 import com.helger.pdflayout4.element.text.PLText;
+import com.helger.pdflayout4.render.PreparationContext;
 import com.helger.pdflayout4.spec.BorderSpec;
 import com.helger.pdflayout4.spec.BorderStyleSpec;
 import com.helger.pdflayout4.spec.EHorzAlignment;
+import com.helger.pdflayout4.spec.EValueUOMType;
 import com.helger.pdflayout4.spec.FontSpec;
 import com.helger.pdflayout4.spec.HeightSpec;
 import com.helger.pdflayout4.spec.LineDashPatternSpec;
@@ -738,4 +744,83 @@ public final class PLTableTest
     aPageLayout.addPageSet (aPS1);
     aPageLayout.renderTo (new File ("pdf/pltable/different-width-types-too-wide.pdf"));
   }
+
+  @Nonnull
+  private static PLTable _createColSpanTable ()
+  {
+    final PLTable aTable = PLTable.createWithEvenlySizedColumns (4);
+    aTable.addRow (new PLTableCell (new PLSpacerX ()),
+                   new PLTableCell (new PLSpacerX ()),
+                   new PLTableCell (new PLSpacerX ()),
+                   new PLTableCell (new PLSpacerX ()));
+    aTable.addRow (new PLTableCell (new PLSpacerX (), 2),
+                   new PLTableCell (new PLSpacerX ()),
+                   new PLTableCell (new PLSpacerX ()));
+    aTable.addRow (new PLTableCell (new PLSpacerX ()), new PLTableCell (new PLSpacerX (), 3));
+    aTable.addRow (new PLTableCell (new PLSpacerX (), 4));
+    // Not all columns used
+    aTable.addRow (new PLTableCell (new PLSpacerX ()), new PLTableCell (new PLSpacerX ()));
+    return aTable;
+  }
+
+  @Test
+  public void testResolvedColumnWidths ()
+  {
+    final PLTable aTable = _createColSpanTable ();
+    final PLTableColumnWidths aWidths = new PLTableColumnWidths (aTable.getAllWidths (), EValueUOMType.STAR);
+    for (int i = 0; i < aTable.getRowCount (); ++i)
+      aTable.getRowAtIndex (i).internalSetTableColumnWidths (aWidths);
+
+    assertArrayEquals (new float [] { 100, 100, 100, 100 },
+                       aTable.getRowAtIndex (0).getPreResolvedColumnWidths (400),
+                       0.001f);
+    assertArrayEquals (new float [] { 200, 100, 100 }, aTable.getRowAtIndex (1).getPreResolvedColumnWidths (400), 0.001f);
+    assertArrayEquals (new float [] { 100, 300 }, aTable.getRowAtIndex (2).getPreResolvedColumnWidths (400), 0.001f);
+    assertArrayEquals (new float [] { 400 }, aTable.getRowAtIndex (3).getPreResolvedColumnWidths (400), 0.001f);
+    // Falls back to the regular calculation
+    assertNull (aTable.getRowAtIndex (4).getPreResolvedColumnWidths (400));
+
+    // Manually created row with different widths
+    final PLTableRow aManualRow = new PLTableRow ();
+    for (int i = 0; i < 4; ++i)
+      aManualRow.addCell (new PLTableCell (new PLSpacerX ()), WidthSpec.abs (50));
+    aManualRow.internalSetTableColumnWidths (aWidths);
+    assertNull (aManualRow.getPreResolvedColumnWidths (400));
+  }
+
+  @Test
+  public void testResolvedColumnWidthsSameLayout ()
+  {
+    // Prepared as a table - uses the table column widths
+    final PLTable aTable = _createColSpanTable ();
+    aTable.prepare (new PreparationContext (null, 400, 1000));
+
+    // Each row prepared on its own - uses the regular HBox calculation
+    final PLTable aRef = _createColSpanTable ();
+    for (int i = 0; i < aRef.getRowCount (); ++i)
+      aRef.getRowAtIndex (i).prepare (new PreparationContext (null, 400, 1000));
+
+    for (int i = 0; i < aTable.getRowCount (); ++i)
+    {
+      final PLTableRow aRow = aTable.getRowAtIndex (i);
+      final PLTableRow aRefRow = aRef.getRowAtIndex (i);
+      assertEquals (aRefRow.getPreparedSize ().getWidth (), aRow.getPreparedSize ().getWidth (), 0.001f);
+      for (int j = 0; j < aRow.getColumnCount (); ++j)
+        assertEquals (aRefRow.getCellAtIndex (j).getPreparedSize ().getWidth (),
+                      aRow.getCellAtIndex (j).getPreparedSize ().getWidth (),
+                      0.001f);
+    }
+  }
+
+  @Test
+  public void testResolvedColumnWidthsMixedTypes ()
+  {
+    final PLTable aTable = new PLTable (WidthSpec.abs (100), WidthSpec.perc (25), WidthSpec.star ());
+    aTable.addRow (new PLTableCell (new PLSpacerX ()),
+                   new PLTableCell (new PLSpacerX ()),
+                   new PLTableCell (new PLSpacerX ()));
+    final PLTableColumnWidths aWidths = new PLTableColumnWidths (aTable.getAllWidths (), null);
+    aTable.getRowAtIndex (0).internalSetTableColumnWidths (aWidths);
+    assertArrayEquals (new float [] { 100, 100, 200 }, aTable.getRowAtIndex (0).getPreResolvedColumnWidths (400), 0.001f);
+  }
 }
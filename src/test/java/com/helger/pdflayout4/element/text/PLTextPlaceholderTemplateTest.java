@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.element.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.string.StringHelper;
+import com.helger.pdflayout4.base.PLPageSet;
+import com.helger.pdflayout4.render.PagePreRenderContext;
+import com.helger.pdflayout4.render.PreparationContext;
+import com.helger.pdflayout4.render.PreparationContextGlobal;
+import com.helger.pdflayout4.spec.FontSpec;
+import com.helger.pdflayout4.spec.LoadedFont;
+import com.helger.pdflayout4.spec.PreloadFont;
+import com.helger.pdflayout4.spec.TextAndWidthSpec;
+
+/**
+ * Test class for class {@link PLTextPlaceholderTemplate}.
+ *
+ * @author Philip Helger
+ */
+public final class PLTextPlaceholderTemplateTest
+{
+  @Test
+  public void testParse ()
+  {
+    assertNull (PLTextPlaceholderTemplate.parse (""));
+    assertNull (PLTextPlaceholderTemplate.parse ("No placeholder"));
+    assertNull (PLTextPlaceholderTemplate.parse ("Unterminated ${page"));
+    assertNull (PLTextPlaceholderTemplate.parse ("Only {braces} and $"));
+    assertNotNull (PLTextPlaceholderTemplate.parse ("${page}"));
+    assertEquals (2, PLTextPlaceholderTemplate.parse ("Line 1\n${page}").getLineCount ());
+  }
+
+  @Test
+  public void testSameAsReplaceMultiple ()
+  {
+    final ICommonsOrderedMap <String, String> aMap = new CommonsLinkedHashMap <> ();
+    aMap.put ("${page}", "3");
+    aMap.put ("${total}", "17");
+    aMap.put ("${empty}", "");
+    // Replacement contains a placeholder itself - must not be replaced again
+    aMap.put ("${nested}", "${page}");
+
+    final String [] aTexts = { "Page ${page} of ${total}",
+                               // Adjacent
+                               "${page}${total}",
+                               "${page}${page}${total}${page}",
+                               "a${empty}b${empty}${empty}c",
+                               // Overlapping
+                               "${${page}}",
+                               "${a ${page}",
+                               "${pa${total}ge}",
+                               "${page}}${total}",
+                               "}${page}{",
+                               "$${page}",
+                               // Unknown and incomplete
+                               "${unknown} and ${page}",
+                               "${page} and ${",
+                               "${nested}",
+                               // Multiple lines
+                               "Line ${page}\n${total} x\n\nno placeholder\n${page}",
+                               "\n${page}\n" };
+    for (final String sText : aTexts)
+    {
+      final PLTextPlaceholderTemplate aTemplate = PLTextPlaceholderTemplate.parse (sText);
+      assertNotNull (sText, aTemplate);
+      assertEquals (sText, StringHelper.replaceMultiple (sText, aMap), aTemplate.getReplacedText (aMap::get));
+    }
+  }
+
+  @Test
+  public void testReplacedLinesIfFitting () throws IOException
+  {
+    final PreloadFont aPreloadFont = PreloadFont.REGULAR;
+    final LoadedFont aFont = new LoadedFont (aPreloadFont.loadPDFont (null), aPreloadFont.getFallbackCodePoint ());
+    final PLTextPlaceholderTemplate aTemplate = PLTextPlaceholderTemplate.parse ("Page ${page} of ${total}\nLine 2");
+
+    final ICommonsOrderedMap <String, String> aMap = new CommonsLinkedHashMap <> ();
+    aMap.put ("${page}", "3");
+    aMap.put ("${total}", "17");
+
+    // Fits
+    final ICommonsList <TextAndWidthSpec> aLines = aTemplate.getReplacedLinesIfFitting (aMap::get, aFont, 10, 200);
+    assertNotNull (aLines);
+    // Same as regular fitting
+    final ICommonsList <TextAndWidthSpec> aFitted = aFont.getFitToWidth ("Page 3 of 17\nLine 2", 10, 200);
+    assertEquals (aFitted.size (), aLines.size ());
+    for (int i = 0; i < aLines.size (); ++i)
+    {
+      assertEquals (aFitted.get (i).getText (), aLines.get (i).getText ());
+      assertEquals (aFitted.get (i).getWidth (), aLines.get (i).getWidth (), 0.001f);
+    }
+
+    // Does not fit anymore
+    aMap.put ("${total}", "a very long replacement value that needs more than the available width");
+    assertNull (aTemplate.getReplacedLinesIfFitting (aMap::get, aFont, 10, 200));
+  }
+
+  private static void _assertSameAsFitted (@Nonnull final PLText aText,
+                                           @Nonnull final String sExpectedText,
+                                           @Nonnull final PreparationContextGlobal aGlobalCtx,
+                                           final float fWidth)
+  {
+    final PLText aRef = new PLText (sExpectedText, aText.getFontSpec ());
+    aRef.prepare (new PreparationContext (aGlobalCtx, fWidth, 1000));
+    final ICommonsList <TextAndWidthSpec> aExpected = aRef.getAllPreparedLinesUnmodified ();
+    final ICommonsList <TextAndWidthSpec> aActual = aText.getAllPreparedLinesUnmodified ();
+    assertEquals (aExpected.size (), aActual.size ());
+    for (int i = 0; i < aExpected.size (); ++i)
+    {
+      assertEquals (aExpected.get (i).getText (), aActual.get (i).getText ());
+      assertEquals (aExpected.get (i).getWidth (), aActual.get (i).getWidth (), 0.001f);
+    }
+    assertEquals (aRef.getPreparedSize ().getWidth (), aText.getPreparedSize ().getWidth (), 0.001f);
+    assertEquals (aRef.getPreparedSize ().getHeight (), aText.getPreparedSize ().getHeight (), 0.001f);
+  }
+
+  @Test
+  public void testBeforeRender () throws IOException
+  {
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+    final float fWidth = 150;
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PreparationContextGlobal aGlobalCtx = new PreparationContextGlobal (aDoc);
+      final PLPageSet aPageSet = new PLPageSet (PDRectangle.A4);
+      final PDPage aPage = new PDPage ();
+
+      // Lines still fit - no refitting
+      {
+        final PLText aText = new PLText ("Page ${page} of ${total}\nSecond line", r10).setReplacePlaceholder (true);
+        aText.prepare (new PreparationContext (aGlobalCtx, fWidth, 1000));
+        final PagePreRenderContext aCtx = new PagePreRenderContext (aPageSet, aDoc, aPage, 0, 1, 0, 1, 0, 1);
+        aCtx.addPlaceholder ("${page}", "3");
+        aCtx.addPlaceholder ("${total}", "17");
+        assertTrue (aCtx.isAllPlaceholdersInVariableSyntax ());
+        assertTrue (aText.beforeRender (aCtx).isChanged ());
+        assertEquals (2, aText.getAllPreparedLinesUnmodified ().size ());
+        _assertSameAsFitted (aText, "Page 3 of 17\nSecond line", aGlobalCtx, fWidth);
+      }
+
+      // Lines no longer fit - fitted again
+      {
+        final PLText aText = new PLText ("Page ${page} of ${total}\nSecond line", r10).setReplacePlaceholder (true);
+        aText.prepare (new PreparationContext (aGlobalCtx, fWidth, 1000));
+        final PagePreRenderContext aCtx = new PagePreRenderContext (aPageSet, aDoc, aPage, 0, 1, 0, 1, 0, 1);
+        final String sLong = "a very long replacement value that needs more than the available width";
+        aCtx.addPlaceholder ("${page}", "3");
+        aCtx.addPlaceholder ("${total}", sLong);
+        assertTrue (aText.beforeRender (aCtx).isChanged ());
+        assertTrue (aText.getAllPreparedLinesUnmodified ().size () > 2);
+        _assertSameAsFitted (aText, "Page 3 of " + sLong + "\nSecond line", aGlobalCtx, fWidth);
+      }
+
+      // Custom placeholder not in variable syntax - regular replacement
+      {
+        final PLText aText = new PLText ("Page #page#", r10).setReplacePlaceholder (true);
+        aText.prepare (new PreparationContext (aGlobalCtx, fWidth, 1000));
+        final PagePreRenderContext aCtx = new PagePreRenderContext (aPageSet, aDoc, aPage, 0, 1, 0, 1, 0, 1);
+        aCtx.addPlaceholder ("#page#", "3");
+        assertFalse (aCtx.isAllPlaceholdersInVariableSyntax ());
+        assertTrue (aText.beforeRender (aCtx).isChanged ());
+        _assertSameAsFitted (aText, "Page 3", aGlobalCtx, fWidth);
+      }
+
+      // Key containing a nested variable start
+      {
+        final PagePreRenderContext aCtx = new PagePreRenderContext (aPageSet, aDoc, aPage, 0, 1, 0, 1, 0, 1);
+        aCtx.addPlaceholder ("${a${b}", "x");
+        assertFalse (aCtx.isAllPlaceholdersInVariableSyntax ());
+      }
+    }
+  }
+}
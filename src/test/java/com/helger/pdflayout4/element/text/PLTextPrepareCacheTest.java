@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.element.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.Test;
+
+import com.helger.pdflayout4.element.special.PLSpacerX;
+import com.helger.pdflayout4.render.PLPrepareCache;
+import com.helger.pdflayout4.render.PreparationContext;
+import com.helger.pdflayout4.render.PreparationContextGlobal;
+import com.helger.pdflayout4.spec.FontSpec;
+import com.helger.pdflayout4.spec.PreloadFont;
+import com.helger.pdflayout4.spec.SizeSpec;
+
+/**
+ * Test class for the prepare cache of {@link PLText}.
+ *
+ * @author Philip Helger
+ */
+public final class PLTextPrepareCacheTest
+{
+  private static final String TEXT = "The same text that is used more than once and needs to be wrapped";
+
+  /**
+   * Provides a cache key, but doesn't know how to use the cached state.
+   */
+  private static final class PLSpacerWithKey extends PLSpacerX
+  {
+    private int m_nPrepareCount = 0;
+
+    PLSpacerWithKey ()
+    {
+      super (10);
+    }
+
+    @Override
+    @Nullable
+    protected Object getPrepareCacheKey ()
+    {
+      return "spacer";
+    }
+
+    @Override
+    @Nullable
+    protected Object getPreparedStateForCache ()
+    {
+      return "state";
+    }
+
+    @Override
+    protected SizeSpec onPrepare (@Nonnull final PreparationContext aCtx)
+    {
+      m_nPrepareCount++;
+      return super.onPrepare (aCtx);
+    }
+  }
+
+  @Test
+  public void testCacheHit () throws IOException
+  {
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PreparationContextGlobal aGlobalCtx = new PreparationContextGlobal (aDoc).setPrepareCacheEnabled (true);
+      final PLPrepareCache aCache = aGlobalCtx.getPrepareCache ();
+
+      final PLText aText1 = new PLText (TEXT, r10);
+      final SizeSpec aSize1 = aText1.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+      assertEquals (0, aCache.getHitCount ());
+      assertEquals (1, aCache.size ());
+
+      final PLText aText2 = new PLText (TEXT, r10);
+      final SizeSpec aSize2 = aText2.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+      assertEquals (1, aCache.getHitCount ());
+      assertEquals (aSize1, aSize2);
+      assertEquals (aText1.getAllPreparedLinesUnmodified (), aText2.getAllPreparedLinesUnmodified ());
+
+      // Same result as without cache
+      final PLText aText3 = new PLText (TEXT, r10);
+      final SizeSpec aSize3 = aText3.prepare (new PreparationContext (new PreparationContextGlobal (aDoc), 100, 500));
+      assertEquals (aSize3, aSize2);
+      assertEquals (aText3.getAllPreparedLinesUnmodified (), aText2.getAllPreparedLinesUnmodified ());
+    }
+  }
+
+  @Test
+  public void testNoKeyCollisions () throws IOException
+  {
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PreparationContextGlobal aGlobalCtx = new PreparationContextGlobal (aDoc).setPrepareCacheEnabled (true);
+      final PLPrepareCache aCache = aGlobalCtx.getPrepareCache ();
+
+      final PLText aText1 = new PLText (TEXT, r10);
+      final SizeSpec aSize1 = aText1.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+
+      // Different font size
+      final PLText aText2 = new PLText (TEXT, new FontSpec (PreloadFont.REGULAR, 14));
+      final SizeSpec aSize2 = aText2.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+      assertFalse (aSize1.equals (aSize2));
+
+      // Different font
+      final PLText aText3 = new PLText (TEXT, new FontSpec (PreloadFont.REGULAR_BOLD, 10));
+      aText3.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+
+      // Different available width
+      final PLText aText4 = new PLText (TEXT, r10);
+      final SizeSpec aSize4 = aText4.prepare (new PreparationContext (aGlobalCtx, 300, 500));
+      assertFalse (aSize1.equals (aSize4));
+
+      // Different outline
+      final PLText aText5 = new PLText (TEXT, r10).setPadding (5);
+      aText5.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+
+      assertEquals (0, aCache.getHitCount ());
+      assertEquals (5, aCache.size ());
+    }
+  }
+
+  @Test
+  public void testNoSharedState () throws IOException
+  {
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PreparationContextGlobal aGlobalCtx = new PreparationContextGlobal (aDoc).setPrepareCacheEnabled (true);
+
+      final PLText aText1 = new PLText (TEXT, r10);
+      aText1.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+      final PLText aText2 = new PLText (TEXT, r10);
+      aText2.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+      final PLText aText3 = new PLText (TEXT, r10);
+      aText3.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+      assertEquals (2, aGlobalCtx.getPrepareCache ().getHitCount ());
+
+      // Each object has its own lines
+      assertNotSame (aText1.m_aPreparedLinesUnmodified, aText2.m_aPreparedLinesUnmodified);
+      assertNotSame (aText2.m_aPreparedLinesUnmodified, aText3.m_aPreparedLinesUnmodified);
+
+      // Modifying one object doesn't modify the others or the cache
+      final int nLineCount = aText1.m_aPreparedLinesUnmodified.size ();
+      aText2.m_aPreparedLinesUnmodified.clear ();
+      assertEquals (nLineCount, aText1.m_aPreparedLinesUnmodified.size ());
+      final PLText aText4 = new PLText (TEXT, r10);
+      aText4.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+      assertEquals (nLineCount, aText4.m_aPreparedLinesUnmodified.size ());
+    }
+  }
+
+  @Test
+  public void testFallbackToPrepare () throws IOException
+  {
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PreparationContextGlobal aGlobalCtx = new PreparationContextGlobal (aDoc).setPrepareCacheEnabled (true);
+
+      final PLSpacerWithKey aSpacer1 = new PLSpacerWithKey ();
+      aSpacer1.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+      final PLSpacerWithKey aSpacer2 = new PLSpacerWithKey ();
+      aSpacer2.prepare (new PreparationContext (aGlobalCtx, 100, 500));
+
+      // The cached state cannot be used, so it is prepared regularly
+      assertEquals (1, aSpacer1.m_nPrepareCount);
+      assertEquals (1, aSpacer2.m_nPrepareCount);
+      assertTrue (aSpacer2.isPrepared ());
+      assertEquals (aSpacer1.getPreparedSize (), aSpacer2.getPreparedSize ());
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.jfr;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.pdflayout4.PDFCreationException;
+import com.helger.pdflayout4.PageLayoutPDF;
+import com.helger.pdflayout4.base.PLPageSet;
+import com.helger.pdflayout4.element.image.PLImage;
+import com.helger.pdflayout4.element.text.PLText;
+import com.helger.pdflayout4.element.vbox.PLVBox;
+import com.helger.pdflayout4.spec.FontSpec;
+import com.helger.pdflayout4.spec.PreloadFont;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Test class for class {@link PLJFR}.
+ *
+ * @author Philip Helger
+ */
+@SuppressForbidden (reason = "Test is skipped if JFR is not available")
+public final class PLJFRTest
+{
+  private static boolean _contains (final ICommonsList <RecordedEvent> aEvents,
+                                    final String sEventName,
+                                    final String sField,
+                                    final String sValue)
+  {
+    return aEvents.containsAny (x -> x.getEventType ().getName ().equals (PLJFR.EVENT_PREFIX + sEventName) &&
+                                     (sField == null || sValue.equals (x.getString (sField))));
+  }
+
+  @Test
+  public void testEvents () throws IOException, PDFCreationException
+  {
+    assumeTrue (PLJFR.isAvailable ());
+
+    // Nothing is recorded without a recording
+    assertNull (PLJFR.beginPrepare ());
+
+    final FontSpec r10 = new FontSpec (PreloadFont.REGULAR, 10);
+    final StringBuilder aSB = new StringBuilder ();
+    for (int i = 0; i < 200; ++i)
+      aSB.append ("Line ").append (i).append ('\n');
+
+    final PLPageSet aPS1 = new PLPageSet (PDRectangle.A4).setMargin (30);
+    aPS1.setPageHeader (new PLImage (new BufferedImage (10, 10, BufferedImage.TYPE_INT_RGB)));
+    // Text inside a VBox is split inside the VBox split
+    aPS1.addElement (new PLVBox (new PLText (aSB.toString (), r10).setVertSplittable (true)).setVertSplittable (true));
+
+    final ICommonsList <RecordedEvent> aEvents = new CommonsArrayList <> ();
+    final Path aFile = File.createTempFile ("pdflayout", ".jfr").toPath ();
+    try
+    {
+      try (final Recording aRecording = new Recording ())
+      {
+        for (final String sName : new String [] { "Prepare", "Split", "Render", "FontLoad", "Image" })
+          aRecording.enable (PLJFR.EVENT_PREFIX + sName).withoutThreshold ();
+        aRecording.start ();
+
+        final PageLayoutPDF aPageLayout = new PageLayoutPDF ();
+        aPageLayout.addPageSet (aPS1);
+        aPageLayout.renderTo (new NonBlockingByteArrayOutputStream ());
+
+        aRecording.stop ();
+        aRecording.dump (aFile);
+      }
+      aEvents.addAll (RecordingFile.readAllEvents (aFile));
+    }
+    finally
+    {
+      aFile.toFile ().delete ();
+    }
+
+    assertTrue (_contains (aEvents, "Prepare", "elementType", PLText.class.getName ()));
+    assertTrue (_contains (aEvents, "Prepare", "elementType", PLVBox.class.getName ()));
+    assertTrue (_contains (aEvents, "Render", "elementType", PLText.class.getName ()));
+    assertTrue (_contains (aEvents, "Render", "elementType", PLImage.class.getName ()));
+    // Top level split
+    assertTrue (_contains (aEvents, "Split", "elementType", PLVBox.class.getName ()));
+    // Nested split
+    assertTrue (_contains (aEvents, "Split", "elementType", PLText.class.getName ()));
+    assertTrue (_contains (aEvents, "FontLoad", "fontID", PreloadFont.REGULAR.getID ()));
+    assertTrue (_contains (aEvents, "Image", "source", "encoded"));
+  }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.Test;
+
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.pdflayout4.pdfbox.JPEGPassThroughFactory.JPEGHeader;
+
+/**
+ * Test class for class {@link JPEGPassThroughFactory}.
+ *
+ * @author Philip Helger
+ */
+public final class JPEGPassThroughFactoryTest
+{
+  @Test
+  public void testBasic () throws IOException
+  {
+    final ClassPathResource aRes = new ClassPathResource ("images/test1.jpg");
+    final BufferedImage aDecoded = ImageIO.read (aRes.getInputStream ());
+
+    try (final InputStream aIS = aRes.getInputStream ())
+    {
+      final JPEGHeader aHeader = JPEGPassThroughFactory.readHeader (aIS);
+      assertNotNull (aHeader);
+      assertEquals (aDecoded.getWidth (), aHeader.getWidth ());
+      assertEquals (aDecoded.getHeight (), aHeader.getHeight ());
+      assertEquals (8, aHeader.getBitsPerComponent ());
+    }
+
+    final byte [] aBytes = StreamHelper.getAllBytes (aRes);
+    try (final PDDocument aDoc = new PDDocument ();
+        final InputStream aIS = aRes.getInputStream ())
+    {
+      final PDImageXObject aXObject = JPEGPassThroughFactory.createFromStream (aDoc, aIS);
+      assertEquals (COSName.DCT_DECODE, aXObject.getCOSObject ().getFilters ());
+      assertEquals (aDecoded.getWidth (), aXObject.getWidth ());
+      assertEquals (aDecoded.getHeight (), aXObject.getHeight ());
+      // The complete file was copied
+      assertEquals (aBytes.length, aXObject.getCOSObject ().getLength ());
+    }
+  }
+
+  @Test
+  public void testQuality () throws IOException
+  {
+    // The test image is stored with the maximum quality
+    try (final InputStream aIS = new ClassPathResource ("images/test1.jpg").getInputStream ())
+    {
+      assertTrue (JPEGPassThroughFactory.readHeader (aIS).getQuality () > 0.95f);
+    }
+
+    final ImageWriter aWriter = ImageIO.getImageWritersByFormatName ("jpeg").next ();
+    final ImageWriteParam aParam = aWriter.getDefaultWriteParam ();
+    aParam.setCompressionMode (ImageWriteParam.MODE_EXPLICIT);
+    aParam.setCompressionQuality (0.5f);
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    try (final ImageOutputStream aIOS = ImageIO.createImageOutputStream (aBAOS))
+    {
+      aWriter.setOutput (aIOS);
+      aWriter.write (null, new IIOImage (new BufferedImage (16, 16, BufferedImage.TYPE_INT_RGB), null, null), aParam);
+    }
+    finally
+    {
+      aWriter.dispose ();
+    }
+    final JPEGHeader aHeader = JPEGPassThroughFactory.readHeader (new NonBlockingByteArrayInputStream (aBAOS.toByteArray ()));
+    assertEquals (0.5f, aHeader.getQuality (), 0.02f);
+
+    // No quantization table
+    assertEquals (0f,
+                  JPEGPassThroughFactory.readHeader (new NonBlockingByteArrayInputStream (_createHeader (8, 3)))
+                                        .getQuality (),
+                  0f);
+  }
+
+  @Test
+  public void testNoJPEG () throws IOException
+  {
+    assertNull (JPEGPassThroughFactory.readHeader (new NonBlockingByteArrayInputStream (new byte [] { 1, 2, 3 })));
+  }
+
+  /**
+   * @return A minimal 1x1 JPEG header with the passed precision and number of
+   *         components. The pixel data is missing, as it is not decoded.
+   */
+  @Nonnull
+  private static byte [] _createHeader (final int nBitsPerComponent, final int nComponents)
+  {
+    final int nLength = 8 + 3 * nComponents;
+    final byte [] ret = new byte [2 + 2 + nLength + 2];
+    int nIdx = 0;
+    // SOI
+    ret[nIdx++] = (byte) 0xff;
+    ret[nIdx++] = (byte) 0xd8;
+    // SOF0
+    ret[nIdx++] = (byte) 0xff;
+    ret[nIdx++] = (byte) 0xc0;
+    ret[nIdx++] = 0;
+    ret[nIdx++] = (byte) nLength;
+    ret[nIdx++] = (byte) nBitsPerComponent;
+    // Height and width
+    ret[nIdx++] = 0;
+    ret[nIdx++] = 1;
+    ret[nIdx++] = 0;
+    ret[nIdx++] = 1;
+    ret[nIdx++] = (byte) nComponents;
+    for (int i = 0; i < nComponents; ++i)
+    {
+      ret[nIdx++] = (byte) (i + 1);
+      ret[nIdx++] = 0x11;
+      ret[nIdx++] = 0;
+    }
+    // EOI
+    ret[nIdx++] = (byte) 0xff;
+    ret[nIdx++] = (byte) 0xd9;
+    return ret;
+  }
+
+  @Test
+  public void testCMYK () throws IOException
+  {
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final byte [] aCMYK = _createHeader (8, 4);
+      final PDImageXObject aXObject = JPEGPassThroughFactory.createFromStream (aDoc,
+                                                                               new NonBlockingByteArrayInputStream (aCMYK));
+      assertEquals (PDDeviceCMYK.INSTANCE, aXObject.getColorSpace ());
+      final COSArray aDecode = aXObject.getDecode ();
+      assertNotNull (aDecode);
+      assertEquals (8, aDecode.size ());
+      for (int i = 0; i < 4; ++i)
+      {
+        assertEquals (COSInteger.ONE, aDecode.getObject (2 * i));
+        assertEquals (COSInteger.ZERO, aDecode.getObject (2 * i + 1));
+      }
+
+      // No decode array for RGB
+      final byte [] aRGB = _createHeader (8, 3);
+      assertNull (JPEGPassThroughFactory.createFromStream (aDoc, new NonBlockingByteArrayInputStream (aRGB))
+                                        .getDecode ());
+    }
+  }
+
+  @Test
+  public void test12Bit () throws IOException
+  {
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      JPEGPassThroughFactory.createFromStream (aDoc, new NonBlockingByteArrayInputStream (_createHeader (12, 3)));
+      fail ();
+    }
+    catch (final IOException ex)
+    {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.Test;
+
+/**
+ * Test class for class {@link PDContentStreamDeduplicator}.
+ *
+ * @author Philip Helger
+ */
+public final class PDContentStreamDeduplicatorTest
+{
+  private static COSStream _createPage (final PDDocument aDoc, final String sContent) throws IOException
+  {
+    final PDPage aPage = new PDPage ();
+    aDoc.addPage (aPage);
+    final PDResources aResources = new PDResources ();
+    aResources.add (PDType1Font.HELVETICA);
+    aPage.setResources (aResources);
+    final PDStream aStream = new PDStream (aDoc);
+    try (final OutputStream aOS = aStream.createOutputStream ())
+    {
+      aOS.write (sContent.getBytes (StandardCharsets.ISO_8859_1));
+    }
+    aPage.setContents (aStream);
+    return aStream.getCOSObject ();
+  }
+
+  @Test
+  public void testBasic () throws IOException
+  {
+    final PDContentStreamDeduplicator aDedup = new PDContentStreamDeduplicator ();
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final COSStream aStream1 = _createPage (aDoc, "BT /F1 10 Tf (abc) Tj ET");
+      assertSame (aStream1, aDedup.deduplicate (aDoc.getPage (0), aStream1, false, true));
+      assertEquals (COSName.FLATE_DECODE, aStream1.getFilters ());
+
+      final COSStream aStream2 = _createPage (aDoc, "BT /F1 10 Tf (abc) Tj ET");
+      assertSame (aStream1, aDedup.deduplicate (aDoc.getPage (1), aStream2, false, true));
+      assertSame (aStream1, aDoc.getPage (1).getCOSObject ().getDictionaryObject (COSName.CONTENTS));
+
+      final COSStream aStream3 = _createPage (aDoc, "BT /F1 10 Tf (xyz) Tj ET");
+      assertSame (aStream3, aDedup.deduplicate (aDoc.getPage (2), aStream3, false, true));
+
+      assertEquals (2, aDedup.getUniqueCount ());
+      assertEquals (1, aDedup.getDuplicateCount ());
+      assertEquals (aStream1.getLength (), aDedup.getSavedBytes ());
+    }
+  }
+}
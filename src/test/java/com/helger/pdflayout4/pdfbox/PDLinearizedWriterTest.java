@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+
+/**
+ * Test class for class {@link PDLinearizedWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class PDLinearizedWriterTest
+{
+  @Test
+  public void testWriteAndRead () throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    final PDLinearizedWriter aWriter = new PDLinearizedWriter ();
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDDocumentInformation aInfo = new PDDocumentInformation ();
+      aInfo.setTitle ("Linearized");
+      aDoc.setDocumentInformation (aInfo);
+      for (int i = 0; i < 5; ++i)
+      {
+        final PDPage aPage = new PDPage ();
+        aDoc.addPage (aPage);
+        try (final PDPageContentStream aCS = new PDPageContentStream (aDoc, aPage))
+        {
+          aCS.beginText ();
+          // The first page uses a different font than the others, so that
+          // there are shared objects outside of the first page
+          aCS.setFont (i == 0 ? PDType1Font.HELVETICA : PDType1Font.COURIER, 12);
+          aCS.newLineAtOffset (50, 700);
+          aCS.showText ("Page " + i);
+          aCS.endText ();
+        }
+      }
+      aWriter.write (aDoc, aBAOS);
+    }
+    assertTrue (aWriter.getFirstPageObjectCount () > 0);
+    assertEquals (1, aWriter.getSharedObjectCount ());
+
+    final String sPDF = aBAOS.getAsString (StandardCharsets.ISO_8859_1);
+    assertTrue (sPDF.startsWith ("%PDF-"));
+    // Linearization dictionary must be at the start of the file
+    final int nLinearized = sPDF.indexOf ("/Linearized 1");
+    assertTrue (nLinearized > 0 && nLinearized < 1024);
+    assertTrue (sPDF.contains ("/N 5/T "));
+
+    try (final PDDocument aDoc = PDDocument.load (aBAOS.toByteArray ()))
+    {
+      assertEquals (5, aDoc.getNumberOfPages ());
+      assertEquals ("Linearized", aDoc.getDocumentInformation ().getTitle ());
+      final String sText = new PDFTextStripper ().getText (aDoc);
+      assertTrue (sText.contains ("Page 0"));
+      assertTrue (sText.contains ("Page 4"));
+    }
+  }
+}
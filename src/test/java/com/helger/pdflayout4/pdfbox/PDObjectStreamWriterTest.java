@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+
+/**
+ * Test class for class {@link PDObjectStreamWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class PDObjectStreamWriterTest
+{
+  @Test
+  public void testWriteAndRead () throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    // Few objects per stream to get multiple object streams
+    final PDObjectStreamWriter aWriter = new PDObjectStreamWriter (3, 9);
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDDocumentInformation aInfo = new PDDocumentInformation ();
+      aInfo.setTitle ("Object streams");
+      aDoc.setDocumentInformation (aInfo);
+      for (int i = 0; i < 5; ++i)
+      {
+        final PDPage aPage = new PDPage ();
+        aDoc.addPage (aPage);
+        try (final PDPageContentStream aCS = new PDPageContentStream (aDoc, aPage))
+        {
+          aCS.beginText ();
+          aCS.setFont (PDType1Font.HELVETICA, 12);
+          aCS.newLineAtOffset (50, 700);
+          aCS.showText ("Page " + i);
+          aCS.endText ();
+        }
+      }
+      aWriter.write (aDoc, aBAOS);
+    }
+    assertTrue (aWriter.getObjectCount () > 0);
+    assertTrue (aWriter.getCompressedObjectCount () > 0);
+    assertTrue (aBAOS.getAsString (StandardCharsets.ISO_8859_1).startsWith ("%PDF-1.5"));
+
+    try (final PDDocument aDoc = PDDocument.load (aBAOS.toByteArray ()))
+    {
+      assertEquals (5, aDoc.getNumberOfPages ());
+      assertEquals ("Object streams", aDoc.getDocumentInformation ().getTitle ());
+      final String sText = new PDFTextStripper ().getText (aDoc);
+      assertTrue (sText.contains ("Page 4"));
+    }
+  }
+}
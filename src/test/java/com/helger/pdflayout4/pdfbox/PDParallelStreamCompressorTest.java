@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.string.StringHelper;
+
+/**
+ * Test class for class {@link PDParallelStreamCompressor}.
+ *
+ * @author Philip Helger
+ */
+public final class PDParallelStreamCompressorTest
+{
+  @Test
+  public void testBasic () throws IOException
+  {
+    final byte [] aContent = StringHelper.getRepeated ("0 0 m 100 100 l S\n", 100).getBytes (StandardCharsets.ISO_8859_1);
+    // Run on the calling thread
+    final PDParallelStreamCompressor aCompressor = new PDParallelStreamCompressor (Runnable::run, 2, 9);
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDStream aStream = new PDStream (aDoc);
+      try (final OutputStream aOS = aStream.createOutputStream ())
+      {
+        aOS.write (aContent);
+      }
+      for (int i = 0; i < 3; ++i)
+      {
+        // All pages share the same stream
+        final PDPage aPage = new PDPage ();
+        aPage.setContents (aStream);
+        aDoc.addPage (aPage);
+      }
+
+      aCompressor.compressAll (aDoc);
+      assertEquals (1, aCompressor.getStreamCount ());
+      assertEquals (aContent.length, aCompressor.getUncompressedBytes ());
+      assertTrue (aCompressor.getCompressedBytes () < aContent.length);
+
+      final COSStream aCOSStream = aStream.getCOSObject ();
+      assertEquals (COSName.FLATE_DECODE, aCOSStream.getFilters ());
+      try (final InputStream aIS = aCOSStream.createInputStream ())
+      {
+        assertArrayEquals (aContent, StreamHelper.getAllBytes (aIS));
+      }
+    }
+  }
+
+  @Test
+  public void testMultipleWindows () throws IOException
+  {
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    try
+    {
+      final AtomicInteger aRunning = new AtomicInteger (0);
+      final AtomicInteger aMaxRunning = new AtomicInteger (0);
+      final Executor aExecutor = aTask -> aES.execute ( () -> {
+        aMaxRunning.accumulateAndGet (aRunning.incrementAndGet (), Math::max);
+        try
+        {
+          aTask.run ();
+        }
+        finally
+        {
+          aRunning.decrementAndGet ();
+        }
+      });
+      final PDParallelStreamCompressor aCompressor = new PDParallelStreamCompressor (aExecutor, 2, 9);
+
+      try (final PDDocument aDoc = new PDDocument ())
+      {
+        final ICommonsList <byte []> aContents = new CommonsArrayList <> ();
+        final ICommonsList <PDStream> aStreams = new CommonsArrayList <> ();
+        for (int i = 0; i < 7; ++i)
+        {
+          final byte [] aContent = StringHelper.getRepeated ("0 0 m " + i + " 100 l S\n", 100)
+                                               .getBytes (StandardCharsets.ISO_8859_1);
+          final PDStream aStream = new PDStream (aDoc);
+          try (final OutputStream aOS = aStream.createOutputStream ())
+          {
+            aOS.write (aContent);
+          }
+          final PDPage aPage = new PDPage ();
+          aPage.setContents (aStream);
+          aDoc.addPage (aPage);
+          aContents.add (aContent);
+          aStreams.add (aStream);
+        }
+
+        aCompressor.compressAll (aDoc);
+        assertEquals (7, aCompressor.getStreamCount ());
+        assertTrue (aMaxRunning.get () <= 2);
+
+        for (int i = 0; i < 7; ++i)
+        {
+          final COSStream aCOSStream = aStreams.get (i).getCOSObject ();
+          assertEquals (COSName.FLATE_DECODE, aCOSStream.getFilters ());
+          try (final InputStream aIS = aCOSStream.createInputStream ())
+          {
+            assertArrayEquals (aContents.get (i), StreamHelper.getAllBytes (aIS));
+          }
+        }
+      }
+    }
+    finally
+    {
+      aES.shutdown ();
+    }
+  }
+}
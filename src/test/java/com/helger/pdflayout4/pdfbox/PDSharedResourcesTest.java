@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.Test;
+
+/**
+ * Test class for class {@link PDSharedResources}.
+ *
+ * @author Philip Helger
+ */
+public final class PDSharedResourcesTest
+{
+  @Test
+  public void testBasic () throws IOException
+  {
+    final PDSharedResources aRes = new PDSharedResources ();
+    assertEquals (0, aRes.getResourceCount ());
+
+    final COSName aFont1 = aRes.add (PDType1Font.HELVETICA);
+    final COSName aFont2 = aRes.add (PDType1Font.HELVETICA_BOLD);
+    assertNotEquals (aFont1, aFont2);
+    assertSame (aFont1, aRes.add (PDType1Font.HELVETICA));
+    assertSame (aFont2, aRes.add (PDType1Font.HELVETICA_BOLD));
+    assertEquals (2, aRes.getResourceCount ());
+    assertEquals (2, aRes.getLookupHitCount ());
+    assertEquals (PDType1Font.HELVETICA.getCOSObject (), aRes.getFont (aFont1).getCOSObject ());
+
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDImageXObject aImage = LosslessFactory.createFromImage (aDoc,
+                                                                     new BufferedImage (2, 2, BufferedImage.TYPE_INT_RGB));
+      final COSName aImageName = aRes.add (aImage);
+      assertEquals ("Im1", aImageName.getName ());
+      assertSame (aImageName, aRes.add (aImage));
+      assertEquals (3, aRes.getResourceCount ());
+      assertEquals (aImage.getCOSObject (), aRes.getXObject (aImageName).getCOSObject ());
+    }
+  }
+}
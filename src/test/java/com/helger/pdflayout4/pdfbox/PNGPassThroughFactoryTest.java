@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.pdfbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.io.stream.StreamHelper;
+
+/**
+ * Test class for class {@link PNGPassThroughFactory}.
+ *
+ * @author Philip Helger
+ */
+public final class PNGPassThroughFactoryTest
+{
+  @Nonnull
+  private static byte [] _toPNG (@Nonnull final BufferedImage aImage) throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    assertTrue (ImageIO.write (aImage, "png", aBAOS));
+    return aBAOS.toByteArray ();
+  }
+
+  @Nonnull
+  private static byte [] _getDecodedBytes (@Nonnull final PDImageXObject aXObject) throws IOException
+  {
+    try (final InputStream aIS = aXObject.getStream ().createInputStream ())
+    {
+      return StreamHelper.getAllBytes (aIS);
+    }
+  }
+
+  private static void _assertSamePixels (@Nonnull final BufferedImage aExpected,
+                                         @Nonnull final PDImageXObject aXObject) throws IOException
+  {
+    final BufferedImage aActual = aXObject.getImage ();
+    assertEquals (aExpected.getWidth (), aActual.getWidth ());
+    assertEquals (aExpected.getHeight (), aActual.getHeight ());
+    for (int y = 0; y < aExpected.getHeight (); ++y)
+      for (int x = 0; x < aExpected.getWidth (); ++x)
+        assertEquals ("Pixel " + x + "/" + y, aExpected.getRGB (x, y), aActual.getRGB (x, y));
+  }
+
+  @Nonnull
+  private static BufferedImage _createImage (final int nType)
+  {
+    final BufferedImage ret = new BufferedImage (37, 23, nType);
+    for (int y = 0; y < ret.getHeight (); ++y)
+      for (int x = 0; x < ret.getWidth (); ++x)
+        ret.setRGB (x, y, ((x * 7) << 16) | ((y * 11) << 8) | ((x + y) * 3) | ((x * 5 + y) << 24));
+    return ret;
+  }
+
+  @Test
+  public void testRGB () throws IOException
+  {
+    final BufferedImage aImage = _createImage (BufferedImage.TYPE_INT_RGB);
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDImageXObject aXObject = PNGPassThroughFactory.createFromByteArray (aDoc, _toPNG (aImage));
+      assertNotNull (aXObject);
+      assertEquals (COSName.FLATE_DECODE, aXObject.getCOSObject ().getFilters ());
+      assertNotNull (aXObject.getCOSObject ().getDictionaryObject (COSName.DECODE_PARMS));
+      assertNull (aXObject.getSoftMask ());
+      _assertSamePixels (aImage, aXObject);
+    }
+  }
+
+  @Test
+  public void testGray () throws IOException
+  {
+    final BufferedImage aImage = _createImage (BufferedImage.TYPE_BYTE_GRAY);
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDImageXObject aXObject = PNGPassThroughFactory.createFromByteArray (aDoc, _toPNG (aImage));
+      assertNotNull (aXObject);
+      assertEquals (aImage.getWidth (), aXObject.getWidth ());
+      assertEquals (8, aXObject.getBitsPerComponent ());
+    }
+  }
+
+  @Test
+  public void testRGBA () throws IOException
+  {
+    final BufferedImage aImage = _createImage (BufferedImage.TYPE_INT_ARGB);
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDImageXObject aXObject = PNGPassThroughFactory.createFromByteArray (aDoc, _toPNG (aImage));
+      assertNotNull (aXObject);
+      final PDImageXObject aSoftMask = aXObject.getSoftMask ();
+      assertNotNull (aSoftMask);
+      final byte [] aAlpha = _getDecodedBytes (aSoftMask);
+      for (int y = 0; y < aImage.getHeight (); ++y)
+        for (int x = 0; x < aImage.getWidth (); ++x)
+          assertEquals (aImage.getRGB (x, y) >>> 24, aAlpha[y * aImage.getWidth () + x] & 0xff);
+    }
+  }
+
+  @Test
+  public void testPalette () throws IOException
+  {
+    final byte [] aRed = { 0, (byte) 255, 0, 0 };
+    final byte [] aGreen = { 0, 0, (byte) 255, 0 };
+    final byte [] aBlue = { 0, 0, 0, (byte) 255 };
+    final byte [] aAlphas = { 0, (byte) 255, (byte) 128, (byte) 255 };
+    final BufferedImage aImage = new BufferedImage (13,
+                                                    7,
+                                                    BufferedImage.TYPE_BYTE_BINARY,
+                                                    new IndexColorModel (2, 4, aRed, aGreen, aBlue, aAlphas));
+    for (int y = 0; y < aImage.getHeight (); ++y)
+      for (int x = 0; x < aImage.getWidth (); ++x)
+        aImage.getRaster ().setSample (x, y, 0, (x + y) % 4);
+
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      final PDImageXObject aXObject = PNGPassThroughFactory.createFromByteArray (aDoc, _toPNG (aImage));
+      assertNotNull (aXObject);
+      assertEquals (2, aXObject.getBitsPerComponent ());
+      final PDImageXObject aSoftMask = aXObject.getSoftMask ();
+      assertNotNull (aSoftMask);
+      final byte [] aAlpha = _getDecodedBytes (aSoftMask);
+      for (int y = 0; y < aImage.getHeight (); ++y)
+        for (int x = 0; x < aImage.getWidth (); ++x)
+          assertEquals (aAlphas[(x + y) % 4] & 0xff, aAlpha[y * aImage.getWidth () + x] & 0xff);
+    }
+  }
+
+  @Test
+  public void testNoPNG () throws IOException
+  {
+    assertFalse (PNGPassThroughFactory.isPNG (new byte [] { 1, 2, 3 }));
+    try (final PDDocument aDoc = new PDDocument ())
+    {
+      assertNull (PNGPassThroughFactory.createFromByteArray (aDoc, new byte [] { 1, 2, 3 }));
+    }
+  }
+}
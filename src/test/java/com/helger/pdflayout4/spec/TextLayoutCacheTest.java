@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.pdflayout4.spec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.ICommonsList;
+
+/**
+ * Test class for class {@link TextLayoutCache}.
+ *
+ * @author Philip Helger
+ */
+public final class TextLayoutCacheTest
+{
+  @Test
+  public void testDisabledByDefault ()
+  {
+    assertEquals (0, TextLayoutCache.DEFAULT_MAX_SIZE);
+    final TextLayoutCache aCache = TextLayoutCache.getInstance ();
+    if (aCache.getMaxSize () == TextLayoutCache.DEFAULT_MAX_SIZE)
+    {
+      assertFalse (aCache.isEnabled ());
+      assertNull (aCache.createKey ("font", 0, 10, 100, "text"));
+    }
+  }
+
+  @Test
+  public void testBasic () throws IOException
+  {
+    final TextLayoutCache aCache = TextLayoutCache.getInstance ();
+    final int nOldMaxSize = aCache.getMaxSize ();
+    aCache.setMaxSize (1000);
+    try
+    {
+      final PreloadFont aPreloadFont = PreloadFont.REGULAR;
+      final LoadedFont aFont = new LoadedFont (aPreloadFont.loadPDFont (null),
+                                               aPreloadFont.getFallbackCodePoint (),
+                                               aPreloadFont.getID ());
+      final String sText = "Total amount including all taxes\nSecond line";
+
+      final long nHits = aCache.getHitCount ();
+      final long nMisses = aCache.getMissCount ();
+      final ICommonsList <TextAndWidthSpec> aLines1 = aFont.getFitToWidth (sText, 10, 80);
+      assertEquals (nMisses + 1, aCache.getMissCount ());
+      assertEquals (nHits, aCache.getHitCount ());
+
+      final ICommonsList <TextAndWidthSpec> aLines2 = aFont.getFitToWidth (sText, 10, 80);
+      assertEquals (nMisses + 1, aCache.getMissCount ());
+      assertEquals (nHits + 1, aCache.getHitCount ());
+      assertEquals (aLines1, aLines2);
+
+      // Different width
+      aFont.getFitToWidth (sText, 10, 81);
+      assertEquals (nMisses + 2, aCache.getMissCount ());
+    }
+    finally
+    {
+      aCache.setMaxSize (nOldMaxSize);
+    }
+  }
+
+  @Test
+  public void testEviction ()
+  {
+    final TextLayoutCache aCache = TextLayoutCache.getInstance ();
+    final int nOldMaxSize = aCache.getMaxSize ();
+    aCache.setMaxSize (100);
+    try
+    {
+      final TextAndWidthSpec [] aLines = { new TextAndWidthSpec ("a", 5) };
+      final Object aFirstKey = aCache.createKey ("font", 0, 10, 100, "text0");
+      aCache.put (aFirstKey, aLines);
+      for (int i = 1; i < 200; ++i)
+      {
+        // Keep the first entry alive
+        assertNotNull (aCache.get (aFirstKey));
+        aCache.put (aCache.createKey ("font", 0, 10, 100, "text" + i), aLines);
+        assertTrue (aCache.size () <= 100);
+      }
+      assertNotNull (aCache.get (aFirstKey));
+
+      aCache.setMaxSize (10);
+      assertTrue (aCache.size () <= 10);
+      assertNotNull (aCache.get (aFirstKey));
+    }
+    finally
+    {
+      aCache.setMaxSize (nOldMaxSize);
+      aCache.clear ();
+    }
+  }
+}